@@ -134,6 +134,26 @@ public class Memory extends org.mmtk.vm.Memory {
     return SimulatedMemory.unprotect(start, size);
   }
 
+  /**
+   * {@inheritDoc}
+   * The simulated memory has no physical backing to release, so
+   * just provide the zero-on-next-touch semantics.
+   */
+  @Override
+  public boolean decommit(Address start, int size) {
+    SimulatedMemory.zero(start, Extent.fromIntZeroExtend(size));
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   * The simulated memory has no pages to speak of, so the advice is ignored.
+   */
+  @Override
+  public boolean adviseHugePages(Address start, int size) {
+    return false;
+  }
+
   /** {@inheritDoc} */
   @Override
   public void zero(boolean useNT, Address start, Extent len) {
@@ -18,6 +18,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mmtk.harness.Mutator;
 import org.mmtk.harness.lang.Trace;
@@ -102,6 +103,9 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
   /** The value placed in alignment holes */
   public static final int ALIGNMENT_VALUE = 0xcafebabe;
 
+  /** The type descriptors of the object shapes seen so far */
+  private static final ConcurrentHashMap<Long, byte[]> typeDescriptors = new ConcurrentHashMap<Long, byte[]>();
+
   /*
    * Object identifiers.  Objects are allocated a sequential identifier.
    */
@@ -169,7 +173,7 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
 //    }
 
     // Allocate the raw memory
-    Address region = context.alloc(bytes, align, 0, allocator, 0);
+    Address region = context.alloc(bytes, align, 0, allocator, site);
 
     // Create an object reference.
     ObjectReference ref = region.toObjectReference();
@@ -517,9 +521,25 @@ public final class ObjectModel extends org.mmtk.vm.ObjectModel {
     return object.toAddress().plus(getSize(object));
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Harness objects have no type beyond their numbers of reference and
+   * data fields, so objects of the same shape share a descriptor of the
+   * form <code>Lharness/Object&lt;refs&gt;R&lt;data&gt;D;</code>.  The
+   * descriptor is read from the header alone, so it can be used during
+   * collection.
+   */
   @Override
   public byte[] getTypeDescriptor(ObjectReference ref) {
-    return getString(ref).getBytes();
+    long shape = ((long) getRefs(ref) << 32) | getDataCount(ref);
+    byte[] descriptor = typeDescriptors.get(shape);
+    if (descriptor == null) {
+      descriptor = String.format("Lharness/Object%dR%dD;", getRefs(ref), getDataCount(ref)).getBytes();
+      byte[] previous = typeDescriptors.putIfAbsent(shape, descriptor);
+      if (previous != null) descriptor = previous;
+    }
+    return descriptor;
   }
 
   @Override
@@ -61,6 +61,23 @@ public class Scanning extends org.mmtk.vm.Scanning {
     scanObject(trace, object);
   }
 
+  /**
+   * {@inheritDoc}
+   * The references of every harness object are contiguous.
+   */
+  @Override
+  public int getReferenceArrayLength(ObjectReference object) {
+    return ObjectModel.getRefs(object);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Address getReferenceArrayStart(ObjectReference object) {
+    return object.toAddress().plus(ObjectModel.REFS_OFFSET);
+  }
+
   /**
    * {@inheritDoc}
    */
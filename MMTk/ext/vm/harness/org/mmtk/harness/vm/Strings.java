@@ -12,10 +12,20 @@
  */
 package org.mmtk.harness.vm;
 
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.vmmagic.pragma.Interruptible;
 import org.vmmagic.pragma.Uninterruptible;
 
 @Uninterruptible
 public class Strings extends org.mmtk.vm.Strings {
+
+  /** Files opened by openFile, indexed by descriptor */
+  private final List<FileOutputStream> files = new ArrayList<FileOutputStream>();
+
   @Override
   public void write(char [] c, int len) {
     String x = new String(c, 0, len);
@@ -28,6 +38,37 @@ public class Strings extends org.mmtk.vm.Strings {
     System.err.print(Thread.currentThread().getId() + " : " + x);
   }
 
+  @Override
+  @Interruptible
+  public synchronized int openFile(String fileName) {
+    try {
+      files.add(new FileOutputStream(fileName));
+      return files.size() - 1;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  @Override
+  public synchronized boolean writeBytes(int fd, byte [] buf, int len) {
+    try {
+      files.get(fd).write(buf, 0, len);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized void closeFile(int fd) {
+    try {
+      files.get(fd).close();
+    } catch (IOException e) {
+      // Nothing more can be done
+    }
+    files.set(fd, null);
+  }
+
   @Override
   public int copyStringToChars(String src, char [] dst, int dstBegin, int dstEnd) {
     int count = 0;
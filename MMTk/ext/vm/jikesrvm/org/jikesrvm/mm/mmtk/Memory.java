@@ -186,6 +186,16 @@ import org.vmmagic.unboxed.Offset;
                                                    org.jikesrvm.runtime.Memory.PROT_EXEC);
   }
 
+  @Override
+  public final boolean decommit(Address start, int size) {
+    return org.jikesrvm.runtime.Memory.decommit(start, Extent.fromIntZeroExtend(size));
+  }
+
+  @Override
+  public final boolean adviseHugePages(Address start, int size) {
+    return org.jikesrvm.runtime.Memory.adviseHugePages(start, Extent.fromIntZeroExtend(size));
+  }
+
   @Override
   public final void zero(boolean useNT, Address start, Extent len) {
     org.jikesrvm.runtime.Memory.zero(useNT, start,len);
@@ -12,6 +12,7 @@
  */
 package org.jikesrvm.mm.mmtk;
 
+import org.mmtk.plan.CollectorContext;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.utility.options.Options;
 
@@ -78,6 +79,12 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
    */
   private static final double GROWTH_FACTOR = 2.0;
 
+  /**
+   * Number of consecutive table slots claimed at a time by a
+   * collector thread during parallel reference processing
+   */
+  private static final int PARALLEL_CHUNK_SIZE = STRESS ? 4 : 512;
+
 
   /*************************************************************************
    * Instance fields
@@ -107,6 +114,18 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
    */
   private volatile int maxIndex = 0;
 
+  /**
+   * The number of surviving references in each chunk of the table,
+   * recorded by parallel scans before the chunks are concatenated.
+   */
+  private volatile int[] chunkSurvivors = new int[chunksFor(INITIAL_SIZE)];
+
+  /**
+   * The next chunk of the table to be claimed during a parallel scan
+   * or forward. Reset to zero at the end of each parallel operation.
+   */
+  private final SynchronizedCounter nextChunk = new SynchronizedCounter();
+
   /**
    * Flag to prevent a race between threads growing the reference object
    * table.
@@ -208,6 +227,28 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
     return newReferences;
   }
 
+  /**
+   * Allocate a chunk survivor table large enough for a reference table
+   * of a given length.
+   *
+   * <p>Marked as UninterruptibleNoWarn because it can GC when it allocates.
+   *
+   * @param length the length of the reference table
+   * @return the new chunk survivor table
+   */
+  @UninterruptibleNoWarn
+  private static int[] growChunkSurvivors(int length) {
+    return new int[chunksFor(length)];
+  }
+
+  /**
+   * @param length the number of table slots
+   * @return the number of parallel processing chunks covering {@code length} slots
+   */
+  private static int chunksFor(int length) {
+    return (length + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+  }
+
   /**
    * Add a reference to the list of references.  This method is responsible
    * for installing the  address of the referent into the Reference object
@@ -254,8 +295,10 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
         growingTable = true;  // Prevent other threads from growing table while lock is released
         lock.release();       // Can't hold the lock while allocating
         AddressArray newTable = growReferenceTable();
+        int[] newChunkSurvivors = growChunkSurvivors(newTable.length());
         lock.acquire();
         references = newTable;
+        chunkSurvivors = newChunkSurvivors;
         growingTable = false; // Allow other threads to grow the table rather than waiting for us
       }
     }
@@ -274,9 +317,6 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
    * using separate traces.
    * <p>
    * Currently ignores the nursery hint.
-   * <p>
-   * TODO parallelise this code
-   *
    */
   @Override
   public void forward(TraceLocal trace, boolean nursery) {
@@ -312,8 +352,6 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
    * <p>
    * Depending on the value of <code>nursery</code>, we will either
    * scan all references, or just those created since the last scan.
-   * <p>
-   * TODO parallelise this code
    *
    * @param nursery Scan only the newly created references
    */
@@ -359,6 +397,98 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
     if (TRACE) VM.sysWriteln("Ending ReferenceGlue.scan(",semanticsStr,")");
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The table is divided into chunks of {@link #PARALLEL_CHUNK_SIZE}
+   * slots, which collector threads claim through an atomic counter.  Each
+   * thread compacts the surviving references to the start of the chunks
+   * it processed, and once all threads have finished, the first thread to
+   * reach the rendezvous concatenates the surviving entries.
+   */
+  @Override
+  public void scanParallel(CollectorContext collector, TraceLocal trace, boolean nursery, boolean retain, boolean primary) {
+    unforwardedReferences = references;
+
+    if (TRACE) VM.sysWriteln("Starting ReferenceGlue.scanParallel(",semanticsStr,")");
+    final int base = nursery ? nurseryIndex : 0;
+    final int limit = maxIndex;
+    final int chunks = chunksFor(limit - base);
+
+    for (int chunk = nextChunk.increment(); chunk < chunks; chunk = nextChunk.increment()) {
+      int start = base + chunk * PARALLEL_CHUNK_SIZE;
+      int end = start + PARALLEL_CHUNK_SIZE < limit ? start + PARALLEL_CHUNK_SIZE : limit;
+      if (retain) {
+        for (int fromIndex = start; fromIndex < end; fromIndex++) {
+          retainReferent(trace, getReference(fromIndex));
+        }
+      } else {
+        int toIndex = start;
+        for (int fromIndex = start; fromIndex < end; fromIndex++) {
+          ObjectReference newReference = processReference(trace, getReference(fromIndex));
+          if (!newReference.isNull()) {
+            setReference(toIndex++, newReference);
+          }
+        }
+        chunkSurvivors[chunk] = toIndex - start;
+      }
+    }
+
+    if (collector.rendezvous() == 0) {
+      if (!retain) {
+        int toIndex = base;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+          int start = base + chunk * PARALLEL_CHUNK_SIZE;
+          int survivors = chunkSurvivors[chunk];
+          if (start != toIndex) {
+            for (int i = 0; i < survivors; i++) {
+              references.set(toIndex + i, references.get(start + i));
+            }
+          }
+          toIndex += survivors;
+        }
+        if (Options.verbose.getValue() >= 3) {
+          VM.sysWrite(semanticsStr);
+          VM.sysWriteln(" references: ",maxIndex," -> ",toIndex);
+        }
+        nurseryIndex = maxIndex = toIndex;
+      }
+      nextChunk.reset();
+    }
+
+    /* flush out any remset entries generated during the above activities */
+    Selected.Mutator.get().flushRememberedSets();
+    if (TRACE) VM.sysWriteln("Ending ReferenceGlue.scanParallel(",semanticsStr,")");
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Collector threads claim chunks of the table as in
+   * {@link #scanParallel(CollectorContext, TraceLocal, boolean, boolean, boolean)}.
+   */
+  @Override
+  public void forwardParallel(CollectorContext collector, TraceLocal trace, boolean nursery, boolean primary) {
+    if (VM.VerifyAssertions) VM._assert(unforwardedReferences != null);
+    if (TRACE) VM.sysWriteln("Starting ReferenceGlue.forwardParallel(",semanticsStr,")");
+    final int chunks = chunksFor(maxIndex);
+    for (int chunk = nextChunk.increment(); chunk < chunks; chunk = nextChunk.increment()) {
+      int start = chunk * PARALLEL_CHUNK_SIZE;
+      int end = start + PARALLEL_CHUNK_SIZE < maxIndex ? start + PARALLEL_CHUNK_SIZE : maxIndex;
+      for (int i = start; i < end; i++) {
+        ObjectReference reference = unforwardedReferences.get(i).toObjectReference();
+        setReferent(reference, trace.getForwardedReferent(getReferent(reference)));
+        ObjectReference newReference = trace.getForwardedReference(reference);
+        unforwardedReferences.set(i, newReference.toAddress());
+      }
+    }
+    if (collector.rendezvous() == 0) {
+      unforwardedReferences = null;
+      nextChunk.reset();
+    }
+    if (TRACE) VM.sysWriteln("Ending ReferenceGlue.forwardParallel(",semanticsStr,")");
+  }
+
   /**
    * This method deals only with soft references. It retains the referent
    * if the reference is definitely reachable.
@@ -411,7 +541,12 @@ public final class ReferenceProcessor extends org.mmtk.vm.ReferenceProcessor {
    */
   public boolean enqueueReference(ObjectReference addr) {
     Reference<?> reference = (Reference<?>)addr.toObject();
-    return reference.enqueueInternal();
+    /* Reference queues are not thread safe, and collector threads may
+     * enqueue concurrently when processing references in parallel */
+    lock.acquire();
+    boolean result = reference.enqueueInternal();
+    lock.release();
+    return result;
   }
 
   /**
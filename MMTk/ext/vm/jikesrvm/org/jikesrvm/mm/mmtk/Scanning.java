@@ -16,6 +16,7 @@ import static org.jikesrvm.mm.mminterface.MemoryManagerConstants.MOVES_CODE;
 import static org.jikesrvm.runtime.UnboxedSizeConstants.LOG_BYTES_IN_ADDRESS;
 
 import org.jikesrvm.VM;
+import org.jikesrvm.classloader.RVMType;
 import org.jikesrvm.compilers.common.CompiledMethods;
 import org.jikesrvm.jni.JNIEnvironment;
 import org.jikesrvm.jni.JNIGenericHelpers;
@@ -76,6 +77,22 @@ public final class Scanning extends org.mmtk.vm.Scanning {
     }
   }
 
+  @Override
+  @Inline
+  public int getReferenceArrayLength(ObjectReference object) {
+    RVMType type = org.jikesrvm.objectmodel.ObjectModel.getObjectType(object.toObject());
+    if (type.getReferenceOffsets() == RVMType.REFARRAY_OFFSET_ARRAY) {
+      return Magic.getArrayLength(object.toObject());
+    }
+    return -1;
+  }
+
+  @Override
+  @Inline
+  public Address getReferenceArrayStart(ObjectReference object) {
+    return object.toAddress();
+  }
+
   @Override
   public void resetThreadCounter() {
     threadCounter.reset();
@@ -12,10 +12,15 @@
  */
 package org.jikesrvm.mm.mmtk;
 
+import static org.jikesrvm.runtime.SysCall.sysCall;
+
 import org.jikesrvm.VM;
+import org.jikesrvm.runtime.Magic;
 import org.jikesrvm.scheduler.RVMThread;
 import org.jikesrvm.util.Services;
+import org.jikesrvm.util.StringUtilities;
 import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
 
 @Uninterruptible
 public final class Strings extends org.mmtk.vm.Strings {
@@ -30,6 +35,29 @@ public final class Strings extends org.mmtk.vm.Strings {
     VM.tsysWrite(c, len);
   }
 
+  @Override
+  @Interruptible
+  public int openFile(String fileName) {
+    return sysCall.sysOpenFile(StringUtilities.stringToBytesNullTerminated(fileName));
+  }
+
+  @Override
+  public boolean writeBytes(int fd, byte [] buf, int len) {
+    Address start = Magic.objectAsAddress(buf);
+    int written = 0;
+    while (written < len) {
+      int rc = sysCall.sysWriteBytes(fd, start.plus(written), len - written);
+      if (rc <= 0) return false;
+      written += rc;
+    }
+    return true;
+  }
+
+  @Override
+  public void closeFile(int fd) {
+    sysCall.sysCloseFile(fd);
+  }
+
   @Override
   public int copyStringToChars(String str, char [] dst,
                                int dstBegin, int dstEnd) {
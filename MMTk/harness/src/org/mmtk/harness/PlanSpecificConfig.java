@@ -112,6 +112,11 @@ public class PlanSpecificConfig {
         .addExpectedSpaces("nursery", "rclos", "rc")
         .heapFactor(9984 / BASE_HEAP),
         "GenRC");
+    register(
+        new PlanSpecific("org.mmtk.plan.refcount.immix.RCImmix")
+        .addExpectedSpaces("rcimmix", "rclos", "rc")
+        .heapFactor(9984 / BASE_HEAP),
+        "RCImmix");
     register(
         new PlanSpecific("org.mmtk.plan.semispace.SS")
         .heapFactor(18816 / BASE_HEAP)
@@ -62,6 +62,11 @@ public class Env extends Mutator {
    */
   private Class<?> expectedThrowable;
 
+  /**
+   * Whether the shadow stack holds the roots of the current collection.
+   */
+  private boolean prepared = false;
+
   /**
    * Enter a new procedure, pushing a new stack frame.
    * @param callee Compiled method for which to push a frame
@@ -102,8 +107,16 @@ public class Env extends Mutator {
     Clock.start();
   }
 
+  /**
+   * Copy the roots to the shadow stack.  The roots may be scanned more
+   * than once in a collection (by the sanity checker or a heap census),
+   * and the later scans must see the references updated by the earlier
+   * ones, so the shadow stack is only filled once per collection.
+   */
   @Override
   public void prepare() {
+    if (prepared) return;
+    prepared = true;
     for (StackFrame frame : stack) {
       frame.prepare();
     }
@@ -111,6 +124,7 @@ public class Env extends Mutator {
 
   @Override
   public void release() {
+    prepared = false;
     for (StackFrame frame : stack) {
       frame.release();
     }
@@ -0,0 +1,197 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.harness.lang;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads back a heap dump written by MMTk in the HPROF binary format,
+ * checking its structure and counting the objects it holds.
+ */
+class HprofReader {
+
+  private static final String FORMAT = "JAVA PROFILE 1.0.2";
+
+  /* Record and sub-record tags */
+  private static final int HEAP_DUMP = 0x0C;
+  private static final int HEAP_DUMP_SEGMENT = 0x1C;
+  private static final int ROOT_UNKNOWN = 0xFF;
+  private static final int CLASS_DUMP = 0x20;
+  private static final int INSTANCE_DUMP = 0x21;
+  private static final int OBJECT_ARRAY_DUMP = 0x22;
+  private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+  /* Basic types */
+  private static final int OBJECT = 2;
+
+  private final DataInputStream in;
+  private int idBytes;
+  private int objects;
+
+  /**
+   * Count the objects in a heap dump.
+   *
+   * @param fileName The name of the dump file
+   * @return The number of instances and arrays in the dump
+   * @throws IOException if the file cannot be read or is malformed
+   */
+  static int countObjects(String fileName) throws IOException {
+    HprofReader reader = new HprofReader(fileName);
+    try {
+      return reader.read();
+    } finally {
+      reader.in.close();
+    }
+  }
+
+  private HprofReader(String fileName) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+  }
+
+  private int read() throws IOException {
+    StringBuilder format = new StringBuilder();
+    for (int c = in.readUnsignedByte(); c != 0; c = in.readUnsignedByte()) {
+      format.append((char) c);
+    }
+    if (!format.toString().equals(FORMAT)) {
+      throw new IOException("Not an HPROF file: " + format);
+    }
+    idBytes = in.readInt();
+    if (idBytes != 4 && idBytes != 8) {
+      throw new IOException("Bad identifier size " + idBytes);
+    }
+    in.readLong();
+
+    while (true) {
+      int tag = in.read();
+      if (tag < 0) break;
+      in.readInt();
+      long length = in.readInt() & 0xFFFFFFFFL;
+      if (tag == HEAP_DUMP || tag == HEAP_DUMP_SEGMENT) {
+        readSegment(length);
+      } else {
+        skip(length);
+      }
+    }
+    return objects;
+  }
+
+  /**
+   * Read the sub-records of a heap dump segment.
+   *
+   * @param length The length of the segment
+   */
+  private void readSegment(long length) throws IOException {
+    long read = 0;
+    while (read < length) {
+      read += readSubRecord();
+    }
+    if (read != length) {
+      throw new IOException("Sub-record overruns its segment");
+    }
+  }
+
+  /**
+   * @return The length of the sub-record read, including its tag
+   */
+  private long readSubRecord() throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case ROOT_UNKNOWN:
+        skip(idBytes);
+        return 1 + idBytes;
+      case CLASS_DUMP: {
+        long length = 1 + skip(idBytes + 4 + 6 * idBytes + 4);
+        int constants = in.readUnsignedShort();
+        length += 2;
+        for (int i = 0; i < constants; i++) {
+          length += skip(2);
+          length += 1 + skipValue(in.readUnsignedByte());
+        }
+        int statics = in.readUnsignedShort();
+        length += 2;
+        for (int i = 0; i < statics; i++) {
+          length += skip(idBytes);
+          length += 1 + skipValue(in.readUnsignedByte());
+        }
+        int fields = in.readUnsignedShort();
+        length += 2;
+        return length + skip(fields * (idBytes + 1));
+      }
+      case INSTANCE_DUMP: {
+        objects++;
+        long length = 1 + skip(idBytes + 4 + idBytes);
+        int bytes = in.readInt();
+        return length + 4 + skip(bytes);
+      }
+      case OBJECT_ARRAY_DUMP: {
+        objects++;
+        long length = 1 + skip(idBytes + 4);
+        int elements = in.readInt();
+        return length + 4 + skip(idBytes) + skip((long) elements * idBytes);
+      }
+      case PRIMITIVE_ARRAY_DUMP: {
+        objects++;
+        long length = 1 + skip(idBytes + 4);
+        int elements = in.readInt();
+        int type = in.readUnsignedByte();
+        return length + 5 + skip((long) elements * getSize(type));
+      }
+      default:
+        throw new IOException("Unexpected heap dump sub-record " + tag);
+    }
+  }
+
+  /**
+   * @param type A basic type
+   * @return The number of bytes skipped
+   */
+  private long skipValue(int type) throws IOException {
+    return skip(getSize(type));
+  }
+
+  /**
+   * @param type A basic type
+   * @return The size of a value of the type
+   */
+  private int getSize(int type) throws IOException {
+    switch (type) {
+      case OBJECT: return idBytes;
+      case 4: case 8: return 1;
+      case 5: case 9: return 2;
+      case 6: case 10: return 4;
+      case 7: case 11: return 8;
+      default: throw new IOException("Bad basic type " + type);
+    }
+  }
+
+  /**
+   * @param bytes The number of bytes to skip
+   * @return The number of bytes skipped
+   */
+  private long skip(long bytes) throws IOException {
+    for (long left = bytes; left > 0; ) {
+      long skipped = in.skip(left);
+      if (skipped <= 0) {
+        if (in.read() < 0) throw new EOFException("Heap dump is truncated");
+        skipped = 1;
+      }
+      left -= skipped;
+    }
+    return bytes;
+  }
+}
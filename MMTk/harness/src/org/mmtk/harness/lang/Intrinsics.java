@@ -12,6 +12,8 @@
  */
 package org.mmtk.harness.lang;
 
+import java.io.IOException;
+
 import org.mmtk.harness.Harness;
 import org.mmtk.harness.Mutator;
 import org.mmtk.harness.lang.runtime.ObjectValue;
@@ -29,6 +31,10 @@ import org.mmtk.plan.Plan;
  * org.mmtk.harness.lang.parser.GlobalDefs
  */
 public class Intrinsics {
+
+  /** Time origin for the {@link #millis(Env)} intrinsic */
+  private static final long START_TIME = System.nanoTime();
+
   /**
    * Force GC
    * @param env Thread-local environment (language-dependent mutator context)
@@ -45,6 +51,22 @@ public class Intrinsics {
     return Collection.getGcCount();
   }
 
+  /**
+   * @return the number of kilobytes of heap currently in use
+   * @param env Thread-local environment (language-dependent mutator context)
+   */
+  public static int usedKBytes(Env env) {
+    return (int)(Plan.usedMemory().toLong() >> 10);
+  }
+
+  /**
+   * @return the elapsed wall-clock time, in milliseconds, since the harness started
+   * @param env Thread-local environment (language-dependent mutator context)
+   */
+  public static int millis(Env env) {
+    return (int)((System.nanoTime() - START_TIME) / 1000000);
+  }
+
   /**
    * Return the thread ID
    * @param env Thread-local environment (language-dependent mutator context)
@@ -92,6 +114,21 @@ public class Intrinsics {
     Mutator.dumpHeap();
   }
 
+  /**
+   * Read back a heap dump written by MMTk (see the heapDumpFile option)
+   * @param env Thread-local environment (language-dependent mutator context)
+   * @param fileName The name of the dump file
+   * @return The number of objects in the dump, or -1 if it could not be read
+   */
+  public static int heapDumpObjects(Env env, String fileName) {
+    try {
+      return HprofReader.countObjects(fileName);
+    } catch (IOException e) {
+      System.err.println("Error reading heap dump " + fileName + ": " + e.getMessage());
+      return -1;
+    }
+  }
+
   /**
    * Unit test method for the Intrinsic method
    *
@@ -46,6 +46,8 @@ public class GlobalDefs {
   public final MethodTable methods = new MethodTable(
       new IntrinsicMethod("gc",INTRINSICS,"gc"),
       new IntrinsicMethod("gcCount",INTRINSICS,"gcCount"),
+      new IntrinsicMethod("usedKBytes",INTRINSICS,"usedKBytes"),
+      new IntrinsicMethod("millis",INTRINSICS,"millis"),
       new IntrinsicMethod("tid",INTRINSICS,"threadId"),
       new IntrinsicMethod("hash",INTRINSICS,"hash",
           new Class<?>[] { ObjectValue.class }),
@@ -54,6 +56,8 @@ public class GlobalDefs {
       new IntrinsicMethod("setSeed",INTRINSICS,"setRandomSeed",
           new Class<?>[] { int.class }),
       new IntrinsicMethod("heapDump",INTRINSICS,"heapDump"),
+      new IntrinsicMethod("heapDumpObjects",INTRINSICS,"heapDumpObjects",
+          new Class<?>[] { String.class }),
       new IntrinsicMethod("weakRef",INTRINSICS,"weakRef",
           new Class<?>[] { ObjectValue.class }),
       new IntrinsicMethod("getWeakReferent",INTRINSICS,"getReferent",
@@ -13,6 +13,7 @@
 package org.mmtk.harness.scheduler.javathreads;
 
 import org.mmtk.harness.Harness;
+import org.mmtk.plan.Plan;
 
 public class JavaMonitor extends org.mmtk.vm.Monitor {
 
@@ -71,14 +72,22 @@ public class JavaMonitor extends org.mmtk.vm.Monitor {
       unlock();
       trace("await", "waiting");
       long start = startWait();
-      while (savedCount == counter && !timedOut(start)) {
+      while (savedCount == counter) {
+        if (timedOut(start)) {
+          /*
+           * Idle collector threads wait here until the next collection or
+           * concurrent cycle, however long the mutators run, so only a wait
+           * within a collection is a deadlock.
+           */
+          if (Plan.gcInProgress()) {
+            Harness.dumpStateAndExit("Timed out waiting for notification at " + name + ", held by");
+          }
+          start = startWait();
+        }
         try {
           monitor.wait(WAIT_TIME);
         } catch (InterruptedException e) { }
       }
-      if (timedOut(start)) {
-        Harness.dumpStateAndExit("Timed out waiting for notification at " + name + ", held by");
-      }
       trace("await", "waking ...");
       lock();
     }
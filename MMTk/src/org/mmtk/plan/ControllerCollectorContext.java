@@ -14,7 +14,10 @@ package org.mmtk.plan;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.heap.HeapGrowthManager;
+import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.utility.statistics.GCEventLog;
 import org.mmtk.vm.Monitor;
 import org.mmtk.vm.VM;
 
@@ -23,6 +26,9 @@ import org.vmmagic.pragma.*;
 @Uninterruptible
 public class ControllerCollectorContext extends CollectorContext {
 
+  /** The number of worker threads taking part in each collection */
+  private static final EventCounter workersUsed = new EventCounter("workers", true, true);
+
   /** The lock to use to manage collection */
   private Monitor lock;
 
@@ -41,6 +47,9 @@ public class ControllerCollectorContext extends CollectorContext {
   /** Is there concurrent collection activity */
   private boolean concurrentCollection = false;
 
+  /** The plan's estimate of the work of the current collection, in pages */
+  private int expectedWork;
+
   /**
    * Create a controller context.
    *
@@ -94,7 +103,7 @@ public class ControllerCollectorContext extends CollectorContext {
 
       // Trigger GC.
       if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Triggering worker threads...]");
-      workers.triggerCycle();
+      workers.triggerCycle(chooseWorkerCount());
 
       // Wait for GC threads to complete.
       workers.waitForCycle();
@@ -112,6 +121,9 @@ public class ControllerCollectorContext extends CollectorContext {
         HeapGrowthManager.reset();
       }
 
+      // Return memory that has stayed free to the operating system
+      HeapLayout.mmapper.decommitFreeChunks();
+
       // Reset the triggering information.
       Plan.resetCollectionTrigger();
 
@@ -119,6 +131,9 @@ public class ControllerCollectorContext extends CollectorContext {
       if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Resuming mutators...]");
       VM.collection.resumeAllMutators();
 
+      // Write out the GC log records of this collection, outside the pause
+      GCEventLog.flushRecords();
+
       // Start threads that will perform concurrent collection work alongside mutators.
       if (concurrentCollection) {
         if (Options.verbose.getValue() >= 5) Log.writeln("[STWController: Triggering concurrent collectors...]");
@@ -127,6 +142,53 @@ public class ControllerCollectorContext extends CollectorContext {
     }
   }
 
+  /**
+   * Choose how many of the worker threads should take part in the
+   * coming collection, from the plan's estimate of the work it will do.
+   * Each worker is expected to have at least the number of pages of work
+   * set by the <code>threadWorkPages</code> option.
+   *
+   * @return The number of workers to use
+   */
+  private int chooseWorkerCount() {
+    int maxWorkers = workers.workerCount();
+    int workPages = Options.threadWorkPages.getValue();
+    int count = maxWorkers;
+    if (workPages > 0) {
+      expectedWork = VM.activePlan.global().expectedCollectionWork();
+      count = Math.min(maxWorkers, 1 + expectedWork / workPages);
+    }
+    workersUsed.inc(count);
+    if (Options.verbose.getValue() >= 3) {
+      Log.write("[STWController: Using ", count);
+      Log.write(" of ", maxWorkers);
+      Log.writeln(" workers]");
+    }
+    return count;
+  }
+
+  /**
+   * Choose how many of the workers taking part in the current collection
+   * should execute a phase.  The phase is expected to do the same share
+   * of the collection's work as it took of the cost of the previous
+   * collection, and each worker is again expected to have at least the
+   * number of pages of work set by the <code>threadWorkPages</code>
+   * option.
+   *
+   * @param maxWorkers The number of workers taking part in the collection
+   * @param phaseCost The cost of the last execution of the phase, or zero if unknown
+   * @param collectionCost The cost of the previous collection, or zero if unknown
+   * @return The number of workers to use for the phase
+   */
+  int choosePhaseWorkerCount(int maxWorkers, long phaseCost, long collectionCost) {
+    int workPages = Options.threadWorkPages.getValue();
+    if (workPages == 0 || phaseCost == 0 || collectionCost == 0) {
+      return maxWorkers;
+    }
+    long phaseWork = expectedWork * Math.min(phaseCost, collectionCost) / collectionCost;
+    return (int) Math.min(maxWorkers, 1 + phaseWork / workPages);
+  }
+
   /**
    * Request that concurrent collection is performed after this stop-the-world increment.
    */
@@ -127,6 +127,9 @@ public abstract class MutatorContext {
   /** Per-mutator allocator into the non moving space */
   protected final MarkSweepLocal nonmove = new MarkSweepLocal(Plan.nonMovingSpace);
 
+  /** Was the allocation in progress chosen as a sample for the allocation profiler? */
+  private boolean allocationSampled = false;
+
 
   /****************************************************************************
    *
@@ -170,7 +173,7 @@ public abstract class MutatorContext {
       return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? Plan.ALLOC_LOS_DRAM : Plan.ALLOC_DRAM;
     }
     if (allocator == Plan.ALLOC_NVM) {
-      return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? Plan.ALLOC_LOS_NVM : Plan.ALLOC_NVM;
+      return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? largeAllocator(maxBytes, Plan.ALLOC_LOS_NVM) : Plan.ALLOC_NVM;
     }
 
     if (Plan.USE_CODE_SPACE && allocator == Plan.ALLOC_CODE) {
@@ -178,16 +181,34 @@ public abstract class MutatorContext {
     }
 
     if (allocator == Plan.ALLOC_NON_REFERENCE) {
-      return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? Plan.ALLOC_LOS : Plan.ALLOC_DEFAULT;
+      return (maxBytes > Plan.MAX_NON_LOS_DEFAULT_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? largeAllocator(maxBytes, Plan.ALLOC_LOS) : Plan.ALLOC_DEFAULT;
     }
 
     if (allocator == Plan.ALLOC_NON_MOVING) {
-      return (maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? Plan.ALLOC_LOS : allocator;
+      return (maxBytes > Plan.MAX_NON_LOS_NONMOVING_ALLOC_BYTES || (maxBytes > Plan.MAX_NON_LOS_COPY_BYTES && maxBytes > Plan.pretenureThreshold)) ? largeAllocator(maxBytes, Plan.ALLOC_LOS) : allocator;
     }
 
     return allocator;
   }
 
+  /**
+   * Choose the allocator for an object too large for the plan's
+   * regular spaces.  Objects small enough for the plan's medium object
+   * space, if it has one, are allocated there, and all others to the
+   * large object space.  There is a single medium object space, which
+   * takes the place of the default (NVM) large object space, so large
+   * DRAM requests do not come here and stay in the DRAM large object
+   * space.
+   *
+   * @param maxBytes The maximum number of bytes the object may occupy
+   * @param losAllocator The large object allocator to use otherwise
+   * @return The allocator for the object
+   */
+  @Inline
+  private static int largeAllocator(int maxBytes, int losAllocator) {
+    return maxBytes <= Plan.MAX_MEDIUM_OBJECT_BYTES ? Plan.ALLOC_MEDIUM : losAllocator;
+  }
+
   /**
    * Allocate memory for an object.
    *
@@ -239,6 +260,28 @@ public abstract class MutatorContext {
     }
   }
 
+  /**
+   * Note that the allocation in progress has been chosen by its
+   * allocator as a sample for the allocation profiler.
+   */
+  public final void sampleAllocation() {
+    allocationSampled = true;
+  }
+
+  /**
+   * Called by the VM once an allocation is complete, to find out whether
+   * it should be reported to the allocation profiler.
+   *
+   * @return {@code true} if the allocation just completed was chosen
+   * as a sample
+   */
+  @Inline
+  public final boolean takeAllocationSample() {
+    if (!allocationSampled) return false;
+    allocationSampled = false;
+    return true;
+  }
+
   /****************************************************************************
    *
    * Space - Allocator mapping.
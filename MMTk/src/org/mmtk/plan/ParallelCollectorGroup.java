@@ -19,7 +19,11 @@ import org.vmmagic.pragma.*;
 
 /**
  * This class represents a pool of collector contexts that can be triggered
- * to perform collection activity.
+ * to perform collection activity.<p>
+ *
+ * Each cycle may be performed by only some of the contexts: those whose
+ * ordinal is below the number of active workers chosen when the cycle is
+ * triggered.  The others remain parked until a later cycle needs them.
  */
 @Uninterruptible
 public class ParallelCollectorGroup {
@@ -40,6 +44,9 @@ public class ParallelCollectorGroup {
   /** The number of cycles triggered */
   private volatile int triggerCount;
 
+  /** The number of contexts taking part in the current cycle */
+  private volatile int activeWorkers;
+
   /** The number of threads that are currently parked */
   private volatile int contextsParked;
 
@@ -68,6 +75,13 @@ public class ParallelCollectorGroup {
    * @return The number of active collector contexts.
    */
   public int activeWorkerCount() {
+    return activeWorkers;
+  }
+
+  /**
+   * @return The number of collector contexts within the group.
+   */
+  public int workerCount() {
     return contexts.length;
   }
 
@@ -82,6 +96,7 @@ public class ParallelCollectorGroup {
     this.lock = VM.newHeavyCondLock("CollectorContextGroup");
     this.triggerCount = 1;
     this.contexts = new ParallelCollector[size];
+    this.activeWorkers = size;
     for (int i = 0; i < size; i++) {
       try {
         contexts[i] = klass.newInstance();
@@ -98,7 +113,19 @@ public class ParallelCollectorGroup {
    * Wake up the parked threads in this group.
    */
   public void triggerCycle() {
+    triggerCycle(contexts.length);
+  }
+
+  /**
+   * Wake up the parked threads in this group, of which only the given
+   * number will take part in the cycle.
+   *
+   * @param workers The number of contexts to take part in the cycle
+   */
+  public void triggerCycle(int workers) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(workers > 0 && workers <= contexts.length);
     lock.lock();
+    activeWorkers = workers;
     triggerCount++;
     contextsParked = 0;
     lock.broadcast();
@@ -144,18 +171,33 @@ public class ParallelCollectorGroup {
     lock.lock();
     context.lastTriggerCount++;
     if (context.lastTriggerCount == triggerCount) {
-      contextsParked++;
-      if (contextsParked == contexts.length) {
-        aborted = false;
-      }
-      lock.broadcast();
-      while (context.lastTriggerCount == triggerCount) {
-        lock.await();
-      }
+      parkLocked(context);
+    }
+    while (context.workerOrdinal >= activeWorkers) {
+      /* This cycle proceeds without us */
+      context.lastTriggerCount++;
+      parkLocked(context);
     }
     lock.unlock();
   }
 
+  /**
+   * Count the given context as parked, and wait for the next cycle.
+   * The group lock must be held.
+   *
+   * @param context The context to park.
+   */
+  private void parkLocked(ParallelCollector context) {
+    contextsParked++;
+    if (contextsParked == contexts.length) {
+      aborted = false;
+    }
+    lock.broadcast();
+    while (context.lastTriggerCount == triggerCount) {
+      lock.await();
+    }
+  }
+
   /**
    * Is the given context and member of this group.
    *
@@ -180,12 +222,12 @@ public class ParallelCollectorGroup {
     lock.lock();
     int i = currentRendezvousCounter;
     int me = rendezvousCounter[i]++;
-    if (me == contexts.length - 1) {
+    if (me == activeWorkers - 1) {
       currentRendezvousCounter ^= 1;
       rendezvousCounter[currentRendezvousCounter] = 0;
       lock.broadcast();
     } else {
-      while (rendezvousCounter[i] < contexts.length) {
+      while (rendezvousCounter[i] < activeWorkers) {
         lock.await();
       }
     }
@@ -14,6 +14,7 @@ package org.mmtk.plan;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.GCEventLog;
 import org.mmtk.utility.statistics.Timer;
 import org.mmtk.vm.VM;
 
@@ -39,7 +40,7 @@ public abstract class Phase {
   */
 
   /** The maximum number of phases */
-  private static final int MAX_PHASES = 64;
+  public static final int MAX_PHASES = 128;
   /** The array of phase instances. Zero is unused. */
   private static final Phase[] phases = new Phase[MAX_PHASES];
   /** The id to be allocated for the next phase */
@@ -370,6 +371,35 @@ public abstract class Phase {
    */
   private static boolean oddMutatorResetRendezvous;
 
+  /**
+   * The number of workers that execute the current even (0 mod 2)
+   * scheduled phase.  Separated from the odd count for the same reason
+   * as the scheduled phases.
+   */
+  private static int evenPhaseWorkers;
+
+  /**
+   * The number of workers that execute the current odd (1 mod 2)
+   * scheduled phase.  Separated from the even count for the same reason
+   * as the scheduled phases.
+   */
+  private static int oddPhaseWorkers;
+
+  /**
+   * The cost of the last execution of each simple phase, in nanoseconds
+   * of worker time, or zero if the phase has not been executed.
+   */
+  private static final long[] phaseCosts = new long[MAX_PHASES];
+
+  /** The cost of the phases of the current collection so far, in nanoseconds of worker time */
+  private static long collectionCost;
+
+  /** The cost of the phases of the previous collection, in nanoseconds of worker time */
+  private static long lastCollectionCost;
+
+  /** The time at which the current phase started */
+  private static long phaseStartTime;
+
   /**
    * The complex phase whose timer should be started after the next
    * rendezvous. We can not start the timer at the point we determine
@@ -396,6 +426,10 @@ public abstract class Phase {
 
     if (order == 0) {
       pushScheduledPhase(scheduledPhase);
+      if (collectionCost > 0) {
+        lastCollectionCost = collectionCost;
+        collectionCost = 0;
+      }
     }
     processPhaseStack(false);
   }
@@ -443,7 +477,8 @@ public abstract class Phase {
       allowConcurrentPhase = Plan.isInternalTriggeredCollection() && !Plan.isEmergencyCollection();
 
       /* First phase will be even, so we say we are odd here so that the next phase set is even*/
-      setNextPhase(false, getNextPhase(), false);
+      int next = getNextPhase();
+      setNextPhase(false, next, false, choosePhaseWorkers(next, collector.group));
     }
 
     /* Make sure everyone sees the first phase */
@@ -455,13 +490,16 @@ public abstract class Phase {
       short schedule = getSchedule(scheduledPhase);
       short phaseId = getPhaseId(scheduledPhase);
       Phase p = getPhase(phaseId);
+      int phaseWorkers = getPhaseWorkers(isEvenPhase);
 
       /* Start the timer(s) */
       if (primary) {
+        phaseStartTime = VM.statistics.nanoTime();
         if (resume) {
           resumeComplexTimers();
         }
         if (p.timer != null) p.timer.start();
+        GCEventLog.startPhase();
         if (startComplexTimer > 0) {
           Phase.getPhase(startComplexTimer).timer.start();
           startComplexTimer = 0;
@@ -497,10 +535,14 @@ public abstract class Phase {
 
         /* Mutator phase */
         case SCHEDULE_MUTATOR: {
-          if (logDetails) Log.writeln(" as Mutator...");
-          /* Iterate through all mutator contexts */
+          if (logDetails) {
+            Log.write(" as Mutator on ", phaseWorkers);
+            Log.writeln(" workers...");
+          }
+          /* Iterate through all mutator contexts, unless this phase proceeds without us */
           MutatorContext mutator;
-          while ((mutator = VM.activePlan.getNextMutator()) != null) {
+          while (collector.parallelWorkerOrdinal() < phaseWorkers &&
+                 (mutator = VM.activePlan.getNextMutator()) != null) {
             if (VM.DEBUG) VM.debugging.mutatorPhase(phaseId,mutator.getId(),true);
             mutator.collectionPhase(phaseId, primary);
             if (VM.DEBUG) VM.debugging.mutatorPhase(phaseId,mutator.getId(),false);
@@ -536,7 +578,7 @@ public abstract class Phase {
         /* Set the next phase by processing the stack */
         int next = getNextPhase();
         boolean needsResetRendezvous = (next > 0) && (schedule == SCHEDULE_MUTATOR && getSchedule(next) == SCHEDULE_MUTATOR);
-        setNextPhase(isEvenPhase, next, needsResetRendezvous);
+        setNextPhase(isEvenPhase, next, needsResetRendezvous, choosePhaseWorkers(next, collector.group));
       }
 
       /* Sync point after execution of a phase */
@@ -556,7 +598,11 @@ public abstract class Phase {
 
       /* Stop the timer(s) */
       if (primary) {
+        long cost = (VM.statistics.nanoTime() - phaseStartTime) * (schedule == SCHEDULE_GLOBAL ? 1 : phaseWorkers);
+        phaseCosts[phaseId] = cost;
+        collectionCost += cost;
         if (p.timer != null) p.timer.stop();
+        GCEventLog.endPhase(phaseId);
         if (stopComplexTimer > 0) {
           Phase.getPhase(stopComplexTimer).timer.stop();
           stopComplexTimer = 0;
@@ -577,6 +623,34 @@ public abstract class Phase {
     return isEvenPhase ? evenScheduledPhase : oddScheduledPhase;
   }
 
+  /**
+   * @param isEvenPhase whether the phase is even or odd
+   * @return the number of workers that execute the phase
+   */
+  private static int getPhaseWorkers(boolean isEvenPhase) {
+    return isEvenPhase ? evenPhaseWorkers : oddPhaseWorkers;
+  }
+
+  /**
+   * Choose how many workers execute a scheduled phase.  Collector phases
+   * use every worker of the group, as collectors keep local state and
+   * share deque termination counts from one phase to the next.  Mutator
+   * phases hand out mutators to whichever workers ask, so they are sized
+   * from the phase's cost in earlier collections.
+   *
+   * @param scheduledPhase the scheduled phase, or -1 if no phases are left
+   * @param group the group of workers executing the phase stack
+   * @return the number of workers that execute the phase
+   */
+  private static int choosePhaseWorkers(int scheduledPhase, ParallelCollectorGroup group) {
+    int workers = group.activeWorkerCount();
+    if (scheduledPhase > 0 && getSchedule(scheduledPhase) == SCHEDULE_MUTATOR) {
+      long cost = phaseCosts[getPhaseId(scheduledPhase)];
+      workers = Plan.controlCollectorContext.choosePhaseWorkerCount(workers, cost, lastCollectionCost);
+    }
+    return workers;
+  }
+
   /**
    * @param isEvenPhase whether the phase is even or odd
    * @return whether we need a mutator reset rendezvous in this phase
@@ -591,14 +665,17 @@ public abstract class Phase {
    * @param scheduledPhase the scheduled phase
    * @param needsResetRendezvous whether it's necessary to rendezvous. This is
    *  only necessary for consecutive mutator phases.
+   * @param workers the number of workers that execute the scheduled phase
    */
-  private static void setNextPhase(boolean isEvenPhase, int scheduledPhase, boolean needsResetRendezvous) {
+  private static void setNextPhase(boolean isEvenPhase, int scheduledPhase, boolean needsResetRendezvous, int workers) {
     if (isEvenPhase) {
       oddScheduledPhase = scheduledPhase;
       evenMutatorResetRendezvous = needsResetRendezvous;
+      oddPhaseWorkers = workers;
     } else {
       evenScheduledPhase = scheduledPhase;
       oddMutatorResetRendezvous = needsResetRendezvous;
+      evenPhaseWorkers = workers;
     }
   }
 
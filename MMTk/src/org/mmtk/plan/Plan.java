@@ -29,6 +29,7 @@ import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.options.*;
 import org.mmtk.utility.sanitychecker.SanityChecker;
+import org.mmtk.utility.statistics.GCEventLog;
 import org.mmtk.utility.statistics.Timer;
 import org.mmtk.utility.statistics.Stats;
 import org.mmtk.vm.VM;
@@ -89,8 +90,9 @@ public abstract class Plan {
   public static final int ALLOC_LARGE_CODE = 8;
   public static final int ALLOC_HOT_CODE = USE_CODE_SPACE ? ALLOC_CODE : ALLOC_DEFAULT;
   public static final int ALLOC_COLD_CODE = USE_CODE_SPACE ? ALLOC_CODE : ALLOC_DEFAULT;
+  public static final int ALLOC_MEDIUM = 11;
   public static final int ALLOC_STACK = ALLOC_LOS;
-  public static final int ALLOCATORS = 11;
+  public static final int ALLOCATORS = 12;
   public static final int DEFAULT_SITE = -1;
 
   /* Miscellaneous Constants */
@@ -104,6 +106,7 @@ public abstract class Plan {
   public static final int MAX_NON_LOS_DEFAULT_ALLOC_BYTES = VM.activePlan.constraints().maxNonLOSDefaultAllocBytes();
   public static final int MAX_NON_LOS_NONMOVING_ALLOC_BYTES = VM.activePlan.constraints().maxNonLOSNonMovingAllocBytes();
   public static final int MAX_NON_LOS_COPY_BYTES = VM.activePlan.constraints().maxNonLOSCopyBytes();
+  public static final int MAX_MEDIUM_OBJECT_BYTES = VM.activePlan.constraints().maxMediumObjectBytes();
 
   /* Do we support a log bit in the object header?  Some write barriers may use it */
   public static final boolean NEEDS_LOG_BIT_IN_HEADER = VM.activePlan.constraints().needsLogBitInHeader();
@@ -164,24 +167,41 @@ public abstract class Plan {
     /* Create base option instances */
     Options.verbose = new Verbose();
     Options.verboseTiming = new VerboseTiming();
+    Options.verboseFragmentationStats = new VerboseFragmentationStats();
     Options.stressFactor = new StressFactor();
     Options.noFinalizer = new NoFinalizer();
     Options.noReferenceTypes = new NoReferenceTypes();
+    Options.parallelReferenceProcessing = new ParallelReferenceProcessing();
     Options.fullHeapSystemGC = new FullHeapSystemGC();
     Options.harnessAll = new HarnessAll();
     Options.ignoreSystemGC = new IgnoreSystemGC();
     Options.metaDataLimit = new MetaDataLimit();
     Options.nurserySize = new NurserySize();
+    Options.pauseGoal = new PauseGoal();
+    Options.cardMarking = new CardMarking();
+    Options.tenuringThreshold = new TenuringThreshold();
+    Options.sitePretenuring = new SitePretenuring();
     Options.nurseryZeroing = new NurseryZeroing();
+    Options.blockZeroing = new BlockZeroing();
     Options.pretenureThresholdFraction = new PretenureThresholdFraction();
     Options.variableSizeHeap = new VariableSizeHeap();
+    Options.gcOverheadTarget = new GCOverheadTarget();
+    Options.uncommitDelay = new UncommitDelay();
     Options.eagerMmapSpaces = new EagerMmapSpaces();
+    Options.hugePages = new HugePages();
     Options.sanityCheck = new SanityCheck();
+    Options.heapHistogram = new HeapHistogram();
+    Options.heapDumpFile = new HeapDumpFile();
     Options.debugAddress = new DebugAddress();
     Options.perfEvents = new PerfEvents();
+    Options.allocationSampleBytes = new AllocationSampleBytes();
     Options.useReturnBarrier = new UseReturnBarrier();
     Options.useShortStackScans = new UseShortStackScans();
     Options.threads = new Threads();
+    Options.threadWorkPages = new ThreadWorkPages();
+    Options.workStealing = new WorkStealing();
+    Options.tracePrefetch = new TracePrefetch();
+    Options.edgeTrace = new EdgeTrace();
     Options.cycleTriggerThreshold = new CycleTriggerThreshold();
     HeapLayout.vmMap.finalizeStaticSpaceMap();
     registerSpecializedMethods();
@@ -230,7 +250,8 @@ public abstract class Plan {
    */
   @Interruptible
   public void processOptions() {
-    VM.statistics.perfEventInit(Options.perfEvents.getValue());
+    VM.statistics.perfEventInit(Options.perfEvents.getEvents());
+    GCEventLog.boot();
     if (Options.verbose.getValue() > 2) Space.printVMMap();
     if (Options.verbose.getValue() > 3) VM.config.printConfig();
     if (Options.verbose.getValue() > 0) Stats.startAll();
@@ -376,6 +397,7 @@ public abstract class Plan {
       Log.writeln(" ms]");
     }
     if (Options.verboseTiming.getValue()) printDetailedTiming(true);
+    GCEventLog.writeLog();
   }
 
   /**
@@ -597,6 +619,7 @@ public abstract class Plan {
       // count (which we need for JMX). This call won't cause
       // gathering of additional stats unless stats are enabled.
       Stats.startGC();
+      GCEventLog.startPause();
       if (Stats.gatheringStats()) {
         VM.activePlan.global().printPreStats();
       }
@@ -606,6 +629,7 @@ public abstract class Plan {
     VM.memory.fence();
     if (gcStatus == NOT_IN_GC) {
       /* From any phase to NOT_IN_GC */
+      GCEventLog.endPause();
       if (Stats.gatheringStats()) {
         Stats.endGC();
         VM.activePlan.global().printPostStats();
@@ -703,6 +727,11 @@ public abstract class Plan {
     Log.write(" MB (");
     Log.write(getTotalPages());
     Log.write(" pgs)");
+    if (Options.uncommitDelay.getValue() > 0) {
+      Log.write("      committed = ");
+      Log.write(committedMemory().toWord().rshl(20));
+      Log.write(" MB");
+    }
     Log.writeln();
   }
 
@@ -871,6 +900,18 @@ public abstract class Plan {
     return HeapGrowthManager.getCurrentHeapSize();
   }
 
+  /**
+   * Return the amount of memory mapped by the memory management
+   * system that is backed by physical memory, in bytes.  This
+   * excludes memory that has been returned to the operating system
+   * after being free for some time.
+   *
+   * @return The amount of committed memory, in bytes.
+   */
+  public static Extent committedMemory() {
+    return HeapLayout.mmapper.getCommittedBytes();
+  }
+
   /* Instance methods */
 
   /**
@@ -931,6 +972,17 @@ public abstract class Plan {
               metaDataSpace.reservedPages() + nonMovingSpace.reservedPages();
   }
 
+  /**
+   * Estimate the work, in pages, that the next collection will have to
+   * do.  This is used to decide how many collector threads to use.  By
+   * default every page in use is assumed to be traced.
+   *
+   * @return The expected work of the next collection, in pages
+   */
+  public int expectedCollectionWork() {
+    return getPagesUsed();
+  }
+
   /****************************************************************************
    * Internal read/write barriers.
    */
@@ -253,6 +253,13 @@ import org.vmmagic.pragma.*;
     return SegregatedFreeListSpace.MAX_FREELIST_OBJECT_BYTES;
   }
 
+  /** @return Size (in bytes) up to which new objects too large for the plan's
+   * other spaces are allocated to a medium object space, or zero if the plan
+   * has no medium object space. */
+  public int maxMediumObjectBytes() {
+    return 0;
+  }
+
   /** @return Size (in bytes) beyond which copied objects must be copied to the LOS */
   public int maxNonLOSCopyBytes() {
     return org.mmtk.utility.Constants.MAX_INT;
@@ -300,6 +307,17 @@ import org.vmmagic.pragma.*;
     return false;
   }
 
+  /** @return {@code true} if this Plan requires a count of live objects on each immix line */
+  public boolean needsLineLiveCounts() {
+    return false;
+  }
+
+  /** @return the default number of gray objects a trace prefetches ahead
+   * of the object being scanned, or zero if this plan does not prefetch. */
+  public int tracePrefetchDistance() {
+    return 0;
+  }
+
   /** @return the maximum number of GC threads supported by this plan.
    * The return value must be a positive number. */
   public int maxNumGCThreads() {
@@ -16,6 +16,8 @@ import org.mmtk.policy.Space;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.options.*;
+import org.mmtk.utility.sanitychecker.HeapCensus;
+import org.mmtk.utility.statistics.EventCounter;
 import org.mmtk.utility.statistics.Timer;
 import org.mmtk.vm.VM;
 
@@ -44,6 +46,9 @@ public abstract class Simple extends Plan {
   private static final Timer scanTime = new Timer("scan", false, true);
   private static final Timer finalizeTime = new Timer("finalize", false, true);
 
+  /* Shared Counters */
+  static final EventCounter refTypeScanned = new EventCounter("refTypeScanned", false, true);
+
   /* Phases */
   public static final short SET_COLLECTION_KIND = Phase.createSimple("set-collection-kind", null);
   public static final short INITIATE            = Phase.createSimple("initiate", null);
@@ -66,6 +71,7 @@ public abstract class Simple extends Plan {
   /* Sanity placeholder */
   public static final short PRE_SANITY_PLACEHOLDER  = Phase.createSimple("pre-sanity-placeholder", null);
   public static final short POST_SANITY_PLACEHOLDER = Phase.createSimple("post-sanity-placeholder", null);
+  public static final short CENSUS_PLACEHOLDER      = Phase.createSimple("census-placeholder", null);
 
   /* Sanity phases */
   public static final short SANITY_SET_PREGC    = Phase.createSimple("sanity-setpre", null);
@@ -76,6 +82,8 @@ public abstract class Simple extends Plan {
   public static final short SANITY_BUILD_TABLE  = Phase.createSimple("sanity-build-table", null);
   public static final short SANITY_CHECK_TABLE  = Phase.createSimple("sanity-check-table", null);
   public static final short SANITY_RELEASE      = Phase.createSimple("sanity-release", null);
+  public static final short SANITY_SET_CENSUS   = Phase.createSimple("sanity-setcensus", null);
+  public static final short SANITY_CENSUS       = Phase.createSimple("sanity-census", null);
 
   // CHECKSTYLE:OFF
 
@@ -100,6 +108,14 @@ public abstract class Simple extends Plan {
       Phase.scheduleCollector  (SANITY_RELEASE),
       Phase.scheduleGlobal     (SANITY_RELEASE));
 
+  /** Build a sanity table and take a census of the live objects */
+  protected static final short censusPhase = Phase.createComplex("census", null,
+      Phase.scheduleGlobal     (SANITY_SET_CENSUS),
+      Phase.scheduleComplex    (sanityBuildPhase),
+      Phase.scheduleGlobal     (SANITY_CENSUS),
+      Phase.scheduleCollector  (SANITY_RELEASE),
+      Phase.scheduleGlobal     (SANITY_RELEASE));
+
   /** Start the collection, including preparation for any collected spaces. */
   protected static final short initPhase = Phase.createComplex("init",
       Phase.scheduleGlobal     (SET_COLLECTION_KIND),
@@ -158,6 +174,7 @@ public abstract class Simple extends Plan {
    */
   protected static final short finishPhase = Phase.createComplex("finish",
       Phase.schedulePlaceholder(POST_SANITY_PLACEHOLDER),
+      Phase.schedulePlaceholder(CENSUS_PLACEHOLDER),
       Phase.scheduleCollector  (COMPLETE),
       Phase.scheduleGlobal     (COMPLETE));
 
@@ -206,7 +223,7 @@ public abstract class Simple extends Plan {
     }
 
     if (phaseId == PREPARE_STACKS) {
-      stacksPrepared = true;
+      if (!sanityChecker.isSkipped()) stacksPrepared = true;
       return;
     }
 
@@ -255,7 +272,7 @@ public abstract class Simple extends Plan {
       return;
     }
 
-    if (Options.sanityCheck.getValue() && sanityChecker.collectionPhase(phaseId)) {
+    if ((Options.sanityCheck.getValue() || HeapCensus.isEnabled()) && sanityChecker.collectionPhase(phaseId)) {
       return;
     }
 
@@ -282,6 +299,20 @@ public abstract class Simple extends Plan {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+
+    HeapCensus.boot();
+    if (HeapCensus.isEnabled()) {
+      replacePlaceholderPhase(CENSUS_PLACEHOLDER, Phase.scheduleComplex(censusPhase));
+    }
+  }
+
   /**
    * {@inheritDoc}
    * Used for example to replace a placeholder.
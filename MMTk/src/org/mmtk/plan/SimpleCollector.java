@@ -14,8 +14,10 @@ package org.mmtk.plan;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.sanitychecker.HeapCensus;
 import org.mmtk.utility.sanitychecker.SanityCheckerLocal;
 
+import org.mmtk.vm.ReferenceProcessor;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -72,25 +74,23 @@ public abstract class SimpleCollector extends ParallelCollector {
     }
 
     if (phaseId == Simple.SOFT_REFS) {
-      if (primary) {
-        if (!Options.noReferenceTypes.getValue()) {
-          if (!Plan.isEmergencyCollection()) {
-            VM.softReferences.scan(getCurrentTrace(),global().isCurrentGCNursery(),true);
-          }
+      if (!Options.noReferenceTypes.getValue()) {
+        if (!Plan.isEmergencyCollection()) {
+          scanReferences(VM.softReferences, true, primary);
         }
       }
       return;
     }
 
     if (phaseId == Simple.WEAK_REFS) {
-      if (primary) {
-        if (Options.noReferenceTypes.getValue()) {
+      if (Options.noReferenceTypes.getValue()) {
+        if (primary) {
           VM.softReferences.clear();
           VM.weakReferences.clear();
-        } else {
-            VM.softReferences.scan(getCurrentTrace(),global().isCurrentGCNursery(), false);
-            VM.weakReferences.scan(getCurrentTrace(),global().isCurrentGCNursery(), false);
         }
+      } else {
+        scanReferences(VM.softReferences, false, primary);
+        scanReferences(VM.weakReferences, false, primary);
       }
       return;
     }
@@ -106,21 +106,20 @@ public abstract class SimpleCollector extends ParallelCollector {
     }
 
     if (phaseId == Simple.PHANTOM_REFS) {
-      if (primary) {
-        if (Options.noReferenceTypes.getValue())
-          VM.phantomReferences.clear();
-        else
-          VM.phantomReferences.scan(getCurrentTrace(),global().isCurrentGCNursery(),false);
+      if (Options.noReferenceTypes.getValue()) {
+        if (primary) VM.phantomReferences.clear();
+      } else {
+        scanReferences(VM.phantomReferences, false, primary);
       }
       return;
     }
 
     if (phaseId == Simple.FORWARD_REFS) {
-      if (primary && !Options.noReferenceTypes.getValue() &&
+      if (!Options.noReferenceTypes.getValue() &&
           VM.activePlan.constraints().needsForwardAfterLiveness()) {
-        VM.softReferences.forward(getCurrentTrace(),global().isCurrentGCNursery());
-        VM.weakReferences.forward(getCurrentTrace(),global().isCurrentGCNursery());
-        VM.phantomReferences.forward(getCurrentTrace(),global().isCurrentGCNursery());
+        forwardReferences(VM.softReferences, primary);
+        forwardReferences(VM.weakReferences, primary);
+        forwardReferences(VM.phantomReferences, primary);
       }
       return;
     }
@@ -143,7 +142,7 @@ public abstract class SimpleCollector extends ParallelCollector {
       return;
     }
 
-    if (Options.sanityCheck.getValue() && sanityLocal.collectionPhase(phaseId, primary)) {
+    if ((Options.sanityCheck.getValue() || HeapCensus.isEnabled()) && sanityLocal.collectionPhase(phaseId, primary)) {
       return;
     }
 
@@ -153,6 +152,41 @@ public abstract class SimpleCollector extends ParallelCollector {
     VM.assertions.fail("Per-collector phase not handled!");
   }
 
+  /**
+   * Scan a table of reference objects.  If parallel reference processing
+   * is enabled every collector thread takes part, otherwise the primary
+   * thread scans the whole table.
+   *
+   * @param processor The reference processor whose table is scanned
+   * @param retain Whether to retain the referents of reachable references
+   * @param primary Is this the primary thread for this phase?
+   */
+  private void scanReferences(ReferenceProcessor processor, boolean retain, boolean primary) {
+    if (primary) {
+      Simple.refTypeScanned.inc(processor.countWaitingReferences());
+    }
+    if (Options.parallelReferenceProcessing.getValue()) {
+      processor.scanParallel(this, getCurrentTrace(), global().isCurrentGCNursery(), retain, primary);
+    } else if (primary) {
+      processor.scan(getCurrentTrace(), global().isCurrentGCNursery(), retain);
+    }
+  }
+
+  /**
+   * Forward the entries of a table of reference objects, in parallel if
+   * parallel reference processing is enabled.
+   *
+   * @param processor The reference processor whose table is forwarded
+   * @param primary Is this the primary thread for this phase?
+   */
+  private void forwardReferences(ReferenceProcessor processor, boolean primary) {
+    if (Options.parallelReferenceProcessing.getValue()) {
+      processor.forwardParallel(this, getCurrentTrace(), global().isCurrentGCNursery(), primary);
+    } else if (primary) {
+      processor.forward(getCurrentTrace(), global().isCurrentGCNursery());
+    }
+  }
+
   /****************************************************************************
    *
    * Miscellaneous.
@@ -44,6 +44,7 @@ public abstract class SimpleMutator extends MutatorContext {
   @Inline
   public void collectionPhase(short phaseId, boolean primary) {
     if (phaseId == Simple.PREPARE_STACKS) {
+      if (Plan.sanityChecker.isSkipped()) return;
       if (!Plan.stacksPrepared()) {
         VM.collection.prepareMutator(this);
       }
@@ -13,6 +13,7 @@
 package org.mmtk.plan;
 
 import org.mmtk.utility.deque.SharedDeque;
+import org.mmtk.utility.options.Options;
 import org.mmtk.policy.RawPageSpace;
 
 import org.vmmagic.pragma.*;
@@ -28,6 +29,15 @@ public class Trace {
   // Global pools for load-balancing deques
   final SharedDeque valuePool;
   final SharedDeque rootLocationPool;
+  final SharedDeque edgePool;
+
+  /**
+   * Does the current pass enqueue edges rather than objects?  When it
+   * does, collectors wait for work on the edge pool, and the value pool
+   * (which then only receives gray objects from mutator write buffers) is
+   * drained without waiting.
+   */
+  boolean edgeEnqueuing = false;
 
   /**
    * @param metaDataSpace the space to use for allocation for this
@@ -36,14 +46,17 @@ public class Trace {
   public Trace(RawPageSpace metaDataSpace) {
     valuePool = new SharedDeque("valuePool",metaDataSpace, 1);
     rootLocationPool = new SharedDeque("rootLocations", metaDataSpace, 1);
+    edgePool = new SharedDeque("edgePool", metaDataSpace, 2);
   }
 
   /**
    * Prepare for a new collection pass.
    */
   public void prepareNonBlocking() {
+    edgeEnqueuing = Options.edgeTrace.getValue();
     valuePool.prepareNonBlocking();
     rootLocationPool.prepareNonBlocking();
+    edgePool.prepareNonBlocking();
   }
 
   /**
@@ -51,16 +64,32 @@ public class Trace {
    * All active GC threads take part.
    */
   public void prepare() {
-    valuePool.prepare();
+    edgeEnqueuing = Options.edgeTrace.getValue();
+    if (edgeEnqueuing) {
+      valuePool.prepareNonBlocking();
+      edgePool.prepare();
+    } else {
+      valuePool.prepare();
+      edgePool.prepareNonBlocking();
+    }
     rootLocationPool.prepareNonBlocking();
   }
 
+  /**
+   * Called by each collector thread as it begins a transitive closure.
+   */
+  public void beginRound() {
+    valuePool.beginRound();
+    edgePool.beginRound();
+  }
+
   /**
    * Release resources after completing a collection pass.
    */
   public void release() {
     valuePool.reset();
     rootLocationPool.reset();
+    edgePool.reset();
   }
 
   /**
@@ -68,6 +97,6 @@ public class Trace {
    *  That is are there any pages in the pools.
    */
   public boolean hasWork() {
-    return (valuePool.enqueuedPages() + rootLocationPool.enqueuedPages()) > 0;
+    return (valuePool.enqueuedPages() + rootLocationPool.enqueuedPages() + edgePool.enqueuedPages()) > 0;
   }
 }
@@ -12,6 +12,8 @@
  */
 package org.mmtk.plan;
 
+import static org.mmtk.utility.Constants.*;
+
 import org.mmtk.policy.Space;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.deque.*;
@@ -26,13 +28,31 @@ import org.vmmagic.unboxed.*;
  * This abstract class and its global counterpart implement the core
  * functionality for a transitive closure over the heap graph. This class
  * specifically implements the unsynchronized thread-local component
- * (ie the 'fast path') of the trace mechanism.
+ * (ie the 'fast path') of the trace mechanism.<p>
+ *
+ * By default gray objects are enqueued and each is scanned by the
+ * collector that dequeues it.  When the global trace is in edge
+ * enqueuing mode (see {@link org.mmtk.utility.options.EdgeTrace}),
+ * reference slots are enqueued instead, and the slots of large reference
+ * arrays are enqueued in chunks, so that the work of scanning a wide
+ * object can be shared between collectors.
  *
  * @see org.mmtk.plan.Plan
  * @see org.mmtk.plan.Trace
  */
 @Uninterruptible
 public abstract class TraceLocal extends TransitiveClosure {
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The largest number of gray objects that may be prefetched ahead of the scan */
+  public static final int MAX_PREFETCH_DISTANCE = 16;
+
+  /** The number of reference slots in each chunk of a large array, when enqueuing edges */
+  public static final int ARRAY_CHUNK_SLOTS = 128;
+
   /****************************************************************************
    *
    * Instance variables
@@ -42,6 +62,19 @@ public abstract class TraceLocal extends TransitiveClosure {
   protected final ObjectReferenceDeque values;
   /** delayed root slots */
   protected final AddressDeque rootLocations;
+  /**
+   * enqueued edges, when edge enqueuing: each entry is a non-empty range
+   * of reference slots, or a gray object paired with itself
+   */
+  protected final AddressPairDeque edges;
+  /** the global trace */
+  private final Trace globalTrace;
+  /** gray objects that have been prefetched and are waiting to be scanned */
+  private final ObjectReferenceArray prefetchBuffer = ObjectReferenceArray.create(MAX_PREFETCH_DISTANCE);
+  /** index of the oldest entry in the prefetch buffer */
+  private int prefetchHead = 0;
+  /** number of entries in the prefetch buffer */
+  private int prefetchCount = 0;
 
   /****************************************************************************
    *
@@ -67,6 +100,8 @@ public abstract class TraceLocal extends TransitiveClosure {
     super(specializedScan);
     values = new ObjectReferenceDeque("value", trace.valuePool);
     rootLocations = new AddressDeque("roots", trace.rootLocationPool);
+    edges = new AddressPairDeque(trace.edgePool);
+    globalTrace = trace;
   }
 
   /****************************************************************************
@@ -93,6 +128,22 @@ public abstract class TraceLocal extends TransitiveClosure {
   @Override
   @Inline
   public final void processEdge(ObjectReference source, Address slot) {
+    if (globalTrace.edgeEnqueuing) {
+      edges.push(slot, slot.plus(BYTES_IN_ADDRESS));
+    } else {
+      traceEdge(slot);
+    }
+  }
+
+  /**
+   * Trace the reference held in a slot, updating the slot if the
+   * referent moves.
+   *
+   * @param slot The location containing the object reference to be
+   *        traced.  The object reference is <i>NOT</i> an interior pointer.
+   */
+  @Inline
+  private void traceEdge(Address slot) {
     ObjectReference object = VM.activePlan.global().loadObjectReference(slot);
     ObjectReference newObject = traceObject(object, false);
     if (overwriteReferenceDuringTrace()) {
@@ -177,6 +228,9 @@ public abstract class TraceLocal extends TransitiveClosure {
    */
   @Inline
   protected void scanObject(ObjectReference object) {
+    if (globalTrace.edgeEnqueuing && enqueueArrayChunks(object)) {
+      return;
+    }
     if (specializedScan >= 0) {
       VM.scanning.specializedScanObject(specializedScan, this, object);
     } else {
@@ -198,7 +252,11 @@ public abstract class TraceLocal extends TransitiveClosure {
   @Override
   @Inline
   public final void processNode(ObjectReference object) {
-    values.push(object);
+    if (globalTrace.edgeEnqueuing) {
+      edges.push(object.toAddress(), object.toAddress());
+    } else {
+      values.push(object);
+    }
   }
 
   /**
@@ -207,6 +265,7 @@ public abstract class TraceLocal extends TransitiveClosure {
   public final void flush() {
     values.flushLocal();
     rootLocations.flushLocal();
+    edges.flushLocal();
   }
 
   /**
@@ -476,6 +535,7 @@ public abstract class TraceLocal extends TransitiveClosure {
   public void release() {
     values.reset();
     rootLocations.reset();
+    edges.reset();
   }
 
   /**
@@ -491,26 +551,150 @@ public abstract class TraceLocal extends TransitiveClosure {
 
   /**
    * Finishing processing all GC work.  This method iterates until all work queues
-   * are empty.
+   * are empty.  When work stealing is enabled, a collector that runs out of
+   * work steals buffers from the other collectors, and only returns once all
+   * collectors taking part in the trace have run out of work.
    */
   @Inline
   public void completeTrace() {
     logMessage(4, "Processing GC in parallel");
+    globalTrace.beginRound();
     if (!rootLocations.isEmpty()) {
       processRoots();
     }
     logMessage(5, "processing gray objects");
     assertMutatorRemsetsFlushed();
+    int prefetchDistance = Options.tracePrefetch.getValue();
     do {
-      while (!values.isEmpty()) {
-        ObjectReference v = values.pop();
-        scanObject(v);
+      if (globalTrace.edgeEnqueuing) {
+        drainEdges();
+      } else if (prefetchDistance > 0) {
+        drainValuesWithPrefetch(prefetchDistance);
+      } else {
+        while (!values.isEmpty()) {
+          ObjectReference v = values.pop();
+          scanObject(v);
+        }
       }
       processRememberedSets();
-    } while (!values.isEmpty());
+    } while (!workExhausted());
     assertMutatorRemsetsFlushed();
   }
 
+  /**
+   * @return <code>true</code> if there is no more work for this trace.
+   * When edge enqueuing this waits on the edge pool only, since the
+   * value pool is then drained without waiting.
+   */
+  @Inline
+  private boolean workExhausted() {
+    if (globalTrace.edgeEnqueuing) {
+      return values.isEmpty() && edges.isEmpty();
+    }
+    return values.isEmpty();
+  }
+
+  /**
+   * Process enqueued edges until the edge queue is exhausted.  Any gray
+   * objects in the value queue (which when edge enqueuing only come from
+   * mutator write buffers) are scanned first, since popping the value
+   * queue never waits in this mode.
+   */
+  @Inline
+  private void drainEdges() {
+    while (true) {
+      while (!values.isEmpty()) {
+        scanObject(values.pop());
+      }
+      if (edges.isEmpty()) return;
+      Address start = edges.pop1();
+      Address end = edges.pop2();
+      processEdges(start, end);
+    }
+  }
+
+  /**
+   * Process an entry from the edge queue.
+   *
+   * @param start The first slot of the range, or a gray object
+   * @param end The end (exclusive) of the range, or the same gray object
+   */
+  @Inline
+  private void processEdges(Address start, Address end) {
+    if (start.EQ(end)) {
+      scanObject(start.toObjectReference());
+      return;
+    }
+    for (Address slot = start; slot.LT(end); slot = slot.plus(BYTES_IN_ADDRESS)) {
+      traceEdge(slot);
+    }
+  }
+
+  /**
+   * If an object is a large array of references, enqueue its slots in
+   * chunks of {@link #ARRAY_CHUNK_SLOTS}, which may then be processed by
+   * different collectors.
+   *
+   * @param object The object to be scanned
+   * @return <code>true</code> if the slots of the object were enqueued
+   */
+  @Inline
+  private boolean enqueueArrayChunks(ObjectReference object) {
+    int length = VM.scanning.getReferenceArrayLength(object);
+    if (length <= ARRAY_CHUNK_SLOTS) return false;
+    Address slot = VM.scanning.getReferenceArrayStart(object);
+    Address end = slot.plus(length << LOG_BYTES_IN_ADDRESS);
+    while (slot.LT(end)) {
+      Address chunkEnd = slot.plus(ARRAY_CHUNK_SLOTS << LOG_BYTES_IN_ADDRESS);
+      if (chunkEnd.GT(end)) chunkEnd = end;
+      edges.push(slot, chunkEnd);
+      slot = chunkEnd;
+    }
+    return true;
+  }
+
+  /**
+   * Scan gray objects until the value queue is exhausted, prefetching
+   * each object <code>distance</code> pops before it is scanned so that
+   * the cache miss on its header and fields overlaps with useful work.<p>
+   *
+   * Only values held in the local buffers are popped into the prefetch
+   * buffer.  We consult the shared queue, which may wait for other
+   * collectors to run out of work, only once the prefetch buffer is
+   * empty, so that no work is held back from work stealing.
+   *
+   * @param distance The number of objects to keep in flight
+   */
+  @Inline
+  private void drainValuesWithPrefetch(int distance) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(distance <= MAX_PREFETCH_DISTANCE);
+    while (true) {
+      if (prefetchCount == 0) {
+        if (values.isEmpty()) return;
+        prefetch(values.pop());
+      }
+      while (prefetchCount < distance && values.hasLocalValues()) {
+        prefetch(values.pop());
+      }
+      ObjectReference v = prefetchBuffer.get(prefetchHead);
+      prefetchHead = (prefetchHead + 1) % MAX_PREFETCH_DISTANCE;
+      prefetchCount--;
+      scanObject(v);
+    }
+  }
+
+  /**
+   * Issue a prefetch for a gray object and append it to the prefetch buffer.
+   *
+   * @param object The object to be scanned
+   */
+  @Inline
+  private void prefetch(ObjectReference object) {
+    VM.objectModel.refToAddress(object).prefetch();
+    prefetchBuffer.set((prefetchHead + prefetchCount) % MAX_PREFETCH_DISTANCE, object);
+    prefetchCount++;
+  }
+
   /**
    * Process GC work until either complete or workLimit
    * units of work are completed.
@@ -523,6 +707,19 @@ public abstract class TraceLocal extends TransitiveClosure {
     logMessage(4, "Continuing GC in parallel (incremental)");
     logMessage(5, "processing gray objects");
     int units = 0;
+    if (globalTrace.edgeEnqueuing) {
+      while (units < workLimit && !workExhausted()) {
+        if (!values.isEmpty()) {
+          scanObject(values.pop());
+        } else {
+          Address start = edges.pop1();
+          Address end = edges.pop2();
+          processEdges(start, end);
+        }
+        units++;
+      }
+      return workExhausted();
+    }
     do {
       while (!values.isEmpty() && units < workLimit) {
         ObjectReference v = values.pop();
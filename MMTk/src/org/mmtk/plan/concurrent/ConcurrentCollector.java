@@ -99,34 +99,7 @@ public abstract class ConcurrentCollector extends SimpleCollector {
   @Unpreemptible
   public void concurrentCollectionPhase(short phaseId) {
     if (phaseId == Concurrent.CONCURRENT_CLOSURE) {
-      if (VM.VERIFY_ASSERTIONS) {
-        VM.assertions._assert(!Plan.gcInProgress());
-      }
-      TraceLocal trace = getCurrentTrace();
-      while (!trace.incrementalTrace(100)) {
-        if (group.isAborted()) {
-          trace.flush();
-          break;
-        }
-      }
-      if (rendezvous() == 0) {
-        continueCollecting = false;
-        if (!group.isAborted()) {
-          /* We are responsible for ensuring termination. */
-          if (Options.verbose.getValue() >= 2) Log.writeln("< requesting mutator flush >");
-          VM.collection.requestMutatorFlush();
-
-          if (Options.verbose.getValue() >= 2) Log.writeln("< mutators flushed >");
-
-          if (concurrentTraceComplete()) {
-            continueCollecting = Phase.notifyConcurrentPhaseComplete();
-          } else {
-            continueCollecting = true;
-            Phase.notifyConcurrentPhaseIncomplete();
-          }
-        }
-      }
-      rendezvous();
+      concurrentClosure(getCurrentTrace());
       return;
     }
 
@@ -136,6 +109,43 @@ public abstract class ConcurrentCollector extends SimpleCollector {
     VM.assertions.fail("Concurrent phase not handled!");
   }
 
+  /**
+   * Trace concurrently with the mutators until the trace is complete, or
+   * the concurrent phase is aborted because a collection is required.
+   *
+   * @param trace The trace to advance
+   */
+  @Unpreemptible
+  protected final void concurrentClosure(TraceLocal trace) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(!Plan.gcInProgress());
+    }
+    while (!trace.incrementalTrace(100)) {
+      if (group.isAborted()) {
+        trace.flush();
+        break;
+      }
+    }
+    if (rendezvous() == 0) {
+      continueCollecting = false;
+      if (!group.isAborted()) {
+        /* We are responsible for ensuring termination. */
+        if (Options.verbose.getValue() >= 2) Log.writeln("< requesting mutator flush >");
+        VM.collection.requestMutatorFlush();
+
+        if (Options.verbose.getValue() >= 2) Log.writeln("< mutators flushed >");
+
+        if (concurrentTraceComplete()) {
+          continueCollecting = Phase.notifyConcurrentPhaseComplete();
+        } else {
+          continueCollecting = true;
+          Phase.notifyConcurrentPhaseIncomplete();
+        }
+      }
+    }
+    rendezvous();
+  }
+
   /**
    * @return whether all work has been completed
    */
@@ -0,0 +1,173 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.immix;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.Concurrent;
+import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.ImmixSpace;
+import org.mmtk.policy.immix.ObjectHeader;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the global state of a concurrent mark immix
+ * collector.<p>
+ *
+ * Marking proceeds concurrently with the mutators, using the snapshot
+ * barrier of the concurrent framework, and objects allocated during
+ * marking are allocated marked.  An object cannot be moved while the
+ * mutators are running, so defragmentation is only performed by
+ * collections in which the closure is atomic, that is, collections
+ * triggered by heap exhaustion or by the user.
+ *
+ * @see org.mmtk.plan.immix.Immix
+ */
+@Uninterruptible
+public class ConcImmix extends Concurrent {
+
+  /****************************************************************************
+   * Constants
+   */
+
+  /****************************************************************************
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  public static final ImmixSpace immixSpace = new ImmixSpace("immix", VMRequest.discontiguous().withHugePages());
+  public static final int IMMIX = immixSpace.getDescriptor();
+
+  public static final int SCAN_IMMIX = 0;
+  public static final int SCAN_DEFRAG = 1;
+
+  static {
+    smallCodeSpace.makeAllocAsMarked();
+    nonMovingSpace.makeAllocAsMarked();
+  }
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  public final Trace immixTrace = new Trace(metaDataSpace);
+  protected boolean lastGCWasDefrag = false;
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    immixSpace.setZeroingApproach(Options.blockZeroing.getNonTemporal(), Options.blockZeroing.getConcurrent());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId) {
+    if (phaseId == SET_COLLECTION_KIND) {
+      super.collectionPhase(phaseId);
+      if (isInternalTriggeredCollection() && !emergencyCollection) {
+        /* The closure may run concurrently, so objects must not move */
+        immixSpace.decideWhetherToDefrag(false, true, 1, false);
+      } else {
+        immixSpace.decideWhetherToDefrag(emergencyCollection, true, collectionAttempt, userTriggeredCollection);
+      }
+      return;
+    }
+
+    if (phaseId == PREPARE) {
+      super.collectionPhase(phaseId);
+      immixTrace.prepareNonBlocking();
+      immixSpace.prepare(true);
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      immixTrace.release();
+      lastGCWasDefrag = immixSpace.release(true);
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  @Override
+  public boolean lastCollectionWasExhaustive() {
+    return lastGCWasDefrag;
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   * The superclass accounts for its spaces, we just
+   * augment this with the immix space's contribution.
+   */
+  @Override
+  public int getPagesUsed() {
+    return immixSpace.reservedPages() + super.getPagesUsed();
+  }
+
+  /**
+   * Return the number of pages reserved for collection.
+   */
+  @Override
+  public int getCollectionReserve() {
+    return super.getCollectionReserve() + immixSpace.defragHeadroomPages();
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(IMMIX, object)) {
+      ObjectHeader.pinObject(object);
+      return true;
+    }
+    return super.willNeverMove(object);
+  }
+
+  @Override
+  @Interruptible
+  protected void registerSpecializedMethods() {
+    TransitiveClosure.registerSpecializedScan(SCAN_IMMIX, ConcImmixTraceLocal.class);
+    TransitiveClosure.registerSpecializedScan(SCAN_DEFRAG, ConcImmixDefragTraceLocal.class);
+    super.registerSpecializedMethods();
+  }
+
+  @Override
+  @Interruptible
+  public void preCollectorSpawn() {
+    immixSpace.initializeDefrag();
+  }
+}
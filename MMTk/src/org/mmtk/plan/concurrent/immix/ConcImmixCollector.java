@@ -0,0 +1,157 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.concurrent.immix;
+
+import org.mmtk.plan.*;
+import org.mmtk.plan.concurrent.ConcurrentCollector;
+import org.mmtk.policy.immix.CollectorLocal;
+import org.mmtk.utility.alloc.ImmixAllocator;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements <i>per-collector thread</i> behavior
+ * and state for the <i>ConcImmix</i> plan, which implements a full-heap
+ * concurrent mark immix collector.<p>
+ *
+ * Collection-time allocation only occurs during defragmenting
+ * collections, which are never concurrent.
+ *
+ * @see ConcImmix
+ * @see ConcImmixMutator
+ */
+@Uninterruptible
+public class ConcImmixCollector extends ConcurrentCollector {
+
+  /****************************************************************************
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  protected final ConcImmixTraceLocal fastTrace;
+  protected final ConcImmixDefragTraceLocal defragTrace;
+  protected final CollectorLocal immix;
+  protected final ImmixAllocator copy;
+  protected TraceLocal currentTrace;
+
+  /****************************************************************************
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   */
+  public ConcImmixCollector() {
+    fastTrace = new ConcImmixTraceLocal(global().immixTrace);
+    defragTrace = new ConcImmixDefragTraceLocal(global().immixTrace);
+    immix = new CollectorLocal(ConcImmix.immixSpace);
+    copy = new ImmixAllocator(ConcImmix.immixSpace, true, true);
+    currentTrace = fastTrace;
+  }
+
+ /****************************************************************************
+  *
+  * Collection-time allocation
+  */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public Address allocCopy(ObjectReference original, int bytes,
+      int align, int offset, int allocator) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(bytes <= Plan.MAX_NON_LOS_COPY_BYTES);
+      VM.assertions._assert(allocator == ConcImmix.ALLOC_DEFAULT);
+      VM.assertions._assert(ConcImmix.immixSpace.inImmixDefragCollection());
+    }
+    return copy.alloc(bytes, align, offset);
+  }
+
+  @Override
+  @Inline
+  public void postCopy(ObjectReference object, ObjectReference typeRef,
+      int bytes, int allocator) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(allocator == ConcImmix.ALLOC_DEFAULT);
+    ConcImmix.immixSpace.postCopy(object, bytes, true);
+
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(getCurrentTrace().isLive(object));
+      VM.assertions._assert(getCurrentTrace().willNotMoveInCurrentCollection(object));
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == ConcImmix.PREPARE) {
+      super.collectionPhase(phaseId, primary);
+      currentTrace = ConcImmix.immixSpace.inImmixDefragCollection() ? defragTrace : fastTrace;
+      immix.prepare(true);
+      currentTrace.prepare();
+      copy.reset();
+      return;
+    }
+
+    if (phaseId == ConcImmix.CLOSURE) {
+      currentTrace.completeTrace();
+      return;
+    }
+
+    if (phaseId == ConcImmix.RELEASE) {
+      currentTrace.release();
+      immix.release(true);
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  @Override
+  protected boolean concurrentTraceComplete() {
+    return !global().immixTrace.hasWork();
+  }
+
+  /****************************************************************************
+   *
+   * Miscellaneous
+   */
+
+  /** @return The active global plan as a <code>ConcImmix</code> instance. */
+  @Inline
+  private static ConcImmix global() {
+    return (ConcImmix) VM.activePlan.global();
+  }
+
+  /** @return The current trace instance. */
+  @Override
+  @Inline
+  public final TraceLocal getCurrentTrace() {
+    return currentTrace;
+  }
+}
@@ -17,6 +17,7 @@ import org.mmtk.plan.concurrent.Concurrent;
 import org.mmtk.policy.MarkSweepSpace;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
 
 import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.ObjectReference;
@@ -38,7 +39,7 @@ public class CMS extends Concurrent {
   /**
    *
    */
-  public static final MarkSweepSpace msSpace = new MarkSweepSpace("ms", VMRequest.discontiguous());
+  public static final MarkSweepSpace msSpace = new MarkSweepSpace("ms", VMRequest.discontiguous().withHugePages());
   public static final int MARK_SWEEP = msSpace.getDescriptor();
 
   static {
@@ -61,6 +62,16 @@ public class CMS extends Concurrent {
    * Collection
    */
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    if (Options.concurrentSweep.getValue()) msSpace.enableConcurrentSweeping();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -90,6 +90,16 @@ public class CopyMS extends StopTheWorld {
    * Collection
    */
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    if (Options.concurrentSweep.getValue()) msSpace.enableConcurrentSweeping();
+  }
+
   /**
    * {@inheritDoc}
    */
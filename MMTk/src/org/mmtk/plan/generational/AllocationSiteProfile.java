@@ -0,0 +1,143 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class records, for each allocation site, how many of a sample of
+ * the objects allocated into the nursery at the site survived their first
+ * collection, and decides which sites to pretenure.<p>
+ *
+ * Mutators sample one nursery allocation in every
+ * <code>SAMPLE_BYTES</code>, and the samples are examined at the end of
+ * each collection.  Once enough objects from a site have been sampled, and
+ * the percentage that survived reaches the threshold set by the
+ * <code>sitePretenuring</code> option, all subsequent allocation at the
+ * site is directed to the mature space.  The counts of a site decay as
+ * samples accumulate, so the decision reflects the recent behaviour of the
+ * site.  A pretenured site is never reconsidered.<p>
+ *
+ * All methods other than <code>isPretenured</code> are called from the
+ * global collection phases, so the profile needs no synchronization.
+ */
+@Uninterruptible
+public final class AllocationSiteProfile {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The number of bytes of nursery allocation between samples */
+  public static final int SAMPLE_BYTES = 8 << 10;
+
+  /** Sites with larger identifiers are not profiled */
+  private static final int MAX_SITES = 1 << 13;
+
+  /** The number of samples of a site required before it may be pretenured */
+  private static final int MIN_SAMPLES = 32;
+
+  /** The number of samples of a site at which its counts are halved */
+  private static final int DECAY_SAMPLES = 1 << 10;
+
+  private static final int[] samples = new int[MAX_SITES];
+  private static final int[] survivors = new int[MAX_SITES];
+  private static final boolean[] pretenured = new boolean[MAX_SITES];
+  private static int pretenuredSites = 0;
+
+  /****************************************************************************
+   *
+   * Mutator-time queries
+   */
+
+  /**
+   * @param site An allocation site
+   * @return {@code true} if the site is profiled
+   */
+  @Inline
+  public static boolean isProfiled(int site) {
+    return site >= 0 && site < MAX_SITES;
+  }
+
+  /**
+   * @param site An allocation site
+   * @return {@code true} if objects allocated at the site should be
+   * allocated directly into the mature space
+   */
+  @Inline
+  public static boolean isPretenured(int site) {
+    return isProfiled(site) && pretenured[site];
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time updates
+   */
+
+  /**
+   * Record the fate of a sampled object.
+   *
+   * @param site The site at which the object was allocated
+   * @param survived Did the object survive the collection?
+   */
+  public static void recordSample(int site, boolean survived) {
+    if (!isProfiled(site) || pretenured[site]) return;
+    samples[site]++;
+    if (survived) survivors[site]++;
+    if (samples[site] >= DECAY_SAMPLES) {
+      samples[site] >>= 1;
+      survivors[site] >>= 1;
+    }
+    if (samples[site] >= MIN_SAMPLES &&
+        survivors[site] * 100 >= samples[site] * Options.sitePretenuring.getValue()) {
+      pretenured[site] = true;
+      pretenuredSites++;
+      if (Options.verbose.getValue() >= 2) {
+        Log.write("[Pretenuring allocation site ", site);
+        printSurvival(site);
+        Log.writeln("]");
+      }
+    }
+  }
+
+  /**
+   * Print the allocation sites that have been pretenured, with the
+   * survival of their sampled objects.
+   */
+  public static void report() {
+    Log.write("Pretenured allocation sites: ", pretenuredSites);
+    Log.writeln();
+    for (int site = 0; site < MAX_SITES; site++) {
+      if (pretenured[site]) {
+        Log.write("  site ", site);
+        printSurvival(site);
+        Log.writeln();
+      }
+    }
+  }
+
+  /**
+   * Print the survival of the sampled objects of a site.
+   *
+   * @param site The site
+   */
+  private static void printSurvival(int site) {
+    Log.write(": ", survivors[site]);
+    Log.write(" of ", samples[site]);
+    Log.write(" sampled objects survived");
+  }
+}
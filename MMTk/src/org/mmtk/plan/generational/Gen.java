@@ -18,7 +18,11 @@ import org.mmtk.plan.*;
 import org.mmtk.policy.CopySpace;
 import org.mmtk.policy.Space;
 
+import org.mmtk.utility.CardTable;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.deque.*;
+import org.mmtk.utility.heap.NurserySizeManager;
 import org.mmtk.utility.heap.VMRequest;
 import org.mmtk.utility.heap.layout.HeapLayout;
 import org.mmtk.utility.Log;
@@ -26,6 +30,7 @@ import org.mmtk.utility.options.Options;
 import org.mmtk.utility.sanitychecker.SanityChecker;
 import org.mmtk.utility.statistics.*;
 
+import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
@@ -72,6 +77,23 @@ public abstract class Gen extends StopTheWorld {
   /** Switch between a contiguous and discontiguous nursery (experimental) */
   static final boolean USE_DISCONTIGUOUS_NURSERY = false;
 
+  /*
+   * The age of an object in a survivor space is held in header bits
+   * above the forwarding bits and the bits with which immix pins objects
+   * and marks them write intensive.  No header bits are free above those
+   * used by the mature spaces (immix uses these bits for its straddle
+   * and mark bits), so the age is only meaningful in the young
+   * generation, and is cleared on promotion before the mature space
+   * writes its own header bits.
+   */
+  private static final int AGE_SHIFT = ForwardingWord.FORWARDING_BITS + 2;
+  private static final int AGE_BITS = 3;
+  private static final int AGE_MASK = ((1 << AGE_BITS) - 1) << AGE_SHIFT;
+  /** The number of header bits needed by generational collectors */
+  public static final int LOCAL_GC_BITS_REQUIRED = AGE_SHIFT + AGE_BITS;
+  /** The largest supported tenuring threshold */
+  public static final int MAX_TENURING_THRESHOLD = 1 << AGE_BITS;
+
   // Allocators
 //  public static final int ALLOC_NURSERY        = ALLOC_DEFAULT;
   public static final int ALLOC_NURSERY        = ALLOC_DRAM;  // Nursery should alsways be in DRAM
@@ -81,6 +103,7 @@ public abstract class Gen extends StopTheWorld {
 
   public static final int ALLOC_MATURE_DRAM    = StopTheWorld.ALLOCATORS + 4;
   public static final int ALLOC_MATURE_NVM     = StopTheWorld.ALLOCATORS + 5;
+  public static final int ALLOC_SURVIVOR       = StopTheWorld.ALLOCATORS + 6;
 
   public static final int SCAN_NURSERY = 0;
   public static final int SCAN_MATURE  = 1;
@@ -97,18 +120,50 @@ public abstract class Gen extends StopTheWorld {
   /* Statistics */
   protected static final BooleanCounter fullHeap = new BooleanCounter("majorGC", true, true);
   private static final Timer fullHeapTime = new Timer("majorGCTime", false, true);
+  private static final Timer nurseryTime = new Timer("minorGCTime", false, true);
   protected static final EventCounter wbFast;
   protected static final EventCounter wbSlow;
   public static final SizeCounter nurseryMark;
   public static final SizeCounter nurseryCons;
+  static final EventCounter dirtyCards = new EventCounter("dirtyCards");
+
+  /* The card marking barrier, fixed once options have been processed */
+  static boolean cardMarking = false;
+  static boolean conditionalCardMarking = false;
 
   /* The nursery space is where all new objects are allocated by default */
-  private static final VMRequest vmRequest = USE_DISCONTIGUOUS_NURSERY ? VMRequest.discontiguous() : VMRequest.highFraction(NURSERY_VM_FRACTION);
+  private static final VMRequest vmRequest = (USE_DISCONTIGUOUS_NURSERY ? VMRequest.discontiguous() : VMRequest.highFraction(NURSERY_VM_FRACTION)).withHugePages();
   public static final CopySpace nurserySpace = new CopySpace("nursery", false, vmRequest);
 
+  /*
+   * Objects that survive a nursery collection before reaching the tenuring
+   * threshold are copied between the two survivor spaces.  These are
+   * discontiguous, so they only take virtual memory when survivors are
+   * aged.
+   */
+  public static final CopySpace survivor0Space = new CopySpace("survivor0", false, VMRequest.discontiguous());
+  public static final CopySpace survivor1Space = new CopySpace("survivor1", false, VMRequest.discontiguous());
+
   public static final int NURSERY = nurserySpace.getDescriptor();
+  public static final int SURVIVOR0 = survivor0Space.getDescriptor();
+  public static final int SURVIVOR1 = survivor1Space.getDescriptor();
   private static final Address NURSERY_START = nurserySpace.getStart();
 
+  /* Survivor aging, fixed once options have been processed */
+  static int tenuringThreshold = 1;
+  static boolean aging = false;
+  /** Are survivors being aged (rather than promoted) in this collection? */
+  static boolean agingThisGC = false;
+  /** Which survivor space is the to-space? */
+  static boolean survivorHi = false;
+
+  /** Are allocation sites being profiled for pretenuring? */
+  static boolean sitePretenuring = false;
+
+  /* The volume of survivors of the current collection, by age */
+  private static final long[] survivorBytes = new long[MAX_TENURING_THRESHOLD + 1];
+  private static final Lock survivorLock = VM.newLock("survivorAges");
+
 
 
 //  /*residency statistics -- post-collection*/
@@ -145,6 +200,26 @@ public abstract class Gen extends StopTheWorld {
   public final SharedDeque remsetPool = new SharedDeque("remSets",metaDataSpace, 1);
   public final SharedDeque arrayRemsetPool = new SharedDeque("arrayRemSets",metaDataSpace, 2);
 
+  /**
+   * Slots outside the young generation that still refer to aged survivors
+   * after a nursery collection.  Each nursery collection processes the
+   * slots remembered by the previous one, and remembers slots afresh in
+   * the other pool.
+   */
+  public final SharedDeque survivorRemsetPool0 = new SharedDeque("survivorRemSets0", metaDataSpace, 1);
+  public final SharedDeque survivorRemsetPool1 = new SharedDeque("survivorRemSets1", metaDataSpace, 1);
+  /** Objects outside the young generation scanned by a nursery collection that ages survivors */
+  public final SharedDeque matureScanPool = new SharedDeque("matureScans", metaDataSpace, 1);
+
+  /** Objects sampled by mutators, paired with their allocation sites */
+  public final SharedDeque allocationSamplePool = new SharedDeque("allocationSamples", metaDataSpace, 2);
+  private final AddressPairDeque allocationSamples = new AddressPairDeque(allocationSamplePool);
+
+  /* Observations of the current collection, used to size the nursery */
+  private long collectionStart;
+  private int nurseryPagesBeforeGC;
+  private int maturePagesBeforeGC;
+
   /*
    * Class initializer
    */
@@ -165,6 +240,40 @@ public abstract class Gen extends StopTheWorld {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   * Fix the write barrier to be used by the mutators.
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    int mode = Options.cardMarking.getValue();
+    if (mode != Options.cardMarking.OFF && !CardTable.SUPPORTED) {
+      Log.writeln("Warning: card marking requires the 32-bit heap layout, using remembered sets");
+      mode = Options.cardMarking.OFF;
+    }
+    cardMarking = mode != Options.cardMarking.OFF;
+    conditionalCardMarking = mode == Options.cardMarking.CONDITIONAL;
+    tenuringThreshold = Options.tenuringThreshold.getValue();
+    aging = tenuringThreshold > 1;
+    sitePretenuring = Options.sitePretenuring.getValue() > 0;
+    boolean nonTemporal = Options.blockZeroing.getNonTemporal();
+    survivor0Space.setZeroingApproach(nonTemporal, false);
+    survivor1Space.setZeroingApproach(nonTemporal, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   * Report the allocation sites that were pretenured.
+   */
+  @Override
+  @Interruptible
+  public void notifyExit(int value) {
+    super.notifyExit(value);
+    if (sitePretenuring && Options.verbose.getValue() >= 1) AllocationSiteProfile.report();
+  }
+
   /*****************************************************************************
    *
    * Collection
@@ -184,11 +293,21 @@ public abstract class Gen extends StopTheWorld {
     if (phaseId == SET_COLLECTION_KIND) {
       super.collectionPhase(phaseId);
       gcFullHeap = requiresFullHeapCollection();
+      collectionStart = VM.statistics.nanoTime();
+      nurseryPagesBeforeGC = nurserySpace.reservedPages();
+      maturePagesBeforeGC = getPagesUsed() - nurseryPagesBeforeGC;
       return;
     }
 
     if (phaseId == PREPARE) {
       nurserySpace.prepare(true);
+      fromSurvivorSpace().prepare(true);
+      toSurvivorSpace().prepare(false);
+      agingThisGC = aging && !traceFullHeap();
+      for (int age = 0; age <= MAX_TENURING_THRESHOLD; age++) {
+        survivorBytes[age] = 0;
+      }
+      if (!gcFullHeap) nurseryTime.start();
       if (traceFullHeap()) {
         if (gcFullHeap) {
           if (Stats.gatheringStats()) fullHeap.set();
@@ -199,6 +318,11 @@ public abstract class Gen extends StopTheWorld {
         // we can throw away the remsets (but not modbuf) for a full heap GC
         remsetPool.clearDeque(1);
         arrayRemsetPool.clearDeque(2);
+        // likewise the cards, and the survivors are recorded afresh
+        if (cardMarking) CardTable.clear();
+        // every survivor will be promoted, so no slots need remembering
+        survivorRemsetPool0.clearDeque(1);
+        survivorRemsetPool1.clearDeque(1);
       }
       return;
     }
@@ -217,8 +341,13 @@ public abstract class Gen extends StopTheWorld {
     }
 
     if (phaseId == RELEASE) {
+      if (sitePretenuring) processAllocationSamples();
       nurserySpace.release();
       switchNurseryZeroingApproach(nurserySpace);
+      fromSurvivorSpace().release();
+      fromSurvivorRemsetPool().clearDeque(1);
+      matureScanPool.reset();
+      survivorHi = !survivorHi;
       modbufPool.clearDeque(1);
       remsetPool.clearDeque(1);
       arrayRemsetPool.clearDeque(2);
@@ -228,6 +357,13 @@ public abstract class Gen extends StopTheWorld {
         super.collectionPhase(phaseId);
         if (gcFullHeap) fullHeapTime.stop();
       }
+      if (!gcFullHeap) {
+        nurseryTime.stop();
+        int survivorPages = getPagesUsed() - nurserySpace.reservedPages() - maturePagesBeforeGC;
+        GCEventLog.recordPromoted(pagesToBytes(survivorPages < 0 ? 0 : survivorPages).toLong());
+        NurserySizeManager.recordNurseryCollection(VM.statistics.nanoTime() - collectionStart,
+            nurseryPagesBeforeGC, survivorPages < 0 ? 0 : survivorPages);
+      }
       nextGCFullHeap = (getPagesAvail() < Options.nurserySize.getMinNursery());
       return;
     }
@@ -237,7 +373,7 @@ public abstract class Gen extends StopTheWorld {
 
   @Override
   public final boolean collectionRequired(boolean spaceFull, Space space) {
-    int availableNurseryPages = Options.nurserySize.getMaxNursery() - nurserySpace.reservedPages();
+    int availableNurseryPages = NurserySizeManager.getNurseryPages() - nurserySpace.reservedPages();
 
     /* periodically recalculate nursery pretenure threshold */
     Plan.pretenureThreshold = (int) (pagesToBytes(availableNurseryPages).toInt() * Options.pretenureThresholdFraction.getValue());
@@ -263,11 +399,21 @@ public abstract class Gen extends StopTheWorld {
    * @return <code>true</code> is this GC should be a full heap collection.
    */
   protected boolean requiresFullHeapCollection() {
+    return requiresFullHeapCollection(collectionAttempt);
+  }
+
+  /**
+   * Determine if a GC should be a full heap collection.
+   *
+   * @param attempt The number of consecutive attempts to collect
+   * @return <code>true</code> is the GC should be a full heap collection.
+   */
+  private boolean requiresFullHeapCollection(int attempt) {
     if (userTriggeredCollection && Options.fullHeapSystemGC.getValue()) {
       return true;
     }
 
-    if (nextGCFullHeap || collectionAttempt > 1) {
+    if (nextGCFullHeap || attempt > 1) {
       // Forces full heap collection
       return true;
     }
@@ -309,7 +455,30 @@ public abstract class Gen extends StopTheWorld {
    */
   @Override
   public int getPagesUsed() {
-    return (nurserySpace.reservedPages() + super.getPagesUsed());
+    return (nurserySpace.reservedPages() + survivorPages() + super.getPagesUsed());
+  }
+
+  /**
+   * {@inheritDoc}
+   * A nursery collection only traces the nursery, the survivor spaces
+   * and the remembered sets, whose size is approximated by the pages
+   * they have enqueued.  The work is estimated before the kind of the
+   * collection is set, so the attempt is found as it will be then.
+   */
+  @Override
+  public int expectedCollectionWork() {
+    int attempt = userTriggeredCollection ? 1 : Allocator.peekCollectionAttempts();
+    if (requiresFullHeapCollection(attempt)) return super.expectedCollectionWork();
+    return nurserySpace.reservedPages() + survivorPages() + remsetPool.enqueuedPages() +
+        arrayRemsetPool.enqueuedPages() + modbufPool.enqueuedPages() +
+        fromSurvivorRemsetPool().enqueuedPages();
+  }
+
+  /**
+   * @return The number of pages reserved by the survivor spaces
+   */
+  protected final int survivorPages() {
+    return survivor0Space.reservedPages() + survivor1Space.reservedPages();
   }
 
   /**
@@ -329,7 +498,7 @@ public abstract class Gen extends StopTheWorld {
    */
   @Override
   public int getCollectionReserve() {
-    return nurserySpace.reservedPages() + super.getCollectionReserve();
+    return nurserySpace.reservedPages() + survivorPages() + super.getCollectionReserve();
   }
 
   /**
@@ -347,30 +516,167 @@ public abstract class Gen extends StopTheWorld {
    */
 
   /**
-   * Return {@code true} if the address resides within the nursery
+   * Return {@code true} if the address resides within the young
+   * generation, that is, the nursery or a survivor space.  The survivor
+   * spaces are discontiguous, but are only looked up when survivors are
+   * aged, since they are otherwise empty.
    *
    * @param addr The object to be tested
-   * @return {@code true} if the address resides within the nursery
+   * @return {@code true} if the address resides within the young generation
    */
   @Inline
   static boolean inNursery(Address addr) {
-    if (USE_DISCONTIGUOUS_NURSERY)
-      return HeapLayout.vmMap.getDescriptorForAddress(addr) == NURSERY;
-    else
-      return addr.GE(NURSERY_START);
+    if (USE_DISCONTIGUOUS_NURSERY) {
+      int descriptor = HeapLayout.vmMap.getDescriptorForAddress(addr);
+      return descriptor == NURSERY || descriptor == SURVIVOR0 || descriptor == SURVIVOR1;
+    } else if (addr.GE(NURSERY_START)) {
+      return true;
+    } else if (aging) {
+      int descriptor = HeapLayout.vmMap.getDescriptorForAddress(addr);
+      return descriptor == SURVIVOR0 || descriptor == SURVIVOR1;
+    }
+    return false;
   }
 
   /**
-   * Return {@code true} if the object resides within the nursery
+   * Return {@code true} if the object resides within the young
+   * generation, that is, the nursery or a survivor space
    *
    * @param obj The object to be tested
-   * @return {@code true} if the object resides within the nursery
+   * @return {@code true} if the object resides within the young generation
    */
   @Inline
   static boolean inNursery(ObjectReference obj) {
     return inNursery(obj.toAddress());
   }
 
+  /**
+   * @param object An object in the young generation
+   * @return The space (the nursery or a survivor space) holding the object
+   */
+  @Inline
+  static CopySpace youngSpace(ObjectReference object) {
+    if (Space.isInSpace(NURSERY, object)) return nurserySpace;
+    return Space.isInSpace(SURVIVOR0, object) ? survivor0Space : survivor1Space;
+  }
+
+  /** @return The survivor space into which survivors are being copied */
+  static CopySpace toSurvivorSpace() {
+    return survivorHi ? survivor1Space : survivor0Space;
+  }
+
+  /** @return The survivor space holding the survivors of the last nursery collection */
+  static CopySpace fromSurvivorSpace() {
+    return survivorHi ? survivor0Space : survivor1Space;
+  }
+
+  /** @return The pool into which this nursery collection remembers slots */
+  final SharedDeque toSurvivorRemsetPool() {
+    return survivorHi ? survivorRemsetPool1 : survivorRemsetPool0;
+  }
+
+  /** @return The pool of slots remembered by the last nursery collection */
+  final SharedDeque fromSurvivorRemsetPool() {
+    return survivorHi ? survivorRemsetPool0 : survivorRemsetPool1;
+  }
+
+  /*****************************************************************************
+   *
+   * Survivor aging
+   */
+
+  /**
+   * Choose where a nursery collection copies a young object: into the
+   * to-space survivor space if the object will still be younger than the
+   * tenuring threshold, otherwise into the mature space.
+   *
+   * @param object The young object about to be copied
+   * @return The allocator with which to copy the object
+   */
+  @Inline
+  static int minorGCAllocator(ObjectReference object) {
+    if (agingThisGC && getAge(object) + 1 < tenuringThreshold) {
+      return ALLOC_SURVIVOR;
+    }
+    return ALLOC_MATURE_MINORGC;
+  }
+
+  /**
+   * @param object A young object
+   * @return The number of nursery collections the object has survived
+   */
+  @Inline
+  public static int getAge(ObjectReference object) {
+    return (VM.objectModel.readAvailableByte(object) & AGE_MASK) >>> AGE_SHIFT;
+  }
+
+  /**
+   * @param object A young object
+   * @param age The number of nursery collections the object has survived
+   */
+  @Inline
+  public static void setAge(ObjectReference object, int age) {
+    byte value = VM.objectModel.readAvailableByte(object);
+    VM.objectModel.writeAvailableByte(object, (byte) ((value & ~AGE_MASK) | (age << AGE_SHIFT)));
+  }
+
+  /**
+   * Clear the age of an object promoted into a mature space, whose
+   * header bits the mature space may then use for its own purposes.
+   *
+   * @param object The copy of a young object in a mature space
+   */
+  @Inline
+  static void clearAge(ObjectReference object) {
+    setAge(object, 0);
+  }
+
+  /**
+   * Record in the allocation site profile whether each object sampled by
+   * the mutators since the last collection survived this one.  This must
+   * precede the release of the nursery, while the forwarding state of the
+   * sampled objects can still be read.
+   */
+  private void processAllocationSamples() {
+    allocationSamplePool.prepareNonBlocking();
+    while (!allocationSamples.isEmpty()) {
+      ObjectReference object = allocationSamples.pop1().toObjectReference();
+      int site = allocationSamples.pop2().toWord().toInt() - 1;
+      AllocationSiteProfile.recordSample(site, nurserySpace.isLive(object));
+    }
+    allocationSamplePool.reset();
+  }
+
+  /**
+   * Add a collector's survivor volumes to those of the current collection.
+   *
+   * @param bytes The volume of survivors copied by the collector, by age,
+   * which is reset
+   */
+  static void recordSurvivors(long[] bytes) {
+    survivorLock.acquire();
+    for (int age = 0; age <= MAX_TENURING_THRESHOLD; age++) {
+      survivorBytes[age] += bytes[age];
+      bytes[age] = 0;
+    }
+    survivorLock.release();
+  }
+
+  /**
+   * Print the volume of survivors of the last nursery collection at each
+   * age.  Survivors at the tenuring threshold were promoted.
+   */
+  private void printSurvivorAges() {
+    Log.write("   Survivor ages (KB):");
+    for (int age = 1; age <= tenuringThreshold; age++) {
+      Log.write(" ", age);
+      Log.write(":");
+      Log.write(survivorBytes[age] >> 10);
+    }
+    if (!agingThisGC) Log.write(" (full heap, all promoted)");
+    Log.writeln();
+  }
+
   /**
    * @return Does the mature space do copying ?
    */
@@ -389,6 +695,17 @@ public abstract class Gen extends StopTheWorld {
     super.printPreStats();
   }
 
+  /**
+   * Print post-collection statistics.  When aging survivors, we follow
+   * a nursery collection with the volume of survivors at each age.
+   */
+  @Override
+  public void printPostStats() {
+    super.printPostStats();
+    if (aging && !gcFullHeap && Options.verbose.getValue() >= 1)
+      printSurvivorAges();
+  }
+
   /**
    * Accessor method to allow the generic generational code in Gen.java
    * to access the mature space.
@@ -417,7 +734,7 @@ public abstract class Gen extends StopTheWorld {
 
   @Override
   public boolean willNeverMove(ObjectReference object) {
-    if (Space.isInSpace(NURSERY, object))
+    if (inNursery(object))
       return false;
     return super.willNeverMove(object);
   }
@@ -13,12 +13,15 @@
 package org.mmtk.plan.generational;
 
 import org.mmtk.plan.*;
+import org.mmtk.policy.CopyLocal;
 import org.mmtk.policy.LargeObjectLocal;
+import org.mmtk.utility.ForwardingWord;
 import org.mmtk.utility.deque.*;
 
 import org.mmtk.vm.VM;
 
 import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
 
 /**
  * This abstract class implements <i>per-collector thread</i>
@@ -49,11 +52,23 @@ import org.vmmagic.pragma.*;
   protected final LargeObjectLocal losDram;
   protected final LargeObjectLocal losNvm;
 
+  /** The allocator for survivors that have not reached the tenuring threshold */
+  protected final CopyLocal survivor = new CopyLocal();
+  /** The volume of survivors copied by this collector, by age */
+  private final long[] survivorBytes = new long[Gen.MAX_TENURING_THRESHOLD + 1];
+
   // remembered set consumers
   protected final ObjectReferenceDeque modbuf;
   protected final AddressDeque remset;
   protected final AddressPairDeque arrayRemset;
 
+  /* slots that refer to aged survivors, used by alternate nursery collections */
+  final AddressDeque survivorRemset0;
+  final AddressDeque survivorRemset1;
+  /** Objects outside the young generation scanned while aging survivors */
+  final ObjectReferenceDeque matureScans;
+  private final SurvivorRemembering survivorRemembering = new SurvivorRemembering();
+
   /****************************************************************************
    *
    * Initialization
@@ -74,9 +89,55 @@ import org.vmmagic.pragma.*;
     arrayRemset = new AddressPairDeque(global().arrayRemsetPool);
     remset = new AddressDeque("remset", global().remsetPool);
     modbuf = new ObjectReferenceDeque("modbuf", global().modbufPool);
+    survivorRemset0 = new AddressDeque("survivorRemset0", global().survivorRemsetPool0);
+    survivorRemset1 = new AddressDeque("survivorRemset1", global().survivorRemsetPool1);
+    matureScans = new ObjectReferenceDeque("matureScans", global().matureScanPool);
     nurseryTrace = new GenNurseryTraceLocal(global().nurseryTrace, this);
   }
 
+  /****************************************************************************
+   *
+   * Collection-time allocation
+   */
+
+  /**
+   * Perform any post-copy actions for a survivor copied into the
+   * to-space survivor space, which ages it by one collection.
+   *
+   * @param object The newly allocated object
+   * @param bytes The size of the space to be allocated (in bytes)
+   */
+  @Inline
+  protected final void survivorPostCopy(ObjectReference object, int bytes) {
+    ForwardingWord.clearForwardingBits(object);
+    int age = Gen.getAge(object) + 1;
+    Gen.setAge(object, age);
+    survivorBytes[age] += bytes;
+  }
+
+  /**
+   * Perform any post-copy actions for an object copied into a mature
+   * space, before the space's own post-copy actions.  When aging, a young
+   * object's age is accounted for and cleared from its header, since the
+   * mature spaces use the same header bits.
+   *
+   * @param object The newly allocated object
+   * @param bytes The size of the space to be allocated (in bytes)
+   * @param allocator The allocator used
+   */
+  @Inline
+  protected final void maturePostCopy(ObjectReference object, int bytes, int allocator) {
+    if (Gen.aging) {
+      if (allocator == Gen.ALLOC_MATURE_MINORGC) {
+        survivorBytes[Gen.getAge(object) + 1] += bytes;
+      }
+      Gen.clearAge(object);
+    }
+    if (VM.VERIFY_ASSERTIONS && allocator == Gen.ALLOC_MATURE_MINORGC) {
+      VM.assertions._assert(Gen.getAge(object) == 0);
+    }
+  }
+
   /****************************************************************************
    *
    * Collection
@@ -96,7 +157,10 @@ import org.vmmagic.pragma.*;
       global().arrayRemsetPool.prepareNonBlocking();
       global().remsetPool.prepareNonBlocking();
       global().modbufPool.prepareNonBlocking();
+      global().fromSurvivorRemsetPool().prepareNonBlocking();
+      global().matureScanPool.prepareNonBlocking();
       nurseryTrace.prepare();
+      survivor.rebind(Gen.toSurvivorSpace());
       return;
     }
     if (phaseId == Simple.STACK_ROOTS && !global().gcFullHeap) {
@@ -126,10 +190,13 @@ import org.vmmagic.pragma.*;
       losDram.release(true);
       losNvm.release(true);
       if (!global().traceFullHeap()) {
+        if (Gen.aging) Gen.recordSurvivors(survivorBytes);
+        if (Gen.agingThisGC) rememberSurvivorReferences();
         nurseryTrace.release();
         global().arrayRemsetPool.reset();
         global().remsetPool.reset();
         global().modbufPool.reset();
+        global().fromSurvivorRemsetPool().reset();
       }
       return;
     }
@@ -137,6 +204,34 @@ import org.vmmagic.pragma.*;
     super.collectionPhase(phaseId, primary);
   }
 
+  /**
+   * Remember the slots of the objects outside the young generation scanned
+   * by this nursery collection that still refer to aged survivors.  The
+   * write barrier does not see these references: they were copied along
+   * with a promoted object, or held in a slot whose remembered set entry
+   * this collection consumed.
+   */
+  private void rememberSurvivorReferences() {
+    AddressDeque remset = toSurvivorRemset();
+    survivorRemembering.setRemset(remset);
+    matureScans.flushLocal();
+    ObjectReference object;
+    while (!(object = matureScans.pop()).isNull()) {
+      VM.scanning.scanObject(survivorRemembering, object);
+    }
+    remset.flushLocal();
+  }
+
+  /** @return The slots remembered by this nursery collection */
+  final AddressDeque toSurvivorRemset() {
+    return Gen.survivorHi ? survivorRemset1 : survivorRemset0;
+  }
+
+  /** @return The slots remembered by the last nursery collection */
+  final AddressDeque fromSurvivorRemset() {
+    return Gen.survivorHi ? survivorRemset0 : survivorRemset1;
+  }
+
   /****************************************************************************
    *
    * Miscellaneous
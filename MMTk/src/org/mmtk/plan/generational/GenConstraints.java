@@ -40,7 +40,7 @@ public class GenConstraints extends StopTheWorldConstraints {
 
   @Override
   public int gcHeaderBits() {
-    return CopySpace.LOCAL_GC_BITS_REQUIRED;
+    return Gen.LOCAL_GC_BITS_REQUIRED;
   }
 
   @Override
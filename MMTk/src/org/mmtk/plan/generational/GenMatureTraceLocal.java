@@ -14,6 +14,7 @@ package org.mmtk.plan.generational;
 
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.Trace;
+import org.mmtk.utility.CardTable;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.deque.*;
 
@@ -83,7 +84,7 @@ public abstract class GenMatureTraceLocal extends TraceLocal {
   public boolean isLive(ObjectReference object) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
     if (Gen.inNursery(object)) {
-      return Gen.nurserySpace.isLive(object);
+      return Gen.youngSpace(object).isLive(object);
     }
     return super.isLive(object);
   }
@@ -110,10 +111,25 @@ public abstract class GenMatureTraceLocal extends TraceLocal {
   public ObjectReference traceObject(ObjectReference object) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
     if (Gen.inNursery(object))
-      return Gen.nurserySpace.traceObject(this, object, Gen.ALLOC_MATURE_MAJORGC);
+      return Gen.youngSpace(object).traceObject(this, object, Gen.ALLOC_MATURE_MAJORGC);
     return super.traceObject(object);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * The card table is cleared before a full heap collection, so every
+   * surviving mature object is recorded afresh as it is scanned.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    if (Gen.cardMarking && !Gen.inNursery(object)) {
+      CardTable.record(object);
+    }
+    super.scanObject(object);
+  }
+
   /**
    * Process any remembered set entries.
    */
@@ -16,6 +16,7 @@ import org.mmtk.plan.*;
 import org.mmtk.policy.CopyLocal;
 import org.mmtk.policy.Space;
 import org.mmtk.policy.immix.ObjectHeader;
+import org.mmtk.utility.CardTable;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.deque.*;
 import org.mmtk.utility.alloc.Allocator;
@@ -57,6 +58,20 @@ import org.vmmagic.unboxed.*;
   protected final WriteBuffer remset;           /* remember modified array fields */
   protected final AddressPairDeque arrayRemset; /* remember modified array ranges */
 
+  /*
+   * Sampling of nursery allocation for the allocation site profile.  The
+   * samples are held in fixed buffers until the next collection, because
+   * growing a deque may trigger a collection from within postAlloc, before
+   * the new object is reachable.
+   */
+  private static final int MAX_SAMPLES = 64;
+  private final AddressArray sampledObjects = AddressArray.create(MAX_SAMPLES);
+  private final int[] sampledSites = new int[MAX_SAMPLES];
+  private int samples = 0;
+  private final AddressPairDeque allocationSamples;
+  private int bytesUntilSample = AllocationSiteProfile.SAMPLE_BYTES;
+  private int sampleSite = Plan.DEFAULT_SITE;
+
   /****************************************************************************
    *
    * Initialization
@@ -74,6 +89,7 @@ import org.vmmagic.unboxed.*;
     modbuf = new ObjectReferenceDeque("modbuf", global().modbufPool);
     remset = new WriteBuffer(global().remsetPool);
     arrayRemset = new AddressPairDeque(global().arrayRemsetPool);
+    allocationSamples = new AddressPairDeque(global().allocationSamplePool);
   }
 
   /****************************************************************************
@@ -93,12 +109,33 @@ import org.vmmagic.unboxed.*;
      * - ALLOC_NVM
      */
     if (allocator == Gen.ALLOC_NURSERY  || allocator == Gen.ALLOC_DRAM || allocator == Gen.ALLOC_NVM) {
+      if (Gen.sitePretenuring && AllocationSiteProfile.isProfiled(site)) {
+        if (AllocationSiteProfile.isPretenured(site)) {
+          return alloc(bytes, align, offset, pretenureAllocator(allocator), site);
+        }
+        bytesUntilSample -= bytes;
+        if (bytesUntilSample <= 0) {
+          bytesUntilSample += AllocationSiteProfile.SAMPLE_BYTES;
+          sampleSite = site;
+        }
+      }
       if (Stats.GATHER_MARK_CONS_STATS) Gen.nurseryCons.inc(bytes);
       return nursery.alloc(bytes, align, offset);
     }
     return super.alloc(bytes, align, offset, allocator, site);
   }
 
+  /**
+   * Return the allocator with which to allocate directly into the mature
+   * space objects from a pretenured allocation site.
+   *
+   * @param allocator The nursery allocator requested for the object
+   * @return The allocator to use instead
+   */
+  protected int pretenureAllocator(int allocator) {
+    return Gen.ALLOC_MATURE;
+  }
+
   @Override
   @Inline
   public void postAlloc(ObjectReference ref, ObjectReference typeRef, int bytes, int allocator) {
@@ -111,6 +148,20 @@ import org.vmmagic.unboxed.*;
     }
     if (allocator != Gen.ALLOC_NURSERY && allocator != Gen.ALLOC_DRAM && allocator != Gen.ALLOC_NVM) {
       super.postAlloc(ref, typeRef, bytes, allocator);
+    } else if (Gen.sitePretenuring) {
+      if (!Gen.inNursery(ref)) {
+        /* the object was pretenured by alloc(), so the barrier must log it like a promoted object */
+        postAlloc(ref, typeRef, bytes, pretenureAllocator(allocator));
+        if (Gen.USE_OBJECT_BARRIER)
+          HeaderByte.markAsUnlogged(ref);
+      } else if (sampleSite != Plan.DEFAULT_SITE) {
+        if (samples < MAX_SAMPLES) {
+          sampledObjects.set(samples, ref.toAddress());
+          sampledSites[samples] = sampleSite;
+          samples++;
+        }
+        sampleSite = Plan.DEFAULT_SITE;
+      }
     }
   }
 
@@ -129,7 +180,8 @@ import org.vmmagic.unboxed.*;
 
   /**
    * Perform the write barrier fast path, which may involve remembering
-   * a reference if necessary.
+   * a reference if necessary.  With card marking, a store into a mature
+   * object recorded in the card table dirties the object's card instead.
    *
    * @param src The object into which the new reference will be stored
    * @param slot The address into which the new reference will be
@@ -147,6 +199,13 @@ import org.vmmagic.unboxed.*;
         HeaderByte.markAsLogged(src);
         modbuf.insert(src);
       }
+    } else if (Gen.cardMarking && !Gen.inNursery(slot) && CardTable.isRecorded(src)) {
+      if (!Gen.conditionalCardMarking) {
+        CardTable.dirty(src);
+      } else if (Gen.inNursery(tgt)) {
+        if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
+        CardTable.dirtyIfClean(src);
+      }
     } else {
       if (!Gen.inNursery(slot) && Gen.inNursery(tgt)) {
         if (Gen.GATHER_WRITE_BARRIER_STATS) Gen.wbSlow.inc();
@@ -231,8 +290,12 @@ import org.vmmagic.unboxed.*;
   @Override
   public final boolean objectReferenceBulkCopy(ObjectReference src, Offset srcOffset, ObjectReference dst, Offset dstOffset, int bytes) {
     if (!Gen.inNursery(dst)) {
-      Address start = dst.toAddress().plus(dstOffset);
-      arrayRemset.insert(start, start.plus(bytes));
+      if (Gen.cardMarking && CardTable.isRecorded(dst)) {
+        CardTable.dirty(dst);
+      } else {
+        Address start = dst.toAddress().plus(dstOffset);
+        arrayRemset.insert(start, start.plus(bytes));
+      }
     }
     return false;
   }
@@ -268,6 +331,7 @@ import org.vmmagic.unboxed.*;
 
     if (phaseId == Gen.PREPARE) {
       nursery.reset();
+      flushAllocationSamples();
       if (global().traceFullHeap()) {
         super.collectionPhase(phaseId, primary);
         modbuf.flushLocal();
@@ -290,6 +354,18 @@ import org.vmmagic.unboxed.*;
     super.collectionPhase(phaseId, primary);
   }
 
+  /**
+   * Pass the allocation samples taken since the last collection to the
+   * global allocation site profile.
+   */
+  private void flushAllocationSamples() {
+    for (int i = 0; i < samples; i++) {
+      allocationSamples.insert(sampledObjects.get(i), Word.fromIntZeroExtend(sampledSites[i] + 1).toAddress());
+    }
+    samples = 0;
+    allocationSamples.flushLocal();
+  }
+
   /****************************************************************************
    *
    * Miscellaneous
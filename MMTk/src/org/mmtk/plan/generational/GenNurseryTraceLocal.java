@@ -13,9 +13,12 @@
 package org.mmtk.plan.generational;
 
 import static org.mmtk.utility.Constants.BYTES_IN_ADDRESS;
+import static org.mmtk.utility.Constants.MIN_ALIGNMENT;
 
 import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.CollectorContext;
 import org.mmtk.plan.Trace;
+import org.mmtk.utility.CardTable;
 import org.mmtk.utility.HeaderByte;
 import org.mmtk.utility.deque.*;
 import org.mmtk.vm.VM;
@@ -41,6 +44,8 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   private final ObjectReferenceDeque modbuf;
   private final AddressDeque remset;
   private final AddressPairDeque arrayRemset;
+  private final GenCollector plan;
+  private boolean cardsScanned;
 
   /**
    * @param trace the global trace class to use
@@ -51,6 +56,7 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     this.modbuf = plan.modbuf;
     this.remset = plan.remset;
     this.arrayRemset = plan.arrayRemset;
+    this.plan = plan;
   }
 
   /****************************************************************************
@@ -65,7 +71,8 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   public boolean isLive(ObjectReference object) {
     if (object.isNull()) return false;
     if (Gen.inNursery(object)) {
-      return Gen.nurserySpace.isLive(object);
+      /* Survivors already copied into the to-space survivor space are live */
+      return Gen.youngSpace(object).isReachable(object);
     }
     /* During a nursery trace, all objects not in the nursery are considered alive */
     return true;
@@ -75,17 +82,46 @@ public final class GenNurseryTraceLocal extends TraceLocal {
   @Inline
   public ObjectReference traceObject(ObjectReference object) {
     if (Gen.inNursery(object)) {
-      return Gen.nurserySpace.traceObject(this, object, Gen.ALLOC_MATURE_MINORGC);
+      return Gen.youngSpace(object).traceObject(this, object, Gen.minorGCAllocator(object));
     }
     return object;
   }
 
+  @Override
+  public void prepare() {
+    super.prepare();
+    cardsScanned = false;
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Objects promoted out of the nursery are recorded in the card table,
+   * so that stores into them may be remembered by dirtying their card.
+   * When aging survivors, every object outside the young generation is
+   * scanned again once the collection is complete, to remember the slots
+   * that still refer to survivors.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    if (!Gen.inNursery(object)) {
+      if (Gen.cardMarking) CardTable.record(object);
+      if (Gen.agingThisGC) plan.matureScans.insert(object);
+    }
+    super.scanObject(object);
+  }
+
   /**
    * Process any remembered set entries.
    */
   @Override
   @Inline
   protected void processRememberedSets() {
+    if (Gen.cardMarking && !cardsScanned) {
+      cardsScanned = true;
+      scanDirtyCards();
+    }
     logMessage(5, "processing modbuf");
     ObjectReference obj;
     while (!(obj = modbuf.pop()).isNull()) {
@@ -97,7 +133,14 @@ public final class GenNurseryTraceLocal extends TraceLocal {
     while (!remset.isEmpty()) {
       Address loc = remset.pop();
       if (VM.DEBUG) VM.debugging.remsetEntry(loc);
-      processRootEdge(loc, false);
+      processRememberedEdge(loc);
+    }
+    if (Gen.aging) {
+      logMessage(5, "processing survivor remset");
+      AddressDeque survivorRemset = plan.fromSurvivorRemset();
+      while (!survivorRemset.isEmpty()) {
+        processRememberedEdge(survivorRemset.pop());
+      }
     }
     logMessage(5, "processing array remset");
     arrayRemset.flushLocal();
@@ -106,12 +149,55 @@ public final class GenNurseryTraceLocal extends TraceLocal {
       Address guard = arrayRemset.pop2();
       if (VM.DEBUG) VM.debugging.arrayRemsetEntry(start,guard);
       while (start.LT(guard)) {
-        processRootEdge(start, false);
+        processRememberedEdge(start);
         start = start.plus(BYTES_IN_ADDRESS);
       }
     }
   }
 
+  /**
+   * Process a remembered slot.  When aging survivors, the slot is
+   * remembered again if it still refers to the young generation, since
+   * this collection consumes its remembered set entry.
+   *
+   * @param slot The remembered slot
+   */
+  @Inline
+  private void processRememberedEdge(Address slot) {
+    processRootEdge(slot, false);
+    if (Gen.agingThisGC && Gen.inNursery(slot.loadObjectReference())) {
+      plan.toSurvivorRemset().insert(slot);
+    }
+  }
+
+  /**
+   * Clean the dirty cards of this collector's share of the card table,
+   * scanning every recorded object on each.
+   */
+  private void scanDirtyCards() {
+    logMessage(5, "processing dirty cards");
+    CollectorContext collector = VM.activePlan.collector();
+    int workers = collector.parallelWorkerCount();
+    int cards = CardTable.cardsInChunk();
+    int dirty = 0;
+    for (int i = collector.parallelWorkerOrdinal(); i < CardTable.chunkCount(); i += workers) {
+      Address meta = CardTable.getMetadata(i);
+      if (meta.isZero()) continue;
+      Address chunk = CardTable.getChunk(i);
+      for (int card = 0; card < cards; card++) {
+        if (!CardTable.testAndClean(meta, card)) continue;
+        dirty++;
+        Address cursor = chunk.plus(card << CardTable.LOG_BYTES_IN_CARD);
+        ObjectReference object;
+        while (!(object = CardTable.nextRecorded(meta, chunk, card, cursor)).isNull()) {
+          scanObject(object);
+          cursor = object.toAddress().plus(MIN_ALIGNMENT);
+        }
+      }
+    }
+    Gen.dirtyCards.inc(dirty);
+  }
+
   /**
    * Will the object move from now on during the collection.
    *
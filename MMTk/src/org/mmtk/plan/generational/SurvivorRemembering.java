@@ -0,0 +1,49 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.generational;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.deque.AddressDeque;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class scans objects outside the young generation once a nursery
+ * collection is complete, and remembers every slot that still refers to
+ * an aged survivor, so that the next nursery collection treats the slot
+ * as a root.
+ */
+@Uninterruptible
+public final class SurvivorRemembering extends TransitiveClosure {
+
+  /** The slots remembered for the next nursery collection */
+  private AddressDeque remset;
+
+  /**
+   * Set the deque into which slots are remembered.
+   *
+   * @param remset The slots remembered for the next nursery collection
+   */
+  void setRemset(AddressDeque remset) {
+    this.remset = remset;
+  }
+
+  @Override
+  @Inline
+  public void processEdge(ObjectReference source, Address slot) {
+    if (Gen.inNursery(slot.loadObjectReference())) {
+      remset.insert(slot);
+    }
+  }
+}
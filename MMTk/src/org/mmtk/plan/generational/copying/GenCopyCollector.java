@@ -81,6 +81,9 @@ public class GenCopyCollector extends GenCollector {
   @Inline
   public Address allocCopy(ObjectReference original, int bytes,
       int align, int offset, int allocator) {
+    if (allocator == Gen.ALLOC_SURVIVOR) {
+      return survivor.alloc(bytes, align, offset);
+    }
     if (allocator == Plan.ALLOC_LOS) {
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
       return los.alloc(bytes, align, offset);
@@ -103,11 +106,18 @@ public class GenCopyCollector extends GenCollector {
   @Inline
   public final void postCopy(ObjectReference object, ObjectReference typeRef,
       int bytes, int allocator) {
+    if (allocator == Gen.ALLOC_SURVIVOR) {
+      survivorPostCopy(object, bytes);
+      return;
+    }
     ForwardingWord.clearForwardingBits(object);
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
-    else if (GenCopy.IGNORE_REMSETS)
-      GenCopy.immortalSpace.traceObject(getCurrentTrace(), object); // FIXME this does not look right
+    else {
+      maturePostCopy(object, bytes, allocator);
+      if (GenCopy.IGNORE_REMSETS)
+        GenCopy.immortalSpace.traceObject(getCurrentTrace(), object); // FIXME this does not look right
+    }
     if (Gen.USE_OBJECT_BARRIER)
       HeaderByte.markAsUnlogged(object);
   }
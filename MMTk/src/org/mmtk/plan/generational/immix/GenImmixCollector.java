@@ -86,6 +86,9 @@ public class GenImmixCollector extends GenCollector {
     if (Stats.GATHER_MARK_CONS_STATS) {
       if (Space.isInSpace(GenImmix.NURSERY, original)) GenImmix.nurseryMark.inc(bytes);
     }
+    if (allocator == GenImmix.ALLOC_SURVIVOR) {
+      return survivor.alloc(bytes, align, offset);
+    }
 //    if (allocator == Plan.ALLOC_LOS) {
 //      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
 //      return los.alloc(bytes, align, offset);
@@ -128,6 +131,10 @@ public class GenImmixCollector extends GenCollector {
   @Override
   @Inline
   public final void postCopy(ObjectReference object, ObjectReference typeRef, int bytes, int allocator) {
+    if (allocator == GenImmix.ALLOC_SURVIVOR) {
+      survivorPostCopy(object, bytes);
+      return;
+    }
 //    if (allocator == Plan.ALLOC_LOS)
 //      Plan.loSpace.initializeHeader(object, false);
     if (allocator == Plan.ALLOC_LOS_DRAM) {
@@ -135,6 +142,7 @@ public class GenImmixCollector extends GenCollector {
     } else if (allocator == Plan.ALLOC_LOS_NVM) {
       Plan.loNvmSpace.initializeHeader(object, false);
     } else {
+      maturePostCopy(object, bytes, allocator);
 //      if (VM.VERIFY_ASSERTIONS) {
 //        VM.assertions._assert((!GenImmix.immixSpace.inImmixCollection() && allocator == GenImmix.ALLOC_MATURE_MINORGC) ||
 //            (GenImmix.immixSpace.inImmixCollection() && allocator == GenImmix.ALLOC_MATURE_MAJORGC));
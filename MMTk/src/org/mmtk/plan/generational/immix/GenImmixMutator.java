@@ -89,11 +89,9 @@ public class GenImmixMutator extends GenMutator {
 //      return mature.alloc(bytes, align, offset);
 //    }
     if (allocator == GenImmix.ALLOC_MATURE_DRAM) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(false); // no pretenuring yet
       return matureDram.alloc(bytes, align, offset);
     }
     if (allocator == GenImmix.ALLOC_MATURE_NVM) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(false); // no pretenuring yet
       return matureNvm.alloc(bytes, align, offset);
     }
     return super.alloc(bytes, align, offset, allocator, site);
@@ -102,14 +100,27 @@ public class GenImmixMutator extends GenMutator {
   @Override
   @Inline
   public final void postAlloc(ObjectReference ref, ObjectReference typeRef, int bytes, int allocator) {
-    if (allocator == GenImmix.ALLOC_MATURE_DRAM || allocator == GenImmix.ALLOC_MATURE_NVM) {
+    if (allocator == GenImmix.ALLOC_MATURE_DRAM) {
 //    if (allocator == GenImmix.ALLOC_MATURE) {
-      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(false); // no pretenuring yet
+      GenImmix.immixDramSpace.postAlloc(ref, bytes);
+    } else if (allocator == GenImmix.ALLOC_MATURE_NVM) {
+      GenImmix.immixNvmSpace.postAlloc(ref, bytes);
     } else {
       super.postAlloc(ref, typeRef, bytes, allocator);
     }
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Objects requested for the DRAM nursery are pretenured into the DRAM
+   * mature space, and all others into the NVM mature space.
+   */
+  @Override
+  protected int pretenureAllocator(int allocator) {
+    return allocator == GenImmix.ALLOC_DRAM ? GenImmix.ALLOC_MATURE_DRAM : GenImmix.ALLOC_MATURE_NVM;
+  }
+
   @Override
   public Allocator getAllocatorFromSpace(Space space) {
 //    if (space == GenImmix.immixSpace) return mature;
@@ -18,6 +18,7 @@ import org.mmtk.plan.TransitiveClosure;
 import org.mmtk.policy.MarkSweepSpace;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
 
 import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.*;
@@ -71,6 +72,16 @@ public class GenMS extends Gen {
    * Collection
    */
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    if (Options.concurrentSweep.getValue()) msSpace.enableConcurrentSweeping();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -79,6 +79,9 @@ public class GenMSCollector extends GenCollector {
       if (Space.isInSpace(GenMS.NURSERY, original)) GenMS.nurseryMark.inc(bytes);
     }
 
+    if (allocator == Gen.ALLOC_SURVIVOR) {
+      return survivor.alloc(bytes, align, offset);
+    }
     if (allocator == Plan.ALLOC_LOS) {
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Allocator.getMaximumAlignedSize(bytes, align) > Plan.MAX_NON_LOS_COPY_BYTES);
       return los.alloc(bytes, align, offset);
@@ -96,10 +99,16 @@ public class GenMSCollector extends GenCollector {
   @Override
   public final void postCopy(ObjectReference object, ObjectReference typeRef,
                              int bytes, int allocator) {
+    if (allocator == Gen.ALLOC_SURVIVOR) {
+      survivorPostCopy(object, bytes);
+      return;
+    }
     if (allocator == Plan.ALLOC_LOS)
       Plan.loSpace.initializeHeader(object, false);
-    else
+    else {
+      maturePostCopy(object, bytes, allocator);
       GenMS.msSpace.postCopy(object, allocator == GenMS.ALLOC_MATURE_MAJORGC);
+    }
     if (Gen.USE_OBJECT_BARRIER)
       HeaderByte.markAsUnlogged(object);
   }
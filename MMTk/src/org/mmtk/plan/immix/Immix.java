@@ -13,10 +13,12 @@
 package org.mmtk.plan.immix;
 
 import org.mmtk.plan.*;
+import org.mmtk.policy.MediumObjectSpace;
 import org.mmtk.policy.Space;
 import org.mmtk.policy.immix.ImmixSpace;
 import org.mmtk.policy.immix.ObjectHeader;
 import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
 
 import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.*;
@@ -56,8 +58,10 @@ public class Immix extends StopTheWorld {
   /**
    *
    */
-  public static final ImmixSpace immixSpace = new ImmixSpace("immix", VMRequest.discontiguous());
+  public static final ImmixSpace immixSpace = new ImmixSpace("immix", VMRequest.discontiguous().withHugePages());
   public static final int IMMIX = immixSpace.getDescriptor();
+  public static final MediumObjectSpace mediumSpace = new MediumObjectSpace("medium", VMRequest.discontiguous());
+  public static final int MEDIUM = mediumSpace.getDescriptor();
 
   public static final int SCAN_IMMIX = 0;
   public static final int SCAN_DEFRAG = 1;
@@ -88,6 +92,16 @@ public class Immix extends StopTheWorld {
    * Collection
    */
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    immixSpace.setZeroingApproach(Options.blockZeroing.getNonTemporal(), Options.blockZeroing.getConcurrent());
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -104,6 +118,7 @@ public class Immix extends StopTheWorld {
       super.collectionPhase(phaseId);
       immixTrace.prepare();
       immixSpace.prepare(true);
+      mediumSpace.prepare();
       return;
     }
 
@@ -115,6 +130,7 @@ public class Immix extends StopTheWorld {
     if (phaseId == RELEASE) {
       immixTrace.release();
       lastGCWasDefrag = immixSpace.release(true);
+      mediumSpace.release();
       super.collectionPhase(phaseId);
       return;
     }
@@ -135,11 +151,11 @@ public class Immix extends StopTheWorld {
   /**
    * Return the number of pages reserved for use given the pending
    * allocation.  The superclass accounts for its spaces, we just
-   * augment this with the mark-sweep space's contribution.
+   * augment this with the immix and medium object spaces' contributions.
    */
   @Override
   public int getPagesUsed() {
-    return immixSpace.reservedPages() + super.getPagesUsed();
+    return immixSpace.reservedPages() + mediumSpace.reservedPages() + super.getPagesUsed();
   }
 
   /**
@@ -155,6 +171,8 @@ public class Immix extends StopTheWorld {
     if (Space.isInSpace(IMMIX, object)) {
       ObjectHeader.pinObject(object);
       return true;
+    } else if (Space.isInSpace(MEDIUM, object)) {
+      return true;
     } else
       return super.willNeverMove(object);
   }
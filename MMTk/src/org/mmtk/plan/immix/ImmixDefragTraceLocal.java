@@ -63,6 +63,9 @@ public final class ImmixDefragTraceLocal extends TraceLocal {
     if (Space.isInSpace(Immix.IMMIX, object)) {
       return Immix.immixSpace.isLive(object);
     }
+    if (Space.isInSpace(Immix.MEDIUM, object)) {
+      return Immix.mediumSpace.isLive(object);
+    }
     return super.isLive(object);
   }
 
@@ -82,6 +85,8 @@ public final class ImmixDefragTraceLocal extends TraceLocal {
     if (object.isNull()) return object;
     if (Space.isInSpace(Immix.IMMIX, object))
       return Immix.immixSpace.traceObject(this, object, Plan.ALLOC_DEFAULT);
+    if (Space.isInSpace(Immix.MEDIUM, object))
+      return Immix.mediumSpace.traceObject(this, object);
     return super.traceObject(object);
   }
 
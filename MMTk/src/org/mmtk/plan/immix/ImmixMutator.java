@@ -13,6 +13,7 @@
 package org.mmtk.plan.immix;
 
 import org.mmtk.plan.*;
+import org.mmtk.policy.MediumObjectLocal;
 import org.mmtk.policy.Space;
 import org.mmtk.policy.immix.MutatorLocal;
 
@@ -42,6 +43,7 @@ public class ImmixMutator extends StopTheWorldMutator {
    * Instance fields
    */
   protected final MutatorLocal immix;
+  protected final MediumObjectLocal medium = new MediumObjectLocal(Immix.mediumSpace);
 
   /****************************************************************************
    *
@@ -71,6 +73,8 @@ public class ImmixMutator extends StopTheWorldMutator {
   public Address alloc(int bytes, int align, int offset, int allocator, int site) {
     if (allocator == Immix.ALLOC_DEFAULT)
       return immix.alloc(bytes, align, offset);
+    if (allocator == Immix.ALLOC_MEDIUM)
+      return medium.alloc(bytes, align, offset);
     return super.alloc(bytes, align, offset, allocator, site);
   }
 
@@ -86,6 +90,8 @@ public class ImmixMutator extends StopTheWorldMutator {
       int bytes, int allocator) {
     if (allocator == Immix.ALLOC_DEFAULT)
       Immix.immixSpace.postAlloc(ref, bytes);
+    else if (allocator == Immix.ALLOC_MEDIUM)
+      Immix.mediumSpace.initializeHeader(ref);
     else
       super.postAlloc(ref, typeRef, bytes, allocator);
   }
@@ -93,6 +99,7 @@ public class ImmixMutator extends StopTheWorldMutator {
   @Override
   public Allocator getAllocatorFromSpace(Space space) {
     if (space == Immix.immixSpace) return immix;  // FIXME is it not a problem that we have a 2:1 mapping?
+    if (space == Immix.mediumSpace) return medium;
     return super.getAllocatorFromSpace(space);
   }
 
@@ -111,6 +118,7 @@ public class ImmixMutator extends StopTheWorldMutator {
     if (phaseId == Immix.PREPARE) {
       super.collectionPhase(phaseId, primary);
       immix.prepare();
+      medium.flush();
       return;
     }
 
@@ -62,6 +62,9 @@ public final class ImmixTraceLocal extends TraceLocal {
     if (Space.isInSpace(Immix.IMMIX, object)) {
       return Immix.immixSpace.fastIsLive(object);
     }
+    if (Space.isInSpace(Immix.MEDIUM, object)) {
+      return Immix.mediumSpace.isLive(object);
+    }
     return super.isLive(object);
   }
 
@@ -80,6 +83,8 @@ public final class ImmixTraceLocal extends TraceLocal {
     if (object.isNull()) return object;
     if (Space.isInSpace(Immix.IMMIX, object))
       return Immix.immixSpace.fastTraceObject(this, object);
+    if (Space.isInSpace(Immix.MEDIUM, object))
+      return Immix.mediumSpace.traceObject(this, object);
     return super.traceObject(object);
   }
 
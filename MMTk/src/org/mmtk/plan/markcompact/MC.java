@@ -134,7 +134,7 @@ import org.vmmagic.unboxed.ObjectReference;
     if (phaseId == PREPARE) {
       super.collectionPhase(phaseId);
       markTrace.prepare();
-      mcSpace.prepare();
+      mcSpace.prepare(true);
       return;
     }
     if (phaseId == CLOSURE) {
@@ -151,7 +151,7 @@ import org.vmmagic.unboxed.ObjectReference;
     if (phaseId == PREPARE_FORWARD) {
       super.collectionPhase(PREPARE);
       forwardTrace.prepare();
-      mcSpace.prepare();
+      mcSpace.prepare(false);
       return;
     }
     if (phaseId == RELEASE_FORWARD) {
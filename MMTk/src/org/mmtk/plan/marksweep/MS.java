@@ -14,8 +14,10 @@ package org.mmtk.plan.marksweep;
 
 import org.mmtk.plan.*;
 import org.mmtk.policy.MarkSweepSpace;
+import org.mmtk.policy.MediumObjectSpace;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
 
 import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.*;
@@ -48,8 +50,10 @@ public class MS extends StopTheWorld {
   /**
    *
    */
-  public static final MarkSweepSpace msSpace = new MarkSweepSpace("ms", VMRequest.discontiguous());
+  public static final MarkSweepSpace msSpace = new MarkSweepSpace("ms", VMRequest.discontiguous().withHugePages());
   public static final int MARK_SWEEP = msSpace.getDescriptor();
+  public static final MediumObjectSpace mediumSpace = new MediumObjectSpace("medium", VMRequest.discontiguous());
+  public static final int MEDIUM = mediumSpace.getDescriptor();
 
   public static final int SCAN_MARK = 0;
 
@@ -68,6 +72,16 @@ public class MS extends StopTheWorld {
    * Collection
    */
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Interruptible
+  public void processOptions() {
+    super.processOptions();
+    if (Options.concurrentSweep.getValue()) msSpace.enableConcurrentSweeping();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -79,6 +93,7 @@ public class MS extends StopTheWorld {
       super.collectionPhase(phaseId);
       msTrace.prepare();
       msSpace.prepare(true);
+      mediumSpace.prepare();
       return;
     }
 
@@ -89,6 +104,7 @@ public class MS extends StopTheWorld {
     if (phaseId == RELEASE) {
       msTrace.release();
       msSpace.release();
+      mediumSpace.release();
       super.collectionPhase(phaseId);
       return;
     }
@@ -103,11 +119,11 @@ public class MS extends StopTheWorld {
   /**
    * {@inheritDoc}
    * The superclass accounts for its spaces, we just
-   * augment this with the mark-sweep space's contribution.
+   * augment this with the mark-sweep and medium object spaces' contributions.
    */
   @Override
   public int getPagesUsed() {
-    return (msSpace.reservedPages() + super.getPagesUsed());
+    return (msSpace.reservedPages() + mediumSpace.reservedPages() + super.getPagesUsed());
   }
 
   /*****************************************************************************
@@ -121,6 +137,8 @@ public class MS extends StopTheWorld {
   public boolean willNeverMove(ObjectReference object) {
     if (Space.isInSpace(MARK_SWEEP, object))
       return true;
+    if (Space.isInSpace(MEDIUM, object))
+      return true;
     return super.willNeverMove(object);
   }
 
@@ -14,6 +14,7 @@ package org.mmtk.plan.marksweep;
 
 import org.mmtk.plan.*;
 import org.mmtk.policy.MarkSweepLocal;
+import org.mmtk.policy.MediumObjectLocal;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.alloc.Allocator;
 
@@ -45,6 +46,7 @@ public class MSMutator extends StopTheWorldMutator {
    *
    */
   protected MarkSweepLocal ms = new MarkSweepLocal(MS.msSpace);
+  protected final MediumObjectLocal medium = new MediumObjectLocal(MS.mediumSpace);
 
 
   /****************************************************************************
@@ -55,7 +57,8 @@ public class MSMutator extends StopTheWorldMutator {
    * {@inheritDoc}<p>
    *
    * This class handles the default allocator from the mark sweep space,
-   * and delegates everything else to the superclass.
+   * and the medium object allocator, and delegates everything else to
+   * the superclass.
    */
   @Inline
   @Override
@@ -63,14 +66,17 @@ public class MSMutator extends StopTheWorldMutator {
     if (allocator == MS.ALLOC_DEFAULT) {
       return ms.alloc(bytes, align, offset);
     }
+    if (allocator == MS.ALLOC_MEDIUM) {
+      return medium.alloc(bytes, align, offset);
+    }
     return super.alloc(bytes, align, offset, allocator, site);
   }
 
   /**
    * {@inheritDoc}<p>
    *
-   * Initialize the object header for objects in the mark-sweep space,
-   * and delegate to the superclass for other objects.
+   * Initialize the object header for objects in the mark-sweep and
+   * medium object spaces, and delegate to the superclass for other objects.
    */
   @Inline
   @Override
@@ -78,6 +84,8 @@ public class MSMutator extends StopTheWorldMutator {
       int bytes, int allocator) {
     if (allocator == MS.ALLOC_DEFAULT)
       MS.msSpace.postAlloc(ref);
+    else if (allocator == MS.ALLOC_MEDIUM)
+      MS.mediumSpace.initializeHeader(ref);
     else
       super.postAlloc(ref, typeRef, bytes, allocator);
   }
@@ -85,6 +93,7 @@ public class MSMutator extends StopTheWorldMutator {
   @Override
   public Allocator getAllocatorFromSpace(Space space) {
     if (space == MS.msSpace) return ms;
+    if (space == MS.mediumSpace) return medium;
     return super.getAllocatorFromSpace(space);
   }
 
@@ -102,6 +111,7 @@ public class MSMutator extends StopTheWorldMutator {
     if (phaseId == MS.PREPARE) {
       super.collectionPhase(phaseId, primary);
       ms.prepare();
+      medium.flush();
       return;
     }
 
@@ -118,5 +128,6 @@ public class MSMutator extends StopTheWorldMutator {
   public void flush() {
     super.flush();
     ms.flush();
+    medium.flush();
   }
 }
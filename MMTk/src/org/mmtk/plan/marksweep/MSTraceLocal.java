@@ -55,14 +55,18 @@ public final class MSTraceLocal extends TraceLocal {
     if (Space.isInSpace(MS.MARK_SWEEP, object)) {
       return MS.msSpace.isLive(object);
     }
+    if (Space.isInSpace(MS.MEDIUM, object)) {
+      return MS.mediumSpace.isLive(object);
+    }
     return super.isLive(object);
   }
 
   /**
    * {@inheritDoc}<p>
    *
-   * In this instance, we refer objects in the mark-sweep space to the
-   * msSpace for tracing, and defer to the superclass for all others.
+   * In this instance, we refer objects in the mark-sweep and medium object
+   * spaces to those spaces for tracing, and defer to the superclass for all
+   * others.
    *
    * @param object The object to be traced.
    * @return The new reference to the same object instance.
@@ -73,6 +77,8 @@ public final class MSTraceLocal extends TraceLocal {
     if (object.isNull()) return object;
     if (Space.isInSpace(MS.MARK_SWEEP, object))
       return MS.msSpace.traceObject(this, object);
+    if (Space.isInSpace(MS.MEDIUM, object))
+      return MS.mediumSpace.traceObject(this, object);
     return super.traceObject(object);
   }
 
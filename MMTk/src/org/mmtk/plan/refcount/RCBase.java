@@ -13,13 +13,14 @@
 package org.mmtk.plan.refcount;
 
 import org.mmtk.plan.Phase;
-import org.mmtk.plan.StopTheWorld;
 import org.mmtk.plan.Trace;
+import org.mmtk.plan.concurrent.Concurrent;
 import org.mmtk.plan.refcount.backuptrace.BTFreeLargeObjectSweeper;
 import org.mmtk.plan.refcount.backuptrace.BTSweeper;
 import org.mmtk.policy.ExplicitFreeListSpace;
 import org.mmtk.policy.ExplicitLargeObjectSpace;
 import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.ImmixSpace;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.alloc.LinearScan;
 import org.mmtk.utility.deque.SharedDeque;
@@ -36,10 +37,22 @@ import org.vmmagic.unboxed.ObjectReference;
  * See Shahriyar et al for details of and rationale for the optimizations used
  * here (http://dx.doi.org/10.1145/2258996.2259008).  See Chapter 4 of
  * Daniel Frampton's PhD thesis for details of and rationale for the cycle
- * collection strategy used by this collector.
+ * collection strategy used by this collector.<p>
+ *
+ * Cycle collection triggered by the <code>cycleTriggerThreshold</code> is
+ * performed by a backup trace that runs concurrently with the mutators.
+ * The coalescing write barrier already records the value of each field of
+ * an object before the object is first modified, so while the trace is
+ * active the barrier also enqueues those values, giving a snapshot at the
+ * beginning of the trace.  The concurrent trace only marks objects: the
+ * reference counts of the objects it finds to be dead are not corrected,
+ * and their referents are reclaimed by a later trace.  When a collection
+ * must reclaim memory before the mutators resume (an emergency collection,
+ * or a repeated attempt), a stop-the-world backup trace is performed,
+ * which also recomputes all reference counts.
  */
 @Uninterruptible
-public class RCBase extends StopTheWorld {
+public class RCBase extends Concurrent {
   public static final short PROCESS_OLDROOTBUFFER  = Phase.createSimple("old-root");
   public static final short PROCESS_NEWROOTBUFFER  = Phase.createSimple("new-root");
   public static final short PROCESS_MODBUFFER      = Phase.createSimple("mods");
@@ -52,12 +65,22 @@ public class RCBase extends StopTheWorld {
   /** Use backup tracing for cycle collection (currently the only option) */
   public static final boolean CC_BACKUP_TRACE      = true;
 
+  /** Perform cycle collection concurrently with the mutators, when it is not required immediately? */
+  public static final boolean CC_CONCURRENT        = true;
+
+  /** Does the current collection perform a stop-the-world backup trace? */
   public static boolean performCycleCollection;
+  /** Is a concurrent backup trace in progress? */
+  public static boolean concurrentCycleCollection;
   public static final short BT_CLOSURE             = Phase.createSimple("closure-bt");
+  public static final short BT_RELEASE             = Phase.createSimple("release-bt");
 
   /** True if we are building for generational RC */
   public static final boolean BUILD_FOR_GENRC = ((RCBaseConstraints) VM.activePlan.constraints()).buildForGenRC();
 
+  /** True if we are building for reference counting immix */
+  public static final boolean BUILD_FOR_RCIMMIX = ((RCBaseConstraints) VM.activePlan.constraints()).buildForRCImmix();
+
   // CHECKSTYLE:OFF
 
   /**
@@ -73,9 +96,7 @@ public class RCBase extends StopTheWorld {
       Phase.scheduleCollector  (PROCESS_MODBUFFER),
       Phase.scheduleMutator    (PROCESS_DECBUFFER),
       Phase.scheduleGlobal     (PROCESS_DECBUFFER),
-      Phase.scheduleCollector  (PROCESS_DECBUFFER),
-      Phase.scheduleGlobal     (BT_CLOSURE),
-      Phase.scheduleCollector  (BT_CLOSURE));
+      Phase.scheduleCollector  (PROCESS_DECBUFFER));
 
   protected static final short genRCCollectionPhase = Phase.createComplex("release", null,
       Phase.scheduleGlobal     (PROCESS_OLDROOTBUFFER),
@@ -84,10 +105,43 @@ public class RCBase extends StopTheWorld {
       Phase.scheduleCollector  (PROCESS_NEWROOTBUFFER),
       Phase.scheduleMutator    (PROCESS_DECBUFFER),
       Phase.scheduleGlobal     (PROCESS_DECBUFFER),
-      Phase.scheduleCollector  (PROCESS_DECBUFFER),
+      Phase.scheduleCollector  (PROCESS_DECBUFFER));
+
+  /**
+   * Complete a stop-the-world backup trace.
+   */
+  protected static final short backupTracePhase = Phase.createComplex("backup-trace", null,
       Phase.scheduleGlobal     (BT_CLOSURE),
       Phase.scheduleCollector  (BT_CLOSURE));
 
+  /**
+   * When we preempt the concurrent backup trace we flush the mutators,
+   * and the trace is then completed by the phases that follow it.
+   */
+  protected static final short preemptConcurrentBackupTrace = Phase.createComplex("preempt-concurrent-bt", null,
+      Phase.scheduleMutator    (FLUSH_MUTATOR));
+
+  public static final short CONCURRENT_BT_CLOSURE = Phase.createConcurrent("concurrent-closure-bt",
+                                                                           Phase.scheduleComplex(preemptConcurrentBackupTrace));
+
+  /**
+   * Perform a backup trace concurrently with the mutators, then sweep
+   * the objects it did not reach.
+   */
+  protected static final short concurrentBackupTracePhase = Phase.createComplex("concurrent-backup-trace", null,
+      Phase.scheduleGlobal     (SET_BARRIER_ACTIVE),
+      Phase.scheduleMutator    (SET_BARRIER_ACTIVE),
+      Phase.scheduleCollector  (FLUSH_COLLECTOR),
+      Phase.scheduleConcurrent (CONCURRENT_BT_CLOSURE),
+      Phase.scheduleMutator    (FLUSH_MUTATOR),
+      Phase.scheduleGlobal     (CLEAR_BARRIER_ACTIVE),
+      Phase.scheduleMutator    (CLEAR_BARRIER_ACTIVE),
+      Phase.scheduleGlobal     (BT_CLOSURE),
+      Phase.scheduleCollector  (BT_CLOSURE),
+      Phase.scheduleMutator    (BT_RELEASE),
+      Phase.scheduleCollector  (BT_RELEASE),
+      Phase.scheduleGlobal     (BT_RELEASE));
+
   /**
    * Perform the initial determination of liveness from the roots.
    */
@@ -123,6 +177,8 @@ public class RCBase extends StopTheWorld {
       Phase.scheduleComplex(initPhase),
       Phase.scheduleComplex(refCountRootClosurePhase),
       Phase.scheduleComplex(refCountCollectionPhase),
+      Phase.scheduleComplex(forwardPhase),
+      Phase.scheduleComplex(backupTracePhase),
       Phase.scheduleComplex(completeClosurePhase),
       Phase.scheduleComplex(finishPhase));
 
@@ -130,7 +186,31 @@ public class RCBase extends StopTheWorld {
       Phase.scheduleComplex(initPhase),
       Phase.scheduleComplex(genRCRootClosurePhase),
       Phase.scheduleComplex(genRCCollectionPhase),
+      Phase.scheduleComplex(forwardPhase),
+      Phase.scheduleComplex(backupTracePhase),
+      Phase.scheduleComplex(completeClosurePhase),
+      Phase.scheduleComplex(finishPhase));
+
+  /**
+   * A collection that completes as usual, and then starts a concurrent
+   * backup trace.
+   */
+  public short concurrentRefCountCollection = Phase.createComplex("collection", null,
+      Phase.scheduleComplex(initPhase),
+      Phase.scheduleComplex(refCountRootClosurePhase),
+      Phase.scheduleComplex(refCountCollectionPhase),
+      Phase.scheduleComplex(forwardPhase),
+      Phase.scheduleComplex(completeClosurePhase),
+      Phase.scheduleComplex(concurrentBackupTracePhase),
+      Phase.scheduleComplex(finishPhase));
+
+  public short concurrentGenRCCollection = Phase.createComplex("collection", null,
+      Phase.scheduleComplex(initPhase),
+      Phase.scheduleComplex(genRCRootClosurePhase),
+      Phase.scheduleComplex(genRCCollectionPhase),
+      Phase.scheduleComplex(forwardPhase),
       Phase.scheduleComplex(completeClosurePhase),
+      Phase.scheduleComplex(concurrentBackupTracePhase),
       Phase.scheduleComplex(finishPhase));
 
   // CHECKSTYLE:ON
@@ -145,9 +225,12 @@ public class RCBase extends StopTheWorld {
    */
   public static final ExplicitFreeListSpace rcSpace = new ExplicitFreeListSpace("rc", VMRequest.discontiguous());
   public static final ExplicitLargeObjectSpace rcloSpace = new ExplicitLargeObjectSpace("rclos", VMRequest.discontiguous());
+  /** The space into which objects are allocated by default when building for reference counting immix */
+  public static final ImmixSpace rcImmixSpace = BUILD_FOR_RCIMMIX ? new ImmixSpace("rcimmix", VMRequest.discontiguous()) : null;
 
   public static final int REF_COUNT = rcSpace.getDescriptor();
   public static final int REF_COUNT_LOS = rcloSpace.getDescriptor();
+  public static final int REF_COUNT_IMMIX = BUILD_FOR_RCIMMIX ? rcImmixSpace.getDescriptor() : 0;
 
   public final SharedDeque modPool = new SharedDeque("mod", metaDataSpace, 1);
   public final SharedDeque decPool = new SharedDeque("dec", metaDataSpace, 1);
@@ -166,6 +249,8 @@ public class RCBase extends StopTheWorld {
   public final Trace backupTrace;
   private final BTSweeper rcSweeper;
   private final BTFreeLargeObjectSweeper loFreeSweeper;
+  /** Should the next collection collect cycles? */
+  private boolean cycleCollectionDue = false;
 
   /**
    * Constructor
@@ -201,7 +286,64 @@ public class RCBase extends StopTheWorld {
    * @return whether the object is subject to collection by reference counting
    */
   public static final boolean isRCObject(ObjectReference object) {
-    return !object.isNull() && (Space.isInSpace(REF_COUNT, object) || Space.isInSpace(REF_COUNT_LOS, object));
+    return !object.isNull() && (Space.isInSpace(REF_COUNT, object) || Space.isInSpace(REF_COUNT_LOS, object) ||
+        (BUILD_FOR_RCIMMIX && Space.isInSpace(REF_COUNT_IMMIX, object)));
+  }
+
+  /**
+   * @param object an object reference
+   * @return whether the object is subject to collection by reference
+   * counting and its references are counted.  The references to an
+   * object in the immix space are only counted once it has survived a
+   * collection.
+   */
+  @Inline
+  public static boolean isCountedObject(ObjectReference object) {
+    if (BUILD_FOR_RCIMMIX && !object.isNull() && Space.isInSpace(REF_COUNT_IMMIX, object)) {
+      return rcImmixSpace.isMatureObject(object);
+    }
+    return isRCObject(object);
+  }
+
+  /**
+   * @return whether a backup trace, stop-the-world or concurrent, is in
+   * progress
+   */
+  @Inline
+  public static boolean isBackupTracing() {
+    return CC_BACKUP_TRACE && (performCycleCollection || concurrentCycleCollection);
+  }
+
+  /**
+   * Mark an object reached by the backup trace.  A concurrent trace does
+   * not mark young objects in the immix space: they were allocated after
+   * the trace began, and are left to the next collection.
+   *
+   * @param object an object subject to collection by reference counting
+   * @return {@code true} if this call marked the object
+   */
+  @Inline
+  public static boolean backupTraceMark(ObjectReference object) {
+    if (BUILD_FOR_RCIMMIX && Space.isInSpace(REF_COUNT_IMMIX, object)) {
+      boolean young = !rcImmixSpace.isMatureObject(object);
+      if (young && concurrentCycleCollection) return false;
+      if (!rcImmixSpace.attemptToMark(object)) return false;
+      if (young) RCHeader.makeUnlogged(object);
+      return true;
+    }
+    return RCHeader.testAndMark(object);
+  }
+
+  /**
+   * @param object an object subject to collection by reference counting
+   * @return whether the object has been marked by the current backup trace
+   */
+  @Inline
+  public static boolean isBackupTraceMarked(ObjectReference object) {
+    if (BUILD_FOR_RCIMMIX && Space.isInSpace(REF_COUNT_IMMIX, object)) {
+      return rcImmixSpace.isLive(object);
+    }
+    return RCHeader.isMarked(object);
   }
 
   @Override
@@ -209,15 +351,37 @@ public class RCBase extends StopTheWorld {
     return performCycleCollection;
   }
 
+  /**
+   * @return The collection to perform next.  A collection that is due
+   * to collect cycles starts a concurrent backup trace.
+   */
+  public final short nextCollection() {
+    if (CC_CONCURRENT && cycleCollectionDue) {
+      return BUILD_FOR_GENRC ? concurrentGenRCCollection : concurrentRefCountCollection;
+    }
+    return BUILD_FOR_GENRC ? genRCCollection : refCountCollection;
+  }
+
+  /**
+   * Cycles are collected when a collection is due to collect them, so no
+   * concurrent collection is ever requested between collections.
+   */
+  @Override
+  protected boolean concurrentCollectionRequired() {
+    return false;
+  }
+
   @Override
   public void collectionPhase(short phaseId) {
     if (phaseId == SET_COLLECTION_KIND) {
       super.collectionPhase(phaseId);
       if (CC_ENABLED) {
         ccForceFull = Options.fullHeapSystemGC.getValue();
-        if (BUILD_FOR_GENRC) performCycleCollection = (collectionAttempt > 1) || emergencyCollection || ccForceFull;
-        else performCycleCollection |= (collectionAttempt > 1) || emergencyCollection || ccForceFull;
+        concurrentCycleCollection = CC_CONCURRENT && cycleCollectionDue;
+        performCycleCollection = !concurrentCycleCollection &&
+            (cycleCollectionDue || (collectionAttempt > 1) || emergencyCollection || ccForceFull);
         if (performCycleCollection && Options.verbose.getValue() > 0) Log.write(" [CC] ");
+        if (concurrentCycleCollection && Options.verbose.getValue() > 0) Log.write(" [CC concurrent] ");
       }
       return;
     }
@@ -231,6 +395,8 @@ public class RCBase extends StopTheWorld {
       rcSpace.prepare();
       if (CC_BACKUP_TRACE && performCycleCollection) {
         backupTrace.prepare();
+      } else if (CC_BACKUP_TRACE && concurrentCycleCollection) {
+        backupTrace.prepareNonBlocking();
       }
       return;
     }
@@ -242,12 +408,21 @@ public class RCBase extends StopTheWorld {
     }
 
     if (phaseId == BT_CLOSURE) {
-      if (CC_BACKUP_TRACE && performCycleCollection) {
+      if (isBackupTracing()) {
         backupTrace.prepare();
       }
       return;
     }
 
+    if (phaseId == BT_RELEASE) {
+      backupTrace.release();
+      rcSpace.prepare();
+      rcSpace.sweepCells(rcSweeper);
+      rcloSpace.sweep(loFreeSweeper);
+      concurrentCycleCollection = false;
+      return;
+    }
+
     if (phaseId == PROCESS_OLDROOTBUFFER) {
       oldRootPool.prepare();
       return;
@@ -278,7 +453,10 @@ public class RCBase extends StopTheWorld {
       } else {
         rcSpace.release();
       }
-      if (!BUILD_FOR_GENRC) performCycleCollection = getPagesAvail() < Options.cycleTriggerThreshold.getPages();
+      if (!BUILD_FOR_GENRC || BUILD_FOR_RCIMMIX) {
+        /* A concurrent backup trace has yet to reclaim anything */
+        cycleCollectionDue = !concurrentCycleCollection && getPagesAvail() < Options.cycleTriggerThreshold.getPages();
+      }
       return;
     }
 
@@ -14,9 +14,9 @@ package org.mmtk.plan.refcount;
 
 import org.mmtk.plan.Phase;
 import org.mmtk.plan.Plan;
-import org.mmtk.plan.StopTheWorldCollector;
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.plan.concurrent.ConcurrentCollector;
 import org.mmtk.plan.refcount.backuptrace.BTTraceLocal;
 import org.mmtk.policy.Space;
 import org.mmtk.policy.ExplicitFreeListSpace;
@@ -24,6 +24,7 @@ import org.mmtk.utility.deque.ObjectReferenceDeque;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.pragma.Unpreemptible;
 import org.vmmagic.unboxed.ObjectReference;
 
 /**
@@ -34,7 +35,7 @@ import org.vmmagic.unboxed.ObjectReference;
  * collection strategy used by this collector.
  */
 @Uninterruptible
-public abstract class RCBaseCollector extends StopTheWorldCollector {
+public abstract class RCBaseCollector extends ConcurrentCollector {
 
   /************************************************************************
    * Initialization
@@ -82,22 +83,25 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
    */
   @Override
   public void collect() {
-    if (RCBase.BUILD_FOR_GENRC) Phase.beginNewPhaseStack(Phase.scheduleComplex(global().genRCCollection));
-    else Phase.beginNewPhaseStack(Phase.scheduleComplex(global().refCountCollection));
+    if (!Phase.isPhaseStackEmpty()) {
+      Phase.continuePhaseStack();
+    } else {
+      Phase.beginNewPhaseStack(Phase.scheduleComplex(global().nextCollection()));
+    }
   }
 
   @Override
   public void collectionPhase(short phaseId, boolean primary) {
     if (phaseId == RCBase.PREPARE) {
       getRootTrace().prepare();
-      if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) backupTrace.prepare();
+      if (RCBase.isBackupTracing()) backupTrace.prepare();
       return;
     }
 
     if (phaseId == RCBase.ROOTS) {
       VM.scanning.computeGlobalRoots(getCurrentTrace());
       VM.scanning.computeStaticRoots(getCurrentTrace());
-      if (Plan.SCAN_BOOT_IMAGE && RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) {
+      if (Plan.SCAN_BOOT_IMAGE && RCBase.isBackupTracing()) {
         VM.scanning.computeBootImageRoots(getCurrentTrace());
       }
       return;
@@ -109,13 +113,24 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
       return;
     }
 
+    if (phaseId == RCBase.FLUSH_COLLECTOR) {
+      backupTrace.processRoots();
+      backupTrace.flush();
+      return;
+    }
+
     if (phaseId == RCBase.BT_CLOSURE) {
-      if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) {
+      if (RCBase.isBackupTracing()) {
         backupTrace.completeTrace();
       }
       return;
     }
 
+    if (phaseId == RCBase.BT_RELEASE) {
+      backupTrace.release();
+      return;
+    }
+
     if (phaseId == RCBase.PROCESS_OLDROOTBUFFER) {
       if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) return;
       ObjectReference current;
@@ -129,7 +144,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
       ObjectReference current;
       if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) {
         while (!(current = newRootBuffer.pop()).isNull()) {
-          if (RCHeader.testAndMark(current)) {
+          if (RCBase.backupTraceMark(current)) {
             if (RCBase.BUILD_FOR_GENRC) {
               RCHeader.initRC(current);
             } else {
@@ -160,6 +175,9 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
           }
         }
         oldRootBuffer.push(current);
+        if (RCBase.concurrentCycleCollection && RCBase.backupTraceMark(current)) {
+          backupTrace.processNode(current);
+        }
       }
       oldRootBuffer.flushLocal();
       if (!RCBase.BUILD_FOR_GENRC) modBuffer.flushLocal();
@@ -186,13 +204,7 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
         if (!RCBase.BUILD_FOR_GENRC) {
           while (!(current = decBuffer.pop()).isNull()) {
             if (RCHeader.isNew(current)) {
-              if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-                RCBase.rcSpace.free(current);
-              } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-                RCBase.rcloSpace.free(current);
-              } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-                VM.scanning.scanObject(zero, current);
-              }
+              free(current);
             }
           }
         }
@@ -202,33 +214,15 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
         if (RCBase.BUILD_FOR_GENRC) {
           if (RCHeader.decRC(current) == RCHeader.DEC_KILL) {
             decBuffer.processChildren(current);
-            if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-              RCBase.rcSpace.free(current);
-            } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-              RCBase.rcloSpace.free(current);
-            } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-              VM.scanning.scanObject(zero, current);
-            }
+            free(current);
           }
         } else {
           if (RCHeader.isNew(current)) {
-            if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-              RCBase.rcSpace.free(current);
-            } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-              RCBase.rcloSpace.free(current);
-            } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-              VM.scanning.scanObject(zero, current);
-            }
+            free(current);
           } else {
             if (RCHeader.decRC(current) == RCHeader.DEC_KILL) {
               decBuffer.processChildren(current);
-              if (Space.isInSpace(RCBase.REF_COUNT, current)) {
-                RCBase.rcSpace.free(current);
-              } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, current)) {
-                RCBase.rcloSpace.free(current);
-              } else if (Space.isInSpace(RCBase.IMMORTAL, current)) {
-                VM.scanning.scanObject(zero, current);
-              }
+              free(current);
             }
           }
         }
@@ -254,6 +248,44 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
     super.collectionPhase(phaseId, primary);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Unpreemptible
+  public void concurrentCollectionPhase(short phaseId) {
+    if (phaseId == RCBase.CONCURRENT_BT_CLOSURE) {
+      concurrentClosure(backupTrace);
+      return;
+    }
+    super.concurrentCollectionPhase(phaseId);
+  }
+
+  @Override
+  protected boolean concurrentTraceComplete() {
+    return !global().backupTrace.hasWork();
+  }
+
+  /**
+   * Free an object whose reference count has fallen to zero, or which
+   * is new and dead.  The memory of an object in the immix space is
+   * reclaimed once no live object remains on its lines.
+   *
+   * @param object the object
+   */
+  @Inline
+  private void free(ObjectReference object) {
+    if (RCBase.BUILD_FOR_RCIMMIX && Space.isInSpace(RCBase.REF_COUNT_IMMIX, object)) {
+      RCBase.rcImmixSpace.decLineLiveCounts(object);
+    } else if (Space.isInSpace(RCBase.REF_COUNT, object)) {
+      RCBase.rcSpace.free(object);
+    } else if (Space.isInSpace(RCBase.REF_COUNT_LOS, object)) {
+      RCBase.rcloSpace.free(object);
+    } else if (Space.isInSpace(RCBase.IMMORTAL, object)) {
+      VM.scanning.scanObject(zero, object);
+    }
+  }
+
   /****************************************************************************
    *
    * Miscellaneous
@@ -270,6 +302,12 @@ public abstract class RCBaseCollector extends StopTheWorldCollector {
     return getRootTrace();
   }
 
+  /** @return The backup trace instance. */
+  @Inline
+  protected final TraceLocal getBackupTrace() {
+    return backupTrace;
+  }
+
   /** @return The current modBuffer instance. */
   @Inline
   public final ObjectReferenceDeque getModBuffer() {
@@ -13,7 +13,7 @@
 package org.mmtk.plan.refcount;
 
 import static org.mmtk.policy.SegregatedFreeListSpace.MAX_FREELIST_OBJECT_BYTES;
-import org.mmtk.plan.StopTheWorldConstraints;
+import org.mmtk.plan.concurrent.ConcurrentConstraints;
 
 import org.vmmagic.pragma.*;
 
@@ -24,7 +24,7 @@ import org.vmmagic.pragma.*;
  * issues with ordering of static initialization.
  */
 @Uninterruptible
-public class RCBaseConstraints extends StopTheWorldConstraints {
+public class RCBaseConstraints extends ConcurrentConstraints {
   @Override
   public int gcHeaderBits() {
     return RCHeader.GLOBAL_GC_BITS_REQUIRED;
@@ -37,6 +37,11 @@ public class RCBaseConstraints extends StopTheWorldConstraints {
   public boolean needsObjectReferenceWriteBarrier() {
     return true;
   }
+  /** Reference types are not supported, so their referents need no barrier */
+  @Override
+  public boolean needsJavaLangReferenceReadBarrier() {
+    return false;
+  }
   @Override
   public int maxNonLOSDefaultAllocBytes() {
     return MAX_FREELIST_OBJECT_BYTES;
@@ -49,4 +54,8 @@ public class RCBaseConstraints extends StopTheWorldConstraints {
   public boolean buildForGenRC() {
     return false;
   }
+  /** @return {@code true} if we are building for reference counting immix */
+  public boolean buildForRCImmix() {
+    return false;
+  }
 }
@@ -12,7 +12,9 @@
  */
 package org.mmtk.plan.refcount;
 
-import org.mmtk.plan.StopTheWorldMutator;
+import org.mmtk.plan.TraceWriteBuffer;
+import org.mmtk.plan.concurrent.ConcurrentMutator;
+import org.mmtk.plan.refcount.backuptrace.BTSnapshotScanner;
 import org.mmtk.plan.refcount.backuptrace.BTSweepImmortalScanner;
 import org.mmtk.policy.ExplicitFreeListLocal;
 import org.mmtk.policy.ExplicitFreeListSpace;
@@ -33,7 +35,7 @@ import org.vmmagic.unboxed.*;
  * collection strategy used by this collector.
  */
 @Uninterruptible
-public class RCBaseMutator extends StopTheWorldMutator {
+public class RCBaseMutator extends ConcurrentMutator {
 
   /************************************************************************
    * Instance fields
@@ -47,6 +49,8 @@ public class RCBaseMutator extends StopTheWorldMutator {
   private final ObjectReferenceDeque modBuffer;
   private final RCDecBuffer decBuffer;
   private final BTSweepImmortalScanner btSweepImmortal;
+  private final TraceWriteBuffer btRemset;
+  private final BTSnapshotScanner btSnapshot;
 
   /************************************************************************
    *
@@ -62,6 +66,8 @@ public class RCBaseMutator extends StopTheWorldMutator {
     modBuffer = new ObjectReferenceDeque("mod", global().modPool);
     decBuffer = new RCDecBuffer(global().decPool);
     btSweepImmortal = new BTSweepImmortalScanner();
+    btRemset = new TraceWriteBuffer(global().backupTrace);
+    btSnapshot = new BTSnapshotScanner(this);
   }
 
   /****************************************************************************
@@ -105,6 +111,11 @@ public class RCBaseMutator extends StopTheWorldMutator {
         RCHeader.initializeHeader(ref, true);
         ExplicitFreeListSpace.unsyncSetLiveBit(ref);
       }
+      if (barrierActive) {
+        /* Allocate black, and keep the object from being swept as free */
+        RCHeader.testAndMark(ref);
+        if (!RCBase.BUILD_FOR_GENRC) ExplicitFreeListSpace.unsyncSetLiveBit(ref);
+      }
       break;
     case RCBase.ALLOC_LOS:
       if (RCBase.BUILD_FOR_GENRC) modBuffer.push(ref);
@@ -113,6 +124,7 @@ public class RCBaseMutator extends StopTheWorldMutator {
       decBuffer.push(ref);
       if (RCBase.BUILD_FOR_GENRC) RCHeader.initializeHeader(ref, true);
       RCBase.rcloSpace.initializeHeader(ref, true);
+      if (barrierActive) RCHeader.testAndMark(ref);
       return;
     case RCBase.ALLOC_IMMORTAL:
       if (RCBase.BUILD_FOR_GENRC) modBuffer.push(ref);
@@ -158,6 +170,12 @@ public class RCBaseMutator extends StopTheWorldMutator {
       return;
     }
 
+    if (phaseId == RCBase.BT_RELEASE) {
+      immortal.linearScan(btSweepImmortal);
+      rc.prepare();
+      return;
+    }
+
     if (phaseId == RCBase.RELEASE) {
       if (RCBase.CC_BACKUP_TRACE && RCBase.performCycleCollection) {
         immortal.linearScan(btSweepImmortal);
@@ -177,6 +195,7 @@ public class RCBaseMutator extends StopTheWorldMutator {
   public final void flushRememberedSets() {
     decBuffer.flushLocal();
     modBuffer.flushLocal();
+    btRemset.flush();
     assertRemsetsFlushed();
   }
 
@@ -185,6 +204,7 @@ public class RCBaseMutator extends StopTheWorldMutator {
     if (VM.VERIFY_ASSERTIONS) {
       VM.assertions._assert(decBuffer.isFlushed());
       VM.assertions._assert(modBuffer.isFlushed());
+      VM.assertions._assert(btRemset.isFlushed());
     }
   }
 
@@ -258,6 +278,10 @@ public class RCBaseMutator extends StopTheWorldMutator {
    * before setting the header bit to indicate that it has finished
    * logging (allowing others in the race to continue).
    *
+   * <p> The referents are those of the object before it was first
+   * modified, so while a concurrent backup trace is active they are
+   * also enqueued for the trace, as a snapshot barrier would.
+   *
    * @param srcObj The object being mutated
    */
   @NoInline
@@ -265,10 +289,25 @@ public class RCBaseMutator extends StopTheWorldMutator {
     if (RCHeader.attemptToLog(srcObj)) {
       modBuffer.push(srcObj);
       decBuffer.processChildren(srcObj);
+      if (barrierActive) btSnapshot.processChildren(srcObj);
       RCHeader.makeLogged(srcObj);
     }
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case the referent is marked, and enqueued for the backup
+   * trace if this call marked it.
+   */
+  @Override
+  @Inline
+  public void checkAndEnqueueReference(ObjectReference ref) {
+    if (barrierActive && RCBase.isRCObject(ref) && RCBase.backupTraceMark(ref)) {
+      btRemset.processNode(ref);
+    }
+  }
+
   /****************************************************************************
    *
    * Miscellaneous
@@ -41,7 +41,7 @@ public final class RCDecBuffer extends ObjectReferenceBuffer {
   @Override
   @Inline
   protected void process(ObjectReference object) {
-    if (RCBase.isRCObject(object)) {
+    if (RCBase.isCountedObject(object)) {
       push(object);
     }
   }
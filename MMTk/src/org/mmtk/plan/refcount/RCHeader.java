@@ -18,6 +18,7 @@ import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.ObjectReference;
+import org.vmmagic.unboxed.Offset;
 import org.vmmagic.unboxed.Word;
 
 @Uninterruptible
@@ -27,6 +28,18 @@ public class RCHeader {
   public static final int LOCAL_GC_BITS_REQUIRED = 0;
   public static final int GLOBAL_GC_BITS_REQUIRED = 8;
   public static final int GC_HEADER_WORDS_REQUIRED = 0;
+  public static final int RC_WORD_GC_HEADER_WORDS_REQUIRED = 1;
+
+  /**
+   * Is the reference counting state held in a GC header word, rather
+   * than in the available bits of the object header?  A plan whose space
+   * policy uses the available bits for itself keeps the state in the
+   * word.  The logging field of the word is stored inverted, so that
+   * a zeroed word, such as that of a boot image object, reads as
+   * <code>UNLOGGED</code>.
+   */
+  public static final boolean USE_HEADER_WORD = ((RCBaseConstraints) VM.activePlan.constraints()).buildForRCImmix();
+  private static final Offset RC_WORD_OFFSET = VM.objectModel.GC_HEADER_OFFSET();
 
   /****************************************************************************
    * Object Logging (applies to *all* objects)
@@ -53,7 +66,7 @@ public class RCHeader {
   @Inline
   @Uninterruptible
   public static boolean logRequired(ObjectReference object) {
-    Word value = VM.objectModel.readAvailableBitsWord(object);
+    Word value = readWord(object);
     return value.and(LOGGING_MASK).EQ(UNLOGGED);
   }
 
@@ -78,14 +91,14 @@ public class RCHeader {
   public static boolean attemptToLog(ObjectReference object) {
     Word oldValue;
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       if (oldValue.and(LOGGING_MASK).EQ(LOGGED)) {
         return false;
       }
     } while ((oldValue.and(LOGGING_MASK).EQ(BEING_LOGGED)) ||
-             !VM.objectModel.attemptAvailableBits(object, oldValue, oldValue.or(BEING_LOGGED)));
+             !attemptWord(object, oldValue, oldValue.or(BEING_LOGGED)));
     if (VM.VERIFY_ASSERTIONS) {
-      Word value = VM.objectModel.readAvailableBitsWord(object);
+      Word value = readWord(object);
       VM.assertions._assert(value.and(LOGGING_MASK).EQ(BEING_LOGGED));
     }
     return true;
@@ -103,9 +116,9 @@ public class RCHeader {
   @Inline
   @Uninterruptible
   public static void makeLogged(ObjectReference object) {
-    Word value = VM.objectModel.readAvailableBitsWord(object);
+    Word value = readWord(object);
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(value.and(LOGGING_MASK).NE(LOGGED));
-    VM.objectModel.writeAvailableBitsWord(object, value.and(LOGGING_MASK.not()));
+    writeWord(object, value.and(LOGGING_MASK.not()));
   }
 
   /**
@@ -118,10 +131,10 @@ public class RCHeader {
   public static void makeUnlogged(ObjectReference object) {
     Word oldValue, newValue;
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(oldValue.and(LOGGING_MASK).EQ(LOGGED));
       newValue = oldValue.or(UNLOGGED);
-    } while(!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while(!attemptWord(object, oldValue, newValue));
   }
 
   /************************************************************************
@@ -169,7 +182,7 @@ public class RCHeader {
    */
   @Inline
   public static boolean isMarked(ObjectReference object) {
-    return isHeaderMarked(VM.objectModel.readAvailableBitsWord(object));
+    return isHeaderMarked(readWord(object));
   }
 
   /**
@@ -180,10 +193,10 @@ public class RCHeader {
   public static void clearMarked(ObjectReference object) {
     Word oldValue, newValue;
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isHeaderMarked(oldValue));
       newValue = oldValue.and(MARK_BIT_MASK.not());
-    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while (!attemptWord(object, oldValue, newValue));
   }
 
   /**
@@ -206,12 +219,12 @@ public class RCHeader {
   public static boolean testAndMark(ObjectReference object) {
     Word oldValue, newValue;
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       if (isHeaderMarked(oldValue)) {
         return false;
       }
       newValue = oldValue.or(MARK_BIT_MASK);
-    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while (!attemptWord(object, oldValue, newValue));
     return true;
   }
 
@@ -221,7 +234,7 @@ public class RCHeader {
    */
   @Inline
   public static boolean isNew(ObjectReference object) {
-    return isHeaderNew(VM.objectModel.readAvailableBitsWord(object));
+    return isHeaderNew(readWord(object));
   }
 
   /**
@@ -241,9 +254,9 @@ public class RCHeader {
    */
   @Inline
   public static void initializeHeader(ObjectReference object, boolean initialInc) {
-    Word existingValue = VM.objectModel.readAvailableBitsWord(object);
+    Word existingValue = USE_HEADER_WORD ? LOGGED : readWord(object);
     Word initialValue = existingValue.and(WRITE_MASK).or((initialInc) ? INCREMENT : Word.zero());
-    VM.objectModel.writeAvailableBitsWord(object, initialValue);
+    writeWord(object, initialValue);
   }
 
   /**
@@ -255,7 +268,7 @@ public class RCHeader {
   @Inline
   @Uninterruptible
   public static boolean isLiveRC(ObjectReference object) {
-    Word value = VM.objectModel.readAvailableBitsWord(object);
+    Word value = readWord(object);
     if (isStuck(value)) return true;
     return value.and(READ_MASK).GE(LIVE_THRESHOLD);
   }
@@ -269,7 +282,7 @@ public class RCHeader {
   @Inline
   @Uninterruptible
   public static int getRC(ObjectReference object) {
-    Word value = VM.objectModel.readAvailableBitsWord(object);
+    Word value = readWord(object);
     if (isStuck(value)) return refStickyValue;
     return value.and(READ_MASK).rshl(INCREMENT_SHIFT).toInt();
   }
@@ -289,7 +302,7 @@ public class RCHeader {
     int rtn;
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(RCBase.isRCObject(object));
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       if (isStuck(oldValue)) return INC_OLD;
       if (RCBase.BUILD_FOR_GENRC) {
         newValue = oldValue.plus(INCREMENT);
@@ -304,7 +317,7 @@ public class RCHeader {
           rtn = INC_OLD;
         }
       }
-    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while (!attemptWord(object, oldValue, newValue));
     return rtn;
   }
 
@@ -327,7 +340,7 @@ public class RCHeader {
       VM.assertions._assert(isLiveRC(object));
     }
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       if (isStuck(oldValue)) return DEC_ALIVE;
       newValue = oldValue.minus(INCREMENT);
       if (newValue.and(READ_MASK).LT(LIVE_THRESHOLD)) {
@@ -335,7 +348,7 @@ public class RCHeader {
       } else {
         rtn = DEC_ALIVE;
       }
-    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while (!attemptWord(object, oldValue, newValue));
     return rtn;
   }
 
@@ -354,7 +367,7 @@ public class RCHeader {
     int rtn;
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(RCBase.isRCObject(object));
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       newValue = oldValue.and(WRITE_MASK).or(INCREMENT);
       if (RCBase.BUILD_FOR_GENRC) {
         rtn = INC_OLD;
@@ -366,7 +379,7 @@ public class RCHeader {
           rtn = INC_OLD;
         }
       }
-    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while (!attemptWord(object, oldValue, newValue));
     return rtn;
   }
 
@@ -385,7 +398,7 @@ public class RCHeader {
     int rtn;
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(RCBase.isRCObject(object));
     do {
-      oldValue = VM.objectModel.prepareAvailableBits(object);
+      oldValue = prepareWord(object);
       newValue = oldValue;
       if (RCBase.BUILD_FOR_GENRC) {
         return INC_OLD;
@@ -397,10 +410,57 @@ public class RCHeader {
           return INC_OLD;
         }
       }
-    } while (!VM.objectModel.attemptAvailableBits(object, oldValue, newValue));
+    } while (!attemptWord(object, oldValue, newValue));
     return rtn;
   }
 
+  /****************************************************************************
+   * Access to the reference counting state
+   */
+
+  /**
+   * @param object an object
+   * @return the reference counting state of the object
+   */
+  @Inline
+  private static Word readWord(ObjectReference object) {
+    if (USE_HEADER_WORD) return object.toAddress().loadWord(RC_WORD_OFFSET).xor(UNLOGGED);
+    return VM.objectModel.readAvailableBitsWord(object);
+  }
+
+  /**
+   * @param object an object
+   * @param value the new reference counting state of the object
+   */
+  @Inline
+  private static void writeWord(ObjectReference object, Word value) {
+    if (USE_HEADER_WORD) object.toAddress().store(value.xor(UNLOGGED), RC_WORD_OFFSET);
+    else VM.objectModel.writeAvailableBitsWord(object, value);
+  }
+
+  /**
+   * @param object an object
+   * @return the reference counting state of the object, prepared for
+   * an attempt to update it
+   */
+  @Inline
+  private static Word prepareWord(ObjectReference object) {
+    if (USE_HEADER_WORD) return object.toAddress().prepareWord(RC_WORD_OFFSET).xor(UNLOGGED);
+    return VM.objectModel.prepareAvailableBits(object);
+  }
+
+  /**
+   * @param object an object
+   * @param oldValue the prepared reference counting state of the object
+   * @param newValue the new reference counting state of the object
+   * @return whether the update succeeded
+   */
+  @Inline
+  private static boolean attemptWord(ObjectReference object, Word oldValue, Word newValue) {
+    if (USE_HEADER_WORD) return object.toAddress().attempt(oldValue.xor(UNLOGGED), newValue.xor(UNLOGGED), RC_WORD_OFFSET);
+    return VM.objectModel.attemptAvailableBits(object, oldValue, newValue);
+  }
+
   /**
    * @param value a word
    * @return whether the word contains a sticky marking
@@ -0,0 +1,53 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.backuptrace;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.plan.refcount.RCBaseMutator;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class is used by the write barrier during a concurrent backup
+ * trace to enqueue the referents of an object before it is modified.
+ */
+@Uninterruptible
+public final class BTSnapshotScanner extends TransitiveClosure {
+
+  private final RCBaseMutator mutator;
+
+  /**
+   * @param mutator the mutator whose barrier uses this scanner
+   */
+  public BTSnapshotScanner(RCBaseMutator mutator) {
+    this.mutator = mutator;
+  }
+
+  @Override
+  @Inline
+  public void processEdge(ObjectReference source, Address slot) {
+    mutator.checkAndEnqueueReference(VM.activePlan.global().loadObjectReference(slot));
+  }
+
+  /**
+   * Enqueue the referents of an object.
+   *
+   * @param object The object about to be modified
+   */
+  @Inline
+  public void processChildren(ObjectReference object) {
+    VM.scanning.scanObject(this, object);
+  }
+}
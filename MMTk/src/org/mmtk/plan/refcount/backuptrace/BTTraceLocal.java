@@ -16,6 +16,7 @@ import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.Trace;
 import org.mmtk.plan.refcount.RCBase;
 import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
 
 import org.vmmagic.pragma.*;
 import org.vmmagic.unboxed.*;
@@ -47,11 +48,12 @@ public BTTraceLocal(Trace trace) {
    */
   @Override
   public boolean isLive(ObjectReference object) {
-    return !RCBase.isRCObject(object) || RCHeader.isMarked(object);
+    return !RCBase.isRCObject(object) || RCBase.isBackupTraceMarked(object);
   }
 
   /**
-   * When we trace a non-root object we do nothing.
+   * When we trace a non-root object we mark it and, unless the trace is
+   * concurrent, count the reference.
    *
    * @param object The object to be traced.
    * @return The new reference to the same object instance.
@@ -60,13 +62,26 @@ public BTTraceLocal(Trace trace) {
   @Inline
   public ObjectReference traceObject(ObjectReference object) {
     if (RCBase.isRCObject(object)) {
-      if (RCHeader.testAndMark(object)) {
-        RCHeader.initRC(object);
+      if (RCBase.backupTraceMark(object)) {
+        if (RCBase.performCycleCollection) RCHeader.initRC(object);
         processNode(object);
-      } else {
+      } else if (RCBase.performCycleCollection) {
         RCHeader.incRC(object);
       }
     }
     return object;
   }
+
+  /**
+   * Scan a marked object, counting it as live on its lines if it is in
+   * the immix space.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    if (RCBase.BUILD_FOR_RCIMMIX && Space.isInSpace(RCBase.REF_COUNT_IMMIX, object)) {
+      RCBase.rcImmixSpace.incLineLiveCounts(object);
+    }
+    super.scanObject(object);
+  }
 }
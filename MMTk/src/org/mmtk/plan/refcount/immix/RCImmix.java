@@ -0,0 +1,135 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.ObjectHeader;
+import org.mmtk.utility.options.Options;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the global state of a reference counting
+ * collector whose default space is an immix space.<p>
+ *
+ * New objects are allocated into the immix space and their references
+ * are not counted until they first survive a collection.  At that point
+ * they are found by the root set trace, which copies them within the
+ * immix space, or marks them in place if they cannot move, and counts
+ * them as live on their lines.  Thereafter, coalescing deferred
+ * reference counting applies to them as to the other spaces, and when an
+ * object dies the count of live objects on its lines is decremented.
+ * Each collection reclaims the lines on which no live object remains,
+ * which the mutators then reuse as immix recyclable lines.<p>
+ *
+ * Cycles are collected by the backup trace, which also recomputes the
+ * line live counts.  A cycle collection is performed after a collection
+ * leaves fewer pages available than the <code>cycleTriggerThreshold</code>
+ * option, as well as when collection fails to free enough memory.  A
+ * concurrent backup trace starts once the collection that found the
+ * roots has swept the space, and counts the objects it reaches afresh;
+ * the lines of the objects it does not reach are reclaimed by the sweep
+ * of the following collection.
+ */
+@Uninterruptible
+public class RCImmix extends RCBase {
+
+  /** The allocator used to copy new objects that survive a collection */
+  public static final int ALLOC_COPY = RCBase.ALLOCATORS + 1;
+
+
+  /*****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId) {
+    if (phaseId == SET_COLLECTION_KIND) {
+      super.collectionPhase(phaseId);
+      /* Young objects are copied within the space, but the space is not defragmented */
+      rcImmixSpace.decideWhetherToDefrag(false, false, 1, false);
+      return;
+    }
+
+    if (phaseId == PREPARE) {
+      super.collectionPhase(phaseId);
+      rcImmixSpace.prepare(isBackupTracing());
+      return;
+    }
+
+    if (phaseId == RELEASE) {
+      rcImmixSpace.release(isBackupTracing());
+      super.collectionPhase(phaseId);
+      return;
+    }
+
+    super.collectionPhase(phaseId);
+  }
+
+  @Override
+  public final boolean collectionRequired(boolean spaceFull, Space space) {
+    boolean youngFull = rcImmixSpace.getPagesAllocated() > Options.nurserySize.getMaxNursery();
+    return super.collectionRequired(spaceFull, space) || youngFull;
+  }
+
+  /*****************************************************************************
+   *
+   * Accounting
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getPagesUsed() {
+    return rcImmixSpace.reservedPages() + super.getPagesUsed();
+  }
+
+  /**
+   * Return the number of pages reserved for copying.
+   */
+  @Override
+  public int getCollectionReserve() {
+    return super.getCollectionReserve() + rcImmixSpace.defragHeadroomPages();
+  }
+
+  @Override
+  public boolean willNeverMove(ObjectReference object) {
+    if (Space.isInSpace(REF_COUNT_IMMIX, object)) {
+      ObjectHeader.pinObject(object);
+      return true;
+    }
+    if (Space.isInSpace(REF_COUNT_LOS, object)) {
+      return true;
+    }
+    return super.willNeverMove(object);
+  }
+
+  @Override
+  @Interruptible
+  public void preCollectorSpawn() {
+    rcImmixSpace.initializeDefrag();
+  }
+
+  @Override
+  public byte setBuildTimeGCByte(Address object, ObjectReference typeRef, int size) {
+    /* The reference counting state is held in the GC header word */
+    return 0;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCBaseCollector;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.immix.CollectorLocal;
+import org.mmtk.utility.alloc.ImmixAllocator;
+import org.mmtk.utility.options.Options;
+import org.mmtk.vm.VM;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the collector context for a reference counting
+ * immix collector.
+ */
+@Uninterruptible
+public class RCImmixCollector extends RCBaseCollector {
+  private final RCImmixFindRootSetTraceLocal rootTrace;
+  private final RCImmixModifiedProcessor modProcessor;
+  private final CollectorLocal immix;
+  private final ImmixAllocator copy;
+
+  public RCImmixCollector() {
+    immix = new CollectorLocal(RCImmix.rcImmixSpace);
+    copy = new ImmixAllocator(RCImmix.rcImmixSpace, true, true);
+    rootTrace = new RCImmixFindRootSetTraceLocal(global().rootTrace, newRootBuffer, getBackupTrace());
+    modProcessor = new RCImmixModifiedProcessor(rootTrace);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == RCBase.PREPARE) {
+      super.collectionPhase(phaseId, primary);
+      immix.prepare(RCBase.isBackupTracing());
+      if (RCBase.performCycleCollection) immix.resetLineLiveCounts();
+      copy.reset();
+      return;
+    }
+
+    /*
+     * Reference types and finalizers are not processed by the reference
+     * counting collectors, so their referents are never traced.  Young
+     * objects are copied, so the references made since the last collection
+     * are scanned as in a nursery collection, which forwards referents that
+     * were copied and clears those that died.
+     */
+    if (phaseId == RCBase.FORWARD_REFS) {
+      if (primary && !RCBase.performCycleCollection) {
+        VM.softReferences.scan(rootTrace, true, false);
+        VM.weakReferences.scan(rootTrace, true, false);
+        VM.phantomReferences.scan(rootTrace, true, false);
+      }
+      return;
+    }
+
+    if (phaseId == RCBase.FORWARD_FINALIZABLE) {
+      if (primary && !RCBase.performCycleCollection && !Options.noFinalizer.getValue()) {
+        VM.finalizableProcessor.forward(rootTrace, true);
+      }
+      return;
+    }
+
+    if (phaseId == RCBase.RELEASE) {
+      immix.release(RCBase.isBackupTracing());
+      /* The lines are swept, so a concurrent backup trace may now recount them */
+      if (RCBase.concurrentCycleCollection) immix.resetLineLiveCounts();
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time allocation
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public final Address allocCopy(ObjectReference original, int bytes,
+      int align, int offset, int allocator) {
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert(allocator == RCImmix.ALLOC_COPY);
+    }
+    return copy.alloc(bytes, align, offset);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * In this case the copy is marked as having survived, and given a
+   * reference count of zero.
+   */
+  @Override
+  @Inline
+  public final void postCopy(ObjectReference object, ObjectReference typeRef,
+                             int bytes, int allocator) {
+    RCImmix.rcImmixSpace.postCopy(object, bytes, false);
+    RCHeader.initializeHeader(object, false);
+  }
+
+  @Override
+  protected final TransitiveClosure getModifiedProcessor() {
+    return modProcessor;
+  }
+
+  @Override
+  protected final TraceLocal getRootTrace() {
+    return rootTrace;
+  }
+}
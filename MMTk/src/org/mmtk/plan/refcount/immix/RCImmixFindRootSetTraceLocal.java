@@ -0,0 +1,144 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.plan.Trace;
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.ForwardingWord;
+import org.mmtk.utility.deque.ObjectReferenceDeque;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements the thread-local core functionality for a transitive
+ * closure over the heap graph, finding the roots and the new objects that
+ * survive the collection.<p>
+ *
+ * A new object in the immix space is copied, or marked in place, when it is
+ * first reached, and is then scanned, which counts references to the
+ * objects it points to.  During a cycle collection new objects are left to
+ * the backup trace, which marks rather than copies them.
+ */
+@Uninterruptible
+public final class RCImmixFindRootSetTraceLocal extends TraceLocal {
+
+  private final ObjectReferenceDeque rootBuffer;
+  private final TraceLocal backupTrace;
+
+  public RCImmixFindRootSetTraceLocal(Trace trace, ObjectReferenceDeque rootBuffer, TraceLocal backupTrace) {
+    super(trace);
+    this.rootBuffer = rootBuffer;
+    this.backupTrace = backupTrace;
+  }
+
+  /****************************************************************************
+   *
+   * Externally visible Object processing and tracing
+   */
+
+  /**
+   * Is the specified object reachable?
+   *
+   * @return <code>true</code> if the object is reachable.
+   */
+  @Override
+  public boolean isLive(ObjectReference object) {
+    return RCImmix.isRCObject(object) && RCHeader.isLiveRC(object) ||
+          (!Space.isInSpace(RCImmix.REF_COUNT_IMMIX, object) && super.isLive(object));
+  }
+
+  /**
+   * A young referent is live if it was reached by this collection, in
+   * which case it has been copied or marked in place.
+   */
+  @Override
+  public boolean isReferentLive(ObjectReference object) {
+    if (Space.isInSpace(RCImmix.REF_COUNT_IMMIX, object) && !RCImmix.rcImmixSpace.isMatureObject(object)) {
+      return RCImmix.rcImmixSpace.copyNurseryIsLive(object);
+    }
+    return isLive(object);
+  }
+
+  /**
+   * Referents and finalizable objects are not traced, so only return
+   * the new location of an object that was copied by this collection.
+   */
+  @Override
+  public ObjectReference getForwardedReference(ObjectReference object) {
+    if (Space.isInSpace(RCImmix.REF_COUNT_IMMIX, object) && ForwardingWord.isForwarded(object)) {
+      return ForwardingWord.extractForwardingPointer(VM.objectModel.readAvailableBitsWord(object));
+    }
+    return object;
+  }
+
+  /**
+   * When we trace a non-root object we do nothing.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object) {
+    return traceObject(object, false);
+  }
+
+  /**
+   * When we trace a root object we remember it.
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(ObjectReference object, boolean root) {
+    if (object.isNull()) return object;
+
+    if (Space.isInSpace(RCImmix.REF_COUNT_IMMIX, object)) {
+      if (!RCBase.performCycleCollection) {
+        object = RCImmix.rcImmixSpace.nurseryTraceObject(this, object, RCImmix.ALLOC_COPY);
+      }
+    } else if (!RCImmix.isRCObject(object)) {
+      return object;
+    }
+
+    if (root) {
+      rootBuffer.push(object);
+    } else {
+      RCHeader.incRC(object);
+    }
+
+    return object;
+  }
+
+  /**
+   * Scan a new object that has survived the collection, counting it as
+   * live on its lines.  The object has been marked with the mark state
+   * of a concurrent backup trace starting with this collection, so it is
+   * also enqueued for that trace to scan.
+   */
+  @Override
+  @Inline
+  protected void scanObject(ObjectReference object) {
+    RCHeader.makeUnlogged(object);
+    RCImmix.rcImmixSpace.incLineLiveCounts(object);
+    if (RCBase.concurrentCycleCollection) backupTrace.processNode(object);
+    super.scanObject(object);
+  }
+
+  @Override
+  public boolean willNotMoveInCurrentCollection(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!object.isNull());
+    return RCBase.performCycleCollection || !Space.isInSpace(RCImmix.REF_COUNT_IMMIX, object) ||
+        RCImmix.rcImmixSpace.isMatureObject(object);
+  }
+}
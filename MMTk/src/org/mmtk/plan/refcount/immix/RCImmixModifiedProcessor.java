@@ -0,0 +1,48 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.TransitiveClosure;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class is the fundamental mechanism for performing a
+ * transitive closure over an object graph.
+ *
+ * @see org.mmtk.plan.TraceLocal
+ */
+@Uninterruptible
+public final class RCImmixModifiedProcessor extends TransitiveClosure {
+
+  private final RCImmixFindRootSetTraceLocal trace;
+
+  public RCImmixModifiedProcessor(RCImmixFindRootSetTraceLocal trace) {
+    this.trace = trace;
+  }
+
+  /**
+   * Count the reference held by a field of a modified object, updating
+   * the field if the object it refers to is new and has been copied.
+   */
+  @Override
+  @Inline
+  public void processEdge(ObjectReference source, Address slot) {
+    ObjectReference object = slot.loadObjectReference();
+    if (!object.isNull()) {
+      ObjectReference newObject = trace.traceObject(object);
+      if (newObject != object) slot.store(newObject);
+    }
+  }
+}
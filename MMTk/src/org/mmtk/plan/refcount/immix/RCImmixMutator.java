@@ -0,0 +1,110 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.plan.refcount.immix;
+
+import org.mmtk.plan.refcount.RCBase;
+import org.mmtk.plan.refcount.RCBaseMutator;
+import org.mmtk.plan.refcount.RCHeader;
+import org.mmtk.policy.Space;
+import org.mmtk.policy.immix.MutatorLocal;
+import org.mmtk.utility.alloc.Allocator;
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.Address;
+import org.vmmagic.unboxed.ObjectReference;
+
+/**
+ * This class implements the mutator context for a reference counting
+ * immix collector.
+ */
+@Uninterruptible
+public class RCImmixMutator extends RCBaseMutator {
+  /************************************************************************
+   * Instance fields
+   */
+
+  /**
+   *
+   */
+  private final MutatorLocal immix;
+
+  public RCImmixMutator() {
+    immix = new MutatorLocal(RCImmix.rcImmixSpace, false);
+  }
+
+  /****************************************************************************
+   *
+   * Mutator-time allocation
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  @Inline
+  public Address alloc(int bytes, int align, int offset, int allocator, int site) {
+    if (allocator == RCImmix.ALLOC_DEFAULT) {
+      return immix.alloc(bytes, align, offset);
+    }
+    return super.alloc(bytes, align, offset, allocator, site);
+  }
+
+  /**
+   * {@inheritDoc}<p>
+   *
+   * New objects in the immix space start with a reference count of zero
+   * and are not logged, since their references are not counted until
+   * they survive a collection.
+   */
+  @Override
+  @Inline
+  public void postAlloc(ObjectReference ref, ObjectReference typeRef, int bytes, int allocator) {
+    if (allocator == RCImmix.ALLOC_DEFAULT) {
+      RCImmix.rcImmixSpace.postAlloc(ref, bytes);
+      RCHeader.initializeHeader(ref, false);
+      return;
+    }
+    super.postAlloc(ref, typeRef, bytes, allocator);
+  }
+
+  @Override
+  public Allocator getAllocatorFromSpace(Space space) {
+    if (space == RCImmix.rcImmixSpace) return immix;
+
+    return super.getAllocatorFromSpace(space);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void collectionPhase(short phaseId, boolean primary) {
+    if (phaseId == RCBase.PREPARE) {
+      super.collectionPhase(phaseId, primary);
+      immix.prepare();
+      return;
+    }
+
+    if (phaseId == RCBase.RELEASE) {
+      immix.release();
+      super.collectionPhase(phaseId, primary);
+      return;
+    }
+
+    super.collectionPhase(phaseId, primary);
+  }
+}
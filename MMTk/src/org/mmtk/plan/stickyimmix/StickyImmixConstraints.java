@@ -52,6 +52,12 @@ public class StickyImmixConstraints extends ImmixConstraints {
     return MAX_IMMIX_OBJECT_BYTES;
   }
 
+  /** @return Zero, since nursery collections do not sweep a medium object space. */
+  @Override
+  public int maxMediumObjectBytes() {
+    return 0;
+  }
+
   @Override
   public boolean objectReferenceBulkCopySupported() {
     return true;
@@ -47,6 +47,12 @@ public class StickyMSConstraints extends MSConstraints {
     return SegregatedFreeListSpace.MAX_FREELIST_OBJECT_BYTES;
   }
 
+  /** @return Zero, since nursery collections do not sweep a medium object space. */
+  @Override
+  public int maxMediumObjectBytes() {
+    return 0;
+  }
+
   @Override
   public boolean objectReferenceBulkCopySupported() {
     return true;
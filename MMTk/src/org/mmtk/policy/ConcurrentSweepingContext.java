@@ -0,0 +1,113 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import org.mmtk.plan.CollectorContext;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.utility.statistics.Stats;
+import org.mmtk.utility.statistics.Timer;
+import org.mmtk.vm.Monitor;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This context sweeps the blocks of a segregated free list space in the
+ * background when triggered at the end of a collection, so that mutators
+ * find blocks with free lists ready made on the allocation slow path.<p>
+ *
+ * The context sweeps one block at a time and checks between blocks whether
+ * it has been stopped, so stopping the context at the start of the next
+ * collection only waits for the block in hand.
+ */
+@Uninterruptible
+public class ConcurrentSweepingContext extends CollectorContext {
+
+  private final SegregatedFreeListSpace space;
+  private final Monitor lock;
+  private volatile boolean triggered;
+  private volatile boolean stopped;
+  private volatile boolean sweeping;
+
+  /** Time spent sweeping in the background */
+  final Timer sweepTime;
+  /** Blocks swept in the background */
+  final EventCounter backgroundSweeps;
+  /** Blocks swept by mutators that found no swept block */
+  final EventCounter demandSweeps;
+
+  public ConcurrentSweepingContext(SegregatedFreeListSpace space) {
+    this.space = space;
+    this.lock = VM.newHeavyCondLock("ConcurrentSweepingLock");
+    sweepTime = new Timer(space.getName() + "SweepTime", false, false);
+    backgroundSweeps = new EventCounter(space.getName() + "BackgroundSweeps");
+    demandSweeps = new EventCounter(space.getName() + "DemandSweeps");
+  }
+
+  /**
+   * Start sweeping the blocks made available by a collection.
+   */
+  public void trigger() {
+    lock.lock();
+    stopped = false;
+    triggered = true;
+    lock.broadcast();
+    lock.unlock();
+  }
+
+  /**
+   * Stop sweeping, and wait until the block being swept, if any, has been
+   * returned to the space.
+   */
+  public void stop() {
+    lock.lock();
+    stopped = true;
+    triggered = false;
+    while (sweeping) {
+      lock.await();
+    }
+    lock.unlock();
+  }
+
+  /** @return {@code true} if sweeping should stop */
+  @Inline
+  public boolean isStopped() {
+    return stopped;
+  }
+
+  @Override
+  public void run() {
+    if (Options.verbose.getValue() >= 2) {
+      Log.writeln("SweepingThread running");
+    }
+    while (true) {
+      lock.lock();
+      while (!triggered) {
+        lock.await();
+      }
+      triggered = false;
+      sweeping = true;
+      lock.unlock();
+      boolean timed = Stats.gatheringStats();
+      if (timed) sweepTime.start();
+      space.concurrentSweep(this);
+      if (timed && Stats.gatheringStats()) sweepTime.stop();
+      lock.lock();
+      sweeping = false;
+      lock.broadcast();
+      lock.unlock();
+    }
+  }
+}
@@ -38,6 +38,12 @@ import org.vmmagic.unboxed.ObjectReference;
  * If it runs out of work during the calculateForwardingPointers pass, it requests
  * a new region from the global MarkCompactSpace.  Regions compacted by a collector
  * remain local to the collector.
+ *<p>
+ * When the space derives forwarding addresses from its mark bitmap, the first
+ * pass reads only the live byte counts of each block that marking left in the
+ * space's offset table, and fills the table in rather than writing forwarding
+ * pointers into headers.  The compaction pass visits only the objects marked in
+ * the bitmap.
  *
  * @see MarkCompactSpace
  * @see MarkCompactLocal
@@ -380,7 +386,6 @@ public final class MarkCompactCollector {
     @Inline
     void copy(ObjectReference from, ObjectReference to) {
       if (VM.VERIFY_ASSERTIONS) {
-        VM.assertions._assert(MarkCompactSpace.getForwardingPointer(from).toAddress().EQ(to.toAddress()));
         VM.assertions._assert(cursor.GT(region) && cursor.LE(limit));
       }
       Address savedCursor = Address.zero();
@@ -454,6 +459,12 @@ public final class MarkCompactCollector {
         toCursor.print();
       }
 
+      if (MarkCompactSpace.BITMAP_FORWARDING) {
+        calculateBlockOffsets();
+        fromCursor.advanceToNextForwardableRegion(space);
+        continue;
+      }
+
       /* Loop through the objects in the current 'from' region */
       while (fromCursor.hasMoreObjects()) {
         ObjectReference current = fromCursor.advanceToObject();
@@ -497,6 +508,37 @@ public final class MarkCompactCollector {
   }
 
 
+  /**
+   * Calculate where the live objects of the current 'from' region will be post
+   * collection, in a pass over the live byte counts of the blocks of the region,
+   * recording where placement of the live objects of each block begins in the
+   * space's offset table.  The objects themselves are not read.<p>
+   *
+   * A block's count bounds the space its objects take when placed, so the to
+   * cursor advances by it, and only advances to another region between blocks.
+   * Placement is therefore as tight as in the header-based pass unless objects
+   * need alignment padding, and the placement of every object in a block can be
+   * recomputed from the block's entry alone.
+   */
+  private void calculateBlockOffsets() {
+    Address limit = fromCursor.getLimit();
+    for (Address block = MarkCompactSpace.getBlockStart(fromCursor.get()); block.LT(limit); block = MarkCompactSpace.getBlockEnd(block)) {
+      Extent bytes = MarkCompactSpace.getLiveBytes(block);
+      if (bytes.EQ(Extent.zero())) continue;
+
+      /* Move on to the next region if the block does not fit in the current one */
+      while (!toCursor.sameRegion(fromCursor) && toCursor.get().plus(bytes).GT(toCursor.getLimit())) {
+        toCursor.advanceToNextRegion();
+      }
+      boolean inPlace = toCursor.sameRegion(fromCursor);
+      MarkCompactSpace.setBlockOffset(block, toCursor.get(), inPlace);
+      Address end = toCursor.get().plus(bytes);
+      /* Within their own region, objects never move up, so end within the region's data */
+      toCursor.incTo(inPlace && end.GT(limit) ? limit : end);
+    }
+    fromCursor.incTo(limit);
+  }
+
   /**
    * Perform the compacting phase of the collection.
    */
@@ -513,6 +555,12 @@ public final class MarkCompactCollector {
         Log.writeln(" to region ", toCursor.getRegion());
       }
 
+      if (MarkCompactSpace.BITMAP_FORWARDING) {
+        compactMarkedObjects();
+        fromCursor.advanceToNextRegion();
+        continue;
+      }
+
       /* Loop through the objects in the region */
       while (fromCursor.hasMoreObjects()) {
         ObjectReference current = fromCursor.advanceToObject();
@@ -557,4 +605,38 @@ public final class MarkCompactCollector {
       region = nextRegion;
     }
   }
+
+  /**
+   * Compact the objects of the current 'from' region that are marked in the mark
+   * bitmap, recomputing the placement of each object from the offset table entry
+   * of its block as the region is traversed.
+   */
+  private void compactMarkedObjects() {
+    Address limit = fromCursor.getLimit();
+    Address start = MarkCompactSpace.getNextMarked(fromCursor.get(), limit);
+    Address blockEnd = Address.zero();
+    Address cursor = Address.zero();
+    boolean inPlace = false;
+    while (!start.isZero()) {
+      if (start.GE(blockEnd)) {
+        blockEnd = MarkCompactSpace.getBlockEnd(start);
+        cursor = MarkCompactSpace.getBlockCursor(start);
+        inPlace = MarkCompactSpace.isBlockInPlace(start);
+      }
+      ObjectReference current = VM.objectModel.getObjectFromStartAddress(start);
+      Address end = VM.objectModel.getObjectEndAddress(current);
+      ObjectReference copyTo = MarkCompactSpace.getPlacement(current, cursor, inPlace);
+      cursor = MarkCompactSpace.getPlacementEnd(current, cursor, inPlace);
+
+      if (!toCursor.isInRegion(copyTo)) {
+        // Update metadata and move on
+        toCursor.finishAndAdvanceToNextRegion();
+      }
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(toCursor.isInRegion(copyTo));
+      toCursor.copy(current, copyTo);
+      MarkCompactSpace.clearMark(copyTo);
+      start = MarkCompactSpace.getNextMarked(end, limit);
+    }
+    fromCursor.incTo(limit);
+  }
 }
@@ -12,10 +12,16 @@
  */
 package org.mmtk.policy;
 
+import static org.mmtk.utility.Constants.*;
+
 import org.mmtk.plan.TraceLocal;
 import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.alloc.Allocator;
 import org.mmtk.utility.alloc.BumpPointer;
+import org.mmtk.utility.alloc.EmbeddedMetaData;
 import org.mmtk.utility.heap.*;
+import org.mmtk.utility.heap.layout.HeapLayout;
+import org.mmtk.utility.Conversions;
 import org.mmtk.utility.Log;
 
 import org.mmtk.vm.Lock;
@@ -26,7 +32,21 @@ import org.vmmagic.pragma.*;
 
 /**
  * This class implements functionality for a simple sliding mark-compact
- * space.
+ * space.<p>
+ *
+ * By default, live objects are marked in their headers, and the
+ * forwarding address of each is stored in its header by a linear pass
+ * over the heap.  When MMTk is built with the
+ * <code>mmtk.markCompactBitmap</code> property set, live objects are
+ * instead marked in a side bitmap, and the number of bytes they need
+ * is summed for each block of the space as they are marked.  A pass
+ * over these sums alone then records, for each block, where its first
+ * live object will move to.  The forwarding address of any live object
+ * is recomputed from this offset table and the live objects preceding
+ * it in its block, so no forwarding pointers are written, and the only
+ * linear pass over the heap is compaction itself, which skips dead
+ * objects without reading them (cf. Kermany and Petrank, "The
+ * Compressor", PLDI 2006).
  */
 @Uninterruptible public final class MarkCompactSpace extends Space {
 
@@ -47,17 +67,34 @@ import org.vmmagic.pragma.*;
 
   private static final Lock lock = VM.newLock("mcSpace");
 
+  /** Are forwarding addresses derived from a side mark bitmap? */
+  public static final boolean BITMAP_FORWARDING = VM.config.MARK_COMPACT_BITMAP;
+
+  /* Side metadata, only reserved when forwarding addresses are derived from the mark bitmap */
+  private static final int LOG_BIT_COVERAGE = LOG_MIN_ALIGNMENT;
+  private static final int LOG_MARK_COVERAGE = LOG_BIT_COVERAGE + LOG_BITS_IN_BYTE;
+  private static final int MARK_BYTES_PER_REGION = EmbeddedMetaData.BYTES_IN_REGION >> LOG_MARK_COVERAGE;
+  private static final Extent MARK_WORD_STRIDE = Extent.fromIntSignExtend(1 << (LOG_MARK_COVERAGE + LOG_BYTES_IN_WORD));
+  private static final Word MARK_WORD_STRIDE_MASK = MARK_WORD_STRIDE.minus(1).toWord().not();
+  private static final Word WORD_SHIFT_MASK = Word.fromIntZeroExtend(BITS_IN_WORD - 1);
+
+  /** The (log of the) number of bytes covered by each entry of the offset table */
+  private static final int LOG_BYTES_IN_BLOCK = 9;
+  private static final Word BLOCK_MASK = Word.fromIntZeroExtend((1 << LOG_BYTES_IN_BLOCK) - 1);
+  private static final int OFFSET_BYTES_PER_REGION = EmbeddedMetaData.BYTES_IN_REGION >> (LOG_BYTES_IN_BLOCK - LOG_BYTES_IN_ADDRESS);
+  private static final Extent OFFSET_TABLE_OFFSET = Extent.fromIntSignExtend(MARK_BYTES_PER_REGION);
+  private static final Extent META_DATA_BYTES_PER_REGION = Extent.fromIntSignExtend(MARK_BYTES_PER_REGION + OFFSET_BYTES_PER_REGION);
+  private static final int META_DATA_PAGES_PER_REGION = BITMAP_FORWARDING ? Conversions.bytesToPages(META_DATA_BYTES_PER_REGION) : 0;
+
+  /** Set in an offset table entry when a block is compacted within its own region */
+  private static final Word IN_PLACE_BIT = Word.one();
+
   /** The list of occupied regions */
   private Address regionList = Address.zero();
 
   // TODO - maintain a separate list of partially allocated regions
   // for threads to allocate into immediately after a collection.
 
-  /****************************************************************************
-   *
-   * Instance variables
-   */
-
   /****************************************************************************
    *
    * Initialization
@@ -74,16 +111,20 @@ import org.vmmagic.pragma.*;
   public MarkCompactSpace(String name, VMRequest vmRequest) {
     super(name, true, false, true, vmRequest);
     if (vmRequest.isDiscontiguous()) {
-      pr = new FreeListPageResource(this, 0);
+      pr = new FreeListPageResource(this, META_DATA_PAGES_PER_REGION);
     } else {
-      pr = new FreeListPageResource(this, start, extent, 0);
+      pr = new FreeListPageResource(this, start, extent, META_DATA_PAGES_PER_REGION);
     }
   }
 
   /**
-   * Prepare for a collection
+   * Prepare for a collection.
+   *
+   * @param mark {@code true} if the space is being prepared for the mark
+   * trace, {@code false} if for the forwarding trace
    */
-  public void prepare() {
+  public void prepare(boolean mark) {
+    if (BITMAP_FORWARDING && mark) zeroMetaData();
   }
 
   /**
@@ -138,7 +179,13 @@ import org.vmmagic.pragma.*;
     if (MarkCompactCollector.VERY_VERBOSE) {
       Log.write("marking ", object);
     }
-    if (testAndMark(object)) {
+    if (BITMAP_FORWARDING) {
+      Address start = VM.objectModel.objectStartRef(object);
+      if (testAndSetMarkBit(start)) {
+        addLiveBytes(start, getPlacementBound(object));
+        trace.processNode(object);
+      }
+    } else if (testAndMark(object)) {
       trace.processNode(object);
     } else if (!getForwardingPointer(object).isNull()) {
       if (MarkCompactCollector.VERY_VERBOSE) {
@@ -164,6 +211,14 @@ import org.vmmagic.pragma.*;
    */
   @Inline
   public ObjectReference traceForwardObject(TraceLocal trace, ObjectReference object) {
+    if (BITMAP_FORWARDING) {
+      /* The header mark bit records that the object has been forwarded */
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isMarkBitSet(VM.objectModel.objectStartRef(object)));
+      if (testAndMark(object)) {
+        trace.processNode(object);
+      }
+      return getForwardingAddress(object);
+    }
     if (testAndClearMark(object)) {
       trace.processNode(object);
     }
@@ -178,12 +233,13 @@ import org.vmmagic.pragma.*;
 
   @Override
   public boolean isLive(ObjectReference object) {
+    if (BITMAP_FORWARDING) return isMarkBitSet(VM.objectModel.objectStartRef(object));
     return isMarked(object);
   }
 
   @Override
   public boolean isReachable(ObjectReference object) {
-    return isMarked(object);
+    return isLive(object);
   }
 
 
@@ -359,4 +415,297 @@ import org.vmmagic.pragma.*;
     }
     BumpPointer.setNextRegion(cursor,region);
   }
+
+  /****************************************************************************
+   *
+   * Mark bitmap and offset table
+   */
+
+  /**
+   * Zero the mark bitmap and offset table of every chunk of this space.
+   */
+  private void zeroMetaData() {
+    if (contiguous) {
+      zeroMetaData(start, ((FreeListPageResource)pr).getHighWater());
+    } else {
+      for (Address region = headDiscontiguousRegion; !region.isZero(); region = HeapLayout.vmMap.getNextContiguousRegion(region)) {
+        zeroMetaData(region, region.plus(HeapLayout.vmMap.getContiguousRegionSize(region)));
+      }
+    }
+  }
+
+  /**
+   * Zero the mark bitmap and offset table of every chunk in a range.
+   *
+   * @param start The start of the range, which is chunk aligned
+   * @param end The end of the range (exclusive)
+   */
+  private static void zeroMetaData(Address start, Address end) {
+    for (Address cursor = start; cursor.LT(end); cursor = cursor.plus(EmbeddedMetaData.BYTES_IN_REGION)) {
+      VM.memory.zero(false, EmbeddedMetaData.getMetaDataBase(cursor), META_DATA_BYTES_PER_REGION);
+    }
+  }
+
+  /**
+   * Atomically set the mark bit for the object starting at an address.
+   *
+   * @param start The start address of the object
+   * @return {@code true} if the bit was set by this call
+   */
+  @Inline
+  private static boolean testAndSetMarkBit(Address start) {
+    Address markWord = getMarkWordAddress(start);
+    Word mask = Word.one().lsh(getMarkBitIndex(start));
+    Word oldValue;
+    do {
+      oldValue = markWord.prepareWord();
+      if (!oldValue.and(mask).isZero()) return false;
+    } while (!markWord.attempt(oldValue, oldValue.or(mask)));
+    return true;
+  }
+
+  /**
+   * @param start The start address of an object
+   * @return {@code true} if the mark bit for the object is set
+   */
+  @Inline
+  private static boolean isMarkBitSet(Address start) {
+    return !getMarkWordAddress(start).loadWord().and(Word.one().lsh(getMarkBitIndex(start))).isZero();
+  }
+
+  /**
+   * Find the start of the next marked object in a range of a region.
+   * Only the mark bitmap is read, not the memory in the range.
+   *
+   * @param cursor The start of the range
+   * @param limit The end of the range (exclusive)
+   * @return The start address of the first marked object in the range,
+   * or zero if there is none
+   */
+  @Inline
+  static Address getNextMarked(Address cursor, Address limit) {
+    while (cursor.LT(limit)) {
+      Word bits = getMarkWordAddress(cursor).loadWord().rshl(getMarkBitIndex(cursor));
+      if (!bits.isZero()) {
+        Address result = cursor.plus(getLowestBit(bits) << LOG_BIT_COVERAGE);
+        return result.LT(limit) ? result : Address.zero();
+      }
+      cursor = cursor.toWord().and(MARK_WORD_STRIDE_MASK).toAddress().plus(MARK_WORD_STRIDE);
+    }
+    return Address.zero();
+  }
+
+  /**
+   * @param bits A non-zero word
+   * @return The index of the lowest bit set in <code>bits</code>
+   */
+  @Inline
+  private static int getLowestBit(Word bits) {
+    int index = 0;
+    while (bits.and(Word.fromIntZeroExtend(0xff)).isZero()) {
+      bits = bits.rshl(BITS_IN_BYTE);
+      index += BITS_IN_BYTE;
+    }
+    while (bits.and(Word.one()).isZero()) {
+      bits = bits.rshl(1);
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * @param address An address in this space
+   * @return The index of the bit for the address within its mark word
+   */
+  @Inline
+  private static int getMarkBitIndex(Address address) {
+    return address.toWord().rshl(LOG_BIT_COVERAGE).and(WORD_SHIFT_MASK).toInt();
+  }
+
+  /**
+   * @param address An address in this space
+   * @return The address of the mark word covering the address
+   */
+  @Inline
+  private static Address getMarkWordAddress(Address address) {
+    return EmbeddedMetaData.getMetaDataBase(address).plus(
+        EmbeddedMetaData.getMetaDataOffset(address, LOG_MARK_COVERAGE, LOG_BYTES_IN_WORD));
+  }
+
+  /**
+   * @param address An address in this space
+   * @return The address of the offset table entry of the block containing the address
+   */
+  @Inline
+  private static Address getOffsetEntryAddress(Address address) {
+    return EmbeddedMetaData.getMetaDataBase(address).plus(OFFSET_TABLE_OFFSET).plus(
+        EmbeddedMetaData.getMetaDataOffset(address, LOG_BYTES_IN_BLOCK - LOG_BYTES_IN_ADDRESS, LOG_BYTES_IN_ADDRESS));
+  }
+
+  /**
+   * @param address An address in this space
+   * @return The start of the block containing the address
+   */
+  @Inline
+  static Address getBlockStart(Address address) {
+    return address.toWord().and(BLOCK_MASK.not()).toAddress();
+  }
+
+  /**
+   * @param address An address in this space
+   * @return The end (exclusive) of the block containing the address
+   */
+  @Inline
+  static Address getBlockEnd(Address address) {
+    return address.toWord().or(BLOCK_MASK).toAddress().plus(1);
+  }
+
+  /**
+   * Atomically add to the number of bytes needed to place the live
+   * objects starting in a block.  Until forwarding addresses are
+   * calculated, the offset table holds these sums.
+   *
+   * @param start The start address of a live object
+   * @param bytes The number of bytes needed to place the object
+   */
+  @Inline
+  private static void addLiveBytes(Address start, int bytes) {
+    Address entry = getOffsetEntryAddress(start);
+    Word oldValue;
+    do {
+      oldValue = entry.prepareWord();
+    } while (!entry.attempt(oldValue, oldValue.plus(Word.fromIntZeroExtend(bytes))));
+  }
+
+  /**
+   * @param block The start of a block
+   * @return The number of bytes needed to place the live objects starting in
+   * the block, or zero if there are none
+   */
+  @Inline
+  static Extent getLiveBytes(Address block) {
+    return getOffsetEntryAddress(block).loadWord().toExtent();
+  }
+
+  /**
+   * Record where the live objects of a block will be compacted to,
+   * replacing the block's live byte count.
+   *
+   * @param block The start of the block
+   * @param cursor The address at which placement of the block's objects begins
+   * @param inPlace {@code true} if the block is compacted within its own region
+   */
+  @Inline
+  static void setBlockOffset(Address block, Address cursor, boolean inPlace) {
+    Word entry = cursor.toWord();
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(entry.and(IN_PLACE_BIT).isZero());
+    getOffsetEntryAddress(block).store(inPlace ? entry.or(IN_PLACE_BIT) : entry);
+  }
+
+  /**
+   * @param address An address within a block with live objects
+   * @return The address at which placement of the block's objects begins
+   */
+  @Inline
+  static Address getBlockCursor(Address address) {
+    return getOffsetEntryAddress(address).loadWord().and(IN_PLACE_BIT.not()).toAddress();
+  }
+
+  /**
+   * @param address An address within a block with live objects
+   * @return {@code true} if the block is compacted within its own region
+   */
+  @Inline
+  static boolean isBlockInPlace(Address address) {
+    return !getOffsetEntryAddress(address).loadWord().and(IN_PLACE_BIT).isZero();
+  }
+
+  /**
+   * Compute where a live object is compacted to, given where
+   * placement of objects has reached.  Within its own region, an object
+   * is never moved to a higher address.
+   *
+   * @param object The object
+   * @param cursor The address at which placement of the object begins
+   * @param inPlace {@code true} if the object is compacted within its own region
+   * @return The forwarded reference of the object
+   */
+  @Inline
+  static ObjectReference getPlacement(ObjectReference object, Address cursor, boolean inPlace) {
+    int align = VM.objectModel.getAlignWhenCopied(object);
+    int offset = VM.objectModel.getAlignOffsetWhenCopied(object);
+    ObjectReference target = VM.objectModel.getReferenceWhenCopiedTo(object, Allocator.alignAllocationNoFill(cursor, align, offset));
+    if (inPlace && target.toAddress().GE(object.toAddress())) return object;
+    return target;
+  }
+
+  /**
+   * Bound the number of bytes by which placing a live object advances
+   * placement, wherever placement begins.  Placing the live objects of a
+   * block from a cursor therefore never reaches beyond the cursor plus
+   * the sum of their bounds.
+   *
+   * @param object The object
+   * @return The size of the forwarded object plus its worst case alignment padding
+   */
+  @Inline
+  private static int getPlacementBound(ObjectReference object) {
+    return VM.objectModel.getSizeWhenCopied(object) + VM.objectModel.getAlignWhenCopied(object) - MIN_ALIGNMENT;
+  }
+
+  /**
+   * Compute where placement of objects reaches once a live object has
+   * been placed.
+   *
+   * @param object The object
+   * @param cursor The address at which placement of the object begins
+   * @param inPlace {@code true} if the object is compacted within its own region
+   * @return The address following the forwarded object
+   */
+  @Inline
+  static Address getPlacementEnd(ObjectReference object, Address cursor, boolean inPlace) {
+    int align = VM.objectModel.getAlignWhenCopied(object);
+    int offset = VM.objectModel.getAlignOffsetWhenCopied(object);
+    Address aligned = Allocator.alignAllocationNoFill(cursor, align, offset);
+    if (inPlace && VM.objectModel.getReferenceWhenCopiedTo(object, aligned).toAddress().GE(object.toAddress())) {
+      return VM.objectModel.getObjectEndAddress(object);
+    }
+    return aligned.plus(VM.objectModel.getSizeWhenCopied(object));
+  }
+
+  /**
+   * Compute where placement of objects reaches once the marked objects
+   * starting in a range of a block have been placed.
+   *
+   * @param start The start of the range
+   * @param end The end of the range (exclusive)
+   * @param cursor The address at which placement of the objects begins
+   * @param inPlace {@code true} if the objects are compacted within their own region
+   * @return The address following the last forwarded object
+   */
+  private static Address getPlacementEnd(Address start, Address end, Address cursor, boolean inPlace) {
+    for (Address next = getNextMarked(start, end); !next.isZero(); ) {
+      ObjectReference object = VM.objectModel.getObjectFromStartAddress(next);
+      cursor = getPlacementEnd(object, cursor, inPlace);
+      next = getNextMarked(VM.objectModel.getObjectEndAddress(object), end);
+    }
+    return cursor;
+  }
+
+  /**
+   * Compute the forwarding address of a live object from the offset
+   * table entry of its block and the live objects that precede it in
+   * the block.
+   *
+   * @param object The object
+   * @return The forwarded reference of the object
+   */
+  @Inline
+  public static ObjectReference getForwardingAddress(ObjectReference object) {
+    Address start = VM.objectModel.objectStartRef(object);
+    Address block = getBlockStart(start);
+    boolean inPlace = isBlockInPlace(start);
+    Address cursor = getPlacementEnd(block, start, getBlockCursor(start), inPlace);
+    return getPlacement(object, cursor, inPlace);
+  }
 }
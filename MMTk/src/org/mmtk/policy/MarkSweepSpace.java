@@ -19,6 +19,7 @@ import org.mmtk.utility.heap.*;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.options.MarkSweepMarkBits;
 import org.mmtk.utility.options.EagerCompleteSweep;
+import org.mmtk.utility.options.ConcurrentSweep;
 import org.mmtk.utility.HeaderByte;
 
 import org.mmtk.vm.VM;
@@ -91,6 +92,7 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
   static {
     Options.markSweepMarkBits = new MarkSweepMarkBits();
     Options.eagerCompleteSweep = new EagerCompleteSweep();
+    Options.concurrentSweep = new ConcurrentSweep();
   }
 
   /**
@@ -188,6 +190,7 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
    * @param gcWholeMS True if we are going to collect the whole marksweep space
    */
   public void prepare(boolean gcWholeMS) {
+    stopConcurrentSweep();
     if (HEADER_MARK_BITS && Options.eagerCompleteSweep.getValue()) {
       consumeBlocks();
     } else {
@@ -210,11 +213,14 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
 
   /**
    * A new collection increment has completed.  For the mark-sweep
-   * collector this means we can perform the sweep phase.
+   * collector this means we can perform the sweep phase.  Free cells
+   * are found lazily, by the background sweeper if sweeping is
+   * concurrent, or by mutators as they acquire blocks.
  */
   public void release() {
     sweepConsumedBlocks(!EAGER_MARK_CLEAR);
     inMSCollection = false;
+    triggerConcurrentSweep();
   }
 
   /**
@@ -328,6 +334,11 @@ public final class MarkSweepSpace extends SegregatedFreeListSpace {
   @Inline
   public void postAlloc(ObjectReference object) {
     initializeHeader(object, true);
+    if (!HEADER_MARK_BITS && isAllocAsMarked && inMSCollection) {
+      /* the live bits are cleared when a collection starts, so only
+       * objects allocated during a (concurrent) collection need marking */
+      testAndSetLiveBit(object);
+    }
   }
 
   /**
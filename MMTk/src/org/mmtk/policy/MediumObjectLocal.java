@@ -0,0 +1,164 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import org.mmtk.utility.alloc.Allocator;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class implements unsynchronized (local) elements of a medium
+ * object space.  For each size class, the allocator owns one block
+ * of the space at a time and claims its free cells in address order.
+ * The space is only synchronized with when a block is exhausted.
+ *
+ * @see MediumObjectSpace
+ */
+@Uninterruptible
+public final class MediumObjectLocal extends Allocator {
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  private final MediumObjectSpace space;
+
+  /** The block of each size class being allocated into, or zero */
+  private final AddressArray currentBlock = AddressArray.create(MediumObjectSpace.SIZE_CLASSES);
+
+  /** The index of the next cell to consider in each current block */
+  private final int[] nextCell = new int[MediumObjectSpace.SIZE_CLASSES];
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Constructor
+   *
+   * @param space The medium object space to which this allocator
+   * instance is bound.
+   */
+  public MediumObjectLocal(MediumObjectSpace space) {
+    this.space = space;
+  }
+
+  @Override
+  protected Space getSpace() {
+    return space;
+  }
+
+  /****************************************************************************
+   *
+   * Allocation
+   */
+
+  /**
+   * Allocate space for an object.  The cell returned is zeroed.
+   *
+   * @param bytes The size of the object in bytes.
+   * @param align The requested alignment.
+   * @param offset The alignment offset.
+   * @return The address of the first byte of the allocated cell, or
+   * zero on failure.
+   */
+  @Inline
+  public Address alloc(int bytes, int align, int offset) {
+    Address cell = allocFromCurrentBlock(bytes, align, offset);
+    if (cell.isZero()) return allocSlow(bytes, align, offset);
+    return cell;
+  }
+
+  /**
+   * Take a fresh block for the size class of the request, returning
+   * the exhausted one to the space, and allocate from it.
+   *
+   * @param bytes The size of the object in bytes.
+   * @param align The requested alignment.
+   * @param offset The alignment offset.
+   * @return The address of the first byte of the allocated cell, or
+   * zero on failure.
+   */
+  @Override
+  @NoInline
+  protected Address allocSlowOnce(int bytes, int align, int offset) {
+    /* Did a collection occur and leave us a block with free cells? */
+    Address cell = allocFromCurrentBlock(bytes, align, offset);
+    if (!cell.isZero()) return cell;
+
+    int sizeClass = MediumObjectSpace.getSizeClass(getMaximumAlignedSize(bytes, align));
+    Address block = currentBlock.get(sizeClass);
+    if (!block.isZero()) {
+      space.returnBlock(block, sizeClass);
+      currentBlock.set(sizeClass, Address.zero());
+    }
+    block = space.acquireBlock(sizeClass);
+    if (block.isZero()) return Address.zero();
+    currentBlock.set(sizeClass, block);
+    nextCell[sizeClass] = 0;
+
+    cell = allocFromCurrentBlock(bytes, align, offset);
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!cell.isZero());
+    return cell;
+  }
+
+  /**
+   * Allocate from the current block of the size class of the request.
+   *
+   * @param bytes The size of the object in bytes.
+   * @param align The requested alignment.
+   * @param offset The alignment offset.
+   * @return The address of the first byte of the allocated cell, or
+   * zero if there is no current block or it has no free cells.
+   */
+  @Inline
+  private Address allocFromCurrentBlock(int bytes, int align, int offset) {
+    int sizeClass = MediumObjectSpace.getSizeClass(getMaximumAlignedSize(bytes, align));
+    Address block = currentBlock.get(sizeClass);
+    if (block.isZero()) return Address.zero();
+    int index = MediumObjectSpace.claimFreeCell(block, sizeClass, nextCell[sizeClass]);
+    if (index < 0) {
+      nextCell[sizeClass] = MediumObjectSpace.getCellsInBlock(sizeClass);
+      return Address.zero();
+    }
+    nextCell[sizeClass] = index + 1;
+    return alignAllocation(MediumObjectSpace.getCell(block, sizeClass, index), align, offset);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * Return all current blocks to the space, so that the space may
+   * sweep them.
+   */
+  public void flush() {
+    for (int sizeClass = 0; sizeClass < MediumObjectSpace.SIZE_CLASSES; sizeClass++) {
+      Address block = currentBlock.get(sizeClass);
+      if (!block.isZero()) {
+        space.returnBlock(block, sizeClass);
+        currentBlock.set(sizeClass, Address.zero());
+      }
+    }
+  }
+}
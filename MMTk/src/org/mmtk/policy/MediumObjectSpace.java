@@ -0,0 +1,469 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.policy;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.Conversions;
+import org.mmtk.utility.HeaderByte;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.heap.FreeListPageResource;
+import org.mmtk.utility.heap.VMRequest;
+import org.mmtk.utility.options.Options;
+
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * Each instance of this class corresponds to one medium object space,
+ * which holds objects too large for a plan's small object spaces, but
+ * no larger than <code>MAX_MEDIUM_OBJECT_BYTES</code>.  Such objects
+ * would otherwise be rounded up to whole pages in the large object
+ * space, and each would cost a page resource allocation.<p>
+ *
+ * Objects are segregated by size class into multi-page blocks, each
+ * holding a number of equally sized cells.  A block begins with a
+ * header holding a link to the next block in its list, and a byte per
+ * cell recording whether the cell is in use.  Mutators take a whole
+ * block at a time and allocate from it without synchronization (see
+ * <code>MediumObjectLocal</code>).  Objects are marked with a bit in
+ * their header, and the space is swept in bulk when each collection
+ * completes, releasing empty blocks to the page resource.<p>
+ *
+ * The space is only swept at the end of a full heap collection, so
+ * it may only be used by plans which always collect the whole heap.
+ */
+@Uninterruptible
+public final class MediumObjectSpace extends Space {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /**
+   *
+   */
+  public static final int LOCAL_GC_BITS_REQUIRED = 1;
+  public static final int GLOBAL_GC_BITS_REQUIRED = 0;
+  private static final byte MARK_BIT = 1; // ...01
+
+  public static final int MAX_MEDIUM_OBJECT_BYTES = 64 << 10;
+
+  /** Size classes are 1K apart up to 16K, 2K apart up to 32K and 4K apart up to 64K */
+  public static final int SIZE_CLASSES = 24;
+
+  /** Blocks are sized to hold about this many bytes of cells */
+  private static final int TARGET_BLOCK_BYTES = 256 << 10;
+  private static final int MIN_CELLS = 4;
+
+  private static final byte CELL_FREE = 0;
+  private static final byte CELL_USED = 1;
+
+  /* block header */
+  private static final Offset NEXT_OFFSET = Offset.zero();
+  private static final Offset CELL_STATE_OFFSET = NEXT_OFFSET.plus(BYTES_IN_ADDRESS);
+
+  private static final int[] cellSize = new int[SIZE_CLASSES];
+  private static final int[] cellsInBlock = new int[SIZE_CLASSES];
+  private static final int[] blockHeaderSize = new int[SIZE_CLASSES];
+  private static final int[] pagesInBlock = new int[SIZE_CLASSES];
+
+  static {
+    for (int sc = 0; sc < SIZE_CLASSES; sc++) {
+      cellSize[sc] = (sc < 8) ? (sc + 9) << 10 : (sc < 16) ? (sc + 1) << 11 : (sc - 7) << 12;
+      cellsInBlock[sc] = Math.max(MIN_CELLS, TARGET_BLOCK_BYTES / cellSize[sc]);
+      /* cells must start at a multiple of MIN_ALIGNMENT */
+      blockHeaderSize[sc] = (BYTES_IN_ADDRESS + cellsInBlock[sc] + BYTES_IN_LONG - 1) & ~(BYTES_IN_LONG - 1);
+      int blockBytes = blockHeaderSize[sc] + cellsInBlock[sc] * cellSize[sc];
+      pagesInBlock[sc] = Conversions.bytesToPagesUp(Extent.fromIntZeroExtend(blockBytes));
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /**
+   *
+   */
+  private final Lock lock = VM.newLock("MediumObjectSpace");
+  private byte markState;
+
+  /** Blocks with no free cells, or held by mutators when last returned */
+  private final AddressArray consumedBlockHead = AddressArray.create(SIZE_CLASSES);
+  /** Blocks with free cells, available to mutators */
+  private final AddressArray availableBlockHead = AddressArray.create(SIZE_CLASSES);
+
+  /* occupancy, as established by the last sweep */
+  private final int[] blocks = new int[SIZE_CLASSES];
+  private final int[] liveCells = new int[SIZE_CLASSES];
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * The caller specifies the region of virtual memory to be used for
+   * this space.  If this region conflicts with an existing space,
+   * then the constructor will fail.
+   *
+   * @param name The name of this space (used when printing error messages etc)
+   * @param vmRequest An object describing the virtual memory requested.
+   */
+  public MediumObjectSpace(String name, VMRequest vmRequest) {
+    super(name, false, false, true, vmRequest);
+    if (vmRequest.isDiscontiguous()) {
+      pr = new FreeListPageResource(this, 0);
+    } else {
+      pr = new FreeListPageResource(this, start, extent);
+    }
+    markState = 0;
+  }
+
+  /****************************************************************************
+   *
+   * Size classes
+   */
+
+  /**
+   * Get the size class for a given number of bytes.  Requests smaller
+   * than the smallest cell are given the smallest size class.
+   *
+   * @param bytes The number of bytes required to accommodate the object
+   * to be allocated.
+   * @return The size class capable of accommodating the allocation request.
+   */
+  @Inline
+  public static int getSizeClass(int bytes) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert((bytes > 0) && (bytes <= MAX_MEDIUM_OBJECT_BYTES));
+    int sz1 = bytes - 1;
+    return (sz1 < (9 << 10))  ? 0 :                 //  9K
+           (sz1 < (16 << 10)) ? (sz1 >> 10) - 8 :   //  1K apart
+           (sz1 < (32 << 10)) ? (sz1 >> 11) :       //  2K apart
+                                (sz1 >> 12) + 8;    //  4K apart
+  }
+
+  /**
+   * @param sizeClass A size class
+   * @return The size in bytes of the cells of the size class
+   */
+  @Inline
+  public static int getCellSize(int sizeClass) {
+    return cellSize[sizeClass];
+  }
+
+  /**
+   * @param sizeClass A size class
+   * @return The number of cells in each block of the size class
+   */
+  @Inline
+  public static int getCellsInBlock(int sizeClass) {
+    return cellsInBlock[sizeClass];
+  }
+
+  /****************************************************************************
+   *
+   * Allocation
+   */
+
+  /**
+   * Acquire a block with at least one free cell, either from the
+   * blocks left partly free by the last sweep, or fresh from the page
+   * resource.
+   *
+   * @param sizeClass The size class of the block
+   * @return The block, or zero if the space is exhausted
+   */
+  public Address acquireBlock(int sizeClass) {
+    lock.acquire();
+    Address block = availableBlockHead.get(sizeClass);
+    if (!block.isZero()) {
+      availableBlockHead.set(sizeClass, getNext(block));
+      lock.release();
+      setNext(block, Address.zero());
+      return block;
+    }
+    lock.release();
+
+    /* Blocks are returned zeroed, so all cells are free */
+    return acquire(pagesInBlock[sizeClass]);
+  }
+
+  /**
+   * Return a block that a mutator has finished allocating into.
+   *
+   * @param block The block
+   * @param sizeClass The size class of the block
+   */
+  public void returnBlock(Address block, int sizeClass) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(getNext(block).isZero());
+    lock.acquire();
+    setNext(block, consumedBlockHead.get(sizeClass));
+    consumedBlockHead.set(sizeClass, block);
+    lock.release();
+  }
+
+  /**
+   * Claim the first free cell of a block at or above a given index.
+   *
+   * @param block The block
+   * @param sizeClass The size class of the block
+   * @param index The index of the first cell to consider
+   * @return The index of the cell claimed, or -1 if there is none
+   */
+  @Inline
+  public static int claimFreeCell(Address block, int sizeClass, int index) {
+    Address state = block.plus(CELL_STATE_OFFSET);
+    for (; index < cellsInBlock[sizeClass]; index++) {
+      if (state.loadByte(Offset.fromIntZeroExtend(index)) == CELL_FREE) {
+        state.store(CELL_USED, Offset.fromIntZeroExtend(index));
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param block A block
+   * @param sizeClass The size class of the block
+   * @param index The index of a cell in the block
+   * @return The address of the cell
+   */
+  @Inline
+  public static Address getCell(Address block, int sizeClass, int index) {
+    return block.plus(blockHeaderSize[sizeClass] + index * cellSize[sizeClass]);
+  }
+
+  /****************************************************************************
+   *
+   * Collection
+   */
+
+  /**
+   * Prepare for a new collection.  We flip the state of the mark bit.
+   */
+  public void prepare() {
+    markState = (byte) (MARK_BIT - markState);
+  }
+
+  /**
+   * A collection has completed, so sweep the space.  Dead cells are
+   * zeroed and freed, and blocks with no live cells are released.
+   * All blocks are on the space's lists, since mutators return their
+   * blocks when a collection starts.  The occupancy of each size class
+   * is printed if verbose fragmentation statistics are requested.
+   */
+  public void release() {
+    for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+      Address consumed = consumedBlockHead.get(sizeClass);
+      Address available = availableBlockHead.get(sizeClass);
+      consumedBlockHead.set(sizeClass, Address.zero());
+      availableBlockHead.set(sizeClass, Address.zero());
+      blocks[sizeClass] = 0;
+      liveCells[sizeClass] = 0;
+      sweepBlocks(consumed, sizeClass);
+      sweepBlocks(available, sizeClass);
+    }
+    if (Options.verboseFragmentationStats.getValue()) printOccupancy();
+  }
+
+  /**
+   * Sweep a list of blocks, placing each on the consumed or available
+   * list according to whether it has free cells, or releasing it if it
+   * has no live cells.
+   *
+   * @param block The first block in the list
+   * @param sizeClass The size class of the blocks
+   */
+  private void sweepBlocks(Address block, int sizeClass) {
+    while (!block.isZero()) {
+      Address next = getNext(block);
+      int live = sweepBlock(block, sizeClass);
+      if (live == 0) {
+        release(block);
+      } else {
+        AddressArray head = (live == cellsInBlock[sizeClass]) ? consumedBlockHead : availableBlockHead;
+        setNext(block, head.get(sizeClass));
+        head.set(sizeClass, block);
+        blocks[sizeClass]++;
+        liveCells[sizeClass] += live;
+      }
+      block = next;
+    }
+  }
+
+  /**
+   * Sweep the cells of a block, freeing and zeroing those that hold
+   * dead objects.
+   *
+   * @param block The block
+   * @param sizeClass The size class of the block
+   * @return The number of live cells in the block
+   */
+  private int sweepBlock(Address block, int sizeClass) {
+    Address state = block.plus(CELL_STATE_OFFSET);
+    int live = 0;
+    for (int index = 0; index < cellsInBlock[sizeClass]; index++) {
+      Offset offset = Offset.fromIntZeroExtend(index);
+      if (state.loadByte(offset) == CELL_USED) {
+        Address cell = getCell(block, sizeClass, index);
+        if (isLive(VM.objectModel.getObjectFromStartAddress(cell))) {
+          live++;
+        } else {
+          VM.memory.zero(false, cell, Extent.fromIntZeroExtend(cellSize[sizeClass]));
+          state.store(CELL_FREE, offset);
+        }
+      }
+    }
+    return live;
+  }
+
+  @Override
+  @Inline
+  public void release(Address block) {
+    ((FreeListPageResource) pr).releasePages(block);
+  }
+
+  /****************************************************************************
+   *
+   * Object processing and tracing
+   */
+
+  /**
+   * Trace a reference to an object in the medium object space.  If the
+   * object is not already marked, mark it and enqueue it for
+   * subsequent processing.
+   *
+   * @param trace The trace being conducted.
+   * @param object The object to be traced.
+   * @return The object (there is no object forwarding in this space).
+   */
+  @Override
+  @Inline
+  public ObjectReference traceObject(TransitiveClosure trace, ObjectReference object) {
+    if (testAndMark(object)) {
+      trace.processNode(object);
+    }
+    return object;
+  }
+
+  /**
+   * @param object The object in question
+   * @return {@code true} if this object is known to be live (i.e. it is marked)
+   */
+  @Override
+  @Inline
+  public boolean isLive(ObjectReference object) {
+    return (byte) (VM.objectModel.readAvailableByte(object) & MARK_BIT) == markState;
+  }
+
+  /****************************************************************************
+   *
+   * Header manipulation
+   */
+
+  /**
+   * Perform any required initialization of the GC portion of the header.
+   *
+   * @param object the object ref to the storage to be initialized
+   */
+  @Inline
+  public void initializeHeader(ObjectReference object) {
+    byte oldValue = VM.objectModel.readAvailableByte(object);
+    byte newValue = (byte) ((oldValue & ~MARK_BIT) | markState);
+    if (HeaderByte.NEEDS_UNLOGGED_BIT) newValue |= HeaderByte.UNLOGGED_BIT;
+    VM.objectModel.writeAvailableByte(object, newValue);
+  }
+
+  /**
+   * Atomically attempt to set the mark bit of an object.
+   *
+   * @param object The object whose mark bit is to be set
+   * @return {@code true} if successful, {@code false} if the
+   *  mark bit was already set.
+   */
+  @Inline
+  private boolean testAndMark(ObjectReference object) {
+    Word oldValue;
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if ((byte) (oldValue.toInt() & MARK_BIT) == markState) return false;
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue,
+                                                  oldValue.and(Word.fromIntZeroExtend(MARK_BIT).not()).or(Word.fromIntZeroExtend(markState))));
+    return true;
+  }
+
+  /****************************************************************************
+   *
+   * Block list manipulation
+   */
+
+  @Inline
+  private static Address getNext(Address block) {
+    return block.loadAddress(NEXT_OFFSET);
+  }
+
+  @Inline
+  private static void setNext(Address block, Address next) {
+    block.store(next, NEXT_OFFSET);
+  }
+
+  /****************************************************************************
+   *
+   * Occupancy statistics
+   */
+
+  /**
+   * @param sizeClass A size class
+   * @return The number of blocks of the size class
+   */
+  public int getBlockCount(int sizeClass) {
+    return blocks[sizeClass];
+  }
+
+  /**
+   * @param sizeClass A size class
+   * @return The number of cells of the size class found live by the
+   * last sweep
+   */
+  public int getLiveCellCount(int sizeClass) {
+    return liveCells[sizeClass];
+  }
+
+  /**
+   * Print the occupancy of each size class in use, as established by
+   * the last sweep.
+   */
+  public void printOccupancy() {
+    Log.write("[");
+    Log.write(getName());
+    Log.write(" occupancy:");
+    for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+      if (blocks[sizeClass] == 0) continue;
+      int cells = blocks[sizeClass] * cellsInBlock[sizeClass];
+      Log.write(" ", cellSize[sizeClass] >> 10);
+      Log.write("K: ", liveCells[sizeClass]);
+      Log.write("/", cells);
+      Log.write(" (", (liveCells[sizeClass] * 100) / cells);
+      Log.write("%)");
+    }
+    Log.writeln("]");
+  }
+}
@@ -86,6 +86,11 @@ public abstract class SegregatedFreeListSpace extends Space {
   protected final AddressArray consumedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray flushedBlockHead = AddressArray.create(sizeClassCount());
   protected final AddressArray availableBlockHead = AddressArray.create(sizeClassCount());
+  /** Blocks swept in the background, each holding its free list in its metadata */
+  protected final AddressArray sweptBlockHead = AddressArray.create(sizeClassCount());
+
+  /** The background sweeper, or {@code null} if sweeping is not concurrent */
+  protected ConcurrentSweepingContext sweepingContext;
 
   private final int[] cellSize = new int[sizeClassCount()];
   private final byte[] blockSizeClass = new byte[sizeClassCount()];
@@ -177,7 +182,15 @@ public abstract class SegregatedFreeListSpace extends Space {
    */
   public Address getAllocationBlock(int sizeClass, AddressArray freeList) {
     lock.acquire();
-    Address block;
+    Address block = sweptBlockHead.get(sizeClass);
+    if (!block.isZero()) {
+      /* The background sweeper has already built this block's free list */
+      sweptBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+      lock.release();
+      BlockAllocator.setNext(block, Address.zero());
+      freeList.set(sizeClass, BlockAllocator.getFreeListMeta(block));
+      return block;
+    }
     while (!(block = availableBlockHead.get(sizeClass)).isZero()) {
       availableBlockHead.set(sizeClass, BlockAllocator.getNext(block));
       lock.release();
@@ -187,6 +200,7 @@ public abstract class SegregatedFreeListSpace extends Space {
 
       /* Can we allocate into this block? */
       Address cell = advanceToBlock(block, sizeClass);
+      if (sweepingContext != null) sweepingContext.demandSweeps.inc();
       if (!cell.isZero()) {
         freeList.set(sizeClass, cell);
         return block;
@@ -248,6 +262,87 @@ public abstract class SegregatedFreeListSpace extends Space {
     return block;
   }
 
+  /****************************************************************************
+   *
+   * Concurrent sweeping
+   */
+
+  /**
+   * Sweep this space in the background after each collection, using a
+   * dedicated collector context.  Mutators take blocks that have already
+   * been swept in preference to sweeping blocks themselves.
+   */
+  @Interruptible
+  public void enableConcurrentSweeping() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(sweepingContext == null);
+    sweepingContext = new ConcurrentSweepingContext(this);
+    VM.collection.spawnCollectorContext(sweepingContext);
+  }
+
+  /**
+   * Start the background sweep of the available blocks, if enabled.
+   */
+  protected final void triggerConcurrentSweep() {
+    if (sweepingContext != null) sweepingContext.trigger();
+  }
+
+  /**
+   * Stop the background sweep, if enabled, and put the blocks it has
+   * swept back on the consumed lists, so that the collection sees every
+   * block of the space.
+   */
+  protected final void stopConcurrentSweep() {
+    if (sweepingContext == null) return;
+    sweepingContext.stop();
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      Address block;
+      while (!(block = sweptBlockHead.get(sizeClass)).isZero()) {
+        sweptBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+        BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
+        consumedBlockHead.set(sizeClass, block);
+      }
+    }
+  }
+
+  /**
+   * The entry point for the background sweeper.  Take each available
+   * block in turn, build its free list and place it on the swept list,
+   * until no blocks remain or the sweeper is stopped.  Mutators may
+   * take available blocks at the same time, sweeping them on demand.
+   *
+   * @param sweeper The background sweeper
+   */
+  public void concurrentSweep(ConcurrentSweepingContext sweeper) {
+    for (int sizeClass = 0; sizeClass < sizeClassCount(); sizeClass++) {
+      while (!sweeper.isStopped()) {
+        lock.acquire();
+        Address block = availableBlockHead.get(sizeClass);
+        if (block.isZero()) {
+          lock.release();
+          break;
+        }
+        availableBlockHead.set(sizeClass, BlockAllocator.getNext(block));
+        lock.release();
+
+        BlockAllocator.setNext(block, Address.zero());
+        Address cell = advanceToBlock(block, sizeClass);
+        sweeper.backgroundSweeps.inc();
+
+        lock.acquire();
+        if (cell.isZero()) {
+          /* Block was full */
+          BlockAllocator.setNext(block, consumedBlockHead.get(sizeClass));
+          consumedBlockHead.set(sizeClass, block);
+        } else {
+          BlockAllocator.setFreeListMeta(block, cell);
+          BlockAllocator.setNext(block, sweptBlockHead.get(sizeClass));
+          sweptBlockHead.set(sizeClass, block);
+        }
+        lock.release();
+      }
+    }
+  }
+
   /****************************************************************************
    *
    * Block management
@@ -640,7 +735,9 @@ public abstract class SegregatedFreeListSpace extends Space {
 
   /**
    * Use the live bits for a block to infer free cells and thus
-   * construct a free list for the block.
+   * construct a free list for the block.  When the space maintains a
+   * side bitmap, only the bitmap is consulted, so live cells are never
+   * touched.
    *
    * @param block The block to be processed
    * @param sizeClass The size class for the block
@@ -655,10 +752,12 @@ public abstract class SegregatedFreeListSpace extends Space {
     Address end = block.plus(blockSize);
     Extent cellExtent = Extent.fromIntSignExtend(cellSize[sizeClass]);
     while (cursor.LT(end)) {
-      ObjectReference current = VM.objectModel.getObjectFromStartAddress(cursor);
-      boolean free = true;
-      if (!current.isNull()) {
-        free = !isCellLive(current);
+      boolean free;
+      if (maintainSideBitmap()) {
+        free = !anyLiveBitSet(cursor, cursor.plus(cellExtent));
+      } else {
+        ObjectReference current = VM.objectModel.getObjectFromStartAddress(cursor);
+        free = current.isNull() || !isCellLive(current);
       }
       if (free) {
         if (firstFree.isZero()) {
@@ -792,8 +891,10 @@ public abstract class SegregatedFreeListSpace extends Space {
     Extent cellExtent = Extent.fromIntSignExtend(cellSize[sizeClass]);
     boolean containsLive = false;
     while (cursor.LT(end)) {
-      ObjectReference current = VM.objectModel.getObjectFromStartAddress(cursor);
       boolean free = true;
+      /* Only cells with a live bit need to be visited */
+      ObjectReference current = anyLiveBitSet(cursor, cursor.plus(cellExtent)) ?
+          VM.objectModel.getObjectFromStartAddress(cursor) : ObjectReference.nullReference();
       if (!current.isNull()) {
         free = !liveBitSet(current);
         if (!free) {
@@ -830,7 +931,7 @@ public abstract class SegregatedFreeListSpace extends Space {
    */
   @Inline
   public static boolean testAndSetLiveBit(ObjectReference object) {
-    return updateLiveBit(VM.objectModel.objectStartRef(object), true, true);
+    return updateLiveBit(VM.objectModel.refToAddress(object), true, true);
   }
 
   /**
@@ -904,6 +1005,31 @@ public abstract class SegregatedFreeListSpace extends Space {
     return value.and(mask).EQ(mask);
   }
 
+  /**
+   * Is the live bit set for any address in a range?  Only the side
+   * bitmap is read, not the memory in the range.
+   *
+   * @param start The start of the range
+   * @param end The end of the range (exclusive), within the same region
+   * @return {@code true} if any live bit in the range is set
+   */
+  @Inline
+  protected static boolean anyLiveBitSet(Address start, Address end) {
+    Address cursor = start;
+    while (cursor.LT(end)) {
+      Address next = alignToLiveStride(cursor).plus(LIVE_WORD_STRIDE);
+      Address last = (next.LT(end) ? next : end).minus(1);
+      int low = cursor.toWord().rshl(OBJECT_LIVE_SHIFT).and(WORD_SHIFT_MASK).toInt();
+      int high = last.toWord().rshl(OBJECT_LIVE_SHIFT).and(WORD_SHIFT_MASK).toInt();
+      Word mask = Word.max().lsh(low).and(Word.max().rshl(BITS_IN_WORD - 1 - high));
+      if (!getLiveWordAddress(cursor).loadWord().and(mask).isZero()) {
+        return true;
+      }
+      cursor = next;
+    }
+    return false;
+  }
+
   /**
    * Clear the live bit for a given object
    *
@@ -237,6 +237,16 @@ public abstract class Space {
     return movable;
   }
 
+  /** @return {@code true} if memory allocated in this space is zeroed */
+  public final boolean isZeroed() {
+    return zeroed;
+  }
+
+  /** @return {@code true} if this space should be backed by huge pages */
+  public final boolean usesHugePages() {
+    return vmRequest.hugePages && Options.hugePages.getValue();
+  }
+
   /** @return The number of reserved pages */
   public final int reservedPages() {
     return pr.reservedPages();
@@ -201,7 +201,7 @@ public class Block  {
     Offset csOffset = Offset.fromIntZeroExtend(block << LOG_BYTES_IN_BLOCK_DEFRAG_STATE_ENTRY);
     short state = defragStateBase.loadShort(csOffset);
     short defragState = BLOCK_IS_NOT_DEFRAG_SOURCE;
-    if (state >= threshold) defragState = BLOCK_IS_DEFRAG_SOURCE;
+    if (state > threshold || (state == threshold && Defrag.chooseThresholdSource())) defragState = BLOCK_IS_DEFRAG_SOURCE;
     defragStateBase.store(defragState, csOffset);
   }
 
@@ -23,6 +23,7 @@ import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
 import org.vmmagic.unboxed.Extent;
+import org.vmmagic.unboxed.Offset;
 
 @Uninterruptible
 public class Chunk {
@@ -138,6 +139,70 @@ public class Chunk {
     }
   }
 
+  /**
+   * Add the used blocks of a chunk to the histograms from which the
+   * defrag spill threshold is established.  Both histograms are indexed
+   * by the conservative spill count of a block.
+   *
+   * @param chunk the chunk's address
+   * @param end the address of the highest used block in the chunk
+   * @param countAvailable whether the lines available on reusable blocks should be counted
+   * @param availHistogram the histogram of lines available on reusable blocks
+   * @param blockHistogram the histogram of used blocks
+   */
+  static void addToDefragHistograms(Address chunk, Address end, boolean countAvailable, int[] availHistogram, int[] blockHistogram) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
+    final short reusableThreshold = ImmixSpace.getReusuableMarkStateThreshold(false);
+    for (int index = FIRST_USABLE_BLOCK_INDEX; index < BLOCKS_IN_CHUNK; index++) {
+      Address block = chunk.plus(index << LOG_BYTES_IN_BLOCK);
+      if (block.GT(end)) break;
+      if (Block.isUnused(block)) continue;
+      short bucket = Block.getConservativeSpillCount(block);
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(bucket >= 0 && bucket <= MAX_CONSV_SPILL_COUNT);
+      blockHistogram[bucket]++;
+      short markState = Block.getBlockMarkState(block);
+      if (countAvailable && markState <= reusableThreshold) {
+        availHistogram[bucket] += LINES_IN_BLOCK - markState;
+      }
+    }
+  }
+
+  /**
+   * Derive the line marks of each used block in a chunk from the counts
+   * of live objects on its lines, marking each line that holds a live
+   * object and clearing the marks of the others, so that the chunk may
+   * then be swept as usual.
+   *
+   * @param chunk the chunk's address
+   * @param end the address of the highest used block in the chunk
+   * @param markValue the value to use for marking
+   */
+  static void markLinesFromLiveCounts(Address chunk, Address end, final byte markValue) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk) && BUILD_FOR_RCIMMIX);
+    for (int index = FIRST_USABLE_BLOCK_INDEX; index < BLOCKS_IN_CHUNK; index++) {
+      Address block = chunk.plus(index << LOG_BYTES_IN_BLOCK);
+      if (block.GT(end)) break;
+      if (Block.isUnused(block)) continue;
+      Address markTable = Line.getBlockMarkTable(block);
+      Address countTable = Line.getBlockLiveCountTable(block);
+      for (int line = 0; line < LINES_IN_BLOCK; line++) {
+        boolean live = countTable.loadInt(Offset.fromIntZeroExtend(line << Line.LOG_BYTES_IN_LINE_LIVE_COUNT)) != 0;
+        markTable.store(live ? markValue : 0, Offset.fromIntZeroExtend(line << Line.LOG_BYTES_IN_LINE_STATUS));
+      }
+    }
+  }
+
+  /**
+   * Clear the counts of live objects on the lines of a chunk, before
+   * they are recomputed by a trace of the heap.
+   *
+   * @param chunk the chunk's address
+   */
+  static void resetLineLiveCounts(Address chunk) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk) && BUILD_FOR_RCIMMIX);
+    VM.memory.zero(false, chunk.plus(LINE_LIVE_COUNT_TABLE_OFFSET), Extent.fromIntZeroExtend(Line.LINE_LIVE_COUNT_TABLE_BYTES));
+  }
+
   static Address getFirstUsableBlock(Address chunk) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isAligned(chunk));
     Address rtn = chunk.plus(ROUNDED_METADATA_BYTES_PER_CHUNK);
@@ -156,7 +221,8 @@ public class Chunk {
   static final int BLOCK_DEFRAG_STATE_TABLE_OFFSET = BLOCK_STATE_TABLE_OFFSET + Block.BLOCK_STATE_TABLE_BYTES;
   static final int HIGHWATER_OFFSET = BLOCK_DEFRAG_STATE_TABLE_OFFSET + Block.BLOCK_DEFRAG_STATE_TABLE_BYTES;
   static final int MAP_OFFSET = HIGHWATER_OFFSET + HIGHWATER_BYTES;
-  static final int METADATA_BYTES_PER_CHUNK = MAP_OFFSET + MAP_BYTES;
+  static final int LINE_LIVE_COUNT_TABLE_OFFSET = MAP_OFFSET + MAP_BYTES;
+  static final int METADATA_BYTES_PER_CHUNK = LINE_LIVE_COUNT_TABLE_OFFSET + Line.LINE_LIVE_COUNT_TABLE_BYTES;
 
   /* FIXME we round the metadata up to block sizes just to ensure the underlying allocator gives us aligned requests */
   private static final int BLOCK_MASK = (1 << LOG_BYTES_IN_BLOCK) - 1;
@@ -79,12 +79,50 @@ public final class CollectorLocal {
     int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
     if (majorGC) {
       if (immixSpace.inImmixDefragCollection()) {
+        addToDefragHistograms(ordinal);
+        VM.activePlan.collector().rendezvous();
+        if (ordinal == 0) defrag.establishDefragSpillThreshold();
+        VM.activePlan.collector().rendezvous();
         short threshold = Defrag.defragSpillThreshold;
         resetLineMarksAndDefragStateTable(ordinal, threshold);
       }
     }
   }
 
+  /**
+   * Reset the count of live objects on every line, so that they may be
+   * recounted by a trace.  We help resetting all the chunks in parallel.
+   */
+  public void resetLineLiveCounts() {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(BUILD_FOR_RCIMMIX);
+    int stride = VM.activePlan.collector().parallelWorkerCount();
+    int ordinal = VM.activePlan.collector().parallelWorkerOrdinal();
+    Address chunk = chunkMap.firstChunk(ordinal, stride);
+    while (!chunk.isZero()) {
+      Chunk.resetLineLiveCounts(chunk);
+      chunk = chunkMap.nextChunk(chunk, ordinal, stride);
+    }
+  }
+
+  /**
+   * Build this collector's share of the histograms from which the defrag
+   * spill threshold is established.  We help walking all the chunks in
+   * parallel.
+   *
+   * @param ordinal the ordinal of this collector
+   */
+  private void addToDefragHistograms(int ordinal) {
+    int stride = VM.activePlan.collector().parallelWorkerCount();
+    int[] availHisto = defrag.getAndZeroSpillAvailHistogram(ordinal);
+    int[] blockHisto = defrag.getAndZeroSpillBlockHistogram(ordinal);
+    boolean countAvailable = defrag.countReusableLines();
+    Address chunk = chunkMap.firstChunk(ordinal, stride);
+    while (!chunk.isZero()) {
+      Chunk.addToDefragHistograms(chunk, Chunk.getHighWater(chunk), countAvailable, availHisto, blockHisto);
+      chunk = chunkMap.nextChunk(chunk, ordinal, stride);
+    }
+  }
+
   private void resetLineMarksAndDefragStateTable(int ordinal, final short threshold) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(immixSpace.inImmixDefragCollection());
     int stride = VM.activePlan.collector().parallelWorkerCount();
@@ -114,6 +152,7 @@ public final class CollectorLocal {
     final byte markValue = immixSpace.lineMarkState;
     final boolean resetMarks = majorGC && markValue == MAX_LINE_MARK_STATE;
     while (!chunk.isZero()) {
+      if (BUILD_FOR_RCIMMIX) Chunk.markLinesFromLiveCounts(chunk, Chunk.getHighWater(chunk), markValue);
       Chunk.sweep(chunk, Chunk.getHighWater(chunk), immixSpace, markSpillHisto, markValue, resetMarks);
       chunk = chunkMap.nextChunk(chunk, ordinal, stride);
     }
@@ -19,6 +19,7 @@ import static org.mmtk.utility.Constants.*;
 
 import org.mmtk.utility.Log;
 import org.mmtk.utility.heap.FreeListPageResource;
+import org.mmtk.utility.options.DefragBlockLimit;
 import org.mmtk.utility.options.DefragFreeHeadroom;
 import org.mmtk.utility.options.DefragFreeHeadroomFraction;
 import org.mmtk.utility.options.DefragHeadroom;
@@ -29,6 +30,7 @@ import org.mmtk.utility.options.DefragStress;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.statistics.EventCounter;
 import org.mmtk.utility.statistics.SizeCounter;
+import org.mmtk.vm.SynchronizedCounter;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Interruptible;
 import org.vmmagic.pragma.Uninterruptible;
@@ -36,11 +38,15 @@ import org.vmmagic.pragma.Uninterruptible;
 @Uninterruptible
 public class Defrag {
   private boolean inDefragCollection = false;
+  private boolean incrementalDefrag = false;
   private int debugBytesDefraged = 0;
   private int availableCleanPagesForDefrag;
   private boolean defragSpaceExhausted = true;
+  private boolean countReusableLines;
+  private int cleanPagesForThreshold;
   private int[][] spillMarkHistograms;
-  private final int[] spillAvailHistogram = new int[SPILL_HISTOGRAM_BUCKETS];
+  private int[][] spillAvailHistograms;
+  private int[][] spillBlockHistograms;
   public static SizeCounter defragCleanBytesUsed = new SizeCounter("cleanUsed");
 
   /* verbose stats (used only on stats runs since they induce overhead when gathered) */
@@ -51,6 +57,9 @@ public class Defrag {
   private final FreeListPageResource pr;
   private boolean debugCollectionTypeDetermined = false;
   static short defragSpillThreshold = 0;
+  /** The number of blocks at the threshold that may become sources, or -1 for all of them */
+  static int defragThresholdSources = -1;
+  private static final SynchronizedCounter thresholdSourcesChosen = VM.newSynchronizedCounter();
   static short defragReusableMarkStateThreshold = 0;
   public static EventCounter defrags = new EventCounter("defrags");
 
@@ -62,6 +71,7 @@ public class Defrag {
     Options.defragFreeHeadroomFraction = new DefragFreeHeadroomFraction();
     Options.defragSimpleSpillThreshold = new DefragSimpleSpillThreshold();
     Options.defragStress = new DefragStress();
+    Options.defragBlockLimit = new DefragBlockLimit();
     defragReusableMarkStateThreshold = (short) (Options.defragLineReuseRatio.getValue() * MAX_BLOCK_MARK_STATE);
   }
 
@@ -79,6 +89,8 @@ public class Defrag {
   void prepareHistograms() {
     int collectorCount = VM.activePlan.collectorCount();
     spillMarkHistograms = new int[collectorCount][SPILL_HISTOGRAM_BUCKETS];
+    spillAvailHistograms = new int[collectorCount][SPILL_HISTOGRAM_BUCKETS];
+    spillBlockHistograms = new int[collectorCount][SPILL_HISTOGRAM_BUCKETS];
   }
 
   boolean inDefrag() {
@@ -102,7 +114,8 @@ public class Defrag {
         Log.write("[Defrag]");
       }
       chunkMap.consolidateMap();
-      establishDefragSpillThreshold(chunkMap, space);
+      countReusableLines = space.prepareReusableRegion();
+      cleanPagesForThreshold = availableCleanPagesForDefrag;
       defrags.inc();
       defragCleanBytesAvailable.inc(pagesToBytes(availableCleanPagesForDefrag));
     }
@@ -110,7 +123,7 @@ public class Defrag {
   }
 
   void globalRelease() {
-    if (inDefragCollection && Options.verbose.getValue() > 2) {
+    if (inDefragCollection && (Options.verbose.getValue() > 2 || Options.verboseFragmentationStats.getValue())) {
       Log.write("(Defrag summary: cu: ");
       defragCleanBytesUsed.printCurrentVolume();
       Log.write(" nf: ");
@@ -123,6 +136,7 @@ public class Defrag {
     }
 
     inDefragCollection = false;
+    incrementalDefrag = false;
     debugCollectionTypeDetermined = false;
   }
 
@@ -139,6 +153,9 @@ public class Defrag {
     inDefragCollection =  (collectionAttempt > 1) ||
         emergencyCollection ||
         collectWholeHeap && (Options.defragStress.getValue() || (userTriggered && Options.fullHeapSystemGC.getValue()));
+    /* An incremental defrag evacuates a bounded number of blocks in every full heap collection */
+    incrementalDefrag = !inDefragCollection && collectWholeHeap && Options.defragBlockLimit.getValue() > 0;
+    inDefragCollection |= incrementalDefrag;
     if (inDefragCollection) {
       debugBytesDefraged = 0;
     }
@@ -158,12 +175,37 @@ public class Defrag {
     Defrag.defragCleanBytesUsed.inc(BYTES_IN_BLOCK);
   }
 
-  private void establishDefragSpillThreshold(ChunkList chunkMap, ImmixSpace space) {
-    int cleanLines = space.getAvailableLines(spillAvailHistogram);
-    int availableLines = cleanLines + availableCleanPagesForDefrag << (LOG_BYTES_IN_PAGE - LOG_BYTES_IN_LINE);
+  /**
+   * Should the lines available on reusable blocks be counted when
+   * building the histograms for this defrag collection?  If not, only
+   * clean pages are available for defragmentation.
+   *
+   * @return {@code true} if reusable lines are to be counted
+   */
+  boolean countReusableLines() {
+    return countReusableLines;
+  }
+
+  /**
+   * Establish the spill threshold for this defrag collection, from the
+   * histograms built by each of the collectors.  Blocks whose
+   * conservative spill count reaches the threshold become defrag
+   * sources.  Called by a single collector once all have built their
+   * histograms.
+   */
+  void establishDefragSpillThreshold() {
+    int collectors = VM.activePlan.collectorCount();
+    int cleanLines = 0;
+    for (int c = 0; c < collectors; c++) {
+      for (int i = 0; i < SPILL_HISTOGRAM_BUCKETS; i++) cleanLines += spillAvailHistograms[c][i];
+    }
+    int availableLines = cleanLines + cleanPagesForThreshold << (LOG_BYTES_IN_PAGE - LOG_BYTES_IN_LINE);
+    int blockLimit = incrementalDefrag ? Options.defragBlockLimit.getValue() : 0;
 
     int requiredLines = 0;
+    int sourceBlocks = 0;
     short threshold = MAX_CONSV_SPILL_COUNT;
+    int thresholdSources = -1;
     int limit = (int) (availableLines / Options.defragLineReuseRatio.getValue());
     if (VM.VERIFY_ASSERTIONS && Options.verbose.getValue() > 2) {
       Log.write("[threshold: ");
@@ -171,16 +213,26 @@ public class Defrag {
       Log.write(" al: ", availableLines);
       Log.write(" lm: ", limit);
     }
-    int collectors = VM.activePlan.collectorCount();
     for (short index = MAX_CONSV_SPILL_COUNT; index >= TMP_MIN_SPILL_THRESHOLD && limit > requiredLines; index--) {
-      threshold = index;
       int thisBucketMark = 0;
       int thisBucketAvail = 0;
-      for (int c = 0; c < collectors; c++) thisBucketMark += spillMarkHistograms[c][threshold];
-
-      thisBucketAvail = spillAvailHistogram[threshold];
+      int thisBucketBlocks = 0;
+      for (int c = 0; c < collectors; c++) {
+        thisBucketMark += spillMarkHistograms[c][index];
+        thisBucketAvail += spillAvailHistograms[c][index];
+        thisBucketBlocks += spillBlockHistograms[c][index];
+      }
+      if (blockLimit > 0 && sourceBlocks + thisBucketBlocks > blockLimit) {
+        /* Take only as many blocks of this bucket as the limit allows, counting them as they are chosen */
+        threshold = index;
+        thresholdSources = blockLimit - sourceBlocks;
+        sourceBlocks = blockLimit;
+        break;
+      }
+      threshold = index;
       limit -= thisBucketAvail;
       requiredLines += thisBucketMark;
+      sourceBlocks += thisBucketBlocks;
       if (VM.VERIFY_ASSERTIONS && Options.verbose.getValue() > 2) {
         Log.write(" (", index);
         Log.write(" ", limit);
@@ -192,18 +244,69 @@ public class Defrag {
       Log.write(" threshold: ", threshold);
       Log.write("]");
     }
+    if (Options.verboseFragmentationStats.getValue()) {
+      Log.write(incrementalDefrag ? "[Incremental defrag" : "[Defrag");
+      Log.write(" threshold: ", threshold);
+      Log.write(" sources: ", sourceBlocks);
+      Log.write(" blocks, required: ", requiredLines);
+      Log.write(" lines, available: ", availableLines);
+      Log.write(" lines]");
+    }
     defragSpillThreshold = threshold;
+    defragThresholdSources = thresholdSources;
+    thresholdSourcesChosen.reset();
   }
 
+  /**
+   * Decide whether a block whose conservative spill count equals the
+   * spill threshold becomes a defrag source.  All of them do unless
+   * the <code>defragBlockLimit</code> option caps the number of
+   * sources, in which case they are taken first come, first served,
+   * until the cap is reached.  Called by each collector as it resets
+   * the defrag state of its chunks.
+   *
+   * @return {@code true} if the block is to be a defrag source
+   */
+  static boolean chooseThresholdSource() {
+    return defragThresholdSources < 0 || thresholdSourcesChosen.increment() < defragThresholdSources;
+  }
 
   boolean spaceExhausted() {
     return defragSpaceExhausted;
   }
 
+  int[] getAndZeroSpillAvailHistogram(int ordinal) {
+    return getAndZero(spillAvailHistograms, ordinal);
+  }
+
+  int[] getAndZeroSpillBlockHistogram(int ordinal) {
+    return getAndZero(spillBlockHistograms, ordinal);
+  }
+
   int[] getAndZeroSpillMarkHistogram(int ordinal) {
-    int[] rtn = spillMarkHistograms[ordinal];
+    return getAndZero(spillMarkHistograms, ordinal);
+  }
+
+  /**
+   * Zero and return the histogram of the given collector.  Collectors
+   * that sit out this collection will not rebuild theirs, so the first
+   * collector also zeroes the histograms of those collectors, keeping
+   * them out of the sums in {@link #establishDefragSpillThreshold()}.
+   *
+   * @param histograms The histograms of each collector
+   * @param ordinal The ordinal of the collector
+   * @return The zeroed histogram of the collector
+   */
+  private static int[] getAndZero(int[][] histograms, int ordinal) {
+    int[] rtn = histograms[ordinal];
     for (int i = 0; i < SPILL_HISTOGRAM_BUCKETS; i++)
       rtn[i] = 0;
+    if (ordinal == 0) {
+      for (int c = VM.activePlan.collector().parallelWorkerCount(); c < histograms.length; c++) {
+        for (int i = 0; i < SPILL_HISTOGRAM_BUCKETS; i++)
+          histograms[c][i] = 0;
+      }
+    }
     return rtn;
   }
 }
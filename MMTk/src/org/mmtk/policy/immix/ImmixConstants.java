@@ -22,6 +22,7 @@ import org.vmmagic.unboxed.Word;
 
 public class ImmixConstants {
   public static final boolean BUILD_FOR_STICKYIMMIX = Plan.NEEDS_LOG_BIT_IN_HEADER;
+  public static final boolean BUILD_FOR_RCIMMIX = VM.activePlan.constraints().needsLineLiveCounts();
 
   /* start temporary experimental constants --- should not be allowed to lurk longer than necessary */
   public static final int TMP_MIN_SPILL_THRESHOLD = 2;
@@ -75,6 +75,7 @@ public final class ImmixSpace extends Space {
   private Address allocBlockCursor = Address.zero();
   private Address allocBlockSentinel = Address.zero();
   private boolean exhaustedReusableSpace = true;
+  private boolean concurrentZeroing = false;
 
   private final ChunkList chunkMap = new ChunkList();
   private final Defrag defrag;
@@ -116,9 +117,23 @@ public final class ImmixSpace extends Space {
       pr = new FreeListPageResource(this, Chunk.getRequiredMetaDataPages());
     else
       pr = new FreeListPageResource(this, start, extent, Chunk.getRequiredMetaDataPages());
+    ((FreeListPageResource) pr).setZeroingUnit(PAGES_IN_BLOCK);
     defrag = new Defrag((FreeListPageResource) pr);
   }
 
+  /**
+   * {@inheritDoc}<p>
+   *
+   * Concurrent zeroing zeroes clean blocks ahead of demand between
+   * collections.
+   */
+  @Override
+  @Interruptible
+  public void setZeroingApproach(boolean useNT, boolean concurrent) {
+    super.setZeroingApproach(useNT, concurrent);
+    concurrentZeroing = concurrent;
+  }
+
   @Interruptible
   public void initializeDefrag() {
     defrag.prepareHistograms();
@@ -135,6 +150,7 @@ public final class ImmixSpace extends Space {
    * @param majorGC whether the collection will be a full heap collection
    */
   public void prepare(boolean majorGC) {
+    if (concurrentZeroing) skipConcurrentZeroing();
     if (majorGC) {
       markState = ObjectHeader.deltaMarkState(markState, true);
         lineMarkState++;
@@ -177,6 +193,7 @@ public final class ImmixSpace extends Space {
     Defrag.defragReusableMarkStateThreshold = (short) (Options.defragLineReuseRatio.getValue() * MAX_BLOCK_MARK_STATE);
 
     linesConsumed = 0;
+    if (concurrentZeroing) triggerConcurrentZeroing();
     return didDefrag;
   }
 
@@ -385,6 +402,22 @@ public final class ImmixSpace extends Space {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!ForwardingWord.isForwardedOrBeingForwarded(object));
   }
 
+ /**
+  * Perform any required post allocation initialization for an object
+  * allocated while a concurrent trace of this space is in progress.  The
+  * object is allocated marked and its lines are marked, so it survives
+  * the current collection without being traced.
+  *
+  * @param object the object ref to the storage to be initialized
+  * @param bytes size of the allocated object in bytes
+  */
+  @Inline
+  public void postAllocMarked(ObjectReference object, int bytes) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(inCollection && !defrag.inDefrag());
+    ObjectHeader.writeMarkState(object, markState, bytes > BYTES_IN_LINE);
+    markLines(object);
+  }
+
  /**
   * Perform any required post copy (i.e. in-GC allocation) initialization.
   * This is relevant (for example) when Squish is used as the mature space in
@@ -614,6 +647,31 @@ public final class ImmixSpace extends Space {
       Line.markMultiLine(address, object, lineMarkState);
   }
 
+  /**
+   * Count an object as live on the line/s it occupies.  This is used
+   * instead of line marking by plans that reclaim lines as the objects
+   * on them die, rather than as a result of tracing the space, and which
+   * must therefore build for line live counts.
+   *
+   * @param object The object which has become live.
+   */
+  @Inline
+  public void incLineLiveCounts(ObjectReference object) {
+    Line.adjustLiveCounts(object, 1);
+  }
+
+  /**
+   * Stop counting an object as live on the line/s it occupies.  Once no
+   * live object is counted on a line, the line is reclaimed by the next
+   * sweep of the space.
+   *
+   * @param object The object which has died.
+   */
+  @Inline
+  public void decLineLiveCounts(ObjectReference object) {
+    Line.adjustLiveCounts(object, -1);
+  }
+
   public int getNextUnavailableLine(Address baseLineAvailAddress, int line) {
     return Line.getNextUnavailable(baseLineAvailAddress, line, lineUnavailState);
   }
@@ -628,71 +686,20 @@ public final class ImmixSpace extends Space {
   */
 
   /**
-   * Establish the number of recyclable lines lines available for allocation
-   * during defragmentation, populating the spillAvailHistogram, which buckets
-   * available lines according to the number of holes on the block on which
-   * the available lines reside.
-   *
-   * @param spillAvailHistogram A histogram of availability to be populated
-   * @return The number of available recyclable lines
-   */
-  int getAvailableLines(int[] spillAvailHistogram) {
-    int availableLines;
-    if (allocBlockCursor.isZero() || exhaustedReusableSpace) {
-      availableLines = 0;
-    } else {
-      if (allocBlockCursor.EQ(allocBlockSentinel)) {
-        if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!exhaustedReusableSpace);
-        allocBlockCursor = chunkMap.getHeadChunk();
-        allocBlockSentinel = allocBlockCursor;
-      }
-      availableLines = getUsableLinesInRegion(allocBlockCursor, allocBlockSentinel, spillAvailHistogram);
+   * Prepare the reusable region for a defrag collection, rewinding it to
+   * the head of the chunk map if it has not yet been entered.  The lines
+   * available on reusable blocks are then counted by the collectors in
+   * parallel, as they build the defrag histograms.
+   *
+   * @return {@code false} if there is no reusable space left to count
+   */
+  boolean prepareReusableRegion() {
+    if (allocBlockCursor.isZero() || exhaustedReusableSpace) return false;
+    if (allocBlockCursor.EQ(allocBlockSentinel)) {
+      allocBlockCursor = chunkMap.getHeadChunk();
+      allocBlockSentinel = allocBlockCursor;
     }
-    return availableLines;
-  }
-
-  /**
-   * Return the number of lines usable for allocation during defragmentation in the
-   * address range specified by start and end.  Populate a histogram to indicate where
-   * the usable lines reside as a function of block hole count.
-   *
-   * @param start  The start of the region to be checked for availability
-   * @param end The end of the region to be checked for availability
-   * @param spillAvailHistogram The histogram which will be populated
-   * @return The number of usable lines
-   */
-  private int getUsableLinesInRegion(Address start, Address end, int[] spillAvailHistogram) {
-    int usableLines = 0;
-    Address blockCursor = Chunk.isAligned(start) ? start.plus(Chunk.FIRST_USABLE_BLOCK_INDEX << LOG_BYTES_IN_BLOCK) : start;
-    Address blockStateCursor = Block.getBlockMarkStateAddress(blockCursor);
-    Address chunkCursor = Chunk.align(blockCursor);
-    if (Chunk.getByteOffset(end) < Chunk.FIRST_USABLE_BLOCK_INDEX << LOG_BYTES_IN_BLOCK)
-      end = Chunk.align(end).plus(Chunk.FIRST_USABLE_BLOCK_INDEX << LOG_BYTES_IN_BLOCK);
-
-    for (int i = 0; i <= MAX_CONSV_SPILL_COUNT; i++) spillAvailHistogram[i] = 0;
-
-    Address highwater = Chunk.getHighWater(chunkCursor);
-    do {
-      short markState = blockStateCursor.loadShort();
-      if (markState != 0 && markState <= reusableMarkStateThreshold) {
-        int usable = LINES_IN_BLOCK - markState;
-        short bucket = Block.getConservativeSpillCount(blockCursor);
-        if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(bucket >= 0 && bucket <= MAX_CONSV_SPILL_COUNT);
-        spillAvailHistogram[bucket] += usable;
-        usableLines += usable;
-      }
-      blockCursor = blockCursor.plus(BYTES_IN_BLOCK);
-      if (blockCursor.GT(highwater)) {
-        chunkCursor = chunkMap.nextChunk(chunkCursor);
-        if (chunkCursor.isZero()) break;
-        blockCursor = chunkCursor.plus(Chunk.FIRST_USABLE_BLOCK_INDEX << LOG_BYTES_IN_BLOCK);
-        blockStateCursor = Block.getBlockMarkStateAddress(blockCursor);
-        highwater = Chunk.getHighWater(chunkCursor);
-      } else
-        blockStateCursor = blockStateCursor.plus(Block.BYTES_IN_BLOCK_STATE_ENTRY);
-    } while (blockCursor.NE(end));
-
-    return usableLines;
+    return true;
   }
 
   /****************************************************************************
@@ -738,6 +745,31 @@ public final class ImmixSpace extends Space {
     return ObjectHeader.testMarkState(object, markState);
   }
 
+  /**
+   * @param object The object in question
+   * @return {@code true} if the object has survived a collection, that is,
+   * it has been marked or copied since it was allocated
+   */
+  @Inline
+  public boolean isMatureObject(ObjectReference object) {
+    return ObjectHeader.isMatureObject(object);
+  }
+
+  /**
+   * Atomically mark an object in place, on behalf of a trace that does
+   * not go through this space's trace methods and so enqueues the object
+   * itself.  Only one of several threads racing to mark an object
+   * succeeds.
+   *
+   * @param object The object to be marked
+   * @return {@code true} if this call marked the object
+   */
+  @Inline
+  public boolean attemptToMark(ObjectReference object) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!defrag.inDefrag());
+    return ObjectHeader.attemptToMark(object, markState);
+  }
+
   @Inline
   public boolean willNotMoveThisGC(ObjectReference object) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(getSpaceForObject(object) == this && defrag.inDefrag());
@@ -13,6 +13,7 @@
 package org.mmtk.policy.immix;
 
 import static org.mmtk.policy.immix.ImmixConstants.*;
+import static org.mmtk.utility.Constants.LOG_BYTES_IN_INT;
 
 import org.mmtk.vm.VM;
 
@@ -64,6 +65,62 @@ public class Line {
     }
   }
 
+  /***************************************************************************
+   * Line live counts
+   */
+
+  /**
+   * Adjusts the count of live objects on each line occupied by an
+   * object.  As with line marking, the count of the line on which the
+   * object ends is not adjusted for a straddling object, since the
+   * allocator conservatively treats the line after a live line as live.
+   *
+   * @param object the object
+   * @param delta the amount by which to adjust the counts
+   */
+  static void adjustLiveCounts(ObjectReference object, final int delta) {
+    Address start = VM.objectModel.objectStartRef(object);
+    adjustLiveCount(start, delta);
+    if (ObjectHeader.isStraddlingObject(object)) {
+      Address endLine = Line.align(VM.objectModel.getObjectEndAddress(object).minus(1));
+      Address line = Line.align(start.plus(BYTES_IN_LINE));
+      while (line.LT(endLine)) {
+        adjustLiveCount(line, delta);
+        line = line.plus(BYTES_IN_LINE);
+      }
+    }
+  }
+
+  /**
+   * Atomically adjusts the count of live objects on a line.
+   *
+   * @param address an address within the line
+   * @param delta the amount by which to adjust the count
+   */
+  private static void adjustLiveCount(Address address, final int delta) {
+    Address count = getLiveCountAddress(address);
+    int oldValue;
+    do {
+      oldValue = count.prepareInt();
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(oldValue + delta >= 0);
+    } while (!count.attempt(oldValue, oldValue + delta));
+  }
+
+  /**
+   * @param block the block's address
+   * @return the address of the block's live count table
+   */
+  static Address getBlockLiveCountTable(Address block) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Block.isAligned(block));
+    return getLiveCountAddress(block);
+  }
+
+  private static Address getLiveCountAddress(Address address) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(BUILD_FOR_RCIMMIX);
+    Address chunk = Chunk.align(address);
+    return chunk.plus(Chunk.LINE_LIVE_COUNT_TABLE_OFFSET + (getChunkIndex(address) << LOG_BYTES_IN_LINE_LIVE_COUNT));
+  }
+
   /***************************************************************************
    * Scanning through avail lines
    */
@@ -134,4 +191,11 @@ public class Line {
   static final int LINE_MARK_TABLE_BYTES = LINES_IN_CHUNK << LOG_BYTES_IN_LINE_STATUS;
   static final int LOG_LINE_MARK_BYTES_PER_BLOCK = LOG_LINES_IN_BLOCK + LOG_BYTES_IN_LINE_STATUS;
   static final int LINE_MARK_BYTES_PER_BLOCK = (1 << LOG_LINE_MARK_BYTES_PER_BLOCK);
+
+  /* per-line live object counts, only present when building for reference counting */
+
+  static final int LOG_BYTES_IN_LINE_LIVE_COUNT = LOG_BYTES_IN_INT;
+  static final int BYTES_IN_LINE_LIVE_COUNT = 1 << LOG_BYTES_IN_LINE_LIVE_COUNT;
+
+  static final int LINE_LIVE_COUNT_TABLE_BYTES = BUILD_FOR_RCIMMIX ? LINES_IN_CHUNK << LOG_BYTES_IN_LINE_LIVE_COUNT : 0;
 }
@@ -18,6 +18,7 @@ import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.ObjectReference;
+import org.vmmagic.unboxed.Word;
 
 @Uninterruptible
 public class ObjectHeader {
@@ -63,6 +64,26 @@ public class ObjectHeader {
    * Marking
    */
 
+  /**
+   * Atomically test and set the mark bits of an object.  Unlike
+   * {@link #testAndMark(ObjectReference, byte)}, only one of several
+   * threads racing to mark an object will succeed.
+   *
+   * @param object The object whose mark bits are to be written
+   * @param markState The value to which the mark bits will be set
+   * @return {@code true} if the object was not already marked
+   */
+  static boolean attemptToMark(ObjectReference object, byte markState) {
+    Word oldValue;
+    Word markMask = Word.fromIntZeroExtend(MARK_MASK & 0xFF);
+    do {
+      oldValue = VM.objectModel.prepareAvailableBits(object);
+      if ((byte) (oldValue.toInt() & MARK_MASK) == markState) return false;
+    } while (!VM.objectModel.attemptAvailableBits(object, oldValue,
+        oldValue.and(markMask.not()).or(Word.fromIntZeroExtend(markState & 0xFF))));
+    return true;
+  }
+
   /**
    * Non-atomically test and set the mark bit of an object.
    *
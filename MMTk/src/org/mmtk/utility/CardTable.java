@@ -0,0 +1,298 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility;
+
+import static org.mmtk.utility.Constants.*;
+import static org.mmtk.utility.heap.layout.VMLayoutConstants.BYTES_IN_CHUNK;
+import static org.mmtk.utility.heap.layout.VMLayoutConstants.LOG_BYTES_IN_CHUNK;
+import static org.mmtk.utility.heap.layout.VMLayoutConstants.MAX_CHUNKS;
+
+import org.mmtk.plan.Plan;
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * A side table of one byte per card of heap memory, used by a card
+ * marking write barrier, together with a bitmap recording where objects
+ * start, which allows the objects of a dirty card to be enumerated.<p>
+ *
+ * A card is dirtied on behalf of an object: the card is the one holding
+ * the object's reference address, and scanning a dirty card scans, in
+ * full, every recorded object whose reference address lies in the card.
+ * Only recorded objects may have their card dirtied, so a barrier must
+ * fall back to some other remembering mechanism for objects for which
+ * {@link #isRecorded(ObjectReference)} is false.<p>
+ *
+ * Metadata is allocated from the meta data space, one block per chunk of
+ * heap that holds a recorded object.  Because blocks may be allocated,
+ * objects may only be recorded during collection.  The table is indexed
+ * by chunk, so it is only available with the 32-bit heap layout.
+ */
+@Uninterruptible
+public final class CardTable {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** Is a card table available with this heap layout? */
+  public static final boolean SUPPORTED = VM.HEAP_LAYOUT_32BIT;
+
+  public static final int LOG_BYTES_IN_CARD = 9;
+  public static final int BYTES_IN_CARD = 1 << LOG_BYTES_IN_CARD;
+
+  public static final byte CLEAN = 0;
+  public static final byte DIRTY = 1;
+
+  private static final int CARDS_IN_CHUNK = 1 << (LOG_BYTES_IN_CHUNK - LOG_BYTES_IN_CARD);
+  private static final int LOG_BYTES_IN_START_BITMAP = LOG_BYTES_IN_CHUNK - LOG_MIN_ALIGNMENT - LOG_BITS_IN_BYTE;
+  private static final int METADATA_BYTES = CARDS_IN_CHUNK + (1 << LOG_BYTES_IN_START_BITMAP);
+  private static final int METADATA_PAGES = (METADATA_BYTES + BYTES_IN_PAGE - 1) >> LOG_BYTES_IN_PAGE;
+
+  private static final int TABLE_ENTRIES = SUPPORTED ? MAX_CHUNKS : 1;
+
+  /** The metadata block for each chunk, or zero */
+  private static final AddressArray metadata = AddressArray.create(TABLE_ENTRIES);
+  /** The start address of each chunk with a metadata block */
+  private static final AddressArray chunks = AddressArray.create(TABLE_ENTRIES);
+
+  private static final Lock lock = VM.newLock("CardTable");
+
+  /****************************************************************************
+   *
+   * Barrier operations
+   */
+
+  /**
+   * Has an object been recorded, so that its card may be dirtied?
+   *
+   * @param object The object
+   * @return {@code true} if the object has been recorded
+   */
+  @Inline
+  public static boolean isRecorded(ObjectReference object) {
+    Address address = object.toAddress();
+    Address meta = metadata.get(chunkIndex(address));
+    if (meta.isZero()) return false;
+    Word mask = Word.one().lsh(startBit(address));
+    return !startWord(meta, address).loadWord().and(mask).isZero();
+  }
+
+  /**
+   * Dirty the card of a recorded object.
+   *
+   * @param object The object, which must have been recorded
+   */
+  @Inline
+  public static void dirty(ObjectReference object) {
+    Address address = object.toAddress();
+    cardAddress(metadata.get(chunkIndex(address)), address).store(DIRTY);
+  }
+
+  /**
+   * Dirty the card of a recorded object, if it is not already dirty.
+   * This avoids writing to (and contending for) cache lines of the
+   * table that are already dirty.
+   *
+   * @param object The object, which must have been recorded
+   */
+  @Inline
+  public static void dirtyIfClean(ObjectReference object) {
+    Address address = object.toAddress();
+    Address card = cardAddress(metadata.get(chunkIndex(address)), address);
+    if (card.loadByte() == CLEAN) {
+      card.store(DIRTY);
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time operations
+   */
+
+  /**
+   * Record an object, so that its card may be dirtied and the object
+   * found when the card is scanned.  This may allocate metadata, so may
+   * only be called during collection.  Recording fails silently if
+   * metadata cannot be allocated, in which case the object is simply
+   * not recorded.
+   *
+   * @param object The object
+   */
+  @Inline
+  public static void record(ObjectReference object) {
+    if (!SUPPORTED) return;
+    Address address = object.toAddress();
+    Address meta = metadata.get(chunkIndex(address));
+    if (meta.isZero()) {
+      meta = allocateMetadata(address);
+      if (meta.isZero()) return;
+    }
+    Address word = startWord(meta, address);
+    Word mask = Word.one().lsh(startBit(address));
+    Word oldValue;
+    do {
+      oldValue = word.prepareWord();
+      if (!oldValue.and(mask).isZero()) return;
+    } while (!word.attempt(oldValue, oldValue.or(mask)));
+  }
+
+  /**
+   * Clean all cards and forget all recorded objects.  Called at the
+   * start of a full heap collection, which records the survivors afresh.
+   */
+  public static void clear() {
+    for (int i = 0; i < TABLE_ENTRIES; i++) {
+      Address meta = metadata.get(i);
+      if (!meta.isZero()) {
+        VM.memory.zero(false, meta, Extent.fromIntZeroExtend(METADATA_BYTES));
+      }
+    }
+  }
+
+  /**
+   * @return The number of entries in the table, each covering one chunk
+   */
+  public static int chunkCount() {
+    return TABLE_ENTRIES;
+  }
+
+  /**
+   * @param index The index of a chunk
+   * @return The metadata block of a chunk, or zero if it has none
+   */
+  @Inline
+  public static Address getMetadata(int index) {
+    return metadata.get(index);
+  }
+
+  /**
+   * @param index The index of a chunk with a metadata block
+   * @return The start address of the chunk
+   */
+  @Inline
+  public static Address getChunk(int index) {
+    return chunks.get(index);
+  }
+
+  /**
+   * @return The number of cards in a chunk
+   */
+  @Inline
+  public static int cardsInChunk() {
+    return CARDS_IN_CHUNK;
+  }
+
+  /**
+   * Clean a card, returning whether it was dirty.
+   *
+   * @param meta The metadata block of the chunk
+   * @param card The index of the card in the chunk
+   * @return {@code true} if the card was dirty
+   */
+  @Inline
+  public static boolean testAndClean(Address meta, int card) {
+    Address entry = meta.plus(card);
+    if (entry.loadByte() == CLEAN) return false;
+    entry.store(CLEAN);
+    return true;
+  }
+
+  /**
+   * Find the next recorded object in a card.
+   *
+   * @param meta The metadata block of the chunk
+   * @param chunk The start address of the chunk
+   * @param card The index of the card in the chunk
+   * @param cursor The address from which to search, within the card
+   * @return The next recorded object at or above <code>cursor</code> in
+   * the card, or <code>ObjectReference.nullReference()</code>
+   */
+  @Inline
+  public static ObjectReference nextRecorded(Address meta, Address chunk, int card, Address cursor) {
+    Address end = chunk.plus(card << LOG_BYTES_IN_CARD).plus(BYTES_IN_CARD);
+    while (cursor.LT(end)) {
+      Word bits = startWord(meta, cursor).loadWord().rshl(startBit(cursor));
+      if (!bits.isZero()) {
+        while (bits.and(Word.one()).isZero()) {
+          bits = bits.rshl(1);
+          cursor = cursor.plus(MIN_ALIGNMENT);
+        }
+        return cursor.toObjectReference();
+      }
+      /* Move to the start of the next bitmap word */
+      cursor = cursor.toWord().rshl(LOG_BITS_IN_WORD + LOG_MIN_ALIGNMENT).plus(Word.one())
+          .lsh(LOG_BITS_IN_WORD + LOG_MIN_ALIGNMENT).toAddress();
+    }
+    return ObjectReference.nullReference();
+  }
+
+  /****************************************************************************
+   *
+   * Private methods
+   */
+
+  /**
+   * Allocate the metadata block for the chunk holding an address, unless
+   * another collector has done so already.
+   *
+   * @param address The address
+   * @return The metadata block, or zero if it could not be allocated
+   */
+  @NoInline
+  private static Address allocateMetadata(Address address) {
+    int index = chunkIndex(address);
+    lock.acquire();
+    Address meta = metadata.get(index);
+    if (meta.isZero()) {
+      meta = Plan.metaDataSpace.acquire(METADATA_PAGES);
+      if (!meta.isZero()) {
+        VM.memory.zero(false, meta, Extent.fromIntZeroExtend(METADATA_BYTES));
+        chunks.set(index, address.toWord().rshl(LOG_BYTES_IN_CHUNK).lsh(LOG_BYTES_IN_CHUNK).toAddress());
+        metadata.set(index, meta);
+      }
+    }
+    lock.release();
+    return meta;
+  }
+
+  @Inline
+  private static int chunkIndex(Address address) {
+    return address.toWord().rshl(LOG_BYTES_IN_CHUNK).toInt() & (TABLE_ENTRIES - 1);
+  }
+
+  @Inline
+  private static Word chunkOffset(Address address) {
+    return address.toWord().and(Word.fromIntZeroExtend(BYTES_IN_CHUNK - 1));
+  }
+
+  @Inline
+  private static Address cardAddress(Address meta, Address address) {
+    return meta.plus(chunkOffset(address).rshl(LOG_BYTES_IN_CARD).toInt());
+  }
+
+  @Inline
+  private static Address startWord(Address meta, Address address) {
+    Word offset = chunkOffset(address).rshl(LOG_MIN_ALIGNMENT + LOG_BITS_IN_WORD).lsh(LOG_BYTES_IN_WORD);
+    return meta.plus(CARDS_IN_CHUNK).plus(offset.toOffset());
+  }
+
+  @Inline
+  private static int startBit(Address address) {
+    return address.toWord().rshl(LOG_MIN_ALIGNMENT).and(Word.fromIntZeroExtend(BITS_IN_WORD - 1)).toInt();
+  }
+}
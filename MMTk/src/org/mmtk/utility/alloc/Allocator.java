@@ -65,6 +65,15 @@ public abstract class Allocator {
     return collectionAttempts;
   }
 
+  /**
+   * @return the failure count that the next call to
+   * {@link #determineCollectionAttempts()} will return, without
+   * changing it.
+   */
+  public static int peekCollectionAttempts() {
+    return allocationSuccess ? 1 : collectionAttempts + 1;
+  }
+
   /**
    * Return the space this allocator is currently bound to.
    *
@@ -25,6 +25,7 @@ import org.mmtk.policy.Space;
 import org.mmtk.utility.Conversions;
 import org.mmtk.utility.Log;
 import org.mmtk.utility.gcspy.drivers.LinearSpaceDriver;
+import org.mmtk.utility.options.Options;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.NoInline;
@@ -127,6 +128,10 @@ import org.vmmagic.unboxed.Word;
   protected final boolean allowScanning;
   /** current contiguous region */
   protected Address region;
+  /** allocation beyond this address is sampled, or zero if not sampling */
+  private Address samplePoint;
+  /** bytes left to allocate before the next sample, carried between regions */
+  private int bytesUntilSample;
 
 
   /**
@@ -151,6 +156,7 @@ import org.vmmagic.unboxed.Word;
     internalLimit = Address.zero();
     initialRegion = Address.zero();
     region = Address.zero();
+    samplePoint = Address.zero();
   }
 
   /**
@@ -207,14 +213,20 @@ import org.vmmagic.unboxed.Word;
     if (SUPPORT_CARD_SCANNING)
       card = getCard(start.plus(CARD_MASK)); // round up
     if (end.GT(limit)) { /* external slow path */
+      if (!samplePoint.isZero()) bytesUntilSample = samplePoint.diff(cursor).toInt();
       rtn = allocSlowInline(end.diff(start).toInt(), align, offset);
       if (SUPPORT_CARD_SCANNING && card.NE(getCard(rtn.plus(CARD_MASK))))
         card = getCard(rtn); // round down
     } else {             /* internal slow path */
+      if (!samplePoint.isZero() && end.GT(samplePoint)) {
+        VM.activePlan.mutator().sampleAllocation();
+        samplePoint = end.plus(Options.allocationSampleBytes.getValue());
+      }
       while (internalLimit.LE(end))
         internalLimit = internalLimit.plus(STEP_SIZE);
       if (internalLimit.GT(limit))
         internalLimit = limit;
+      clampToSamplePoint();
       fillAlignmentGap(cursor, start);
       cursor = end;
       rtn = start;
@@ -331,6 +343,25 @@ import org.vmmagic.unboxed.Word;
       if (VM.VERIFY_ASSERTIONS)
         VM.assertions._assert(internalLimit.LE(limit));
     }
+    int sampleBytes = Options.allocationSampleBytes.getValue();
+    if (sampleBytes > 0 && VM.activePlan.isMutator()) {
+      if (samplePoint.isZero()) bytesUntilSample = sampleBytes;
+      samplePoint = cursor.plus(bytesUntilSample);
+      clampToSamplePoint();
+    } else {
+      samplePoint = Address.zero();
+    }
+  }
+
+  /**
+   * Lower the internal limit to the sample point, so that the allocation
+   * that crosses it takes the internal slow path and is sampled.  This
+   * keeps the fast path free of any cost for sampling.
+   */
+  @Inline
+  private void clampToSamplePoint() {
+    if (!samplePoint.isZero() && internalLimit.GT(samplePoint))
+      internalLimit = samplePoint;
   }
 
   /**
@@ -189,6 +189,9 @@ public class ImmixAllocator extends Allocator {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(Block.isAligned(ptr));
     lineUseCount = LINES_IN_BLOCK;
 
+    /* spaces that are only copied into do not zero their blocks, but the mutator needs them zeroed */
+    if (!copy && !space.isZeroed()) zeroBlock(ptr);
+
     if (requestForLarge) {
       largeCursor = ptr;
       largeLimit = ptr.plus(BYTES_IN_BLOCK);
@@ -67,6 +67,18 @@ import org.vmmagic.unboxed.*;
     head = Deque.HEAD_INITIAL_VALUE;
   }
 
+  /**
+   * Return true if this queue holds values in its thread-local buffers.
+   * A dequeue that follows will then neither consult nor wait on the
+   * shared queue.
+   *
+   * @return true if there are values in the local head or tail buffers
+   */
+  @Inline
+  public final boolean hasLocalValues() {
+    return !bufferOffset(head).isZero() || tail.NE(tailBufferEnd);
+  }
+
   /**
    * Check whether there are values in the buffer for a pending dequeue.
    * If there is not data, grab the first buffer on the shared queue
@@ -17,6 +17,7 @@ import static org.mmtk.utility.Constants.*;
 import org.mmtk.policy.RawPageSpace;
 import org.mmtk.policy.Space;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
 import org.mmtk.vm.Lock;
 import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Entrypoint;
@@ -28,7 +29,13 @@ import org.vmmagic.unboxed.Offset;
 /**
  * This supports <i>unsynchronized</i> enqueuing and dequeuing of buffers
  * for shared use.  The data can be added to and removed from either end
- * of the deque.
+ * of the deque.<p>
+ *
+ * When prepared for parallel processing with work stealing enabled,
+ * buffers enqueued by a consumer go to that consumer's own deque in a
+ * {@link WorkStealingPool}, and consumers that run out of work steal
+ * buffers from each other.  The shared list of buffers then only holds
+ * buffers that overflow the per-consumer deques.
  */
 @Uninterruptible
 public class SharedDeque extends Deque {
@@ -55,6 +62,7 @@ public class SharedDeque extends Deque {
     this.arity = arity;
     this.name = name;
     lock = VM.newLock("SharedDeque");
+    stealPool = new WorkStealingPool(rps);
     clearCompletionFlag();
     head = HEAD_INITIAL_VALUE;
     tail = TAIL_INITIAL_VALUE;
@@ -75,6 +83,12 @@ public class SharedDeque extends Deque {
    */
   final void enqueue(Address buf, int arity, boolean toTail) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == this.arity);
+    if (stealing) {
+      int ordinal = consumerOrdinal();
+      if (stealPool.isConsumer(ordinal) && stealPool.push(ordinal, buf)) {
+        return;
+      }
+    }
     lock();
     if (toTail) {
       // Add to the tail of the queue
@@ -116,6 +130,9 @@ public class SharedDeque extends Deque {
 
   final Address dequeue(int arity, boolean fromTail) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == this.arity);
+    if (stealing) {
+      return dequeueStealing(false, fromTail);
+    }
     return dequeue(false, fromTail);
   }
 
@@ -126,6 +143,9 @@ public class SharedDeque extends Deque {
 
   final Address dequeueAndWait(int arity, boolean fromTail) {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(arity == this.arity);
+    if (stealing) {
+      return dequeueStealing(true, fromTail);
+    }
     Address buf = dequeue(false, fromTail);
     if (buf.isZero() && (!complete())) {
       buf = dequeue(true, fromTail);  // Wait inside dequeue
@@ -139,7 +159,9 @@ public class SharedDeque extends Deque {
    * is complete.
    */
   public final void prepare() {
-    if (DISABLE_WAITING) {
+    if (Options.workStealing.getValue()) {
+      prepareStealing(VM.activePlan.collector().parallelWorkerCount());
+    } else if (DISABLE_WAITING) {
       prepareNonBlocking();
     } else {
       /* This should be the normal mode of operation once performance is fixed */
@@ -155,6 +177,19 @@ public class SharedDeque extends Deque {
     prepare(1);
   }
 
+  /**
+   * Prepare for parallel processing with work stealing, where a specific
+   * number of threads take part.  Pop operations wait until all of the
+   * consumers have run out of work.
+   *
+   * @param consumers # threads taking part.
+   */
+  private void prepareStealing(int consumers) {
+    stealPool.prepare(consumers);
+    stealing = true;
+    clearCompletionFlag();
+  }
+
   /**
    * Prepare for parallel processing where a specific number
    * of threads take part.
@@ -167,11 +202,25 @@ public class SharedDeque extends Deque {
     clearCompletionFlag();
   }
 
+  /**
+   * Called by each consumer as it begins a round of processing, such
+   * as a transitive closure, so that the round's termination is not
+   * confused with that of an earlier round in the same collection.
+   */
+  public final void beginRound() {
+    if (stealing) {
+      int ordinal = consumerOrdinal();
+      if (stealPool.isConsumer(ordinal)) stealPool.beginRound(ordinal);
+    }
+  }
+
   public final void reset() {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(numConsumersWaiting == 0);
     clearCompletionFlag();
     setNumConsumersWaiting(0);
     assertExhausted();
+    stealPool.release();
+    stealing = false;
   }
 
   public final void assertExhausted() {
@@ -197,7 +246,7 @@ public class SharedDeque extends Deque {
 
   @Inline
   public final int enqueuedPages() {
-    return bufsenqueued * PAGES_PER_BUFFER;
+    return (bufsenqueued + stealPool.bufferCount()) * PAGES_PER_BUFFER;
   }
 
   /****************************************************************************
@@ -237,6 +286,12 @@ public class SharedDeque extends Deque {
   private volatile int bufsenqueued;
   private final Lock lock;
 
+  /** Per-consumer deques used for work stealing */
+  private final WorkStealingPool stealPool;
+
+  /** Are the consumers of this deque stealing work from each other? */
+  private boolean stealing;
+
   private static final long WARN_PERIOD = (long)(2 * 1E9);
   private static final long TIMEOUT_PERIOD = 10 * WARN_PERIOD;
 
@@ -326,6 +381,63 @@ public class SharedDeque extends Deque {
     return rtn;
   }
 
+  /**
+   * Dequeue a block when work stealing.  The consumer's own deque is
+   * tried first, then the shared list of overflow buffers, and then the
+   * deques of the other consumers.<p>
+   *
+   * If 'waiting' is true and no work can be found, the consumer
+   * becomes idle until either work appears or all consumers are idle,
+   * at which point processing is complete and zero is returned.
+   *
+   * @param waiting whether to wait for work if none is present
+   * @param fromTail whether to dequeue from the tail of the shared list
+   * @return the Address of the block, or zero if there is no work
+   */
+  private Address dequeueStealing(boolean waiting, boolean fromTail) {
+    int ordinal = consumerOrdinal();
+    if (!stealPool.isConsumer(ordinal)) {
+      return dequeue(false, fromTail);
+    }
+    Address buf = stealPool.pop(ordinal);
+    if (buf.isZero()) buf = dequeue(false, fromTail);
+    if (buf.isZero()) buf = stealPool.steal(ordinal);
+    if (!buf.isZero() || !waiting || stealPool.isTerminated(ordinal)) {
+      return buf;
+    }
+
+    long startNano = VM.statistics.nanoTime();
+    stealPool.enterIdle(ordinal);
+    while (!stealPool.isTerminated(ordinal)) {
+      VM.memory.combinedLoadBarriers();
+      if (!head.isZero() || stealPool.hasWork()) {
+        stealPool.leaveIdle(ordinal);
+        buf = dequeue(false, fromTail);
+        if (buf.isZero()) buf = stealPool.steal(ordinal);
+        if (!buf.isZero()) {
+          stealPool.recordIdle(ordinal, VM.statistics.nanoTime() - startNano);
+          return buf;
+        }
+        stealPool.enterIdle(ordinal);
+      } else if (stealPool.allIdle(ordinal)) {
+        if (TRACE) Log.writeln("-- work stealing terminated by ", ordinal);
+        stealPool.terminate(ordinal);
+      }
+    }
+    stealPool.recordIdle(ordinal, VM.statistics.nanoTime() - startNano);
+    return Address.zero();
+  }
+
+  /**
+   * @return the ordinal of the calling consumer, or -1 if the caller
+   *  is not a collector
+   */
+  @Inline
+  private static int consumerOrdinal() {
+    if (VM.activePlan.isMutator()) return -1;
+    return VM.activePlan.collector().parallelWorkerOrdinal();
+  }
+
   /**
    * Spinwait for GC work to arrive
    *
@@ -0,0 +1,415 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.deque;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.policy.RawPageSpace;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * A set of per-consumer work-stealing deques of buffers, in the style of
+ * Chase and Lev, together with the termination protocol used by the
+ * consumers that share them.<p>
+ *
+ * Each consumer pushes and pops buffers at the bottom of its own deque
+ * without synchronization, while consumers that have run out of work
+ * steal buffers from the top of other consumers' deques with a single
+ * compare-and-swap.  Each deque occupies a single page and so has a
+ * fixed capacity; a push to a full deque fails and the caller falls back
+ * to its shared (locked) list of buffers.<p>
+ *
+ * All state is held in raw pages acquired when the pool is prepared, so
+ * no allocation is required during a collection.  The first page holds
+ * the termination state, followed by one page per consumer deque.<p>
+ *
+ * A collection may make several passes (rounds) over the same pool, for
+ * example a transitive closure after each kind of reference is
+ * processed.  Each consumer counts the rounds it has begun, and the
+ * termination state is tagged with the round it belongs to, so state
+ * left over from an earlier round is never mistaken for the current
+ * one.
+ */
+@Uninterruptible
+public final class WorkStealingPool {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** Number of buffers stolen from other consumers */
+  private static final EventCounter steals = new EventCounter("wsSteals");
+
+  /** Time consumers spent idle waiting for work or termination */
+  private static final EventCounter idleMicros = new EventCounter("wsIdleMicros");
+
+  /* Layout of the control page.  The idle word holds the round in its
+   * high bits and the number of idle consumers in its low bits. */
+  private static final Offset IDLE_OFFSET = Offset.zero();
+  private static final Offset TERMINATED_OFFSET = Offset.fromIntZeroExtend(BYTES_IN_INT);
+  private static final int LOG_MAX_CONSUMERS = 16;
+  private static final int IDLE_MASK = (1 << LOG_MAX_CONSUMERS) - 1;
+  private static final int ROUND_MASK = (1 << (BITS_IN_INT - 1 - LOG_MAX_CONSUMERS)) - 1;
+  private static final int NO_ROUND = -1;
+
+  /* Layout of each deque page.  The top index, written by thieves, is kept
+   * on a separate cache line from the fields written by the owner. */
+  private static final Offset TOP_OFFSET = Offset.zero();
+  private static final Offset BOTTOM_OFFSET = Offset.fromIntZeroExtend(64);
+  private static final Offset STEALS_OFFSET = BOTTOM_OFFSET.plus(BYTES_IN_INT);
+  private static final Offset IDLE_NANOS_OFFSET = BOTTOM_OFFSET.plus(2 * BYTES_IN_INT);
+  private static final Offset ROUND_OFFSET = IDLE_NANOS_OFFSET.plus(BYTES_IN_LONG);
+  private static final Offset SLOTS_OFFSET = Offset.fromIntZeroExtend(128);
+
+  /** The number of buffers each deque can hold */
+  private static final int CAPACITY = (BYTES_IN_PAGE - SLOTS_OFFSET.toInt()) >> LOG_BYTES_IN_ADDRESS;
+
+  /****************************************************************************
+   *
+   * Instance variables
+   */
+
+  /** The space from which pages are acquired */
+  private final RawPageSpace rps;
+
+  /** The control page, followed by the deques, or zero if not prepared */
+  private Address base = Address.zero();
+
+  /** The number of consumers taking part */
+  private int consumers;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * @param rps the space from which to acquire pages
+   */
+  WorkStealingPool(RawPageSpace rps) {
+    this.rps = rps;
+  }
+
+  /**
+   * Prepare for processing by a given number of consumers, resetting the
+   * termination state.  The deques are acquired on the first call in each
+   * collection, and retained (along with any buffers they hold) on
+   * subsequent calls.
+   *
+   * @param consumers The number of consumers taking part
+   */
+  void prepare(int consumers) {
+    if (base.isZero()) {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(consumers <= IDLE_MASK);
+      base = rps.acquire(consumers + 1);
+      if (base.isZero()) {
+        Space.printUsageMB();
+        VM.assertions.fail("Failed to allocate space for work-stealing deques.  Is metadata virtual memory exhausted?");
+      }
+      this.consumers = consumers;
+      for (int i = 0; i < consumers; i++) {
+        Address deque = dequeFor(i);
+        deque.store(0, TOP_OFFSET);
+        deque.store(0, BOTTOM_OFFSET);
+        deque.store(0, STEALS_OFFSET);
+        deque.store(0L, IDLE_NANOS_OFFSET);
+        deque.store(0, ROUND_OFFSET);
+      }
+    }
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(consumers == this.consumers);
+    base.store(0, IDLE_OFFSET);
+    base.store(NO_ROUND, TERMINATED_OFFSET);
+    VM.memory.fence();
+  }
+
+  /**
+   * Release the deques (which must be empty) at the end of a collection,
+   * accumulating their statistics.
+   */
+  void release() {
+    if (base.isZero()) return;
+    long nanos = 0;
+    for (int i = 0; i < consumers; i++) {
+      Address deque = dequeFor(i);
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(deque.loadInt(TOP_OFFSET) == deque.loadInt(BOTTOM_OFFSET));
+      steals.inc(deque.loadInt(STEALS_OFFSET));
+      nanos += deque.loadLong(IDLE_NANOS_OFFSET);
+    }
+    idleMicros.inc(nanos / 1000);
+    rps.release(base);
+    base = Address.zero();
+  }
+
+  /**
+   * @return {@code true} if the pool has been prepared for this collection
+   */
+  @Inline
+  boolean isPrepared() {
+    return !base.isZero();
+  }
+
+  /**
+   * @param ordinal A consumer ordinal
+   * @return {@code true} if the given consumer has a deque in this pool
+   */
+  @Inline
+  boolean isConsumer(int ordinal) {
+    return ordinal >= 0 && ordinal < consumers;
+  }
+
+  /****************************************************************************
+   *
+   * Deque operations
+   */
+
+  /**
+   * Push a buffer onto the bottom of a consumer's own deque.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   * @param buf The buffer
+   * @return {@code false} if the deque is full
+   */
+  boolean push(int ordinal, Address buf) {
+    Address deque = dequeFor(ordinal);
+    int b = deque.loadInt(BOTTOM_OFFSET);
+    int t = deque.loadInt(TOP_OFFSET);
+    if (b - t >= CAPACITY) {
+      return false;
+    }
+    deque.store(buf, slot(b));
+    VM.memory.fence();  // publish the buffer before the new bottom
+    deque.store(b + 1, BOTTOM_OFFSET);
+    return true;
+  }
+
+  /**
+   * Pop a buffer from the bottom of a consumer's own deque.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   * @return The buffer, or zero if the deque is empty
+   */
+  Address pop(int ordinal) {
+    Address deque = dequeFor(ordinal);
+    int b = deque.loadInt(BOTTOM_OFFSET) - 1;
+    deque.store(b, BOTTOM_OFFSET);
+    VM.memory.fence();  // the new bottom must be visible before reading top
+    int t = deque.loadInt(TOP_OFFSET);
+    if (t > b) {
+      deque.store(b + 1, BOTTOM_OFFSET);
+      return Address.zero();
+    }
+    Address buf = deque.loadAddress(slot(b));
+    if (t == b) {
+      /* Last buffer: race against thieves for it */
+      if (!compareAndSwap(deque, TOP_OFFSET, t, t + 1)) {
+        buf = Address.zero();
+      }
+      deque.store(b + 1, BOTTOM_OFFSET);
+    }
+    return buf;
+  }
+
+  /**
+   * Attempt to steal a buffer from the top of another consumer's deque.
+   * Victims are visited in turn, starting with the thief's neighbour.
+   *
+   * @param thief The consumer attempting the steal
+   * @return The stolen buffer, or zero if no buffer could be stolen
+   */
+  Address steal(int thief) {
+    for (int i = 1; i < consumers; i++) {
+      int victim = thief + i;
+      if (victim >= consumers) victim -= consumers;
+      Address deque = dequeFor(victim);
+      int t = deque.loadInt(TOP_OFFSET);
+      VM.memory.combinedLoadBarriers();
+      int b = deque.loadInt(BOTTOM_OFFSET);
+      if (t < b) {
+        Address buf = deque.loadAddress(slot(t));
+        if (compareAndSwap(deque, TOP_OFFSET, t, t + 1)) {
+          Address mine = dequeFor(thief);
+          mine.store(mine.loadInt(STEALS_OFFSET) + 1, STEALS_OFFSET);
+          return buf;
+        }
+      }
+    }
+    return Address.zero();
+  }
+
+  /**
+   * @return {@code true} if any deque holds buffers (racy, used as a hint)
+   */
+  boolean hasWork() {
+    return bufferCount() > 0;
+  }
+
+  /**
+   * @return The number of buffers held in the deques (racy, used as a hint)
+   */
+  int bufferCount() {
+    if (base.isZero()) return 0;
+    int count = 0;
+    for (int i = 0; i < consumers; i++) {
+      Address deque = dequeFor(i);
+      int n = deque.loadInt(BOTTOM_OFFSET) - deque.loadInt(TOP_OFFSET);
+      if (n > 0) count += n;
+    }
+    return count;
+  }
+
+  /****************************************************************************
+   *
+   * Termination
+   */
+
+  /**
+   * The calling consumer is starting a new round of processing.  Every
+   * consumer must begin the same rounds.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   */
+  void beginRound(int ordinal) {
+    Address deque = dequeFor(ordinal);
+    deque.store((deque.loadInt(ROUND_OFFSET) + 1) & ROUND_MASK, ROUND_OFFSET);
+  }
+
+  /**
+   * The calling consumer has run out of work.  Consumers only become
+   * idle with empty deques, so once every consumer is idle there is no
+   * work left anywhere and processing is complete.  The first consumer
+   * to become idle in a round discards the idle count of the previous
+   * round.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   */
+  void enterIdle(int ordinal) {
+    int round = dequeFor(ordinal).loadInt(ROUND_OFFSET);
+    int old, value;
+    do {
+      old = base.prepareInt(IDLE_OFFSET);
+      value = (old >>> LOG_MAX_CONSUMERS) == round ? old + 1 : (round << LOG_MAX_CONSUMERS) + 1;
+    } while (!base.attempt(old, value, IDLE_OFFSET));
+  }
+
+  /**
+   * The calling consumer has seen work and is about to try to take it.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   */
+  void leaveIdle(int ordinal) {
+    int old = fetchAndAdd(base, IDLE_OFFSET, -1);
+    if (VM.VERIFY_ASSERTIONS) {
+      VM.assertions._assert((old >>> LOG_MAX_CONSUMERS) == dequeFor(ordinal).loadInt(ROUND_OFFSET));
+      VM.assertions._assert((old & IDLE_MASK) > 0);
+    }
+  }
+
+  /**
+   * @param ordinal The consumer (which must be the caller)
+   * @return {@code true} if every consumer is idle in the caller's round
+   */
+  boolean allIdle(int ordinal) {
+    int round = dequeFor(ordinal).loadInt(ROUND_OFFSET);
+    return base.loadInt(IDLE_OFFSET) == ((round << LOG_MAX_CONSUMERS) | consumers);
+  }
+
+  /**
+   * Record that processing is complete for the caller's round.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   */
+  void terminate(int ordinal) {
+    base.store(dequeFor(ordinal).loadInt(ROUND_OFFSET), TERMINATED_OFFSET);
+  }
+
+  /**
+   * @param ordinal The consumer (which must be the caller)
+   * @return {@code true} if processing is complete for the caller's round
+   */
+  boolean isTerminated(int ordinal) {
+    return base.loadInt(TERMINATED_OFFSET) == dequeFor(ordinal).loadInt(ROUND_OFFSET);
+  }
+
+  /**
+   * Account for time a consumer spent idle.
+   *
+   * @param ordinal The consumer (which must be the caller)
+   * @param nanos The idle time
+   */
+  void recordIdle(int ordinal, long nanos) {
+    Address deque = dequeFor(ordinal);
+    deque.store(deque.loadLong(IDLE_NANOS_OFFSET) + nanos, IDLE_NANOS_OFFSET);
+  }
+
+  /****************************************************************************
+   *
+   * Private methods
+   */
+
+  /**
+   * @param ordinal A consumer
+   * @return The page holding the consumer's deque
+   */
+  @Inline
+  private Address dequeFor(int ordinal) {
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(isConsumer(ordinal));
+    return base.plus((ordinal + 1) << LOG_BYTES_IN_PAGE);
+  }
+
+  /**
+   * @param index A (monotonically increasing) deque index
+   * @return The offset of the slot for the index within a deque page
+   */
+  @Inline
+  private static Offset slot(int index) {
+    return SLOTS_OFFSET.plus((index % CAPACITY) << LOG_BYTES_IN_ADDRESS);
+  }
+
+  /**
+   * Atomically compare and swap an int in raw memory.
+   *
+   * @param addr The base address
+   * @param offset The offset of the int
+   * @param old The expected value
+   * @param value The new value
+   * @return {@code true} if the swap succeeded
+   */
+  @Inline
+  private static boolean compareAndSwap(Address addr, Offset offset, int old, int value) {
+    if (addr.prepareInt(offset) != old) return false;
+    return addr.attempt(old, value, offset);
+  }
+
+  /**
+   * Atomically add to an int in raw memory.
+   *
+   * @param addr The base address
+   * @param offset The offset of the int
+   * @param delta The amount to add
+   * @return The previous value
+   */
+  @Inline
+  private static int fetchAndAdd(Address addr, Offset offset, int delta) {
+    int old;
+    do {
+      old = addr.prepareInt(offset);
+    } while (!addr.attempt(old, old + delta, offset));
+    return old;
+  }
+}
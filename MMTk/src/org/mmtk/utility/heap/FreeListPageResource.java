@@ -33,7 +33,13 @@ import org.vmmagic.unboxed.Extent;
  * This class manages the allocation of pages for a space.  When a
  * page is requested by the space both a page budget and the use of
  * virtual address space are checked.  If the request for space can't
- * be satisfied (for either reason) a GC may be triggered.
+ * be satisfied (for either reason) a GC may be triggered.<p>
+ *
+ * With concurrent zeroing, a zeroing context takes units of a fixed
+ * number of pages off the free list and zeroes them ahead of demand.
+ * Requests for exactly one unit are then satisfied from the zeroed
+ * units without zeroing.  Zeroed units still count as free pages, and
+ * are returned to the free list when concurrent zeroing is skipped.
  */
 @Uninterruptible
 public final class FreeListPageResource extends PageResource {
@@ -45,6 +51,15 @@ public final class FreeListPageResource extends PageResource {
   private final int metaDataPagesPerRegion;
   private int pagesCurrentlyOnFreeList = 0;
 
+  /** The number of units that are kept zeroed ahead of demand */
+  private static final int ZEROED_UNITS = 32;
+
+  /** The number of pages in a unit zeroed ahead of demand, or zero */
+  private int zeroingUnitPages = 0;
+  /** The page offsets of the units zeroed ahead of demand */
+  private int[] zeroedUnits;
+  private int zeroedUnitCount = 0;
+
   /**
    * Constructor
    *
@@ -155,7 +170,16 @@ public final class FreeListPageResource extends PageResource {
     if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(metaDataPagesPerRegion == 0 || requiredPages <= PAGES_IN_CHUNK - metaDataPagesPerRegion);
     lock();
     boolean newChunk = false;
-    int pageOffset = freeList.alloc(requiredPages);
+    boolean prezeroed = false;
+    boolean refill = false;
+    int pageOffset = GenericFreeList.FAILURE;
+    if (zeroedUnitCount > 0 && requiredPages == zeroingUnitPages) {
+      pageOffset = zeroedUnits[--zeroedUnitCount];
+      prezeroed = true;
+      refill = zeroedUnitCount == ZEROED_UNITS / 2;
+    } else {
+      pageOffset = freeList.alloc(requiredPages);
+    }
     if (pageOffset == GenericFreeList.FAILURE && growable) {
       pageOffset = allocateContiguousChunks(requiredPages);
       newChunk = true;
@@ -181,14 +205,103 @@ public final class FreeListPageResource extends PageResource {
       commitPages(reservedPages, requiredPages);
       space.growSpace(rtn, bytes, newChunk);
       unlock();
-      HeapLayout.mmapper.ensureMapped(rtn, requiredPages);
-      if (zeroed)
+      if (refill && zeroConcurrent)
+        zeroingContext.trigger();
+      HeapLayout.mmapper.ensureMapped(rtn, requiredPages, space.usesHugePages());
+      if (zeroed && !prezeroed)
         VM.memory.zero(zeroNT, rtn, bytes);
       VM.events.tracePageAcquired(space, rtn, requiredPages);
       return rtn;
     }
   }
 
+  /****************************************************************************
+   *
+   * Concurrent zeroing
+   */
+
+  /**
+   * Set the size of the units zeroed ahead of demand.  This must be the
+   * size of (almost) every request made of this page resource, and must
+   * be set before concurrent zeroing is enabled.
+   *
+   * @param pages The number of pages in a unit
+   */
+  public void setZeroingUnit(int pages) {
+    zeroingUnitPages = pages;
+  }
+
+  @Override
+  protected boolean supportsConcurrentZeroing() {
+    return zeroingUnitPages > 0;
+  }
+
+  @Override
+  @Interruptible
+  public void updateZeroingApproach(boolean nontemporal, boolean concurrent) {
+    if (concurrent) zeroedUnits = new int[ZEROED_UNITS];
+    super.updateZeroingApproach(nontemporal, concurrent);
+  }
+
+  /**
+   * Return the units zeroed ahead of demand to the free list, and stop
+   * zeroing further units until concurrent zeroing is next triggered.
+   * This allows the pages of the units to be coalesced and their chunks
+   * released during a collection.
+   */
+  @Override
+  public void skipConcurrentZeroing() {
+    lock();
+    zeroConcurrent = false;
+    while (zeroedUnitCount > 0) {
+      freeZeroedUnit(zeroedUnits[--zeroedUnitCount]);
+    }
+    unlock();
+  }
+
+  /**
+   * The entry point for the concurrent zeroing context.  Zero units
+   * taken from the free list until enough are zeroed, no free pages
+   * remain, or concurrent zeroing is skipped.
+   */
+  @Override
+  public void concurrentZeroing() {
+    while (true) {
+      lock();
+      if (!zeroConcurrent || zeroedUnitCount == ZEROED_UNITS) {
+        unlock();
+        return;
+      }
+      int pageOffset = freeList.alloc(zeroingUnitPages);
+      unlock();
+      if (pageOffset == GenericFreeList.FAILURE) return;
+
+      Address first = start.plus(Conversions.pagesToBytes(pageOffset));
+      HeapLayout.mmapper.ensureMapped(first, zeroingUnitPages, space.usesHugePages());
+      VM.memory.zero(zeroNT, first, Conversions.pagesToBytes(zeroingUnitPages));
+
+      lock();
+      if (zeroConcurrent) {
+        zeroedUnits[zeroedUnitCount++] = pageOffset;
+      } else {
+        freeZeroedUnit(pageOffset);
+      }
+      unlock();
+    }
+  }
+
+  /**
+   * Return a unit zeroed ahead of demand to the free list.  The lock
+   * must be held.
+   *
+   * @param pageOffset The page offset of the unit
+   */
+  private void freeZeroedUnit(int pageOffset) {
+    int freed = freeList.free(pageOffset, true);
+    if (!contiguous) // only discontiguous spaces use chunks
+      releaseFreeChunks(start.plus(Conversions.pagesToBytes(pageOffset)), freed);
+  }
+
   /**
    * Release a group of pages, associated with this page resource,
    * that were allocated together, optionally zeroing on release and
@@ -298,6 +411,10 @@ public final class FreeListPageResource extends PageResource {
         if (metaDataPagesPerRegion > 1) {
           freeList.alloc(metaDataPagesPerRegion, p); // carve out space for metadata
         }
+        if (metaDataPagesPerRegion > 0) {
+          /* metadata is used without being allocated, so it must not be left free or decommitted */
+          HeapLayout.mmapper.ensureMapped(start.plus(Conversions.pagesToBytes(p)), metaDataPagesPerRegion, space.usesHugePages());
+        }
         pagesCurrentlyOnFreeList += PAGES_IN_CHUNK - metaDataPagesPerRegion;
       }
       rtn = freeList.alloc(pages); // re-do the request which triggered this call
@@ -328,6 +445,8 @@ public final class FreeListPageResource extends PageResource {
       chunkStart += PAGES_IN_CHUNK;
       pagesCurrentlyOnFreeList -= (PAGES_IN_CHUNK - metaDataPagesPerRegion);
     }
+    /* the memory may be returned to the OS once it has stayed free for long enough */
+    HeapLayout.mmapper.markAsFree(chunk, numChunks * PAGES_IN_CHUNK);
     /* now return the address space associated with the chunk for global reuse */
     space.releaseDiscontiguousChunks(chunk);
   }
@@ -17,6 +17,7 @@ import static org.mmtk.utility.Constants.*;
 import org.mmtk.plan.Plan;
 import org.mmtk.utility.*;
 import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
 
 import org.mmtk.vm.VM;
 
@@ -25,7 +26,12 @@ import org.vmmagic.unboxed.*;
 
 /**
  * This class is responsible for growing and shrinking the
- * heap size by observing heap utilization and GC load.
+ * heap size by observing heap utilization and GC load.<p>
+ *
+ * By default the change in heap size is interpolated from a table
+ * indexed by live ratio and GC load.  When the <code>GCOverheadTarget</code>
+ * option is set, the heap is instead sized so that the GC load, smoothed
+ * over a window of recent major collections, meets the target.
  */
 @Uninterruptible public abstract class HeapGrowthManager {
 
@@ -87,6 +93,31 @@ import org.vmmagic.unboxed.*;
   private static long endLastMajorGC;
   private static double accumulatedGCTime;
 
+  /** The number of major collection intervals over which GC load is smoothed */
+  private static final int OVERHEAD_WINDOW = 5;
+
+  /** GC load within this factor of the target does not change the heap size */
+  private static final double OVERHEAD_TOLERANCE = 1.2;
+
+  /** The largest factor by which the heap may grow after a collection */
+  private static final double MAX_GROWTH_RATIO = 2.0;
+
+  /** The largest factor by which the heap may shrink after a collection */
+  private static final double MAX_SHRINK_RATIO = 0.8;
+
+  /** GC time (ms) for each of the last major collection intervals */
+  private static final double[] windowGCTime = new double[OVERHEAD_WINDOW];
+
+  /** Total time (ms) for each of the last major collection intervals */
+  private static final double[] windowTotalTime = new double[OVERHEAD_WINDOW];
+
+  /** The number of intervals recorded, used to index the window */
+  private static int windowIntervals;
+
+  /* Heap sizing decisions made under the GC overhead target */
+  private static final EventCounter heapGrow = new EventCounter("heapGrow", true, true);
+  private static final EventCounter heapShrink = new EventCounter("heapShrink", true, true);
+
   /**
    * Initialize heap size parameters and the mechanisms
    * used to adaptively change heap size.
@@ -170,7 +201,7 @@ import org.vmmagic.unboxed.*;
     Extent oldSize = currentHeapSize;
     Extent reserved = Plan.reservedMemory();
     double liveRatio = reserved.toLong() / ((double) currentHeapSize.toLong());
-    double ratio = computeHeapChangeRatio(liveRatio);
+    double ratio = Options.gcOverheadTarget.getValue() > 0 ? computeOverheadChangeRatio(liveRatio) : computeHeapChangeRatio(liveRatio);
     Extent newSize = Word.fromIntSignExtend((int)(ratio * (oldSize.toLong() >> LOG_BYTES_IN_MBYTE))).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // do arith in MB to avoid overflow
     if (newSize.LT(reserved)) newSize = reserved;
     newSize = newSize.plus(BYTES_IN_MBYTE - 1).toWord().rshl(LOG_BYTES_IN_MBYTE).lsh(LOG_BYTES_IN_MBYTE).toExtent(); // round to next megabyte
@@ -186,12 +217,68 @@ import org.vmmagic.unboxed.*;
         Log.writeln("KB");
       }
       VM.events.heapSizeChanged(currentHeapSize);
+      if (Options.gcOverheadTarget.getValue() > 0) {
+        if (newSize.GT(oldSize)) heapGrow.inc(); else heapShrink.inc();
+      }
       return true;
     } else {
       return false;
     }
   }
 
+  /**
+   * Compute the heap change ratio that meets the GC overhead target.<p>
+   *
+   * GC load is taken to be inversely proportional to the free space in
+   * the heap, so the heap that meets the target leaves
+   * <code>load / target</code> times the current free space free.  The
+   * load is smoothed over the last <code>OVERHEAD_WINDOW</code> major
+   * collection intervals, and loads close to the target leave the heap
+   * unchanged to avoid oscillation.
+   *
+   * @param liveRatio the ratio of reserved memory to the current heap size
+   * @return the factor by which to change the heap size
+   */
+  private static double computeOverheadChangeRatio(double liveRatio) {
+    // (1) record this interval, and compute the smoothed GC load
+    int slot = windowIntervals++ % OVERHEAD_WINDOW;
+    windowGCTime[slot] = accumulatedGCTime;
+    windowTotalTime[slot] = VM.statistics.nanosToMillis(VM.statistics.nanoTime() - endLastMajorGC);
+    double gcTime = 0;
+    double totalTime = 0;
+    int intervals = windowIntervals < OVERHEAD_WINDOW ? windowIntervals : OVERHEAD_WINDOW;
+    for (int i = 0; i < intervals; i++) {
+      gcTime += windowGCTime[i];
+      totalTime += windowTotalTime[i];
+    }
+    double gcLoad = totalTime > 0 ? gcTime / totalTime : 0;
+    if (gcLoad > 1) gcLoad = 1;
+    if (liveRatio > 1) liveRatio = 1;
+    double target = Options.gcOverheadTarget.getValue();
+
+    // (2) solve for the heap size that meets the target
+    double factor;
+    if (gcLoad > target / OVERHEAD_TOLERANCE && gcLoad < target * OVERHEAD_TOLERANCE) {
+      factor = 1;
+    } else {
+      factor = liveRatio + (1 - liveRatio) * (gcLoad / target);
+      if (factor > MAX_GROWTH_RATIO) factor = MAX_GROWTH_RATIO;
+      if (factor < MAX_SHRINK_RATIO) factor = MAX_SHRINK_RATIO;
+    }
+
+    if (Options.verbose.getValue() >= 2) {
+      Log.write("GC Message: GC overhead ");
+      Log.write(gcLoad);
+      Log.write(" (target ");
+      Log.write(target);
+      Log.write(", live ratio ");
+      Log.write(liveRatio);
+      Log.write("), heap adjustment factor ");
+      Log.writeln(factor);
+    }
+    return factor;
+  }
+
   private static double computeHeapChangeRatio(double liveRatio) {
     // (1) compute GC load.
     long totalNanos = VM.statistics.nanoTime() - endLastMajorGC;
@@ -187,7 +187,7 @@ public final class MonotonePageResource extends PageResource {
       commitPages(reservedPages, requiredPages);
       space.growSpace(old, bytes, newChunk);
       unlock();
-      HeapLayout.mmapper.ensureMapped(old, requiredPages);
+      HeapLayout.mmapper.ensureMapped(old, requiredPages, space.usesHugePages());
       if (zeroed) {
         if (!zeroConcurrent) {
           VM.memory.zero(zeroNT, old, bytes);
@@ -290,6 +290,7 @@ public final class MonotonePageResource extends PageResource {
       if (cursor.GT(zeroingSentinel)) {
         zeroingSentinel = cursor;
       }
+      HeapLayout.mmapper.markAsFree(start, Conversions.bytesToPages(cursor.diff(start)));
       zeroingCursor = start;
       cursor = start;
       currentChunk = Conversions.chunkAlign(start, true);
@@ -298,6 +299,8 @@ public final class MonotonePageResource extends PageResource {
         do {
           Extent bytes = cursor.diff(currentChunk).toWord().toExtent();
           releasePages(currentChunk, bytes);
+          Extent regionBytes = HeapLayout.vmMap.getContiguousRegionSize(currentChunk);
+          HeapLayout.mmapper.markAsFree(currentChunk, Conversions.bytesToPages(regionBytes));
         } while (moveToNextChunk());
 
         currentChunk = Address.zero();
@@ -0,0 +1,142 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.heap;
+
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class is responsible for sizing the nursery of generational
+ * collectors so that nursery pauses meet a pause time goal.<p>
+ *
+ * The cost of a nursery collection is modelled as being proportional
+ * to the number of pages that survive it, and the number of surviving
+ * pages as a fraction (the survival rate) of the size of the nursery.
+ * Both the cost per surviving page and the survival rate are smoothed
+ * over recent nursery collections, and give the nursery size predicted
+ * to meet the goal.  The nursery only shrinks when the last pause
+ * exceeded the goal, only grows when the last pause was comfortably
+ * under it, and always stays within the bounds given by the
+ * <code>NurserySize</code> options.
+ */
+@Uninterruptible
+public abstract class NurserySizeManager {
+
+  /** The weight given to the most recent collection when smoothing */
+  private static final double SMOOTHING = 0.3;
+
+  /** Pauses below this fraction of the goal allow the nursery to grow */
+  private static final double GROW_THRESHOLD = 0.8;
+
+  /** The largest factor by which the nursery may grow after a collection */
+  private static final double MAX_GROWTH = 1.5;
+
+  /** The largest factor by which the nursery may shrink after a collection */
+  private static final double MAX_SHRINK = 0.5;
+
+  /**
+   * The current nursery size in pages, or zero if not yet sized
+   */
+  private static int nurseryPages;
+
+  /**
+   * The smoothed fraction of nursery pages surviving a nursery collection
+   */
+  private static double survivalRate = -1;
+
+  /**
+   * The smoothed pause time per surviving page, in nanoseconds
+   */
+  private static double nanosPerSurvivingPage = -1;
+
+  /**
+   * @return {@code true} if the nursery is sized to meet a pause goal
+   */
+  public static boolean isEnabled() {
+    return Options.pauseGoal.getValue() > 0;
+  }
+
+  /**
+   * Return the number of pages the nursery may grow to before a
+   * nursery collection is required.
+   *
+   * @return The current nursery size in pages
+   */
+  public static int getNurseryPages() {
+    if (!isEnabled()) return Options.nurserySize.getMaxNursery();
+    if (nurseryPages == 0) nurseryPages = Options.nurserySize.getMaxNursery();
+    return nurseryPages;
+  }
+
+  /**
+   * Record the outcome of a nursery collection and resize the nursery
+   * for the next one.
+   *
+   * @param pauseNanos The duration of the collection
+   * @param collectedPages The size of the nursery when it was collected, in pages
+   * @param survivorPages The number of pages that survived the collection
+   */
+  public static void recordNurseryCollection(long pauseNanos, int collectedPages, int survivorPages) {
+    if (!isEnabled() || collectedPages <= 0) return;
+
+    /* (1) Update the smoothed model */
+    double survival = survivorPages / (double) collectedPages;
+    survivalRate = survivalRate < 0 ? survival : SMOOTHING * survival + (1 - SMOOTHING) * survivalRate;
+    if (survivorPages > 0) {
+      double cost = pauseNanos / (double) survivorPages;
+      nanosPerSurvivingPage = nanosPerSurvivingPage < 0 ? cost : SMOOTHING * cost + (1 - SMOOTHING) * nanosPerSurvivingPage;
+    }
+
+    /* (2) Predict the nursery size that meets the goal */
+    int oldPages = getNurseryPages();
+    double goalNanos = Options.pauseGoal.getValue() * 1e6;
+    double target;
+    if (survivalRate <= 0 || nanosPerSurvivingPage <= 0) {
+      target = oldPages * MAX_GROWTH;
+    } else {
+      target = goalNanos / (nanosPerSurvivingPage * survivalRate);
+    }
+
+    /* (3) Damp the change, only moving in the direction the last pause indicates */
+    if (pauseNanos > goalNanos) {
+      if (target > oldPages) target = oldPages;
+    } else if (pauseNanos < GROW_THRESHOLD * goalNanos) {
+      if (target < oldPages) target = oldPages;
+    } else {
+      target = oldPages;
+    }
+    if (target > oldPages * MAX_GROWTH) target = oldPages * MAX_GROWTH;
+    if (target < oldPages * MAX_SHRINK) target = oldPages * MAX_SHRINK;
+
+    int newPages = (int) target;
+    if (newPages > Options.nurserySize.getMaxNursery()) newPages = Options.nurserySize.getMaxNursery();
+    if (newPages < Options.nurserySize.getMinNursery()) newPages = Options.nurserySize.getMinNursery();
+    nurseryPages = newPages;
+
+    if (Options.verbose.getValue() >= 2 && newPages != oldPages) {
+      Log.write("GC Message: Nursery changed from ");
+      Log.write(oldPages);
+      Log.write(" to ");
+      Log.write(newPages);
+      Log.write(" pages (pause ");
+      Log.write(VM.statistics.nanosToMillis(pauseNanos));
+      Log.write("ms, survival ");
+      Log.write(survivalRate);
+      Log.writeln(")");
+    }
+  }
+}
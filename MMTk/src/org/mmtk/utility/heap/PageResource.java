@@ -184,7 +184,7 @@ public abstract class PageResource {
    */
   @Interruptible
   public void updateZeroingApproach(boolean nontemporal, boolean concurrent) {
-    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!concurrent || contiguous);
+    if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!concurrent || supportsConcurrentZeroing());
     this.zeroNT = nontemporal;
     this.zeroConcurrent = concurrent;
     if (concurrent) {
@@ -193,6 +193,13 @@ public abstract class PageResource {
     }
   }
 
+  /**
+   * @return {@code true} if this page resource can zero pages concurrently
+   */
+  protected boolean supportsConcurrentZeroing() {
+    return contiguous;
+  }
+
   /**
    * Skip concurrent zeroing (fall back to bulk zeroing).
    */
@@ -38,13 +38,20 @@ public final class VMRequest {
   public final Extent extent;
   public final float frac;
   public final boolean top;
+  /** Should the space be backed by huge pages (when enabled by the hugePages option)? */
+  public final boolean hugePages;
 
   private VMRequest(int type, Address start, Extent bytes, float frac, boolean top) {
+    this(type, start, bytes, frac, top, false);
+  }
+
+  private VMRequest(int type, Address start, Extent bytes, float frac, boolean top, boolean hugePages) {
     this.type = type;
     this.start = start;
     this.extent = bytes;
     this.frac = frac;
     this.top = top;
+    this.hugePages = hugePages;
   }
 
   /**
@@ -141,4 +148,15 @@ public final class VMRequest {
     }
     return new VMRequest(REQUEST_EXTENT, Address.zero(), extent, 0f, top);
   }
+
+  /**
+   * This request, additionally asking for the space to be backed by huge
+   * pages.  This is a hint, which only takes effect when the hugePages
+   * option is enabled and the operating system supports it.
+   *
+   * @return The request object
+   */
+  public VMRequest withHugePages() {
+    return new VMRequest(type, start, extent, frac, top, true);
+  }
 }
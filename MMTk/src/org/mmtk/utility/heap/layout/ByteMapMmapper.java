@@ -38,6 +38,7 @@ public final class ByteMapMmapper extends Mmapper {
   public static final byte UNMAPPED = 0;
   public static final byte MAPPED = 1;
   public static final byte PROTECTED = 2; // mapped but not accessible
+  // DECOMMITTED and FREE states are defined by Mmapper
 
   /**
    * Number of chunks that can be mmapped, 64bit work around allowing 8GB
@@ -119,8 +120,10 @@ public final class ByteMapMmapper extends Mmapper {
   public void markAsMapped(Address start, int bytes) {
     int startChunk = addressToMmapChunksDown(start);
     int endChunk = addressToMmapChunksUp(start.plus(bytes));
-    for (int i = startChunk; i <= endChunk; i++)
+    for (int i = startChunk; i <= endChunk; i++) {
+      if (mapped[i] == UNMAPPED) mappedChunks++;
       mapped[i] = MAPPED;
+    }
   }
 
   /**
@@ -129,16 +132,23 @@ public final class ByteMapMmapper extends Mmapper {
    * occurs at chunk granularity, not page granularity.<p>
    *
    * NOTE: There is a monotonicity assumption so that only updates require lock
-   * acquisition.
+   * acquisition.  Free and decommitted chunks remain mapped, so they only
+   * need their state updated.
    * TODO: Fix the above to support unmapping.
    *
    * @param start The start of the range to be mapped.
    * @param pages The size of the range to be mapped, in pages
+   * @param hugePages Should the range be backed by huge pages?
    */
   @Override
-  public void ensureMapped(Address start, int pages) {
+  public void ensureMapped(Address start, int pages, boolean hugePages) {
+    Address end = start.plus(Conversions.pagesToBytes(pages));
+    if (hugePages) {
+      start = hugePageAlignDown(start);
+      end = hugePageAlignUp(end);
+    }
     int startChunk = addressToMmapChunksDown(start);
-    int endChunk = addressToMmapChunksUp(start.plus(Conversions.pagesToBytes(pages)));
+    int endChunk = addressToMmapChunksUp(end);
     for (int chunk = startChunk; chunk < endChunk; chunk++) {
       if (mapped[chunk] == MAPPED) continue;
       Address mmapStart = mmapChunksToAddress(chunk);
@@ -159,6 +169,10 @@ public final class ByteMapMmapper extends Mmapper {
             Log.writeln(" with len = ", MMAP_CHUNK_BYTES);
           }
         }
+        mappedChunks++;
+      }
+      if (mapped[chunk] == DECOMMITTED) {
+        recommitChunk();
       }
       if (mapped[chunk] == PROTECTED) {
         if (!VM.memory.munprotect(mmapStart, MMAP_CHUNK_BYTES)) {
@@ -172,6 +186,9 @@ public final class ByteMapMmapper extends Mmapper {
           }
         }
       }
+      if (hugePages) {
+        adviseHugePages(mmapStart);
+      }
       mapped[chunk] = MAPPED;
       lock.release();
     }
@@ -192,7 +209,8 @@ public final class ByteMapMmapper extends Mmapper {
     int endChunk = startChunk + chunks;
     lock.acquire();
     for (int chunk = startChunk; chunk < endChunk; chunk++) {
-      if (mapped[chunk] == MAPPED) {
+      if (mapped[chunk] == MAPPED || mapped[chunk] >= DECOMMITTED) {
+        if (mapped[chunk] == DECOMMITTED) decommittedChunks--;
         Address mmapStart = mmapChunksToAddress(chunk);
         if (!VM.memory.mprotect(mmapStart, MMAP_CHUNK_BYTES)) {
           lock.release();
@@ -212,6 +230,30 @@ public final class ByteMapMmapper extends Mmapper {
     lock.release();
   }
 
+  @Override
+  protected void markChunksFree(Address start, Address end) {
+    int startChunk = addressToMmapChunksDown(start);
+    int endChunk = addressToMmapChunksDown(end);
+    lock.acquire();
+    for (int chunk = startChunk; chunk < endChunk; chunk++) {
+      if (mapped[chunk] == MAPPED) mapped[chunk] = FREE;
+    }
+    lock.release();
+  }
+
+  @Override
+  protected int ageFreeChunks(int delay) {
+    int decommitted = 0;
+    lock.acquire();
+    for (int chunk = 0; chunk < MMAP_NUM_CHUNKS; chunk++) {
+      if (ageChunk(mapped, chunk, mmapChunksToAddress(chunk), delay)) {
+        decommitted++;
+      }
+    }
+    lock.release();
+    return decommitted;
+  }
+
   /****************************************************************************
    * Utility functions
    */
@@ -226,7 +268,7 @@ public final class ByteMapMmapper extends Mmapper {
   @Uninterruptible
   public boolean addressIsMapped(Address addr) {
     int chunk = addressToMmapChunksDown(addr);
-    return mapped[chunk] == MAPPED;
+    return mapped[chunk] == MAPPED || mapped[chunk] >= DECOMMITTED;
   }
 
   /**
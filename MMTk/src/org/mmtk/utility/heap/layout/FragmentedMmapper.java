@@ -70,6 +70,7 @@ public final class FragmentedMmapper extends Mmapper {
   private static final byte MAPPED = 1;
   /** Page is mapped and marked inaccessible */
   private static final byte PROTECTED = 2;
+  /* DECOMMITTED and FREE states are defined by Mmapper */
 
   /** Maximum mappable address space */
   private static final int LOG_MAPPABLE_BYTES = (LOG_BYTES_IN_ADDRESS_SPACE == 32) ?
@@ -360,6 +361,7 @@ public final class FragmentedMmapper extends Mmapper {
           Log.write(i);
           Log.writeln("]");
         }
+        if (mapped[i] == UNMAPPED) mappedChunks++;
         mapped[i] = MAPPED;
       }
       start = high;
@@ -372,16 +374,22 @@ public final class FragmentedMmapper extends Mmapper {
    * occurs at chunk granularity, not page granularity.<p>
    *
    * NOTE: There is a monotonicity assumption so that only updates require lock
-   * acquisition.
+   * acquisition.  Free and decommitted chunks remain mapped, so they only
+   * need their state updated.
    * TODO: Fix the above to support unmapping.
    *
    * @param start The start of the range to be mapped.
    * @param pages The size of the range to be mapped, in pages
+   * @param hugePages Should the range be backed by huge pages?
    */
   @Override
-  public void ensureMapped(Address start, int pages) {
+  public void ensureMapped(Address start, int pages, boolean hugePages) {
     if (STATS) mapCounter.inc();
-    final Address end = start.plus(Conversions.pagesToBytes(pages));
+    Address end = start.plus(Conversions.pagesToBytes(pages));
+    if (hugePages) {
+      start = hugePageAlignDown(start);
+      end = hugePageAlignUp(end);
+    }
     if (VERBOSE) {
       Log.write("Ensuring [", start);
       Log.write(":", end);
@@ -432,6 +440,10 @@ public final class FragmentedMmapper extends Mmapper {
               Log.writeln(" with len = ", MMAP_CHUNK_BYTES);
             }
           }
+          mappedChunks++;
+        }
+        if (mapped[chunk] == DECOMMITTED) {
+          recommitChunk();
         }
         if (mapped[chunk] == PROTECTED) {
           if (!VM.memory.munprotect(mmapStart, MMAP_CHUNK_BYTES)) {
@@ -445,6 +457,9 @@ public final class FragmentedMmapper extends Mmapper {
             }
           }
         }
+        if (hugePages) {
+          adviseHugePages(mmapStart);
+        }
         mapped[chunk] = MAPPED;
         lock.release();
       }
@@ -482,7 +497,8 @@ public final class FragmentedMmapper extends Mmapper {
       byte[] mapped = slabTable(start);
 
       for (int chunk = startChunk; chunk < endChunk; chunk++) {
-        if (mapped[chunk] == MAPPED) {
+        if (mapped[chunk] == MAPPED || mapped[chunk] >= DECOMMITTED) {
+          if (mapped[chunk] == DECOMMITTED) decommittedChunks--;
           Address mmapStart = chunkIndexToAddress(base, chunk);
           if (!VM.memory.mprotect(mmapStart, MMAP_CHUNK_BYTES)) {
             lock.release();
@@ -504,6 +520,43 @@ public final class FragmentedMmapper extends Mmapper {
     lock.release();
   }
 
+  @Override
+  protected void markChunksFree(Address start, Address end) {
+    // Iterate over the slabs covered
+    while (start.LT(end)) {
+      Address high = end.GT(slabLimit(start)) && !slabLimit(start).isZero() ? slabLimit(start) : end;
+      Address slab = slabAlignDown(start);
+      int startChunk = chunkIndex(slab, start);
+      int endChunk = chunkIndex(slab, high);
+
+      byte[] mapped = slabTable(start);
+      lock.acquire();
+      for (int chunk = startChunk; chunk < endChunk; chunk++) {
+        if (mapped[chunk] == MAPPED) mapped[chunk] = FREE;
+      }
+      lock.release();
+      start = high;
+    }
+  }
+
+  @Override
+  protected int ageFreeChunks(int delay) {
+    int decommitted = 0;
+    lock.acquire();
+    for (int index = 0; index < SLAB_TABLE_SIZE; index++) {
+      Address base = slabMap.get(index);
+      if (base.EQ(SENTINEL)) continue;
+      byte[] mapped = slabTable[index];
+      for (int chunk = 0; chunk < MMAP_NUM_CHUNKS; chunk++) {
+        if (ageChunk(mapped, chunk, chunkIndexToAddress(base, chunk), delay)) {
+          decommitted++;
+        }
+      }
+    }
+    lock.release();
+    return decommitted;
+  }
+
   /****************************************************************************
    * Utility functions
    */
@@ -518,7 +571,9 @@ public final class FragmentedMmapper extends Mmapper {
   @Uninterruptible
   public boolean addressIsMapped(Address addr) {
     byte[] mapped = slabTable(addr, false /* don't allocate */);
-    return (mapped != null) && (mapped[chunkIndex(slabAlignDown(addr),addr)] == MAPPED);
+    if (mapped == null) return false;
+    byte state = mapped[chunkIndex(slabAlignDown(addr),addr)];
+    return state == MAPPED || state >= DECOMMITTED;
   }
 
   /**
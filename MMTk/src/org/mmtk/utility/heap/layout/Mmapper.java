@@ -12,18 +12,70 @@
  */
 package org.mmtk.utility.heap.layout;
 
+import org.mmtk.utility.Conversions;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+import org.mmtk.utility.statistics.EventCounter;
+import org.mmtk.vm.VM;
 import org.vmmagic.pragma.Inline;
 import org.vmmagic.pragma.Uninterruptible;
 import org.vmmagic.unboxed.Address;
 import org.vmmagic.unboxed.AddressArray;
+import org.vmmagic.unboxed.Extent;
 import org.vmmagic.unboxed.ObjectReference;
 import org.vmmagic.unboxed.Word;
 
+/**
+ * Tracks the state of each mmap chunk of the address space used by MMTk.<p>
+ *
+ * When uncommitting is enabled, chunks released by the page resources
+ * are marked free, and a chunk that is still free after a number of
+ * collections has its physical memory returned to the operating system.
+ * The chunk stays mapped, so reusing it only requires the mmapper state
+ * to be updated.  The delay backs off when decommitted chunks are
+ * quickly reused, so that a heap oscillating in size does not repeatedly
+ * fault its memory back in.
+ */
 @Uninterruptible
 public abstract class Mmapper {
 
   protected static final int MMAP_CHUNK_BYTES = 1 << VMLayoutConstants.LOG_MMAP_CHUNK_BYTES;   // the granularity VMResource operates at
   protected static final int MMAP_CHUNK_MASK = MMAP_CHUNK_BYTES - 1;
+  private static final int HUGE_PAGE_MASK = (1 << VMLayoutConstants.LOG_HUGE_PAGE_BYTES) - 1;
+
+  /*
+   * Chunk states shared by the implementations, in addition to their own
+   * unmapped, mapped and protected states.
+   */
+  /** Chunk is mapped, but its physical memory has been returned to the OS */
+  protected static final byte DECOMMITTED = 3;
+  /** Chunk is mapped and free.  States above this count the collections it has been free. */
+  protected static final byte FREE = 4;
+  /** Largest free state */
+  private static final byte MAX_FREE = Byte.MAX_VALUE;
+
+  /** Maximum back-off of the decommit delay, as a multiple of the requested delay */
+  private static final int MAX_BACKOFF = 8;
+
+  private static final EventCounter decommitCounter = new EventCounter("decommit");
+  private static final EventCounter recommitCounter = new EventCounter("recommit");
+  private static final EventCounter hugePageCounter = new EventCounter("hugePageChunks");
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  /** Number of chunks that have been mapped */
+  protected int mappedChunks = 0;
+
+  /** Number of mapped chunks whose memory is currently returned to the OS */
+  protected int decommittedChunks = 0;
+
+  /** Number of decommitted chunks reused since free chunks were last aged */
+  protected int recommittedChunks = 0;
+
+  /** The current number of collections a chunk must be free before being decommitted */
+  private int decommitDelay = 0;
 
   /****************************************************************************
    * Generic mmap and protection functionality
@@ -59,7 +111,22 @@ public abstract class Mmapper {
    * @param start The start of the range to be mapped.
    * @param pages The size of the range to be mapped, in pages
    */
-  public abstract void ensureMapped(Address start, int pages);
+  public final void ensureMapped(Address start, int pages) {
+    ensureMapped(start, pages, false);
+  }
+
+  /**
+   * Ensure that a range of pages is mmapped (or equivalent), optionally
+   * backed by huge pages.  When huge pages are requested the range is
+   * extended to huge page boundaries, so that whole huge pages are
+   * mapped together, and chunks that come into use are advised to use
+   * huge pages.
+   *
+   * @param start The start of the range to be mapped.
+   * @param pages The size of the range to be mapped, in pages
+   * @param hugePages Should the range be backed by huge pages?
+   */
+  public abstract void ensureMapped(Address start, int pages, boolean hugePages);
 
   /**
    * Is the page occupied by this object mapped ?
@@ -83,6 +150,153 @@ public abstract class Mmapper {
    */
   public abstract void protect(Address start, int pages);
 
+  /****************************************************************************
+   * Returning free memory to the operating system
+   */
+
+  /**
+   * Record that a range of pages is no longer in use.  Only mmap
+   * chunks that lie entirely within the range are affected, and they
+   * become eligible to be decommitted.  Has no effect unless uncommitting
+   * is enabled.
+   *
+   * @param start The start of the range of free pages
+   * @param pages The size of the range, in pages
+   */
+  public final void markAsFree(Address start, int pages) {
+    if (Options.uncommitDelay.getValue() == 0) return;
+    Address low = chunkAlignUp(start);
+    Address high = chunkAlignDown(start.plus(Conversions.pagesToBytes(pages)));
+    if (low.LT(high)) {
+      markChunksFree(low, high);
+    }
+  }
+
+  /**
+   * Age the free chunks, returning the memory of those that have been
+   * free for long enough to the operating system.  This must be called
+   * once per collection, while the mutators are stopped.
+   */
+  public final void decommitFreeChunks() {
+    int minDelay = Options.uncommitDelay.getValue();
+    if (minDelay == 0) return;
+
+    /* Back off if decommitted memory has been reused, and otherwise decay */
+    int maxDelay = minDelay * MAX_BACKOFF;
+    if (maxDelay > MAX_FREE - FREE) maxDelay = MAX_FREE - FREE;
+    if (decommitDelay < minDelay) {
+      decommitDelay = minDelay;
+    } else if (recommittedChunks > 0) {
+      decommitDelay = (decommitDelay << 1) > maxDelay ? maxDelay : decommitDelay << 1;
+    } else if (decommitDelay > minDelay) {
+      decommitDelay--;
+    }
+    recommitCounter.inc(recommittedChunks);
+    recommittedChunks = 0;
+
+    int chunks = ageFreeChunks(decommitDelay);
+    decommitCounter.inc(chunks);
+    if (chunks > 0 && Options.verbose.getValue() >= 2) {
+      Log.write("[Decommitted ", chunks);
+      Log.write(" chunks, delay ", decommitDelay);
+      Log.write(", committed ");
+      Log.write(getCommittedBytes().toWord().rshl(20));
+      Log.writeln(" MB]");
+    }
+  }
+
+  /**
+   * @return The number of bytes of mapped memory that are backed by
+   * physical memory (or swap), as far as MMTk is aware.
+   */
+  public final Extent getCommittedBytes() {
+    return Word.fromIntZeroExtend(mappedChunks - decommittedChunks).lsh(VMLayoutConstants.LOG_MMAP_CHUNK_BYTES).toExtent();
+  }
+
+  /**
+   * Mark the mapped chunks in a range as free.
+   *
+   * @param start The start of the range, chunk aligned
+   * @param end The end of the range, chunk aligned
+   */
+  protected abstract void markChunksFree(Address start, Address end);
+
+  /**
+   * Age every free chunk, decommitting those that have been free for the
+   * given number of collections.
+   *
+   * @param delay The number of collections a chunk must be free
+   * @return The number of chunks decommitted
+   */
+  protected abstract int ageFreeChunks(int delay);
+
+  /**
+   * Age a single chunk, if it is free.  The caller must hold the lock.
+   *
+   * @param map The chunk map holding the chunk
+   * @param index The index of the chunk in the map
+   * @param chunkStart The start address of the chunk
+   * @param delay The number of collections a chunk must be free
+   * @return {@code true} if the chunk was decommitted
+   */
+  protected final boolean ageChunk(byte[] map, int index, Address chunkStart, int delay) {
+    byte state = map[index];
+    if (state < FREE) return false;
+    if (state - FREE >= delay) {
+      if (VM.memory.decommit(chunkStart, MMAP_CHUNK_BYTES)) {
+        map[index] = DECOMMITTED;
+        decommittedChunks++;
+        return true;
+      }
+      /* Leave the chunk committed and try again next time */
+      return false;
+    }
+    map[index] = (byte) (state + 1);
+    return false;
+  }
+
+  /**
+   * A decommitted chunk is about to be reused.  The caller must hold the lock.
+   */
+  protected final void recommitChunk() {
+    decommittedChunks--;
+    recommittedChunks++;
+  }
+
+  /**
+   * Advise the operating system to back a chunk with huge pages.  The
+   * advice is only a hint, so failure is ignored.
+   *
+   * @param chunkStart The start address of the chunk
+   */
+  protected static void adviseHugePages(Address chunkStart) {
+    if (VM.memory.adviseHugePages(chunkStart, MMAP_CHUNK_BYTES)) {
+      hugePageCounter.inc();
+    }
+  }
+
+  /**
+   * Return a given address rounded up to a huge page
+   *
+   * @param addr The address to be aligned
+   * @return The given address rounded up to a huge page
+   */
+  @Inline
+  protected static Address hugePageAlignUp(Address addr) {
+    return hugePageAlignDown(addr.plus(HUGE_PAGE_MASK));
+  }
+
+  /**
+   * Return a given address rounded down to a huge page
+   *
+   * @param addr The address to be aligned
+   * @return The given address rounded down to a huge page
+   */
+  @Inline
+  protected static Address hugePageAlignDown(Address addr) {
+    return addr.toWord().and(Word.fromIntSignExtend(HUGE_PAGE_MASK).not()).toAddress();
+  }
+
   /**
    * Return a given address rounded up to an mmap chunk size
    *
@@ -97,6 +97,13 @@ public class VMLayoutConstants {
   /** Granularity at which we map and unmap virtual address space in the heap */
   public static final int LOG_MMAP_CHUNK_BYTES = 20;
 
+  /**
+   * Granularity at which spaces that request huge pages are mapped.  This
+   * is the usual size of a transparent huge page, and must lie between
+   * the mmap chunk size and the chunk size.
+   */
+  public static final int LOG_HUGE_PAGE_BYTES = 21;
+
   /** log_2 of the number of pages in a 64-bit space */
   public static final int LOG_PAGES_IN_SPACE64 = HeapParameters.LOG_SPACE_SIZE_64 - LOG_BYTES_IN_PAGE;
 
@@ -155,6 +162,7 @@ public class VMLayoutConstants {
       Log.writeln("AVAILABLE_BYTES      = ", AVAILABLE_BYTES);
       Log.writeln("MAX_SPACE_EXTENT     = ", MAX_SPACE_EXTENT);
       Log.writeln("LOG_MMAP_CHUNK_BYTES = ", LOG_MMAP_CHUNK_BYTES);
+      Log.writeln("LOG_HUGE_PAGE_BYTES  = ", LOG_HUGE_PAGE_BYTES);
       Log.writeln("==");
     }
   }
@@ -0,0 +1,40 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The number of bytes of mutator allocation between the samples taken
+ * for the allocation profiler, or zero if allocation is not sampled.
+ */
+public final class AllocationSampleBytes extends org.vmutil.options.IntOption {
+
+  /** The smallest sampling interval that may be requested */
+  public static final int MIN_SAMPLE_BYTES = 1 << 10;
+
+  /**
+   * Create the option.
+   */
+  public AllocationSampleBytes() {
+    super(Options.set, "Allocation Sample Bytes",
+          "Sample one allocation in this many bytes for the allocation profiler (0 to disable)",
+          0);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value != 0 && this.value < MIN_SAMPLE_BYTES, "Allocation sample bytes must be 0 or at least 1024");
+  }
+}
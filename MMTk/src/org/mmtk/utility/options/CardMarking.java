@@ -0,0 +1,39 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.vmmagic.pragma.Uninterruptible;
+
+/**
+ * The write barrier used by generational collectors to remember
+ * stores into mature objects: remembered sets only, or a card table
+ * in which cards are dirtied on every store (unconditional) or only on
+ * the first store of a young reference (conditional).
+ */
+@Uninterruptible
+public final class CardMarking extends org.vmutil.options.EnumOption {
+
+  public final int OFF = 0;
+  public final int UNCONDITIONAL = 1;
+  public final int CONDITIONAL = 2;
+
+  /**
+   * Create the option.
+   */
+  public CardMarking() {
+    super(Options.set, "Card Marking",
+          "Remember stores into mature objects with a card table (generational plans only)",
+          new String[] {"off", "unconditional", "conditional"},
+          "off");
+  }
+}
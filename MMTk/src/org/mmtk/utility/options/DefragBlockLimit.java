@@ -0,0 +1,38 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The maximum number of blocks an incremental defragmenting collection
+ * may choose as defrag sources.  A non-zero limit makes every full heap
+ * immix collection defragment the most fragmented blocks, up to the
+ * limit, rather than defragmenting without limit only when required.
+ */
+public final class DefragBlockLimit extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public DefragBlockLimit() {
+    super(Options.set, "Defrag Block Limit",
+          "Defragment at most this many blocks in every full heap collection (0 to defragment only when required)",
+          0);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Defrag block limit must not be negative");
+  }
+}
@@ -0,0 +1,29 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Should the transitive closure enqueue edges (reference slots) rather
+ * than objects, splitting large reference arrays into chunks?  No plan
+ * changes the default, so the mode is only used when the option is set.
+ */
+public final class EdgeTrace extends org.vmutil.options.BooleanOption {
+  /**
+   * Create the option.
+   */
+  public EdgeTrace() {
+    super(Options.set, "Edge Trace",
+          "Should the trace enqueue edges rather than objects, splitting large arrays into chunks?",
+          false);
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The file to which a heap dump is written.
+ */
+public final class HeapDumpFile extends org.vmutil.options.StringOption {
+  /**
+   * Create the option.
+   */
+  public HeapDumpFile() {
+    super(Options.set, "Heap Dump File",
+        "Write an HPROF dump of the live objects to this file after the first full heap collection",
+        "");
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Should a histogram of the live objects be printed after each full
+ * heap collection?
+ */
+public final class HeapHistogram extends org.vmutil.options.BooleanOption {
+  /**
+   * Create the option.
+   */
+  public HeapHistogram() {
+    super(Options.set, "Heap Histogram",
+          "Print a histogram of the live objects by type after each full heap collection?",
+          false);
+  }
+}
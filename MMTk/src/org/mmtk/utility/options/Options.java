@@ -21,6 +21,10 @@ public final class Options {
   public static OptionSet set;
 
   /* Other options */
+  public static AllocationSampleBytes allocationSampleBytes;
+  public static BlockZeroing blockZeroing;
+  public static CardMarking cardMarking;
+  public static ConcurrentSweep concurrentSweep;
   public static ConcurrentTrigger concurrentTrigger;
   public static CycleFilterThreshold cycleFilterThreshold;
   public static CycleMetaDataLimit cycleMetaDataLimit;
@@ -30,6 +34,7 @@ public final class Options {
   public static DummyEnum dummyEnum;
   public static DefragHeadroom defragHeadroom;
   public static DefragHeadroomFraction defragHeadroomFraction;
+  public static DefragBlockLimit defragBlockLimit;
   public static DefragFreeHeadroom defragFreeHeadroom;
   public static DefragFreeHeadroomFraction defragFreeHeadroomFraction;
   public static DefragLineReuseRatio defragLineReuseRatio;
@@ -37,14 +42,20 @@ public final class Options {
   public static DefragStress defragStress;
   public static EagerCompleteSweep eagerCompleteSweep;
   public static EagerMmapSpaces eagerMmapSpaces;
+  public static EdgeTrace edgeTrace;
   public static FragmentationStats fragmentationStats;
   public static FullHeapSystemGC fullHeapSystemGC;
+  public static GCLogFile gcLogFile;
   public static GCspyPort gcspyPort;
   public static GCspyTileSize gcspyTileSize;
   public static GCspyWait gcspyWait;
+  public static GCOverheadTarget gcOverheadTarget;
   public static GCTimeCap gcTimeCap;
   public static GenCycleDetection genCycleDetection;
   public static HarnessAll harnessAll;
+  public static HeapDumpFile heapDumpFile;
+  public static HeapHistogram heapHistogram;
+  public static HugePages hugePages;
   public static IgnoreSystemGC ignoreSystemGC;
   public static LineReuseRatio lineReuseRatio;
   public static MarkSweepMarkBits markSweepMarkBits;
@@ -52,19 +63,27 @@ public final class Options {
   public static NoFinalizer noFinalizer;
   public static NoReferenceTypes noReferenceTypes;
   public static NurserySize nurserySize;
+  public static ParallelReferenceProcessing parallelReferenceProcessing;
+  public static PauseGoal pauseGoal;
   public static PerfEvents perfEvents;
   public static PretenureThresholdFraction pretenureThresholdFraction;
   public static PrintPhaseStats printPhaseStats;
   public static ProtectOnRelease protectOnRelease;
   public static SanityCheck sanityCheck;
+  public static SitePretenuring sitePretenuring;
   public static StressFactor stressFactor;
+  public static TenuringThreshold tenuringThreshold;
   public static Threads threads;
+  public static ThreadWorkPages threadWorkPages;
+  public static TracePrefetch tracePrefetch;
   public static TraceRate traceRate;
+  public static UncommitDelay uncommitDelay;
   public static UseReturnBarrier useReturnBarrier;
   public static UseShortStackScans useShortStackScans;
   public static VariableSizeHeap variableSizeHeap;
   public static VerboseFragmentationStats verboseFragmentationStats;
   public static Verbose verbose;
   public static VerboseTiming verboseTiming;
+  public static WorkStealing workStealing;
   public static XmlStats xmlStats;
 }
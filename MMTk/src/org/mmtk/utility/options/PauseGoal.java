@@ -0,0 +1,37 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * Target pause time for nursery collections, in milliseconds.  When
+ * set, generational collectors resize the nursery (within the bounds
+ * given by the nursery size options) to meet it.
+ */
+public final class PauseGoal extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public PauseGoal() {
+    super(Options.set, "Pause Goal",
+          "Target nursery pause time in milliseconds (0 to disable)",
+          0);
+  }
+
+  /**
+   * Only accept non-negative values.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Pause goal must not be negative");
+  }
+}
@@ -16,12 +16,40 @@ package org.mmtk.utility.options;
  * Performance counter options.
  */
 public class PerfEvents extends org.vmutil.options.StringOption {
+
+  /** Shorthand that may appear in the list for the TLB miss events */
+  public static final String TLB = "tlb";
+
+  /** The TLB miss events, as named by libpfm */
+  private static final String TLB_EVENTS =
+    "perf::PERF_COUNT_HW_CACHE_DTLB:READ:MISS," +
+    "perf::PERF_COUNT_HW_CACHE_DTLB:WRITE:MISS," +
+    "perf::PERF_COUNT_HW_CACHE_ITLB:READ:MISS";
+
   /**
    * Create the option.
    */
   public PerfEvents() {
     super(Options.set, "Perf Events",
-        "Use this to specify a comma seperated list of performance events to measure",
+        "Use this to specify a comma seperated list of performance events to measure ('tlb' for TLB misses)",
         "");
   }
+
+  /**
+   * @return The list of events to measure, with any shorthand expanded
+   */
+  public String getEvents() {
+    String events = getValue();
+    if (events.length() == 0) {
+      return events;
+    }
+    StringBuilder expanded = new StringBuilder();
+    for (String event : events.split(",")) {
+      if (expanded.length() > 0) {
+        expanded.append(',');
+      }
+      expanded.append(event.equals(TLB) ? TLB_EVENTS : event);
+    }
+    return expanded.toString();
+  }
 }
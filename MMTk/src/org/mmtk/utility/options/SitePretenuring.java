@@ -0,0 +1,38 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The percentage of sampled nursery objects from an allocation site that
+ * must survive a collection before generational collectors allocate
+ * objects from that site directly into the mature space.  Zero disables
+ * allocation site profiling.
+ */
+public final class SitePretenuring extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public SitePretenuring() {
+    super(Options.set, "Site Pretenuring",
+          "Percentage of sampled objects from an allocation site that must survive for the site to be pretenured (0 to disable)",
+          0);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0 || this.value > 100, "Survival percentage must be between 0 and 100");
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.mmtk.plan.generational.Gen;
+
+/**
+ * The number of nursery collections an object must survive before
+ * generational collectors promote it to the mature space.  Objects
+ * that have survived fewer collections are kept in a survivor space.
+ */
+public final class TenuringThreshold extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public TenuringThreshold() {
+    super(Options.set, "Tenuring Threshold",
+          "Number of nursery collections an object survives before promotion (1 to promote immediately)",
+          1);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 1, "Tenuring threshold must be at least one");
+    failIf(this.value > Gen.MAX_TENURING_THRESHOLD, "Tenuring threshold too large");
+  }
+}
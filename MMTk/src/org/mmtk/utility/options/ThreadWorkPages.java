@@ -0,0 +1,41 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The expected number of pages of collection work for each collector
+ * thread taking part in a stop-the-world collection.  Collections that
+ * are expected to do little work, such as those of a small nursery, use
+ * fewer threads than the <code>threads</code> option allows, leaving
+ * the rest parked.  Mutator phases are further sized from the share of
+ * the previous collection that they took.  Zero, the default, always
+ * uses every thread.
+ */
+public final class ThreadWorkPages extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public ThreadWorkPages() {
+    super(Options.set, "Thread Work Pages",
+          "Expected pages of collection work per collector thread (0 to always use every thread)",
+          0);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Thread work pages must not be negative");
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+import org.mmtk.plan.TraceLocal;
+import org.mmtk.vm.VM;
+
+/**
+ * The number of gray objects the transitive closure prefetches ahead
+ * of the object being scanned.  Zero disables prefetching.  The
+ * default is chosen by the plan, through
+ * {@link org.mmtk.plan.PlanConstraints#tracePrefetchDistance()}.
+ */
+public final class TracePrefetch extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public TracePrefetch() {
+    super(Options.set, "Trace Prefetch",
+          "Number of gray objects to prefetch ahead of scanning during a trace (0 to disable)",
+          VM.activePlan.constraints().tracePrefetchDistance());
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Prefetch distance must be non-negative");
+    failIf(this.value > TraceLocal.MAX_PREFETCH_DISTANCE, "Prefetch distance too large");
+  }
+}
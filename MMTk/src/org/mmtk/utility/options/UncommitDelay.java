@@ -0,0 +1,37 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.options;
+
+/**
+ * The number of collections for which a chunk of virtual memory must
+ * remain free before its physical memory is returned to the operating
+ * system.  Zero disables uncommitting.
+ */
+public final class UncommitDelay extends org.vmutil.options.IntOption {
+  /**
+   * Create the option.
+   */
+  public UncommitDelay() {
+    super(Options.set, "Uncommit Delay",
+          "Return memory that has been free for this many collections to the OS (0 to disable)",
+          0);
+  }
+
+  /**
+   * Ensure the value is valid.
+   */
+  @Override
+  protected void validate() {
+    failIf(this.value < 0, "Delay must be non-negative");
+  }
+}
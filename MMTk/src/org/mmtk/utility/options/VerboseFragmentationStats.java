@@ -13,7 +13,7 @@
 package org.mmtk.utility.options;
 
 /**
- * Should we print verbose fragmentation statistics for the free list allocator?
+ * Should we print verbose fragmentation statistics for the free list allocator and immix defragmentation?
  */
 public final class VerboseFragmentationStats extends org.vmutil.options.BooleanOption {
   /**
@@ -21,7 +21,7 @@ public final class VerboseFragmentationStats extends org.vmutil.options.BooleanO
    */
   public VerboseFragmentationStats() {
     super(Options.set, "Verbose Fragmentation Stats",
-        "Should we print verbose fragmentation statistics for the free list allocator?",
+        "Should we print verbose fragmentation statistics for the free list allocator and immix defragmentation?",
         false);
   }
 }
@@ -0,0 +1,591 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.sanitychecker;
+
+import static org.mmtk.utility.sanitychecker.HprofWriter.*;
+
+import org.mmtk.plan.TransitiveClosure;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.options.Options;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class takes a census of the live objects after a full heap
+ * collection.  The objects are found by the sanity checker's trace,
+ * which records every reachable object in a sanity table whatever the
+ * space it lives in, so the census runs in the phases of the sanity
+ * checker (see <code>Simple.censusPhase</code>) whether or not the
+ * heap is also being sanity checked.<p>
+ *
+ * When the <code>heapHistogram</code> option is set, the number and
+ * size of the objects of each type are printed after each full heap
+ * collection.  When the <code>heapDumpFile</code> option is set, a dump
+ * of every object is written to that file after the first full heap
+ * collection, in the HPROF binary format read by common heap analysis
+ * tools.  The dump gives each scalar type one reference field for each
+ * reference it holds, named <code>ref0</code> and upwards, so that the
+ * object graph and retained sizes can be analysed; the values of other
+ * scalar fields are not dumped.  Classes, type names and field names are
+ * given small identifiers that do not collide with heap addresses.<p>
+ *
+ * Types are told apart by their descriptors, which are copied into
+ * tables allocated when the options are processed, so nothing is
+ * allocated during collection.  Objects of types beyond the capacity of
+ * the tables are counted separately, and are not dumped.
+ */
+@Uninterruptible
+public final class HeapCensus {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The maximum number of types told apart */
+  private static final int LOG_TYPES = 13;
+  private static final int TYPES = 1 << LOG_TYPES;
+
+  /** The number of bytes held for the descriptors of the types */
+  private static final int NAME_BYTES = 1 << 18;
+
+  /** The number of types printed in a histogram */
+  private static final int REPORTED_TYPES = 40;
+
+  /** The log of the spacing of the identifiers given to classes and names */
+  private static final int LOG_ID_SPACING = 3;
+
+  private static boolean enabled = false;
+  private static boolean histogram = false;
+  private static int dumpFd = -1;
+
+  /** Hash table from descriptor hash to type number plus one */
+  private static int[] slots;
+
+  /* The types, each of which is held at the same index of every array */
+  private static int types;
+  private static int[] hashes;
+  private static int[] nameStart;
+  private static int[] nameLength;
+  private static byte[] elementType;
+  private static int[] referenceFields;
+  private static int[] instanceBytes;
+  private static int[] instances;
+  private static long[] bytes;
+
+  /** The types printed in a histogram, by decreasing size */
+  private static int[] order;
+
+  /** The descriptors of the types */
+  private static byte[] names;
+  private static int namesUsed;
+
+  /** Objects whose type could not be recorded */
+  private static int uncountedObjects;
+  private static long uncountedBytes;
+
+  private static HprofWriter writer;
+
+  /** Counts or writes the references held by an object */
+  private static final ReferenceDumper references = new ReferenceDumper();
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Allocate the tables, and open the dump file, if a census was
+   * requested.  Called once the options have been processed.
+   */
+  @Interruptible
+  public static void boot() {
+    histogram = Options.heapHistogram.getValue();
+    String dumpFile = Options.heapDumpFile.getValue();
+    if (dumpFile.length() > 0) {
+      dumpFd = VM.strings.openFile(dumpFile);
+      if (dumpFd < 0) {
+        Log.write("Could not open heap dump file ");
+        Log.writeln(dumpFile);
+      }
+    }
+    enabled = histogram || dumpFd >= 0;
+    if (!enabled) return;
+    slots = new int[TYPES << 1];
+    hashes = new int[TYPES];
+    nameStart = new int[TYPES];
+    nameLength = new int[TYPES];
+    elementType = new byte[TYPES];
+    referenceFields = new int[TYPES];
+    instanceBytes = new int[TYPES];
+    instances = new int[TYPES];
+    bytes = new long[TYPES];
+    names = new byte[NAME_BYTES];
+    order = new int[REPORTED_TYPES];
+    if (dumpFd >= 0) writer = new HprofWriter();
+  }
+
+  /**
+   * @return {@code true} if a census may be taken after a collection
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return {@code true} if a census is to be taken after the current
+   * collection
+   */
+  public static boolean isWanted() {
+    return (histogram || dumpFd >= 0) && VM.activePlan.global().lastCollectionFullHeap();
+  }
+
+  /****************************************************************************
+   *
+   * Census
+   */
+
+  /**
+   * Take a census of the objects in a sanity table, printing a
+   * histogram and writing a dump as requested.
+   *
+   * @param table A sanity table holding every live object
+   */
+  static void take(SanityDataTable table) {
+    for (int i = 0; i < slots.length; i++) slots[i] = 0;
+    types = 0;
+    namesUsed = 0;
+    uncountedObjects = 0;
+    uncountedBytes = 0;
+
+    for (Address curr = table.getFirst(); !curr.isZero(); curr = table.getNext(curr)) {
+      ObjectReference object = SanityDataTable.getObjectReference(curr);
+      int size = VM.objectModel.getCurrentSize(object);
+      int type = getType(object);
+      if (type < 0) {
+        uncountedObjects++;
+        uncountedBytes += size;
+      } else {
+        instances[type]++;
+        bytes[type] += size;
+      }
+    }
+
+    if (histogram) printHistogram();
+    if (dumpFd >= 0) {
+      dump(table);
+      VM.strings.closeFile(dumpFd);
+      dumpFd = -1;
+    }
+  }
+
+  /**
+   * Find the type of an object, recording the type if it has not been
+   * seen before.
+   *
+   * @param object The object
+   * @return The number of the type, or -1 if the tables are full
+   */
+  private static int getType(ObjectReference object) {
+    byte[] descriptor = VM.objectModel.getTypeDescriptor(object);
+    int hash = 0;
+    for (int i = 0; i < descriptor.length; i++) {
+      hash = hash * 31 + descriptor[i];
+    }
+    if (hash == 0) hash = 1;
+
+    int mask = slots.length - 1;
+    for (int slot = (hash ^ (hash >>> LOG_TYPES)) & mask; ; slot = (slot + 1) & mask) {
+      int type = slots[slot] - 1;
+      if (type < 0) {
+        if (types == TYPES || namesUsed + descriptor.length > NAME_BYTES) return -1;
+        type = types++;
+        slots[slot] = type + 1;
+        addType(type, hash, descriptor, object);
+        return type;
+      }
+      if (hashes[type] == hash && hasName(type, descriptor)) return type;
+    }
+  }
+
+  /**
+   * Record a type.
+   *
+   * @param type The number of the type
+   * @param hash The hash of the descriptor
+   * @param descriptor The descriptor
+   * @param object An object of the type
+   */
+  private static void addType(int type, int hash, byte[] descriptor, ObjectReference object) {
+    hashes[type] = hash;
+    nameStart[type] = namesUsed;
+    nameLength[type] = descriptor.length;
+    for (int i = 0; i < descriptor.length; i++) {
+      names[namesUsed++] = descriptor[i];
+    }
+    instances[type] = 0;
+    bytes[type] = 0;
+    if (descriptor.length > 1 && descriptor[0] == '[') {
+      elementType[type] = (byte) getBasicType(descriptor[1]);
+      referenceFields[type] = 0;
+      instanceBytes[type] = 0;
+    } else {
+      elementType[type] = 0;
+      referenceFields[type] = references.count(object);
+      instanceBytes[type] = VM.objectModel.getCurrentSize(object);
+    }
+  }
+
+  /**
+   * @param type The number of a type
+   * @param descriptor A descriptor
+   * @return {@code true} if the type has the given descriptor
+   */
+  private static boolean hasName(int type, byte[] descriptor) {
+    if (nameLength[type] != descriptor.length) return false;
+    int start = nameStart[type];
+    for (int i = 0; i < descriptor.length; i++) {
+      if (names[start + i] != descriptor[i]) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param c The descriptor of the elements of an array type
+   * @return The HPROF basic type of the elements
+   */
+  private static int getBasicType(byte c) {
+    switch (c) {
+      case 'Z': return BOOLEAN;
+      case 'C': return CHAR;
+      case 'F': return FLOAT;
+      case 'D': return DOUBLE;
+      case 'B': return BYTE;
+      case 'S': return SHORT;
+      case 'I': return INT;
+      case 'J': return LONG;
+      default:  return OBJECT;
+    }
+  }
+
+  /**
+   * @param basicType An HPROF basic type other than an object
+   * @return The size of a value of the type
+   */
+  private static int getBasicSize(int basicType) {
+    switch (basicType) {
+      case BOOLEAN: case BYTE: return 1;
+      case CHAR: case SHORT: return 2;
+      case FLOAT: case INT: return 4;
+      default: return 8;
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Histogram
+   */
+
+  /**
+   * Print the types whose objects take the most space.
+   */
+  private static void printHistogram() {
+    int reported = 0;
+    long totalObjects = uncountedObjects;
+    long totalBytes = uncountedBytes;
+    for (int type = 0; type < types; type++) {
+      totalObjects += instances[type];
+      totalBytes += bytes[type];
+      int i = reported < REPORTED_TYPES ? reported++ : REPORTED_TYPES;
+      for (; i > 0 && bytes[order[i - 1]] < bytes[type]; i--) {
+        if (i < REPORTED_TYPES) order[i] = order[i - 1];
+      }
+      if (i < REPORTED_TYPES) order[i] = type;
+    }
+
+    Log.write("============================== Heap Histogram ");
+    Log.writeln("==============================");
+    Log.write("objects: ");
+    Log.write(totalObjects);
+    Log.write(", bytes: ");
+    Log.write(totalBytes);
+    Log.write(", types: ");
+    Log.writeln(types);
+    Log.writeln("instances\tbytes\ttype");
+    for (int i = 0; i < reported; i++) {
+      int type = order[i];
+      Log.write(instances[type]);
+      Log.write("\t");
+      Log.write(bytes[type]);
+      Log.write("\t");
+      for (int c = 0; c < nameLength[type]; c++) {
+        Log.write((char) names[nameStart[type] + c]);
+      }
+      Log.writeln();
+    }
+    if (uncountedObjects > 0) {
+      Log.write(uncountedObjects);
+      Log.write("\t");
+      Log.write(uncountedBytes);
+      Log.writeln("\t(types not recorded)");
+    }
+    Log.write("========================================");
+    Log.writeln("========================================");
+  }
+
+  /****************************************************************************
+   *
+   * Heap dump
+   */
+
+  /**
+   * Write a dump of the objects in a sanity table, whose types have
+   * been recorded.
+   *
+   * @param table A sanity table holding every live object
+   */
+  private static void dump(SanityDataTable table) {
+    writer.begin(dumpFd);
+
+    int fieldNames = 0;
+    for (int type = 0; type < types; type++) {
+      writer.startRecord(UTF8, ID_BYTES + getClassNameLength(type));
+      writer.id(getNameId(type));
+      int start = nameStart[type] + (isClassDescriptor(type) ? 1 : 0);
+      for (int c = 0; c < getClassNameLength(type); c++) {
+        writer.u1(names[start + c]);
+      }
+      if (referenceFields[type] > fieldNames) fieldNames = referenceFields[type];
+    }
+    for (int field = 0; field < fieldNames; field++) {
+      writer.startRecord(UTF8, ID_BYTES + 3 + getDigits(field));
+      writer.id(getFieldNameId(field));
+      writer.u1('r');
+      writer.u1('e');
+      writer.u1('f');
+      for (int power = getPowerOfTen(field); power > 0; power /= 10) {
+        writer.u1('0' + (field / power) % 10);
+      }
+    }
+    for (int type = 0; type < types; type++) {
+      writer.startRecord(LOAD_CLASS, 4 + ID_BYTES + 4 + ID_BYTES);
+      writer.u4(type + 1);
+      writer.id(getClassId(type));
+      writer.u4(0);
+      writer.id(getNameId(type));
+    }
+
+    for (int type = 0; type < types; type++) {
+      int fields = referenceFields[type];
+      writer.startSubRecord(1 + ID_BYTES + 4 + 6 * ID_BYTES + 4 + 2 + 2 + 2 + fields * (ID_BYTES + 1));
+      writer.u1(CLASS_DUMP);
+      writer.id(getClassId(type));
+      writer.u4(0);
+      for (int i = 0; i < 6; i++) writer.id(Word.zero());
+      writer.u4(instanceBytes[type]);
+      writer.u2(0);
+      writer.u2(0);
+      writer.u2(fields);
+      for (int field = 0; field < fields; field++) {
+        writer.id(getFieldNameId(field));
+        writer.u1(OBJECT);
+      }
+    }
+
+    for (Address curr = table.getFirst(); !curr.isZero(); curr = table.getNext(curr)) {
+      ObjectReference object = SanityDataTable.getObjectReference(curr);
+      int type = getType(object);
+      if (type < 0) continue;
+      if (SanityDataTable.getRootRC(curr) > 0) {
+        writer.startSubRecord(1 + ID_BYTES);
+        writer.u1(ROOT_UNKNOWN);
+        writer.id(object);
+      }
+      if (elementType[type] == 0) {
+        dumpInstance(object, type);
+      } else if (elementType[type] == OBJECT) {
+        dumpObjectArray(object, type);
+      } else {
+        dumpPrimitiveArray(object, type);
+      }
+    }
+
+    if (writer.end()) {
+      Log.write("Heap dump written to ");
+    } else {
+      Log.write("Heap dump incomplete, could not write to ");
+    }
+    Log.writeln(Options.heapDumpFile.getValue());
+  }
+
+  /**
+   * @param object A scalar object
+   * @param type The type of the object
+   */
+  private static void dumpInstance(ObjectReference object, int type) {
+    int fields = referenceFields[type];
+    writer.startSubRecord(1 + ID_BYTES + 4 + ID_BYTES + 4 + fields * ID_BYTES);
+    writer.u1(INSTANCE_DUMP);
+    writer.id(object);
+    writer.u4(0);
+    writer.id(getClassId(type));
+    writer.u4(fields * ID_BYTES);
+    references.write(object, writer, fields);
+  }
+
+  /**
+   * @param object An array of references
+   * @param type The type of the array
+   */
+  private static void dumpObjectArray(ObjectReference object, int type) {
+    int length = VM.objectModel.getArrayLength(object);
+    writer.startSubRecord(1 + ID_BYTES + 4 + 4 + ID_BYTES + length * ID_BYTES);
+    writer.u1(OBJECT_ARRAY_DUMP);
+    writer.id(object);
+    writer.u4(0);
+    writer.u4(length);
+    writer.id(getClassId(type));
+    references.write(object, writer, length);
+  }
+
+  /**
+   * @param object An array of primitive values
+   * @param type The type of the array
+   */
+  private static void dumpPrimitiveArray(ObjectReference object, int type) {
+    int basicType = elementType[type];
+    int size = getBasicSize(basicType);
+    int length = VM.objectModel.getArrayLength(object);
+    writer.startSubRecord(1 + ID_BYTES + 4 + 4 + 1 + length * size);
+    writer.u1(PRIMITIVE_ARRAY_DUMP);
+    writer.id(object);
+    writer.u4(0);
+    writer.u4(length);
+    writer.u1(basicType);
+    Address element = object.toAddress().plus(VM.ARRAY_BASE_OFFSET);
+    for (int i = 0; i < length; i++, element = element.plus(size)) {
+      switch (size) {
+        case 1: writer.u1(element.loadByte()); break;
+        case 2: writer.u2(element.loadChar()); break;
+        case 4: writer.u4(element.loadInt()); break;
+        default: writer.u8(element.loadLong()); break;
+      }
+    }
+  }
+
+  /**
+   * @param type The number of a type
+   * @return {@code true} if the descriptor of the type has the form
+   * <code>Lname;</code>
+   */
+  private static boolean isClassDescriptor(int type) {
+    int start = nameStart[type];
+    int length = nameLength[type];
+    return length > 2 && names[start] == 'L' && names[start + length - 1] == ';';
+  }
+
+  /**
+   * @param type The number of a type
+   * @return The length of the name of the type in a dump, which omits
+   * the <code>L</code> and <code>;</code> of a class descriptor
+   */
+  private static int getClassNameLength(int type) {
+    return nameLength[type] - (isClassDescriptor(type) ? 2 : 0);
+  }
+
+  /**
+   * @param value A non-negative value
+   * @return The number of decimal digits of the value
+   */
+  private static int getDigits(int value) {
+    int digits = 1;
+    for (int power = getPowerOfTen(value); power >= 10; power /= 10) digits++;
+    return digits;
+  }
+
+  /**
+   * @param value A non-negative value
+   * @return The power of ten of the leading decimal digit of the value
+   */
+  private static int getPowerOfTen(int value) {
+    int power = 1;
+    while (value / power >= 10) power *= 10;
+    return power;
+  }
+
+  /* The identifiers of classes, type names and field names */
+
+  private static Word getClassId(int type) {
+    return Word.fromIntZeroExtend(type + 1).lsh(LOG_ID_SPACING);
+  }
+
+  private static Word getNameId(int type) {
+    return Word.fromIntZeroExtend(TYPES + type + 1).lsh(LOG_ID_SPACING);
+  }
+
+  private static Word getFieldNameId(int field) {
+    return Word.fromIntZeroExtend(2 * TYPES + field + 1).lsh(LOG_ID_SPACING);
+  }
+
+  /**
+   * Counts the references held by an object, or writes them to a dump.
+   */
+  @Uninterruptible
+  private static final class ReferenceDumper extends TransitiveClosure {
+    private HprofWriter writer;
+    private int references;
+    private int limit;
+
+    /**
+     * @param object An object
+     * @return The number of references held by the object
+     */
+    int count(ObjectReference object) {
+      writer = null;
+      references = 0;
+      VM.scanning.scanObject(this, object);
+      return references;
+    }
+
+    /**
+     * Write the identifiers of the first references held by an object,
+     * padding with null references if there are fewer.
+     *
+     * @param object An object
+     * @param writer The writer of the dump
+     * @param limit The number of references to write
+     */
+    void write(ObjectReference object, HprofWriter writer, int limit) {
+      this.writer = writer;
+      this.limit = limit;
+      references = 0;
+      VM.scanning.scanObject(this, object);
+      for (; references < limit; references++) {
+        writer.id(Word.zero());
+      }
+    }
+
+    @Override
+    public void processEdge(ObjectReference source, Address slot) {
+      if (writer == null) {
+        references++;
+      } else if (references < limit) {
+        writer.id(slot.loadObjectReference());
+        references++;
+      }
+    }
+  }
+}
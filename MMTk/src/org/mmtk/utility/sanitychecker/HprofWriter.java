@@ -0,0 +1,248 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.sanitychecker;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+import org.vmmagic.unboxed.*;
+
+/**
+ * This class writes a heap dump in the HPROF binary format to a file,
+ * through a buffer of fixed size that is written out whenever it fills.<p>
+ *
+ * The sub-records of the heap dump are grouped into HEAP DUMP SEGMENT
+ * records, each of which is held in the buffer until it is complete, so
+ * that its length can be filled in before it is written.  A sub-record
+ * too large for the buffer is given a segment of its own, whose length
+ * is known in advance.
+ */
+@Uninterruptible
+final class HprofWriter {
+
+  /****************************************************************************
+   * Constants
+   */
+
+  /** The format name at the start of the file */
+  private static final char[] FORMAT = "JAVA PROFILE 1.0.2".toCharArray();
+
+  /** The size of the buffer */
+  private static final int BUFFER_BYTES = 1 << 16;
+
+  /** The size of a record header: tag, time and length */
+  private static final int RECORD_HEADER_BYTES = 9;
+
+  /** The size of an identifier */
+  static final int ID_BYTES = BYTES_IN_ADDRESS;
+
+  /* Record tags */
+  static final int UTF8 = 0x01;
+  static final int LOAD_CLASS = 0x02;
+  static final int HEAP_DUMP_SEGMENT = 0x1C;
+  static final int HEAP_DUMP_END = 0x2C;
+
+  /* Heap dump sub-record tags */
+  static final int ROOT_UNKNOWN = 0xFF;
+  static final int CLASS_DUMP = 0x20;
+  static final int INSTANCE_DUMP = 0x21;
+  static final int OBJECT_ARRAY_DUMP = 0x22;
+  static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+  /* Basic types */
+  static final int OBJECT = 2;
+  static final int BOOLEAN = 4;
+  static final int CHAR = 5;
+  static final int FLOAT = 6;
+  static final int DOUBLE = 7;
+  static final int BYTE = 8;
+  static final int SHORT = 9;
+  static final int INT = 10;
+  static final int LONG = 11;
+
+  /****************************************************************************
+   * Instance variables
+   */
+
+  private final byte[] buffer = new byte[BUFFER_BYTES];
+
+  /** The index of the next byte of the buffer to be written */
+  private int cursor;
+
+  /** The file being written */
+  private int fd;
+
+  /** Has a write to the file failed? */
+  private boolean failed;
+
+  /** Is there a heap dump segment in the buffer whose length is to be filled in? */
+  private boolean segmentOpen;
+
+  /** The index in the buffer of the length of the open segment */
+  private int segmentLength;
+
+  /****************************************************************************
+   * Records
+   */
+
+  /**
+   * Start writing a heap dump, with the file header.
+   *
+   * @param fd The file to write to
+   */
+  void begin(int fd) {
+    this.fd = fd;
+    cursor = 0;
+    failed = false;
+    segmentOpen = false;
+    for (int i = 0; i < FORMAT.length; i++) {
+      u1(FORMAT[i]);
+    }
+    u1(0);
+    u4(ID_BYTES);
+    u8(0);
+  }
+
+  /**
+   * Start a top level record.  The caller writes the body.
+   *
+   * @param tag The tag of the record
+   * @param length The length of the body
+   */
+  void startRecord(int tag, int length) {
+    closeSegment();
+    u1(tag);
+    u4(0);
+    u4(length);
+  }
+
+  /**
+   * Start a sub-record of the heap dump, placing it in a segment.  The
+   * caller writes the sub-record, beginning with its tag.
+   *
+   * @param length The length of the sub-record, including its tag
+   */
+  void startSubRecord(int length) {
+    if (segmentOpen && cursor + length > BUFFER_BYTES) {
+      closeSegment();
+    }
+    if (!segmentOpen) {
+      if (cursor + RECORD_HEADER_BYTES + length > BUFFER_BYTES) {
+        flush();
+      }
+      if (RECORD_HEADER_BYTES + length <= BUFFER_BYTES) {
+        u1(HEAP_DUMP_SEGMENT);
+        u4(0);
+        segmentLength = cursor;
+        u4(0);
+        segmentOpen = true;
+      } else {
+        startRecord(HEAP_DUMP_SEGMENT, length);
+      }
+    }
+  }
+
+  /**
+   * Finish the heap dump, writing out the buffer.
+   *
+   * @return {@code true} if the whole dump was written
+   */
+  boolean end() {
+    startRecord(HEAP_DUMP_END, 0);
+    flush();
+    return !failed;
+  }
+
+  /**
+   * Fill in the length of the open segment, if any.
+   */
+  private void closeSegment() {
+    if (!segmentOpen) return;
+    int length = cursor - segmentLength - 4;
+    buffer[segmentLength] = (byte) (length >>> 24);
+    buffer[segmentLength + 1] = (byte) (length >>> 16);
+    buffer[segmentLength + 2] = (byte) (length >>> 8);
+    buffer[segmentLength + 3] = (byte) length;
+    segmentOpen = false;
+  }
+
+  /**
+   * Write out the buffer.
+   */
+  private void flush() {
+    closeSegment();
+    if (!failed && cursor > 0) {
+      failed = !VM.strings.writeBytes(fd, buffer, cursor);
+    }
+    cursor = 0;
+  }
+
+  /****************************************************************************
+   * Values, written big endian
+   */
+
+  /**
+   * @param value The byte to write
+   */
+  void u1(int value) {
+    if (cursor == BUFFER_BYTES) {
+      if (VM.VERIFY_ASSERTIONS) VM.assertions._assert(!segmentOpen);
+      flush();
+    }
+    buffer[cursor++] = (byte) value;
+  }
+
+  /**
+   * @param value The two bytes to write
+   */
+  void u2(int value) {
+    u1(value >>> 8);
+    u1(value);
+  }
+
+  /**
+   * @param value The four bytes to write
+   */
+  void u4(int value) {
+    u2(value >>> 16);
+    u2(value);
+  }
+
+  /**
+   * @param value The eight bytes to write
+   */
+  void u8(long value) {
+    u4((int) (value >>> 32));
+    u4((int) value);
+  }
+
+  /**
+   * @param value The identifier to write
+   */
+  void id(Word value) {
+    if (ID_BYTES == 8) {
+      u8(value.toLong());
+    } else {
+      u4(value.toInt());
+    }
+  }
+
+  /**
+   * @param object The object whose identifier is to be written
+   */
+  void id(ObjectReference object) {
+    id(object.toAddress().toWord());
+  }
+}
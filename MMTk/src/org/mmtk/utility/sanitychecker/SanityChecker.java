@@ -49,6 +49,12 @@ public final class SanityChecker {
   private final SanityDataTable sanityTable;
   private boolean preGCSanity;
 
+  /* Is the table being built for a census rather than to be checked? */
+  private boolean census;
+
+  /* Is the census not wanted for this collection, so the trace is skipped? */
+  private boolean skipped;
+
   /* Local, but we only run the check trace single-threaded. */
   final SanityTraceLocal checkTraceLocal;
 
@@ -79,19 +85,43 @@ public final class SanityChecker {
   public boolean collectionPhase(int phaseId) {
     if (phaseId == Simple.SANITY_SET_PREGC) {
       preGCSanity = true;
+      census = false;
+      skipped = false;
       return true;
     }
 
     if (phaseId == Simple.SANITY_SET_POSTGC) {
       preGCSanity = false;
+      census = false;
+      skipped = false;
+      return true;
+    }
+
+    if (phaseId == Simple.SANITY_SET_CENSUS) {
+      preGCSanity = false;
+      census = true;
+      skipped = !HeapCensus.isWanted();
+      return true;
+    }
+
+    if (skipped && (phaseId == Simple.SANITY_PREPARE || phaseId == Simple.SANITY_ROOTS ||
+        phaseId == Simple.SANITY_BUILD_TABLE || phaseId == Simple.SANITY_CENSUS)) {
+      return true;
+    }
+
+    if (skipped && phaseId == Simple.SANITY_RELEASE) {
+      /* The global release ends the census, so later phases are no longer skipped */
+      skipped = false;
       return true;
     }
 
     if (phaseId == Simple.SANITY_PREPARE) {
-      Log.writeln("");
-      Log.write("============================== GC Sanity Checking ");
-      Log.writeln("==============================");
-      Log.writeln(preGCSanity ? "Performing Pre-GC Sanity Checks..." : "Performing Post-GC Sanity Checks...");
+      if (!census) {
+        Log.writeln("");
+        Log.write("============================== GC Sanity Checking ");
+        Log.writeln("==============================");
+        Log.writeln(preGCSanity ? "Performing Pre-GC Sanity Checks..." : "Performing Post-GC Sanity Checks...");
+      }
 
       // Reset counters
       referenceCount = 0;
@@ -166,11 +196,18 @@ public final class SanityChecker {
       return true;
     }
 
+    if (phaseId == Simple.SANITY_CENSUS) {
+      HeapCensus.take(sanityTable);
+      return true;
+    }
+
     if (phaseId == Simple.SANITY_RELEASE) {
       checkTrace.release();
       sanityTable.releaseTable();
       checkTraceLocal.release();
 
+      if (census) return true;
+
       Log.writeln("roots\tobjects\trefs\tnull");
       Log.write(rootReferenceCount);
       Log.write("\t", liveObjectCount);
@@ -186,6 +223,14 @@ public final class SanityChecker {
     return false;
   }
 
+  /**
+   * @return {@code true} if the trace of the current census is skipped,
+   * in which case stacks are not prepared for it either
+   */
+  public boolean isSkipped() {
+    return skipped;
+  }
+
   /**
    * Process an object during a linear scan of the heap. We have already checked
    * all objects in the table. So we are only interested in objects that are not in
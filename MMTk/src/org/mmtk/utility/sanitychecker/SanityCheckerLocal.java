@@ -44,6 +44,12 @@ public final class SanityCheckerLocal {
    */
   @NoInline
   public boolean collectionPhase(int phaseId, boolean primary) {
+    if (Plan.sanityChecker.isSkipped() && (phaseId == Simple.SANITY_PREPARE ||
+        phaseId == Simple.SANITY_ROOTS || phaseId == Simple.SANITY_COPY_ROOTS ||
+        phaseId == Simple.SANITY_RELEASE)) {
+      return true;
+    }
+
     if (phaseId == Simple.SANITY_PREPARE) {
       rootTraceLocal.prepare();
       return true;
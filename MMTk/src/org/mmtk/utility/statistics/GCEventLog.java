@@ -0,0 +1,551 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.mmtk.utility.statistics;
+
+import static org.mmtk.utility.Constants.*;
+
+import org.mmtk.plan.Phase;
+import org.mmtk.plan.Plan;
+import org.mmtk.policy.Space;
+import org.mmtk.utility.Log;
+import org.mmtk.utility.heap.layout.HeapParameters;
+import org.mmtk.utility.options.Options;
+
+import org.mmtk.vm.Lock;
+import org.mmtk.vm.VM;
+
+import org.vmmagic.pragma.*;
+
+/**
+ * This class keeps a record of each stop-the-world collection pause,
+ * and writes the records to the file named by the <code>gcLogFile</code>
+ * option, one JSON object per line.  Each record holds the time spent in
+ * each phase, the bytes reserved by each space before and after the
+ * pause, the bytes promoted (if the plan reports them) and the number of
+ * collector threads used.<p>
+ *
+ * The records are kept in arrays allocated when the options are
+ * processed, so nothing is allocated during collection.  The arrays
+ * only hold the records of the pauses that have not been written yet:
+ * once the mutators have resumed after each collection, the controller
+ * formats the new records into a fixed buffer, which is written to the
+ * file whenever it fills.  The start and end of every pause are also
+ * kept, up to a bound, and at exit the pause time percentiles and the
+ * minimum mutator utilization (MMU) over a range of windows are
+ * computed from them, printed and appended to the file.
+ */
+@Uninterruptible
+public final class GCEventLog {
+
+  /****************************************************************************
+   *
+   * Class variables
+   */
+
+  /** The number of pauses whose records may wait to be written */
+  private static final int PENDING_RECORDS = 1 << 4;
+
+  /** The maximum number of pauses whose times are kept for the summary */
+  private static final int MAX_TIMED_PAUSES = 1 << 16;
+
+  /** The number of characters formatted before the buffer is written out */
+  private static final int BUFFER_CHARS = 1 << 16;
+
+  /** The most characters a single record may need */
+  private static final int MAX_RECORD_CHARS = 256 + Phase.MAX_PHASES * 64 + HeapParameters.MAX_SPACES * 96;
+
+  /** The most characters a decimal number may need */
+  private static final int MAX_NUMBER_CHARS = 20;
+
+  /** The windows, in milliseconds, for which the MMU is computed */
+  private static final int[] MMU_WINDOWS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+  /** The pause time percentiles reported, in tenths of a percent */
+  private static final int[] PERCENTILES = {500, 900, 950, 990, 999};
+
+  /** Keeps the controller and an exiting mutator from writing the log at once */
+  private static final Lock lock = VM.newLock("GCEventLog");
+
+  private static boolean enabled = false;
+  private static int fd = -1;
+  private static long logStart;
+  private static int records = 0;
+  private static int writtenRecords = 0;
+  private static int droppedRecords = 0;
+  private static boolean inPause = false;
+  private static boolean recording = false;
+  private static long phaseStart;
+
+  /* The pending records, each of which is held at the same slot of every array */
+  private static int[] gcNumber;
+  private static long[] recordStart;
+  private static long[] recordEnd;
+  private static int[] workers;
+  private static long[] promotedBytes;
+  private static int[] phaseMicros;
+  private static int[] pagesBefore;
+  private static int[] pagesAfter;
+
+  /* The times of the first recorded pauses, for the summary */
+  private static long[] pauseStart;
+  private static long[] pauseEnd;
+
+  private static char[] buffer;
+  private static byte[] bytes;
+  private static int bufferChars;
+
+  /****************************************************************************
+   *
+   * Initialization
+   */
+
+  /**
+   * Open the log file and allocate the record arrays if a log file has
+   * been named.  This is called once the options have been processed.
+   */
+  @Interruptible
+  public static void boot() {
+    String fileName = Options.gcLogFile.getValue();
+    if (fileName.length() == 0) return;
+    fd = VM.strings.openFile(fileName);
+    if (fd < 0) {
+      Log.write("Could not open GC log file ");
+      Log.writeln(fileName);
+      return;
+    }
+    gcNumber = new int[PENDING_RECORDS];
+    recordStart = new long[PENDING_RECORDS];
+    recordEnd = new long[PENDING_RECORDS];
+    workers = new int[PENDING_RECORDS];
+    promotedBytes = new long[PENDING_RECORDS];
+    phaseMicros = new int[PENDING_RECORDS * Phase.MAX_PHASES];
+    pagesBefore = new int[PENDING_RECORDS * HeapParameters.MAX_SPACES];
+    pagesAfter = new int[PENDING_RECORDS * HeapParameters.MAX_SPACES];
+    pauseStart = new long[MAX_TIMED_PAUSES];
+    pauseEnd = new long[MAX_TIMED_PAUSES];
+    buffer = new char[BUFFER_CHARS + MAX_RECORD_CHARS];
+    bytes = new byte[BUFFER_CHARS + MAX_RECORD_CHARS];
+    logStart = VM.statistics.nanoTime();
+    enabled = true;
+  }
+
+  /****************************************************************************
+   *
+   * Collection-time recording
+   */
+
+  /**
+   * A stop-the-world pause has begun.
+   */
+  public static void startPause() {
+    if (!enabled || inPause) return;
+    inPause = true;
+    recording = records - writtenRecords < PENDING_RECORDS;
+    if (!recording) {
+      droppedRecords++;
+      return;
+    }
+    int slot = records % PENDING_RECORDS;
+    recordStart[slot] = VM.statistics.nanoTime();
+    gcNumber[slot] = Stats.gcCount();
+    promotedBytes[slot] = -1;
+    for (int p = 0; p < Phase.MAX_PHASES; p++) {
+      phaseMicros[slot * Phase.MAX_PHASES + p] = 0;
+    }
+    recordSpacePages(pagesBefore, slot);
+  }
+
+  /**
+   * The current stop-the-world pause has ended.
+   */
+  public static void endPause() {
+    if (!enabled || !inPause) return;
+    inPause = false;
+    if (!recording) return;
+    recording = false;
+    int slot = records % PENDING_RECORDS;
+    recordSpacePages(pagesAfter, slot);
+    workers[slot] = Plan.parallelWorkers.activeWorkerCount();
+    recordEnd[slot] = VM.statistics.nanoTime();
+    if (records < MAX_TIMED_PAUSES) {
+      pauseStart[records] = recordStart[slot];
+      pauseEnd[records] = recordEnd[slot];
+    }
+    records++;
+  }
+
+  /**
+   * A phase of the current pause has begun.
+   */
+  public static void startPhase() {
+    if (!enabled) return;
+    phaseStart = VM.statistics.nanoTime();
+  }
+
+  /**
+   * A phase of the current pause has ended.
+   *
+   * @param phaseId The phase
+   */
+  public static void endPhase(short phaseId) {
+    if (!enabled || !recording) return;
+    long micros = (VM.statistics.nanoTime() - phaseStart) / 1000;
+    phaseMicros[(records % PENDING_RECORDS) * Phase.MAX_PHASES + phaseId] += (int) micros;
+  }
+
+  /**
+   * Record the bytes promoted by the current pause.
+   *
+   * @param bytes The bytes promoted
+   */
+  public static void recordPromoted(long bytes) {
+    if (!enabled || !recording) return;
+    promotedBytes[records % PENDING_RECORDS] = bytes;
+  }
+
+  /**
+   * Record the pages reserved by each space in a record.
+   *
+   * @param pages The array into which the pages are recorded
+   * @param slot The slot of the record
+   */
+  private static void recordSpacePages(int[] pages, int slot) {
+    Space[] spaces = Space.getSpaces();
+    int base = slot * HeapParameters.MAX_SPACES;
+    for (int i = 0; i < Space.getSpaceCount(); i++) {
+      pages[base + i] = spaces[i].reservedPages();
+    }
+  }
+
+  /****************************************************************************
+   *
+   * Output
+   */
+
+  /**
+   * Format the records of the pauses that have ended, writing the buffer
+   * to the log file whenever it fills.  Called by the controller after
+   * each collection, once the mutators have resumed.
+   */
+  public static void flushRecords() {
+    if (!enabled) return;
+    lock.acquire();
+    if (enabled) formatRecords();
+    lock.release();
+  }
+
+  /**
+   * Format the records of the pauses that have ended, writing the buffer
+   * to the log file whenever it fills.
+   */
+  private static void formatRecords() {
+    while (writtenRecords < records) {
+      writeRecord(writtenRecords % PENDING_RECORDS);
+      writtenRecords++;
+      if (bufferChars >= BUFFER_CHARS) writeBuffer();
+    }
+  }
+
+  /**
+   * Write the remaining records to the log file, followed by a summary
+   * of the pause times and the MMU, which is also printed.
+   */
+  @Interruptible
+  public static void writeLog() {
+    if (!enabled) return;
+    lock.acquire();
+    formatRecords();
+    enabled = false;
+    lock.release();
+    long[] sorted = sortedPauseMicros();
+    writeSummary(sorted);
+    writeBuffer();
+    VM.strings.closeFile(fd);
+    printSummary(sorted);
+  }
+
+  /**
+   * Format a record into the buffer.
+   *
+   * @param slot The slot of the record
+   */
+  private static void writeRecord(int slot) {
+    write("{\"gc\":");
+    write(gcNumber[slot]);
+    write(",\"startUs\":");
+    write((recordStart[slot] - logStart) / 1000);
+    write(",\"pauseUs\":");
+    write((recordEnd[slot] - recordStart[slot]) / 1000);
+    write(",\"workers\":");
+    write(workers[slot]);
+    if (promotedBytes[slot] >= 0) {
+      write(",\"promotedBytes\":");
+      write(promotedBytes[slot]);
+    }
+    write(",\"phasesUs\":{");
+    boolean first = true;
+    for (short p = 1; p < Phase.MAX_PHASES; p++) {
+      int micros = phaseMicros[slot * Phase.MAX_PHASES + p];
+      if (micros == 0) continue;
+      if (!first) write(",");
+      first = false;
+      writeKey(Phase.getName(p));
+      write(micros);
+    }
+    write("},\"spaces\":{");
+    Space[] spaces = Space.getSpaces();
+    int base = slot * HeapParameters.MAX_SPACES;
+    for (int i = 0; i < Space.getSpaceCount(); i++) {
+      if (i > 0) write(",");
+      writeKey(spaces[i].getName());
+      write("{\"beforeBytes\":");
+      write((long) pagesBefore[base + i] << LOG_BYTES_IN_PAGE);
+      write(",\"afterBytes\":");
+      write((long) pagesAfter[base + i] << LOG_BYTES_IN_PAGE);
+      write("}");
+    }
+    write("}}\n");
+  }
+
+  /**
+   * Format the summary record into the buffer.
+   *
+   * @param sorted The pause durations, in ascending order
+   */
+  private static void writeSummary(long[] sorted) {
+    int timed = timedPauses();
+    write("{\"summary\":{\"pauses\":");
+    write(records + droppedRecords);
+    write(",\"recorded\":");
+    write(records);
+    write(",\"summarized\":");
+    write(timed);
+    write(",\"pauseUs\":{");
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      write("\"p");
+      write(PERCENTILES[i] / 10);
+      if (PERCENTILES[i] % 10 != 0) writeTenths(PERCENTILES[i] % 10);
+      write("\":");
+      write(percentile(sorted, PERCENTILES[i]));
+      write(",");
+    }
+    write("\"max\":");
+    write(timed == 0 ? 0 : sorted[timed - 1]);
+    write("},\"mmuPercent\":{");
+    for (int i = 0; i < MMU_WINDOWS.length; i++) {
+      int permille = mmuPermille(MMU_WINDOWS[i]);
+      if (permille < 0) break;
+      if (i > 0) write(",");
+      write("\"");
+      write(MMU_WINDOWS[i]);
+      write("ms\":");
+      write(permille / 10);
+      writeTenths(permille % 10);
+    }
+    write("}}}\n");
+  }
+
+  /**
+   * Print the summary of the pause times and the MMU.
+   *
+   * @param sorted The pause durations, in ascending order
+   */
+  private static void printSummary(long[] sorted) {
+    int timed = timedPauses();
+    Log.write("[GC log: ", records + droppedRecords);
+    Log.write(" pauses, ", records);
+    Log.write(" recorded, ", timed);
+    Log.writeln(" summarized]");
+    Log.write("Pause us:");
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      Log.write(" p");
+      Log.write(PERCENTILES[i] / 10);
+      if (PERCENTILES[i] % 10 != 0) Log.write(".", PERCENTILES[i] % 10);
+      Log.write(" ", percentile(sorted, PERCENTILES[i]));
+    }
+    Log.writeln(" max ", timed == 0 ? 0 : sorted[timed - 1]);
+    Log.write("MMU %:");
+    for (int w : MMU_WINDOWS) {
+      int permille = mmuPermille(w);
+      if (permille < 0) break;
+      Log.write(" ", w);
+      Log.write("ms ", permille / 10);
+      Log.write(".", permille % 10);
+    }
+    Log.writeln();
+  }
+
+  /**
+   * Write the buffer to the log file, and empty it.  The records are
+   * plain ASCII, so each character is written as a single byte.
+   */
+  private static void writeBuffer() {
+    for (int i = 0; i < bufferChars; i++) {
+      bytes[i] = (byte) buffer[i];
+    }
+    if (!VM.strings.writeBytes(fd, bytes, bufferChars)) {
+      Log.write("Warning: could not write GC log ");
+      Log.writeln(Options.gcLogFile.getValue());
+    }
+    bufferChars = 0;
+  }
+
+  /****************************************************************************
+   *
+   * Pause time analysis
+   */
+
+  /**
+   * @return The number of pauses whose times are kept for the summary
+   */
+  private static int timedPauses() {
+    return records < MAX_TIMED_PAUSES ? records : MAX_TIMED_PAUSES;
+  }
+
+  /**
+   * @param r The index of a timed pause
+   * @return The duration of the pause, in microseconds
+   */
+  private static long pauseMicros(int r) {
+    return (pauseEnd[r] - pauseStart[r]) / 1000;
+  }
+
+  /**
+   * @return The durations of the timed pauses, in microseconds, in
+   * ascending order
+   */
+  @Interruptible
+  private static long[] sortedPauseMicros() {
+    long[] sorted = new long[timedPauses()];
+    for (int r = 0; r < sorted.length; r++) {
+      long micros = pauseMicros(r);
+      int i = r;
+      for (; i > 0 && sorted[i - 1] > micros; i--) {
+        sorted[i] = sorted[i - 1];
+      }
+      sorted[i] = micros;
+    }
+    return sorted;
+  }
+
+  /**
+   * @param sorted The pause durations, in ascending order
+   * @param permille The percentile, in tenths of a percent
+   * @return The pause duration at the percentile
+   */
+  private static long percentile(long[] sorted, int permille) {
+    int timed = timedPauses();
+    if (timed == 0) return 0;
+    int rank = (int) (((long) timed * permille + 999) / 1000);
+    return sorted[rank == 0 ? 0 : rank - 1];
+  }
+
+  /**
+   * Compute the minimum mutator utilization over a window: the least
+   * fraction of any window of the run, between the first pause and the
+   * end of the last, left to the mutators.  The least utilization is
+   * found in a window that either starts with a pause or ends with one.
+   *
+   * @param windowMillis The window, in milliseconds
+   * @return The MMU, in tenths of a percent, or -1 if the recorded
+   * pauses span less than the window
+   */
+  private static int mmuPermille(int windowMillis) {
+    int timed = timedPauses();
+    if (timed == 0) return -1;
+    long window = windowMillis * 1000000L;
+    long first = pauseStart[0];
+    long last = pauseEnd[timed - 1];
+    if (last - first < window) return -1;
+    long worst = 0;
+    for (int r = 0; r < timed; r++) {
+      long start = Math.min(pauseStart[r], last - window);
+      long end = Math.max(pauseEnd[r], first + window);
+      worst = Math.max(worst, pauseTimeWithin(r, start, start + window));
+      worst = Math.max(worst, pauseTimeWithin(r, end - window, end));
+    }
+    return (int) (1000 - (worst * 1000 + window - 1) / window);
+  }
+
+  /**
+   * @param r The index of a record whose pause overlaps the interval
+   * @param start The start of the interval
+   * @param end The end of the interval
+   * @return The time spent in pauses within the interval
+   */
+  private static long pauseTimeWithin(int r, long start, long end) {
+    long total = 0;
+    for (int i = r; i >= 0 && pauseEnd[i] > start; i--) {
+      total += Math.min(pauseEnd[i], end) - Math.max(pauseStart[i], start);
+    }
+    for (int i = r + 1; i < timedPauses() && pauseStart[i] < end; i++) {
+      total += Math.min(pauseEnd[i], end) - Math.max(pauseStart[i], start);
+    }
+    return total;
+  }
+
+  /****************************************************************************
+   *
+   * Formatting
+   */
+
+  /**
+   * Append a string to the buffer.
+   *
+   * @param s The string
+   */
+  private static void write(String s) {
+    bufferChars += VM.strings.copyStringToChars(s, buffer, bufferChars, buffer.length);
+  }
+
+  /**
+   * Append a quoted key and a colon to the buffer.
+   *
+   * @param key The key
+   */
+  private static void writeKey(String key) {
+    write("\"");
+    write(key);
+    write("\":");
+  }
+
+  /**
+   * Append a decimal number to the buffer, unless the buffer is too full
+   * to hold it.
+   *
+   * @param value The number
+   */
+  private static void write(long value) {
+    if (bufferChars + MAX_NUMBER_CHARS > buffer.length) return;
+    if (value < 0) {
+      buffer[bufferChars++] = '-';
+      value = -value;
+    }
+    long divisor = 1;
+    while (value / divisor >= 10) divisor *= 10;
+    for (; divisor > 0; divisor /= 10) {
+      buffer[bufferChars++] = (char) ('0' + (value / divisor) % 10);
+    }
+  }
+
+  /**
+   * Append a decimal point and a single digit of tenths to the buffer.
+   *
+   * @param tenths The tenths
+   */
+  private static void writeTenths(int tenths) {
+    if (bufferChars + 2 > buffer.length) return;
+    buffer[bufferChars++] = '.';
+    buffer[bufferChars++] = (char) ('0' + tenths);
+  }
+}
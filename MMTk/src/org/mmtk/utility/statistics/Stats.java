@@ -14,6 +14,7 @@ package org.mmtk.utility.statistics;
 
 import org.mmtk.plan.Plan;
 import org.mmtk.utility.Log;
+import org.mmtk.utility.options.GCLogFile;
 import org.mmtk.utility.options.Options;
 import org.mmtk.utility.options.PrintPhaseStats;
 import org.mmtk.utility.options.XmlStats;
@@ -66,6 +67,7 @@ public class Stats {
    */
   static {
     counter = new Counter[MAX_COUNTERS];
+    Options.gcLogFile = new GCLogFile();
     Options.printPhaseStats = new PrintPhaseStats();
     Options.xmlStats = new XmlStats();
   }
@@ -25,10 +25,14 @@ public class Config {
   /** Zero pages on release? */
   public final boolean ZERO_PAGES_ON_RELEASE;
 
+  /** Mark-compact forwarding addresses derived from a side mark bitmap? */
+  public final boolean MARK_COMPACT_BITMAP;
+
   Config(BuildTimeConfig config) {
     ACTIVE_PLAN            = config.getPlanName();
     HEADER_MARK_BITS        = config.getBooleanProperty("mmtk.headerMarkBit",true);
     ZERO_PAGES_ON_RELEASE  = config.getBooleanProperty("mmtk.zeroPagesOnRelease",false);
+    MARK_COMPACT_BITMAP    = config.getBooleanProperty("mmtk.markCompactBitmap",false);
   }
 
   public void printConfig() {
@@ -37,6 +41,7 @@ public class Config {
     Log.writeln(ACTIVE_PLAN);
     Log.writeln("HEADER_MARK_BITS = ", HEADER_MARK_BITS);
     Log.writeln("ZERO_PAGES_ON_RELEASE = ", ZERO_PAGES_ON_RELEASE);
+    Log.writeln("MARK_COMPACT_BITMAP = ", MARK_COMPACT_BITMAP);
     Log.writeln("====================================================");
   }
 
@@ -45,6 +50,7 @@ public class Config {
     Xml.configItem("plan",ACTIVE_PLAN);
     Xml.configItem("header-mark-bit",HEADER_MARK_BITS);
     Xml.configItem("zero-pages-on-release",ZERO_PAGES_ON_RELEASE);
+    Xml.configItem("mark-compact-bitmap",MARK_COMPACT_BITMAP);
     Log.writeln("</config>");
   }
 }
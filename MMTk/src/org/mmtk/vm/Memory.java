@@ -97,6 +97,28 @@ import org.vmmagic.pragma.*;
    */
   public abstract boolean munprotect(Address start, int size);
 
+  /**
+   * Returns the physical memory backing an area of virtual memory to
+   * the operating system.  The area remains mapped, and reads as zero
+   * when next touched.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @return <code>true</code> if successful, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean decommit(Address start, int size);
+
+  /**
+   * Advises the operating system to back an area of virtual memory
+   * with huge pages.  This is a hint, which may be ignored.
+   *
+   * @param start the address of the start of the area
+   * @param size the size, in bytes, of the area
+   * @return <code>true</code> if the advice was accepted, otherwise
+   * <code>false</code>
+   */
+  public abstract boolean adviseHugePages(Address start, int size);
 
   /**
    * Zero a region of memory.
@@ -113,7 +113,9 @@ public abstract class ObjectModel {
 
 
   /**
-   * Get the type descriptor for an object.
+   * Get the type descriptor for an object.  Objects of the same type
+   * have equal descriptors, and the descriptor may be asked for during
+   * collection (for example by a heap census).
    *
    * @param ref address of the object
    * @return byte array with the type descriptor
@@ -12,6 +12,7 @@
  */
 package org.mmtk.vm;
 
+import org.mmtk.plan.CollectorContext;
 import org.mmtk.plan.TraceLocal;
 import org.vmmagic.pragma.Uninterruptible;
 
@@ -40,6 +41,30 @@ public abstract class ReferenceProcessor {
    */
   public abstract void scan(TraceLocal trace, boolean nursery, boolean retain);
 
+  /**
+   * Scan through the list of references in parallel.  This is called by
+   * every collector thread of the group, each of which processes a share
+   * of the table.<p>
+   *
+   * The default implementation has the primary thread perform a
+   * serial {@link #scan(TraceLocal, boolean, boolean)}.  VMs that
+   * support parallel processing of their reference tables should
+   * override this method.
+   *
+   * @param collector the collector context of the calling thread
+   * @param trace the thread local trace element.
+   * @param nursery {@code true} if it is safe to only scan new references.
+   * @param retain whether to retain those references whose referents are not
+   *  reachable
+   * @param primary whether the calling thread is the primary thread
+   *  for this phase
+   */
+  public void scanParallel(CollectorContext collector, TraceLocal trace, boolean nursery, boolean retain, boolean primary) {
+    if (primary) {
+      scan(trace, nursery, retain);
+    }
+  }
+
   /**
    * Iterate over all references and forward.
    *
@@ -48,6 +73,23 @@ public abstract class ReferenceProcessor {
    */
   public abstract void forward(TraceLocal trace, boolean nursery);
 
+  /**
+   * Iterate over all references and forward, in parallel.  This is called
+   * by every collector thread of the group.  The default implementation
+   * has the primary thread perform a serial {@link #forward(TraceLocal, boolean)}.
+   *
+   * @param collector the collector context of the calling thread
+   * @param trace The MMTk trace to forward to
+   * @param nursery The nursery collection hint
+   * @param primary whether the calling thread is the primary thread
+   *  for this phase
+   */
+  public void forwardParallel(CollectorContext collector, TraceLocal trace, boolean nursery, boolean primary) {
+    if (primary) {
+      forward(trace, nursery);
+    }
+  }
+
   /**
    * @return the number of references objects on the queue
    */
@@ -38,6 +38,28 @@ import org.vmmagic.unboxed.*;
    */
   public abstract void specializedScanObject(int id, TransitiveClosure trace, ObjectReference object);
 
+  /**
+   * If all of the references of an object lie in a single contiguous
+   * run of slots, as they do in an array of references, return the number
+   * of such slots.  This allows a trace to split a large object into
+   * chunks that may be scanned by different collectors.
+   *
+   * @param object The object
+   * @return the number of contiguous reference slots, or -1 if the
+   * references of the object are not laid out contiguously
+   */
+  public abstract int getReferenceArrayLength(ObjectReference object);
+
+  /**
+   * Return the address of the first reference slot of an object for which
+   * {@link #getReferenceArrayLength(ObjectReference)} returned a
+   * non-negative length.
+   *
+   * @param object The object
+   * @return the address of the first of its contiguous reference slots
+   */
+  public abstract Address getReferenceArrayStart(ObjectReference object);
+
   /**
    * Prepares for using the <code>computeAllRoots</code> method.  The
    * thread counter allows multiple GC threads to co-operatively
@@ -12,6 +12,7 @@
  */
 package org.mmtk.vm;
 
+import org.vmmagic.pragma.Interruptible;
 import org.vmmagic.pragma.Uninterruptible;
 
 
@@ -48,4 +49,33 @@ import org.vmmagic.pragma.Uninterruptible;
    */
   public abstract int copyStringToChars(String src, char [] dst,
       int dstBegin, int dstEnd);
+
+  /**
+   * Open a file for writing, replacing any existing contents.  This is
+   * only called outside of collection.
+   *
+   * @param fileName the name of the file
+   * @return a descriptor for the file, or a negative value if it
+   * could not be opened
+   */
+  @Interruptible
+  public abstract int openFile(String fileName);
+
+  /**
+   * Write bytes to a file opened by {@link #openFile}.  This may be
+   * called during collection, and must neither allocate nor yield.
+   *
+   * @param fd the descriptor of the file
+   * @param buf byte array with the data starting at index 0
+   * @param len number of bytes to write
+   * @return {@code true} if all of the bytes were written
+   */
+  public abstract boolean writeBytes(int fd, byte [] buf, int len);
+
+  /**
+   * Close a file opened by {@link #openFile}.
+   *
+   * @param fd the descriptor of the file
+   */
+  public abstract void closeFile(int fd);
 }
@@ -0,0 +1,250 @@
+/*
+ *  This file is part of the Jikes RVM project (http://jikesrvm.org).
+ *
+ *  This file is licensed to You under the Eclipse Public License (EPL);
+ *  You may not use this file except in compliance with the License. You
+ *  may obtain a copy of the License at
+ *
+ *      http://www.opensource.org/licenses/eclipse-1.0.php
+ *
+ *  See the COPYRIGHT.txt file distributed with this work for information
+ *  regarding copyright ownership.
+ */
+package org.jikesrvm.mm.mminterface;
+
+import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_INT;
+import static org.jikesrvm.runtime.JavaSizeConstants.LOG_BYTES_IN_LONG;
+
+import org.jikesrvm.VM;
+import org.jikesrvm.classloader.Atom;
+import org.jikesrvm.classloader.MemberReference;
+import org.jikesrvm.classloader.NormalMethod;
+import org.jikesrvm.classloader.RVMMethod;
+import org.jikesrvm.classloader.RVMType;
+import org.jikesrvm.objectmodel.TIB;
+import org.jikesrvm.runtime.Callbacks;
+import org.jikesrvm.runtime.StackBrowser;
+import org.jikesrvm.scheduler.Synchronization;
+import org.mmtk.utility.options.Options;
+import org.vmmagic.pragma.Interruptible;
+import org.vmmagic.pragma.NoInline;
+import org.vmmagic.pragma.Uninterruptible;
+import org.vmmagic.pragma.UnpreemptibleNoWarn;
+import org.vmmagic.unboxed.Offset;
+
+/**
+ * A sampling allocation profiler.<p>
+ *
+ * When the <code>allocationSampleBytes</code> option is set, MMTk's
+ * bump pointer allocators lower their internal limit so that the
+ * allocation crossing each sample point takes the slow path, where it
+ * is marked as a sample (see <code>BumpPointer</code>).  Once such an
+ * allocation is complete, the allocation sequence in
+ * {@link MemoryManager} reports it here, and the profiler browses a
+ * few frames of the stack to find the allocation site.  Allocation
+ * that is not sampled costs nothing beyond a test of the mutator's
+ * sample flag.<p>
+ *
+ * Samples are aggregated by allocation site and type into a fixed-size
+ * open addressing table that threads update without locking: an entry
+ * is claimed by atomically installing its key, and its counts are then
+ * updated atomically.  Entries are told apart by a 64-bit hash of the
+ * type and the frames, so distinct sites whose hashes collide would be
+ * merged.  The profile is reported when the VM exits, or on demand by
+ * calling {@link #report()}.
+ */
+@Uninterruptible
+public final class AllocationProfiler {
+
+  /** The number of frames recorded for each allocation site */
+  private static final int FRAMES = 4;
+
+  /** The number of entries in the table */
+  private static final int LOG_ENTRIES = 12;
+  private static final int ENTRIES = 1 << LOG_ENTRIES;
+
+  /** The number of entries printed in a report */
+  private static final int REPORTED_ENTRIES = 50;
+
+  /** Frames of classes implementing allocation, which are skipped */
+  private static final Atom[] ALLOCATION_CLASSES = {
+    Atom.findOrCreateAsciiAtom("Lorg/jikesrvm/mm/mminterface/AllocationProfiler;"),
+    Atom.findOrCreateAsciiAtom("Lorg/jikesrvm/mm/mminterface/MemoryManager;"),
+    Atom.findOrCreateAsciiAtom("Lorg/jikesrvm/runtime/RuntimeEntrypoints;")
+  };
+
+  /*
+   * The table, each entry of which is held at the same index of every
+   * array.  Method ids are stored plus one, so that zero marks the end
+   * of a truncated stack.
+   */
+  private static final long[] keys = new long[ENTRIES];
+  private static final int[] published = new int[ENTRIES];
+  private static final int[] typeIds = new int[ENTRIES];
+  private static final int[] methodIds = new int[ENTRIES * FRAMES];
+  private static final int[] bytecodeIndexes = new int[ENTRIES * FRAMES];
+  private static final int[] samples = new int[ENTRIES];
+  private static final long[] sampledBytes = new long[ENTRIES];
+
+  /** Samples lost because the table was full, held in an array to be updated atomically */
+  private static final int[] droppedSamples = new int[1];
+
+  /**
+   * Arrange for the profile to be reported at exit, if allocation is
+   * being sampled.  Called once the options have been processed.
+   */
+  @Interruptible
+  public static void boot() {
+    if (Options.allocationSampleBytes.getValue() == 0) return;
+    Callbacks.addExitMonitor(new Callbacks.ExitMonitor() {
+      @Override
+      public void notifyExit(int value) {
+        report();
+      }
+    });
+  }
+
+  /**
+   * Record a sampled allocation.  The allocations made here are too
+   * small to reach the next sample point, so cannot be sampled in turn.
+   *
+   * @param tib The type information block of the allocated object
+   * @param bytes The size of the allocated object
+   */
+  @NoInline
+  @UnpreemptibleNoWarn("Sampling is rare, and browsing the stack allocates")
+  public static void sample(TIB tib, int bytes) {
+    int[] methods = new int[FRAMES];
+    int[] indexes = new int[FRAMES];
+    StackBrowser browser = new StackBrowser();
+    browser.init();
+    while (isAllocationFrame(browser.getMethod()) && browser.hasMoreFrames()) {
+      browser.up();
+    }
+    int typeId = tib.getType().getId();
+    long key = typeId;
+    for (int f = 0; f < FRAMES; f++) {
+      RVMMethod method = browser.getMethod();
+      if (method == null) break;
+      methods[f] = method.getId() + 1;
+      indexes[f] = browser.getBytecodeIndex();
+      key = key * 31 + methods[f];
+      key = key * 31 + indexes[f];
+      if (!browser.hasMoreFrames()) break;
+      browser.up();
+    }
+    key ^= key >>> 29;
+    if (key == 0) key = 1;
+
+    int entry = findOrClaim(key, typeId, methods, indexes);
+    if (entry < 0) {
+      Synchronization.fetchAndAdd(droppedSamples, Offset.zero(), 1);
+      return;
+    }
+    Synchronization.fetchAndAdd(samples, Offset.fromIntZeroExtend(entry << LOG_BYTES_IN_INT), 1);
+    Offset bytesOffset = Offset.fromIntZeroExtend(entry << LOG_BYTES_IN_LONG);
+    long old;
+    do {
+      old = sampledBytes[entry];
+    } while (!Synchronization.tryCompareAndSwap(sampledBytes, bytesOffset, old, old + bytes));
+  }
+
+  /**
+   * Find the entry with the given key, claiming an empty one for it if
+   * there is none.
+   *
+   * @param key The key
+   * @param typeId The type of the sampled object
+   * @param methods The methods of the frames of the allocation site
+   * @param indexes The bytecode indexes of the frames of the allocation site
+   * @return The index of the entry, or -1 if the table is full
+   */
+  private static int findOrClaim(long key, int typeId, int[] methods, int[] indexes) {
+    int start = (int) (key ^ (key >>> 32)) & (ENTRIES - 1);
+    for (int probe = 0; probe < ENTRIES; probe++) {
+      int entry = (start + probe) & (ENTRIES - 1);
+      long current = keys[entry];
+      if (current == 0) {
+        Offset keyOffset = Offset.fromIntZeroExtend(entry << LOG_BYTES_IN_LONG);
+        if (Synchronization.tryCompareAndSwap(keys, keyOffset, 0L, key)) {
+          typeIds[entry] = typeId;
+          for (int f = 0; f < FRAMES; f++) {
+            methodIds[entry * FRAMES + f] = methods[f];
+            bytecodeIndexes[entry * FRAMES + f] = indexes[f];
+          }
+          Synchronization.tryCompareAndSwap(published, Offset.fromIntZeroExtend(entry << LOG_BYTES_IN_INT), 0, 1);
+          return entry;
+        }
+        current = keys[entry];
+      }
+      if (current == key) return entry;
+    }
+    return -1;
+  }
+
+  /**
+   * @param method The method of a frame
+   * @return {@code true} if the frame is part of the allocation sequence
+   */
+  private static boolean isAllocationFrame(RVMMethod method) {
+    if (method == null) return false;
+    Atom descriptor = method.getDeclaringClass().getDescriptor();
+    for (Atom allocationClass : ALLOCATION_CLASSES) {
+      if (descriptor == allocationClass) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Print the allocation sites and types with the most samples.
+   */
+  @Interruptible
+  public static void report() {
+    int sampleBytes = Options.allocationSampleBytes.getValue();
+    int[] order = new int[ENTRIES];
+    int entries = 0;
+    long total = 0;
+    for (int entry = 0; entry < ENTRIES; entry++) {
+      if (published[entry] == 0 || samples[entry] == 0) continue;
+      total += samples[entry];
+      int i = entries++;
+      for (; i > 0 && samples[order[i - 1]] < samples[entry]; i--) {
+        order[i] = order[i - 1];
+      }
+      order[i] = entry;
+    }
+
+    VM.sysWriteln("============================ Allocation Profile ============================");
+    VM.sysWriteln("Sampled one allocation in " + sampleBytes + " bytes: " + total + " samples, " +
+        entries + " sites, " + droppedSamples[0] + " dropped");
+    VM.sysWriteln("est. bytes\tsamples\tavg size\ttype");
+    for (int i = 0; i < entries && i < REPORTED_ENTRIES; i++) {
+      int entry = order[i];
+      VM.sysWriteln((long) samples[entry] * sampleBytes + "\t" + samples[entry] + "\t" +
+          sampledBytes[entry] / samples[entry] + "\t" + RVMType.getType(typeIds[entry]));
+      for (int f = 0; f < FRAMES; f++) {
+        int methodId = methodIds[entry * FRAMES + f];
+        if (methodId == 0) break;
+        VM.sysWriteln("\tat " + describeFrame(methodId - 1, bytecodeIndexes[entry * FRAMES + f]));
+      }
+    }
+    VM.sysWriteln("------------------------------ End Allocation Profile -----------------------------");
+  }
+
+  /**
+   * @param methodId The method of a frame
+   * @param bytecodeIndex The bytecode index of the frame
+   * @return A description of the frame
+   */
+  @Interruptible
+  private static String describeFrame(int methodId, int bytecodeIndex) {
+    RVMMethod method = MemberReference.getMethodRef(methodId).peekResolvedMethod();
+    if (method == null) return MemberReference.getMethodRef(methodId).toString();
+    String frame = method.getDeclaringClass() + "." + method.getName();
+    if (method instanceof NormalMethod) {
+      int line = ((NormalMethod) method).getLineNumberForBCIndex(bytecodeIndex);
+      if (line > 0) return frame + ":" + line;
+    }
+    return frame + " @" + bytecodeIndex;
+  }
+}
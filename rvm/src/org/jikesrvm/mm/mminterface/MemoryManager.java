@@ -146,6 +146,7 @@ public final class MemoryManager {
   @Interruptible
   public static void postBoot() {
     Selected.Plan.get().processOptions();
+    AllocationProfiler.boot();
 
     if (Options.noReferenceTypes.getValue()) {
       RVMType.JavaLangRefReferenceReferenceField.makeTraced();
@@ -542,6 +543,7 @@ public final class MemoryManager {
     Address region = allocateSpace(mutator, size, align, offset, allocator, site);
     Object result = ObjectModel.initializeScalar(region, tib, size);
     mutator.postAlloc(ObjectReference.fromObject(result), ObjectReference.fromObject(tib), size, allocator);
+    if (mutator.takeAllocationSample()) AllocationProfiler.sample(tib, size);
     return result;
   }
 
@@ -608,6 +610,7 @@ public final class MemoryManager {
     Address region = allocateSpace(mutator, size, align, offset, allocator, site);
     Object result = ObjectModel.initializeArray(region, tib, numElements, size);
     mutator.postAlloc(ObjectReference.fromObject(result), ObjectReference.fromObject(tib), size, allocator);
+    if (mutator.takeAllocationSample()) AllocationProfiler.sample(tib, size);
     return result;
   }
 
@@ -915,6 +918,7 @@ public final class MemoryManager {
 
     Object result = ObjectModel.initializeArray(region, fakeTib, elements, size);
     mutator.postAlloc(ObjectReference.fromObject(result), ObjectReference.fromObject(fakeTib), size, type.getMMAllocator());
+    if (mutator.takeAllocationSample()) AllocationProfiler.sample(fakeTib, size);
 
     /* Now we replace the TIB */
     ObjectModel.setTIB(result, realTib);
@@ -256,11 +256,15 @@ public class BootRecord {
   public Address sysWriteByteIP;
   public Address sysReadBytesIP;
   public Address sysWriteBytesIP;
+  public Address sysOpenFileIP;
+  public Address sysCloseFileIP;
 
   // mmap - memory mapping
   public Address sysMMapIP;
   public Address sysMMapErrnoIP;
   public Address sysMProtectIP;
+  public Address sysMAdviseDontNeedIP;
+  public Address sysMAdviseHugePageIP;
 
   // threads
   public Address sysNumProcessorsIP;
@@ -562,6 +562,35 @@ public class Memory {
     return SysCall.sysCall.sysMProtect(address, size, prot) == 0;
   }
 
+  /**
+   * Return the physical memory backing an address range to the operating
+   * system (madvise with MADV_DONTNEED).  The range stays mapped, and
+   * reads as zero when next touched.
+   * @param address Start of address range (Address)
+   * @param size Size of address range
+   * @return true iff success
+   */
+  public static boolean decommit(Address address, Extent size) {
+    if (VM.VerifyAssertions) {
+      VM._assert(isPageAligned(address) && isPageMultiple(size));
+    }
+    return SysCall.sysCall.sysMAdviseDontNeed(address, size) == 0;
+  }
+
+  /**
+   * Advise the operating system to back an address range with
+   * (transparent) huge pages (madvise with MADV_HUGEPAGE).
+   * @param address Start of address range (Address)
+   * @param size Size of address range
+   * @return true iff the advice was accepted
+   */
+  public static boolean adviseHugePages(Address address, Extent size) {
+    if (VM.VerifyAssertions) {
+      VM._assert(isPageAligned(address) && isPageMultiple(size));
+    }
+    return SysCall.sysCall.sysMAdviseHugePage(address, size) == 0;
+  }
+
   private static int pagesize = UNKNOWN;
   private static int pagesizeLog = UNKNOWN;
 
@@ -159,6 +159,12 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract int sysWriteBytes(int fd, Address buf, int cnt);
 
+  @SysCallTemplate
+  public abstract int sysOpenFile(byte[] name);
+
+  @SysCallTemplate
+  public abstract int sysCloseFile(int fd);
+
   // mmap - memory mapping
   @SysCallTemplate
   public abstract Address sysMMap(Address start, Extent length, int protection, int flags, int fd, Offset offset);
@@ -169,6 +175,12 @@ public abstract class SysCall {
   @SysCallTemplate
   public abstract int sysMProtect(Address start, Extent length, int prot);
 
+  @SysCallTemplate
+  public abstract int sysMAdviseDontNeed(Address start, Extent length);
+
+  @SysCallTemplate
+  public abstract int sysMAdviseHugePage(Address start, Extent length);
+
   // threads
   @SysCallTemplate
   public abstract int sysNumProcessors();
@@ -179,6 +179,8 @@ EXTERNAL int sysReadByte(int fd);
 EXTERNAL int sysWriteByte(int fd, int data);
 EXTERNAL int sysReadBytes(int fd, char *buf, int cnt);
 EXTERNAL int sysWriteBytes(int fd, char *buf, int cnt);
+EXTERNAL int sysOpenFile(char *name);
+EXTERNAL int sysCloseFile(int fd);
 // sysLibrary
 EXTERNAL void* sysDlopen(char *libname);
 EXTERNAL void* sysDlsym(Address libHandler, char *symbolName);
@@ -232,6 +234,8 @@ EXTERNAL void * sysMMapErrno(char *start , size_t length ,
                              int protection , int flags ,
                              int fd , Offset offset);
 EXTERNAL int sysMProtect(char *start, size_t length, int prot);
+EXTERNAL int sysMAdviseDontNeed(char *start, size_t length);
+EXTERNAL int sysMAdviseHugePage(char *start, size_t length);
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt);
 EXTERNAL void sysMemmove(void *dst, const void *src, Extent cnt);
 EXTERNAL void sysSyncCache(void *address, size_t size);
@@ -14,6 +14,7 @@
 #include "sys.h"
 
 #include <errno.h>
+#include <fcntl.h> // open
 #include <string.h> // strerror
 #include <unistd.h> // read, close, fsync, ...
 
@@ -135,3 +136,31 @@ EXTERNAL int sysWriteBytes(int fd, char *buf, int cnt)
     }
   }
 }
+
+/**
+ * Opens a file for writing, creating it or truncating its contents.
+ * Taken:     null terminated name of the file
+ * Returned:  file descriptor (-1: error)
+ */
+EXTERNAL int sysOpenFile(char *name)
+{
+  TRACE_PRINTF("%s: sysOpenFile %s\n", Me, name);
+  int fd = open(name, O_WRONLY | O_CREAT | O_TRUNC, 0644);
+  if (fd < 0) {
+    int err = errno;
+    ERROR_PRINTF("%s: open error %d (%s) on %s\n", Me,
+                 err, strerror( err ), name);
+  }
+  return fd;
+}
+
+/**
+ * Closes a file descriptor.
+ * Taken:     file descriptor
+ * Returned:  0 (success) or -1 (failure)
+ */
+EXTERNAL int sysCloseFile(int fd)
+{
+  TRACE_PRINTF("%s: sysCloseFile %d\n", Me, fd);
+  return close(fd);
+}
@@ -257,6 +257,38 @@ EXTERNAL int sysMProtect(char *start, size_t length, int prot)
   return mprotect(start, length, prot);
 }
 
+/**
+ * madvise(MADV_DONTNEED): release the physical memory backing a region,
+ * which remains mapped and reads as zero when next touched.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysMAdviseDontNeed(char *start, size_t length)
+{
+  TRACE_PRINTF("%s: sysMAdviseDontNeed %p %zu\n",
+               Me, start, length);
+  return madvise(start, length, MADV_DONTNEED);
+}
+
+/**
+ * madvise(MADV_HUGEPAGE): ask for a region to be backed by transparent
+ * huge pages, where the platform supports them.
+ * Taken:     start address (Java ADDRESS)
+ *            length of region (Java EXTENT)
+ * Returned:  0 (success) or -1 (failure) (Java int)
+ */
+EXTERNAL int sysMAdviseHugePage(char *start, size_t length)
+{
+  TRACE_PRINTF("%s: sysMAdviseHugePage %p %zu\n",
+               Me, start, length);
+#ifdef MADV_HUGEPAGE
+  return madvise(start, length, MADV_HUGEPAGE);
+#else
+  return -1;
+#endif
+}
+
 /** Memory to memory copy. Memory regions must not overlap. */
 EXTERNAL void sysCopy(void *dst, const void *src, Extent cnt)
 {